@@ -1,11 +1,17 @@
 package com.barchart.feed.api.series.network;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import rx.Observer;
 import rx.subscriptions.Subscriptions;
@@ -17,6 +23,10 @@ import com.barchart.feed.api.series.Span;
  * Base class which participates in an interconnected graph of executable objects,
  * which expect a number of pre-configured inputs and deliver one or more pre-configured
  * outputs.
+ * <p>
+ * A {@code Node} does not own a thread: whenever an ancestor hands it a
+ * modified {@link Span}, its processing is submitted to its
+ * {@link NodeScheduler}.
  *
  * @author David Ray
  */
@@ -36,15 +46,20 @@ public abstract class Node<S extends Subscription> implements Runnable {
 	/** Parent path */
 	protected List<Node<S>> parentNodes;
 
-	/** Thread monitor object */
+	/** Monitor object available to subclasses */
 	private final Object waitLock = new Object();
 
 	/** Flag to control startup and shutdown barriers */
-	private boolean isRunning;
+	private volatile boolean isRunning;
 
 	/** Flag to indicated that a valid date range has been updated among source {@link DataSeries} */
-	private boolean isUpdated;
+	private volatile boolean isUpdated;
 
+	/** Set while this {@code Node} is queued or being processed by its scheduler */
+	private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+	/** Executes this {@code Node}'s processing */
+	private volatile NodeScheduler scheduler = NodeScheduler.getDefault();
 
 
 	/**
@@ -61,7 +76,7 @@ public abstract class Node<S extends Subscription> implements Runnable {
 	public void startUp() {
 		if(!isRunning) {
 			this.isRunning = true;
-			(new Thread(this, this.toString())).start();
+			schedule();
 		}
 
 		for(Node<S> n : parentNodes) {
@@ -74,13 +89,6 @@ public abstract class Node<S extends Subscription> implements Runnable {
 	 */
 	public void shutDown() {
 	    this.isRunning = false;
-	    try {
-            synchronized(waitLock) {
-                waitLock.notify();
-            }
-        }catch(Exception e) {
-            e.printStackTrace();
-        }
 	}
 
 	/**
@@ -103,22 +111,146 @@ public abstract class Node<S extends Subscription> implements Runnable {
 	 * @return
 	 */
 	public boolean setModifiedSpan(final Span span, final List<S>  ancestorOutputSubscriptions) {
+		acceptModifiedSpan(span, ancestorOutputSubscriptions);
+
+		schedule();
+
+		return true;
+	}
+
+	/**
+	 * Hands the specified {@link Span} to the input matching one of the
+	 * ancestor's output {@link Subscription}s, without scheduling.
+	 */
+	private void acceptModifiedSpan(final Span span, final List<S>  ancestorOutputSubscriptions) {
 	    final List<S> inputSubscriptions = getInputSubscriptions();
 		for(final S s : ancestorOutputSubscriptions) {
 		    if(inputSubscriptions.contains(s)) {
 		        updateModifiedSpan(span, s); break;
 		    }
 		}
+	}
 
-		try {
-			synchronized(waitLock) {
-				waitLock.notify();
+	/**
+	 * Evaluates the network reachable from the specified source {@code Node}s
+	 * once, in topological order, on the calling thread.
+	 * <p>
+	 * Intended for complete historical ranges: every {@code Node} processes
+	 * the whole range in one call and hands the resulting {@link Span}
+	 * straight to its children, with no scheduler hand off between nodes.
+	 * A child is processed only after all of its ancestors in the reachable
+	 * network. Nodes which are not running keep their input for
+	 * {@link #startUp()}, and a {@code Node} already queued on its scheduler
+	 * is left to it. An exception thrown by one {@code Node}'s processing is
+	 * reported the same way {@link #run()} reports it; its children are still
+	 * evaluated, with whatever input they already hold.
+	 *
+	 * @param sources      the {@code Node}s holding the new input.
+	 */
+	public static <S extends Subscription> void evaluate(final Collection<? extends Node<S>> sources) {
+	    // Count, for each reachable node, its parents within the reachable network
+	    final Map<Node<S>, int[]> pending = new IdentityHashMap<Node<S>, int[]>();
+	    final Deque<Node<S>> stack = new ArrayDeque<Node<S>>(sources);
+	    for(final Node<S> n : sources) {
+	        pending.put(n, new int[1]);
+	    }
+	    while(!stack.isEmpty()) {
+	        for(final Node<S> child : stack.pop().childNodes) {
+	            int[] count = pending.get(child);
+	            if(count == null) {
+	                pending.put(child, count = new int[1]);
+	                stack.push(child);
+	            }
+	            count[0]++;
+	        }
+	    }
+
+	    final Deque<Node<S>> ready = new ArrayDeque<Node<S>>();
+	    for(final Map.Entry<Node<S>, int[]> e : pending.entrySet()) {
+	        if(e.getValue()[0] == 0) {
+	            ready.add(e.getKey());
+	        }
+	    }
+
+	    while(!ready.isEmpty()) {
+	        final Node<S> node = ready.poll();
+	        if(node.isScheduled.compareAndSet(false, true)) {
+	            // Reported as run() does, the rest of the pass goes on
+	            try {
+	                node.drain(false);
+	            }catch(Exception e) {
+	                e.printStackTrace();
+	            }finally {
+	                node.isScheduled.set(false);
+	            }
+	            node.schedule();
+	        }
+	        for(final Node<S> child : node.childNodes) {
+	            final int[] count = pending.get(child);
+	            if(count != null && --count[0] == 0) {
+	                ready.add(child);
+	            }
+	        }
+	    }
+	}
+
+	/**
+	 * Processes pending input until there is none left, handing each
+	 * resulting {@link Span} to the child nodes.
+	 *
+	 * @param scheduleChildren     true to schedule the children, false to
+	 *                             only hand them the span.
+	 */
+	private void drain(final boolean scheduleChildren) {
+		while(isRunning && isUpdated()) {
+			setUpdated(false);
+			if(hasAllAncestorUpdates()) {
+				Span span = this.process();
+				if(span != null) {
+					List<S> outputs = getOutputSubscriptions();
+					for(Node<S> nextNode : childNodes) {
+						if(scheduleChildren) {
+							nextNode.setModifiedSpan(span, outputs);
+						}else{
+							nextNode.acceptModifiedSpan(span, outputs);
+						}
+					}
+				}
 			}
-		}catch(Exception e) {
-			e.printStackTrace();
 		}
+	}
 
-		return true;
+	/**
+	 * Sets the {@link NodeScheduler} which executes this {@code Node}'s
+	 * processing. Takes effect the next time this {@code Node} is scheduled.
+	 *
+	 * @param scheduler    the {@link NodeScheduler} to use.
+	 */
+	public void setScheduler(NodeScheduler scheduler) {
+	    if(scheduler == null) {
+	        throw new IllegalArgumentException("Attempt to set a null scheduler.");
+	    }
+	    this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns the {@link NodeScheduler} which executes this {@code Node}'s
+	 * processing.
+	 *
+	 * @return     this {@code Node}'s {@link NodeScheduler}
+	 */
+	public NodeScheduler getScheduler() {
+	    return scheduler;
+	}
+
+	/**
+	 * Submits this {@code Node} to its scheduler if it is running, has input
+	 * to process and is not already queued or being processed.
+	 */
+	private void schedule() {
+	    if(isRunning && isUpdated() && isScheduled.compareAndSet(false, true)) {
+	        scheduler.execute(this);
+	    }
 	}
 
 	/**
@@ -423,42 +555,22 @@ public abstract class Node<S extends Subscription> implements Runnable {
 
 
 	/**
-	 * Main {@link Thread} body
+	 * Task body, executed by this {@code Node}'s {@link NodeScheduler}.
+	 * Processes pending input, then hands the resulting {@link Span} to the
+	 * child nodes, which schedules them in turn.
 	 */
 	@Override
 	public void run() {
-		while(isRunning) {
-			if(isUpdated()) {
-				System.out.println(this + " isUpdated");
-				setUpdated(false);
-				if(hasAllAncestorUpdates()) {
-					System.out.println(this + " hasAllAncestorUpdates()");
-					Span span = this.process();
-					if(span != null) {
-						List<S> outputs = getOutputSubscriptions();
-						for(Node<S> nextNode : childNodes) {
-							nextNode.setModifiedSpan(span, outputs);
-						}
-					}
-				}
-			}
-
-			if(!isUpdated()) {
-				try {
-					synchronized(waitLock) {
-						System.out.println(this + " waiting..." + (getOutputSubscriptions().size() < 1 ? "" : getOutputSubscriptions().get(0)));
-						if(isRunning) {
-						    waitLock.wait();
-						}
-						System.out.println(this + " waking up " + (getOutputSubscriptions().size() < 1 ? "" : getOutputSubscriptions().get(0)));
-					}
-				}catch(Exception e) {
-					e.printStackTrace();
-				}
-			}
+		try {
+			drain(true);
+		}catch(Exception e) {
+			e.printStackTrace();
+		}finally {
+			isScheduled.set(false);
 		}
 
-		System.out.println(this + " shutting down...");
+		// Input which arrived after the last check but was refused by schedule()
+		schedule();
 	}
 
 }
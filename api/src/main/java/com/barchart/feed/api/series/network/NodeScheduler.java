@@ -0,0 +1,112 @@
+package com.barchart.feed.api.series.network;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the processing of {@link Node}s in a network on a bounded pool of
+ * threads.
+ * <p>
+ * A {@code Node} is submitted only once it has been handed new input, and its
+ * children are submitted only after it has finished processing, so the network
+ * is evaluated in topological order while idle nodes hold no thread at all. A
+ * single {@code Node} is never processed by two threads at once.
+ * <p>
+ * The number of threads is therefore independent of the number of nodes in the
+ * network. Unless configured otherwise, every {@code Node} shares the
+ * {@link #getDefault() default} scheduler.
+ *
+ * @see Node#setScheduler(NodeScheduler)
+ */
+public class NodeScheduler {
+	/** Lazily created, shared scheduler */
+	private static class Holder {
+		static final NodeScheduler DEFAULT = new NodeScheduler(Runtime.getRuntime().availableProcessors());
+	}
+
+	/** The executor running node tasks */
+	private final Executor executor;
+
+	/** Pool owned by this scheduler, or null when the executor was supplied */
+	private final ExecutorService pool;
+
+	/**
+	 * Constructs a new {@code NodeScheduler} owning a pool of at most the
+	 * specified number of daemon threads.
+	 *
+	 * @param threads  the maximum number of threads processing nodes.
+	 */
+	public NodeScheduler(final int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("A scheduler needs at least one thread: " + threads);
+		}
+
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger counter = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "series-node-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		pool.allowCoreThreadTimeOut(true);
+
+		this.pool = pool;
+		this.executor = pool;
+	}
+
+	/**
+	 * Constructs a new {@code NodeScheduler} which submits node processing to
+	 * the specified {@link Executor}, such as a work stealing pool. The caller
+	 * remains responsible for the executor's lifecycle.
+	 *
+	 * @param executor the {@link Executor} to run nodes on.
+	 */
+	public NodeScheduler(final Executor executor) {
+		if(executor == null) {
+			throw new IllegalArgumentException("Attempt to create a scheduler with a null executor.");
+		}
+		this.executor = executor;
+		this.pool = null;
+	}
+
+	/**
+	 * Returns the scheduler shared by all {@link Node}s which were not given
+	 * one explicitly, sized to the number of available processors.
+	 *
+	 * @return the default {@code NodeScheduler}
+	 */
+	public static NodeScheduler getDefault() {
+		return Holder.DEFAULT;
+	}
+
+	/**
+	 * Submits the processing of the specified {@link Node}.
+	 *
+	 * @param node the {@link Node} which has input to process.
+	 */
+	void execute(final Node<?> node) {
+		executor.execute(node);
+	}
+
+	/**
+	 * Stops the threads of a pool created by this scheduler after the
+	 * currently queued nodes have been processed. Has no effect on a
+	 * supplied {@link Executor}. Must not be called on the
+	 * {@link #getDefault() default} scheduler.
+	 */
+	public void shutDown() {
+		if(pool != null) {
+			pool.shutdown();
+		}
+	}
+
+}
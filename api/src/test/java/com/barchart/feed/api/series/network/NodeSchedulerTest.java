@@ -0,0 +1,227 @@
+package com.barchart.feed.api.series.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.series.Span;
+
+public class NodeSchedulerTest {
+	private static final Span SPAN = (Span)Proxy.newProxyInstance(NodeSchedulerTest.class.getClassLoader(),
+		new Class<?>[] { Span.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return null;
+			}
+		});
+
+	@Test
+	public void testNetworkOnOneThread() throws Exception {
+		final NodeScheduler scheduler = new NodeScheduler(1);
+		final int width = 200;
+		final CountDownLatch done = new CountDownLatch(width);
+
+		final TestNode root = new TestNode("root", null, SPAN);
+		root.setScheduler(scheduler);
+
+		for(int i = 0;i < width;i++) {
+			final TestNode leaf = new TestNode("leaf" + i, done, null);
+			leaf.setScheduler(scheduler);
+			leaf.addParentNode(root);
+			root.addChildNode(leaf);
+			leaf.startUp();
+		}
+
+		root.setModifiedSpan(null, Collections.<Subscription>singletonList(null));
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, root.processed.get());
+
+		scheduler.shutDown();
+	}
+
+	@Test
+	public void testNotRunningUntilStarted() throws Exception {
+		final NodeScheduler scheduler = new NodeScheduler(2);
+		final CountDownLatch done = new CountDownLatch(1);
+
+		final TestNode node = new TestNode("node", done, null);
+		node.setScheduler(scheduler);
+
+		node.setModifiedSpan(null, Collections.<Subscription>singletonList(null));
+		assertEquals(0, node.processed.get());
+
+		// Pending input is processed once started
+		node.startUp();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		node.shutDown();
+		scheduler.shutDown();
+	}
+
+	@Test
+	public void testEvaluateInTopologicalOrder() {
+		// Any hand off to the scheduler fails the test
+		final NodeScheduler scheduler = new NodeScheduler(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new AssertionError("scheduled " + command);
+			}
+		});
+
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		final TestNode root = new TestNode("root", null, SPAN, order);
+		final TestNode left = new TestNode("left", null, SPAN, order);
+		final TestNode right = new TestNode("right", null, SPAN, order);
+		final TestNode join = new TestNode("join", null, null, order);
+
+		for(TestNode n : Arrays.asList(root, left, right, join)) {
+			n.setScheduler(scheduler);
+		}
+		link(root, left);
+		link(root, right);
+		link(left, join);
+		link(right, join);
+
+		join.startUp();
+
+		root.setUpdated(true);
+		Node.evaluate(Collections.singletonList(root));
+
+		assertEquals(4, order.size());
+		assertEquals("root", order.get(0));
+		assertEquals("join", order.get(3));
+	}
+
+	@Test
+	public void testEvaluateSurvivesProcessError() {
+		final NodeScheduler scheduler = new NodeScheduler(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new AssertionError("scheduled " + command);
+			}
+		});
+
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		final TestNode root = new TestNode("root", null, SPAN, order);
+		final TestNode failing = new TestNode("failing", null, SPAN, order) {
+			@Override
+			protected Span process() {
+				super.process();
+				throw new IllegalStateException("test failure");
+			}
+		};
+		final TestNode sibling = new TestNode("sibling", null, SPAN, order);
+		final TestNode leaf = new TestNode("leaf", null, null, order);
+
+		for(TestNode n : Arrays.asList(root, failing, sibling, leaf)) {
+			n.setScheduler(scheduler);
+		}
+		link(root, failing);
+		link(root, sibling);
+		link(sibling, leaf);
+
+		leaf.startUp();
+		failing.startUp();
+
+		root.setUpdated(true);
+		Node.evaluate(Collections.singletonList(root));
+
+		// The failure neither escapes nor stops the rest of the pass
+		assertEquals(4, order.size());
+		assertTrue(order.contains("failing"));
+		assertEquals("leaf", order.get(3));
+	}
+
+	private static void link(TestNode parent, TestNode child) {
+		child.addParentNode(parent);
+		parent.addChildNode(child);
+	}
+
+	private static class TestNode extends Node<Subscription> {
+		private final String name;
+		private final CountDownLatch done;
+		private final Span output;
+		private final List<String> order;
+		private final AtomicInteger processed = new AtomicInteger();
+
+		TestNode(String name, CountDownLatch done, Span output) {
+			this(name, done, output, null);
+		}
+
+		TestNode(String name, CountDownLatch done, Span output, List<String> order) {
+			this.name = name;
+			this.done = done;
+			this.output = output;
+			this.order = order;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public boolean isDerivableSource(Subscription subscription) {
+			return false;
+		}
+
+		@Override
+		protected <T extends Span> void updateModifiedSpan(T span, Subscription subscription) {
+			setUpdated(true);
+		}
+
+		@Override
+		protected boolean hasAllAncestorUpdates() {
+			return true;
+		}
+
+		@Override
+		protected Span process() {
+			processed.incrementAndGet();
+			if(order != null) {
+				order.add(name);
+			}
+			if(done != null) {
+				done.countDown();
+			}
+			return output;
+		}
+
+		@Override
+		public List<Subscription> getOutputSubscriptions() {
+			return Collections.<Subscription>singletonList(null);
+		}
+
+		@Override
+		public List<Subscription> getInputSubscriptions() {
+			return Collections.<Subscription>singletonList(null);
+		}
+
+		@Override
+		public Subscription getDerivableOutputSubscription(Subscription subscription) {
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.book.api;
+
+import com.barchart.feed.api.model.meta.Instrument;
+
+/**
+ * incremental book change consumer; called from market fireEvents() once a
+ * message is fully applied;
+ * deltas are keyed by price, apply them on top of the last snapshot and trim
+ * to book depth; sequence grows by one per book change
+ */
+public interface MarketBookListener {
+
+	/**
+	 * one level changed; delta act is MODIFY or REMOVE, type is COMBINED,
+	 * size is combined level size after the change
+	 */
+	void onBookDelta(Instrument instrument, long sequence,
+			MarketDoBookEntry delta, boolean isTop);
+
+	/**
+	 * full frozen book; sent on subscribe, after book reset or window shift
+	 * and every N changes
+	 */
+	void onBookSnapshot(Instrument instrument, long sequence, MarketBook book);
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.collections;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * bounded lock free multi producer / multi consumer ring queue;
+ *
+ * each slot carries a sequence number which tells producers and consumers
+ * whose turn it is; capacity is rounded up to power of 2
+ */
+@ThreadSafe
+public class ConcurrentRingQueue<V> {
+
+	private final int mask;
+
+	private final AtomicReferenceArray<V> array;
+
+	private final AtomicLongArray sequence;
+
+	/** next consumer position */
+	private final AtomicLong head = new AtomicLong(0);
+
+	/** next producer position */
+	private final AtomicLong tail = new AtomicLong(0);
+
+	public ConcurrentRingQueue(final int size) {
+
+		if (size <= 0) {
+			throw new IllegalArgumentException("size <= 0");
+		}
+
+		int length = 1;
+		while (length < size) {
+			length <<= 1;
+		}
+
+		mask = length - 1;
+		array = new AtomicReferenceArray<V>(length);
+		sequence = new AtomicLongArray(length);
+
+		for (int k = 0; k < length; k++) {
+			sequence.set(k, k);
+		}
+
+	}
+
+	public final int capacity() {
+		return mask + 1;
+	}
+
+	/** @return false if queue is full */
+	public final boolean offer(final V value) {
+
+		assert value != null;
+
+		for (;;) {
+
+			final long position = tail.get();
+			final int index = (int) position & mask;
+			final long delta = sequence.get(index) - position;
+
+			if (delta == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					array.lazySet(index, value);
+					sequence.set(index, position + 1);
+					return true;
+				}
+			} else if (delta < 0) {
+				return false;
+			}
+
+		}
+
+	}
+
+	/** @return null if queue is empty */
+	public final V poll() {
+
+		for (;;) {
+
+			final long position = head.get();
+			final int index = (int) position & mask;
+			final long delta = sequence.get(index) - (position + 1);
+
+			if (delta == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					final V value = array.get(index);
+					array.lazySet(index, null);
+					sequence.set(index, position + mask + 1);
+					return value;
+				}
+			} else if (delta < 0) {
+				return null;
+			}
+
+		}
+
+	}
+
+	/** approximate under concurrent access */
+	public final int size() {
+
+		final long size = tail.get() - head.get();
+
+		if (size < 0) {
+			return 0;
+		}
+
+		if (size > capacity()) {
+			return capacity();
+		}
+
+		return (int) size;
+
+	}
+
+	public final boolean isEmpty() {
+		return size() == 0;
+	}
+
+}
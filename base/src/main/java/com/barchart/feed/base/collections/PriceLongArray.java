@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.collections;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.provider.ValueConst;
+import com.barchart.util.common.anno.NotThreadSafe;
+import com.barchart.util.common.math.MathExtra;
+
+/**
+ * primitive price ladder of long counters, same indexing as
+ * {@link PriceArrayMap}; head is the lowest price seen; grows in both
+ * directions with spare room on each side, so accumulation does not allocate
+ */
+@NotThreadSafe
+public class PriceLongArray {
+
+	static final int INITIAL_CAPACITY = 16;
+
+	private static final long[] EMPTY = new long[0];
+
+	protected final PriceValue keyStep;
+
+	protected final long stepMantissa;
+
+	protected final int stepExponent;
+
+	/** counters; logical index 0 lives at array offset base */
+	private long[] array;
+
+	private int base;
+
+	private int size;
+
+	/** head price mantissa at step exponent */
+	private long headMantissa;
+
+	/** lazy head price value */
+	private PriceValue keyHead;
+
+	public PriceLongArray(final PriceValue keyStep) {
+
+		assert keyStep != null;
+
+		this.keyStep = keyStep;
+		this.stepMantissa = keyStep.mantissa();
+		this.stepExponent = keyStep.exponent();
+
+		clear();
+
+	}
+
+	public final PriceValue keyStep() {
+		return keyStep;
+	}
+
+	public final PriceValue keyHead() {
+		if (size == 0) {
+			return ValueConst.NULL_PRICE;
+		}
+		PriceValue head = keyHead;
+		if (head == null) {
+			head = newPrice(headMantissa, stepExponent);
+			keyHead = head;
+		}
+		return head;
+	}
+
+	public final int size() {
+		return size;
+	}
+
+	/** add to counter at price; returns logical index of the price */
+	public final int add(final PriceValue price, final long value)
+			throws ArithmeticException {
+
+		assert price != null;
+
+		final long mantissa = normalize(price);
+
+		if (size == 0) {
+			if (array.length == 0) {
+				array = new long[INITIAL_CAPACITY];
+			}
+			base = array.length / 2;
+			size = 1;
+			headMantissa = mantissa;
+			keyHead = null;
+			array[base] = value;
+			return 0;
+		}
+
+		int index = keyCount(mantissa);
+
+		if (index < 0) {
+			growHead(-index);
+			headMantissa -= stepMantissa * -index;
+			keyHead = null;
+			index = 0;
+		} else if (index >= size) {
+			growTail(index - size + 1);
+		}
+
+		array[base + index] += value;
+
+		return index;
+
+	}
+
+	/** counter by logical index */
+	public final long get(final int index) {
+		assert 0 <= index && index < size;
+		return array[base + index];
+	}
+
+	/** logical index of price or {@link ScadecArrayMap#ERROR_INDEX} */
+	public final int getIndex(final PriceValue price) {
+		if (price == null || size == 0) {
+			return ScadecArrayMap.ERROR_INDEX;
+		}
+		final int index = keyCount(normalize(price));
+		if (index < 0 || index >= size) {
+			return ScadecArrayMap.ERROR_INDEX;
+		}
+		return index;
+	}
+
+	/** snapshot of counters, logical index order */
+	public final long[] copy() {
+		final long[] copy = new long[size];
+		System.arraycopy(array, base, copy, 0, size);
+		return copy;
+	}
+
+	/** keeps allocated capacity */
+	public final void clear() {
+		if (array == null) {
+			array = EMPTY;
+		}
+		for (int k = 0; k < size; k++) {
+			array[base + k] = 0;
+		}
+		base = 0;
+		size = 0;
+		headMantissa = 0;
+		keyHead = null;
+	}
+
+	//
+
+	private final int keyCount(final long mantissa) {
+		final long count = (mantissa - headMantissa) / stepMantissa;
+		if (count < Integer.MIN_VALUE || count > Integer.MAX_VALUE) {
+			throw new ArithmeticException("count overflow");
+		}
+		return (int) count;
+	}
+
+	/** same as {@link PriceValue#scale(int)} without result value */
+	private final long normalize(final PriceValue price) {
+		long m = price.mantissa();
+		int e = price.exponent();
+		while (e > stepExponent) {
+			m = MathExtra.longMult10(m);
+			e--;
+		}
+		while (e < stepExponent) {
+			m /= 10;
+			e++;
+		}
+		return m;
+	}
+
+	private final void growHead(final int count) {
+		if (base >= count) {
+			base -= count;
+		} else {
+			resize(count, 0);
+		}
+		size += count;
+	}
+
+	private final void growTail(final int count) {
+		if (array.length - base - size < count) {
+			resize(0, count);
+		}
+		size += count;
+	}
+
+	/** double capacity, split spare room evenly around live range */
+	private final void resize(final int headCount, final int tailCount) {
+
+		final int needed = size + headCount + tailCount;
+
+		int capacity = Math.max(array.length, INITIAL_CAPACITY);
+		while (capacity < needed * 2 && capacity > 0) {
+			capacity <<= 1;
+		}
+		if (capacity <= 0) {
+			capacity = needed;
+		}
+
+		final long[] next = new long[capacity];
+		final int nextBase = (capacity - needed) / 2 + headCount;
+
+		System.arraycopy(array, base, next, nextBase, size);
+
+		array = next;
+		base = nextBase - headCount;
+
+	}
+
+}
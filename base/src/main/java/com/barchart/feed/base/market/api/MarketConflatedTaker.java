@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market.api;
+
+import com.barchart.feed.base.values.api.Value;
+import com.barchart.util.common.anno.UsedOnce;
+
+/**
+ * taker for slow consumers; latest value wins per market; events are
+ * delivered from a conflation thread, not from the feed thread, at most once
+ * per interval for each market and never while previous delivery is running;
+ * event reported is the last one seen for the market
+ */
+public interface MarketConflatedTaker<V extends Value<V>> extends
+		MarketTaker<V> {
+
+	/**
+	 * minimum time between deliveries, millis; 0 delivers as soon as previous
+	 * delivery returns
+	 */
+	@UsedOnce
+	long conflateMillis();
+
+}
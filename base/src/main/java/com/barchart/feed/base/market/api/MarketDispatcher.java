@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market.api;
+
+import com.barchart.feed.base.thread.Runner;
+
+/**
+ * pluggable stage between message arrival and market processing; must keep
+ * per instrument message order
+ */
+public interface MarketDispatcher<Message extends MarketMessage> {
+
+	/** bind processing task; called once by owning provider */
+	void start(Runner<Void, Message> task);
+
+	/** hand message over to the processing task */
+	void dispatch(Message message);
+
+	/** stop accepting messages; drain pending ones and release threads */
+	void shutdown();
+
+}
@@ -10,14 +10,18 @@ package com.barchart.feed.base.market.api;
 import java.util.List;
 import java.util.Set;
 
+import com.barchart.feed.api.model.data.Book;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.base.bar.api.MarketBar;
 import com.barchart.feed.base.bar.api.MarketDoBar;
 import com.barchart.feed.base.bar.enums.MarketBarType;
+import com.barchart.feed.base.book.api.MarketBookListener;
 import com.barchart.feed.base.book.api.MarketDoBookEntry;
+import com.barchart.feed.base.book.enums.MarketBookAction;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvolEntry;
 import com.barchart.feed.base.market.enums.MarketEvent;
 import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
 import com.barchart.feed.base.participant.FrameworkAgentLifecycleHandler;
 import com.barchart.feed.base.provider.RegTaker;
 import com.barchart.feed.base.state.enums.MarketStateEntry;
@@ -58,12 +62,32 @@ public interface MarketDo extends Market, FrameworkAgentLifecycleHandler {
 	/** one time instrument initialization */
 	void setInstrument(Instrument symbol);
 
-	/**  */
+	/**
+	 * entry can be a reused mutable instance which is only valid for the
+	 * duration of the call; freeze it to keep it
+	 */
 	void setBookUpdate(MarketDoBookEntry entry, TimeValue time);
 
+	/**
+	 * primitive form of {@link #setBookUpdate(MarketDoBookEntry, TimeValue)};
+	 * size is ignored for REMOVE; time is millis UTC; spares the caller the
+	 * entry and values, the market may still build the values it stores
+	 */
+	void setBookUpdate(MarketBookAction act, Book.Side side, Book.Type type,
+			int place, long priceMantissa, int priceExponent, long size,
+			long time);
+
 	/**  */
 	void setBookSnapshot(MarketDoBookEntry[] entries, TimeValue time);
 
+	/**
+	 * subscribe to incremental book changes; listener gets current book
+	 * snapshot first, then the deltas of each message from fireEvents()
+	 */
+	void addBookListener(MarketBookListener listener);
+
+	void removeBookListener(MarketBookListener listener);
+
 	/**  */
 	void setCuvolUpdate(MarketDoCuvolEntry entry, TimeValue time);
 
@@ -87,6 +111,14 @@ public interface MarketDo extends Market, FrameworkAgentLifecycleHandler {
 			MarketTradeSequencing sequencing, PriceValue price, SizeValue size,
 			TimeValue time, TimeValue date);
 
+	/**
+	 * primitive form of setTrade(); time and date are millis UTC; the market
+	 * may still build the values it stores
+	 */
+	void setTrade(MarketTradeType type, MarketTradeSession session,
+			MarketTradeSequencing sequencing, long priceMantissa,
+			int priceExponent, long size, long time, long date);
+
 	//
 
 	void setState(MarketStateEntry entry, boolean isOn);
@@ -99,6 +131,23 @@ public interface MarketDo extends Market, FrameworkAgentLifecycleHandler {
 	public <Result, Param> Result runSafe(MarketSafeRunner<Result, Param> task,
 			Param param);
 
+	/**
+	 * run read only task against consistent market view; task can be invoked
+	 * more than once and must not change market state
+	 */
+	public <Result, Param> Result runRead(MarketSafeRunner<Result, Param> task,
+			Param param);
+
+	/** concurrency policy of this market */
+	MarketSafeMode safeMode();
+
+	/**
+	 * latest frozen view; first call after a write freezes through
+	 * runRead(), later calls until the next write share that view; the writer
+	 * never freezes on behalf of readers
+	 */
+	Market snapshot();
+
 	//
 
 	MarketDoBar loadBar(MarketField<MarketBar> barField);
@@ -7,6 +7,8 @@
  */
 package com.barchart.feed.base.market.api;
 
+import java.util.Collection;
+
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.base.market.enums.MarketField;
 import com.barchart.feed.base.values.api.Value;
@@ -22,6 +24,14 @@ public interface MarketMaker {
 	 */
 	<V extends Value<V>> boolean register(MarketTaker<V> taker);
 
+	/**
+	 * add takers as one batch; markets for the union of taker instruments are
+	 * created once and {@link MarketRegListener} events fire once;
+	 * 
+	 * @return number of takers added
+	 */
+	int registerAll(Collection<? extends MarketTaker<?>> takers);
+
 	/**
 	 * remove taker; do instrument un-registration; fires
 	 * {@link MarketRegListener} events from invocation thread;
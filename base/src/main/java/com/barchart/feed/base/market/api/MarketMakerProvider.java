@@ -60,6 +60,13 @@ public interface MarketMakerProvider<Message extends MarketMessage> extends
 	/** register market w/o takers */
 	boolean register(Instrument instrument);
 
+	/**
+	 * register markets w/o takers as one batch
+	 * 
+	 * @return number of markets added
+	 */
+	int register(Instrument... instruments);
+
 	/** unregister market w/o takers */
 	boolean unregister(Instrument instrument);
 
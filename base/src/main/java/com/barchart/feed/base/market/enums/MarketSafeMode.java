@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market.enums;
+
+/**
+ * market concurrency policy; selected by market factory at market creation
+ * <p>
+ * a factory picks the policy explicitly by passing it to the
+ * {@code VarMarket(Instrument, MarketSafeMode)} constructor; markets made with
+ * the single argument constructor use {@link #DEFAULT}, which is read from the
+ * {@value #PROPERTY} system property, for example
+ * {@code -Dbarchart.feed.market.safeMode=SINGLE_WRITER}
+ */
+public enum MarketSafeMode {
+
+	/** readers and writers share the market monitor */
+	MONITOR, //
+
+	/**
+	 * one feed writer; readers validate against a sequence counter and only
+	 * take the monitor after repeated collisions; the writer itself still
+	 * applies each message under the market monitor, shared with taker
+	 * registration and other runSafe() callers
+	 */
+	SINGLE_WRITER, //
+
+	;
+
+	/** system property which selects {@link #DEFAULT} */
+	public static final String PROPERTY = "barchart.feed.market.safeMode";
+
+	/** process wide policy; {@link #MONITOR} unless overridden by property */
+	public static final MarketSafeMode DEFAULT = fromProperty();
+
+	private static MarketSafeMode fromProperty() {
+
+		final String name = System.getProperty(PROPERTY);
+
+		if (name == null) {
+			return MONITOR;
+		}
+
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (final IllegalArgumentException e) {
+			throw new IllegalArgumentException("invalid " + PROPERTY + " : "
+					+ name, e);
+		}
+
+	}
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * fixed size log-linear histogram of nanosecond durations; each power of two
+ * range is split into 32 linear buckets, so any recorded value is reported
+ * within ~3% of its true value; recording is wait free and allocation free
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+
+	static final int SUB_BITS = 5;
+
+	static final int SUB_COUNT = 1 << SUB_BITS;
+
+	static final int SUB_MASK = SUB_COUNT - 1;
+
+	/** exponents SUB_BITS..62 plus the linear range below SUB_COUNT */
+	static final int SIZE = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(SIZE);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	static int index(final long value) {
+
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+
+		final int exp = 63 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exp - SUB_BITS)) & SUB_MASK;
+
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+
+	}
+
+	/** smallest value that maps to the bucket */
+	static long lowest(final int index) {
+
+		if (index < SUB_COUNT) {
+			return index;
+		}
+
+		final int exp = index / SUB_COUNT + SUB_BITS - 1;
+		final long sub = index & SUB_MASK;
+
+		return (SUB_COUNT + sub) << (exp - SUB_BITS);
+
+	}
+
+	/** largest value that maps to the bucket */
+	static long highest(final int index) {
+
+		if (index < SUB_COUNT) {
+			return index;
+		}
+
+		final int exp = index / SUB_COUNT + SUB_BITS - 1;
+
+		return lowest(index) + (1L << (exp - SUB_BITS)) - 1;
+
+	}
+
+	/** negative durations, from clock adjustments, count as zero */
+	public void record(final long nanos) {
+
+		final long value = nanos < 0 ? 0 : nanos;
+
+		buckets.incrementAndGet(index(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+
+		long last;
+		while (value > (last = max.get())) {
+			if (max.compareAndSet(last, value)) {
+				break;
+			}
+		}
+
+	}
+
+	public long count() {
+		return count.get();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public long mean() {
+		final long size = count.get();
+		return size == 0 ? 0 : total.get() / size;
+	}
+
+	/**
+	 * @param quantile 0.0 .. 1.0
+	 * @return upper bound of the bucket holding the quantile, capped by max;
+	 *         zero when empty
+	 */
+	public long percentile(final double quantile) {
+
+		if (quantile < 0.0 || quantile > 1.0) {
+			throw new IllegalArgumentException("quantile " + quantile);
+		}
+
+		final long size = count.get();
+
+		if (size == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(quantile * size));
+
+		long seen = 0;
+
+		for (int k = 0; k < SIZE; k++) {
+			seen += buckets.get(k);
+			if (seen >= rank) {
+				return Math.min(highest(k), max.get());
+			}
+		}
+
+		return max.get();
+
+	}
+
+	/** not atomic with concurrent record(), a few samples may straddle */
+	public void reset() {
+		for (int k = 0; k < SIZE; k++) {
+			buckets.set(k, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%d p50=%d p99=%d max=%d",
+				count(), mean(), percentile(0.50), percentile(0.99), max());
+	}
+
+}
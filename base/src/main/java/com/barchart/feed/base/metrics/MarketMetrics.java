@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * hot path timings of the market make path; install on a provider with
+ * MarketProviderBase.setMetrics(), a provider without metrics pays a single
+ * null check per message
+ * <p>
+ * make - whole make(message) call, lookup to lense update
+ * <p>
+ * lockWait - time blocked on the market monitor before runSafe() runs
+ * <p>
+ * fireEvents / fireCallbacks - taker and agent notification per message
+ */
+@ThreadSafe
+public final class MarketMetrics implements MarketMetricsMXBean {
+
+	/** lock waits longer than this are counted as contended */
+	public static final long CONTENDED_NANOS = 1000;
+
+	private final LatencyHistogram make = new LatencyHistogram();
+
+	private final LatencyHistogram lockWait = new LatencyHistogram();
+
+	private final LatencyHistogram fireEvents = new LatencyHistogram();
+
+	private final LatencyHistogram fireCallbacks = new LatencyHistogram();
+
+	private final AtomicLong contended = new AtomicLong();
+
+	private final ConcurrentMap<InstrumentID, AtomicLong> messages = //
+	new ConcurrentHashMap<InstrumentID, AtomicLong>();
+
+	/* lock request time, set by the thread about to enter the monitor */
+	private final ThreadLocal<long[]> lockStart = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	/* previous messageRates() pull */
+	private Map<InstrumentID, Long> lastCounts = //
+	new HashMap<InstrumentID, Long>();
+	private long lastPull = System.nanoTime();
+
+	public LatencyHistogram make() {
+		return make;
+	}
+
+	public LatencyHistogram lockWait() {
+		return lockWait;
+	}
+
+	public LatencyHistogram fireEvents() {
+		return fireEvents;
+	}
+
+	public LatencyHistogram fireCallbacks() {
+		return fireCallbacks;
+	}
+
+	public long contended() {
+		return contended.get();
+	}
+
+	/** count one message for the instrument */
+	public void message(final InstrumentID id) {
+
+		AtomicLong counter = messages.get(id);
+
+		if (counter == null) {
+			final AtomicLong fresh = new AtomicLong();
+			counter = messages.putIfAbsent(id, fresh);
+			if (counter == null) {
+				counter = fresh;
+			}
+		}
+
+		counter.incrementAndGet();
+
+	}
+
+	/**
+	 * drop the instrument's counters; call when its market is unregistered
+	 * or evicted, the next message starts a fresh count
+	 */
+	public synchronized void remove(final InstrumentID id) {
+		messages.remove(id);
+		lastCounts.remove(id);
+	}
+
+	/** call just before entering the market monitor */
+	public void lockRequested() {
+		lockStart.get()[0] = System.nanoTime();
+	}
+
+	/** call first thing inside the market monitor */
+	public void lockAcquired() {
+
+		final long[] start = lockStart.get();
+
+		if (start[0] == 0) {
+			return;
+		}
+
+		final long wait = System.nanoTime() - start[0];
+		start[0] = 0;
+
+		lockWait.record(wait);
+
+		if (wait > CONTENDED_NANOS) {
+			contended.incrementAndGet();
+		}
+
+	}
+
+	/** total messages per instrument since creation or reset */
+	public Map<InstrumentID, Long> messageCounts() {
+
+		final Map<InstrumentID, Long> counts = new HashMap<InstrumentID, Long>();
+
+		for (final Map.Entry<InstrumentID, AtomicLong> e : messages.entrySet()) {
+			counts.put(e.getKey(), e.getValue().get());
+		}
+
+		return counts;
+
+	}
+
+	/** messages per second per instrument since the previous call */
+	public synchronized Map<InstrumentID, Double> messageRates() {
+
+		final long now = System.nanoTime();
+		final double seconds = Math.max(1, now - lastPull) / 1e9;
+
+		final Map<InstrumentID, Long> counts = messageCounts();
+		final Map<InstrumentID, Double> rates = new HashMap<InstrumentID, Double>();
+
+		for (final Map.Entry<InstrumentID, Long> e : counts.entrySet()) {
+			final Long last = lastCounts.get(e.getKey());
+			final long delta = e.getValue() - (last == null ? 0 : last);
+			rates.put(e.getKey(), Math.max(0, delta) / seconds);
+		}
+
+		/* removed instruments are not carried over to the next pull */
+		lastCounts = counts;
+		lastPull = now;
+
+		return rates;
+
+	}
+
+	/**
+	 * register with the platform MBean server as
+	 * com.barchart.feed:type=MarketMetrics,name=[name]
+	 */
+	public ObjectName registerMBean(final String name) throws JMException {
+
+		final ObjectName object = new ObjectName(
+				"com.barchart.feed:type=MarketMetrics,name="
+						+ ObjectName.quote(name));
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		if (server.isRegistered(object)) {
+			server.unregisterMBean(object);
+		}
+
+		server.registerMBean(this, object);
+
+		return object;
+
+	}
+
+	/* ***** ***** MXBean ***** ***** */
+
+	@Override
+	public long getMessageCount() {
+		return make.count();
+	}
+
+	@Override
+	public int getInstrumentCount() {
+		return messages.size();
+	}
+
+	@Override
+	public long getMakeMean() {
+		return make.mean();
+	}
+
+	@Override
+	public long getMakeP50() {
+		return make.percentile(0.50);
+	}
+
+	@Override
+	public long getMakeP99() {
+		return make.percentile(0.99);
+	}
+
+	@Override
+	public long getMakeMax() {
+		return make.max();
+	}
+
+	@Override
+	public long getLockWaitP99() {
+		return lockWait.percentile(0.99);
+	}
+
+	@Override
+	public long getLockWaitMax() {
+		return lockWait.max();
+	}
+
+	@Override
+	public long getLockContended() {
+		return contended.get();
+	}
+
+	@Override
+	public long getFireEventsP99() {
+		return fireEvents.percentile(0.99);
+	}
+
+	@Override
+	public long getFireCallbacksP99() {
+		return fireCallbacks.percentile(0.99);
+	}
+
+	@Override
+	public long getFireCallbacksMax() {
+		return fireCallbacks.max();
+	}
+
+	@Override
+	public synchronized void reset() {
+		make.reset();
+		lockWait.reset();
+		fireEvents.reset();
+		fireCallbacks.reset();
+		contended.set(0);
+		messages.clear();
+		lastCounts = new HashMap<InstrumentID, Long>();
+		lastPull = System.nanoTime();
+	}
+
+	@Override
+	public String toString() {
+		return "make[" + make + "] lockWait[" + lockWait + "] contended="
+				+ contended + " fireEvents[" + fireEvents + "] fireCallbacks["
+				+ fireCallbacks + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.metrics;
+
+/**
+ * JMX view of {@link MarketMetrics}; all durations in nanoseconds
+ */
+public interface MarketMetricsMXBean {
+
+	long getMessageCount();
+
+	int getInstrumentCount();
+
+	long getMakeMean();
+
+	long getMakeP50();
+
+	long getMakeP99();
+
+	long getMakeMax();
+
+	long getLockWaitP99();
+
+	long getLockWaitMax();
+
+	long getLockContended();
+
+	long getFireEventsP99();
+
+	long getFireCallbacksP99();
+
+	long getFireCallbacksMax();
+
+	void reset();
+
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.barchart.feed.api.model.meta.Exchange;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.participant.FrameworkAgent;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * inverted index from instrument id, symbol and exchange to agent bitsets;
+ * replaces agent x market filter evaluation with a per key lookup
+ * <p>
+ * index is a candidate pre-filter, market attach still confirms with
+ * {@link FrameworkAgent#hasMatch(Instrument)}
+ */
+@ThreadSafe
+final class AgentIndex {
+
+	/**
+	 * indexable part of the default agent filter; resolution order is symbol,
+	 * instrument, exchange, first hit wins
+	 */
+	static final class Keys {
+
+		final Set<String> incSymbols = new HashSet<String>();
+		final Set<String> exSymbols = new HashSet<String>();
+
+		final Set<InstrumentID> incInsts = new HashSet<InstrumentID>();
+		final Set<InstrumentID> exInsts = new HashSet<InstrumentID>();
+
+		final Set<Exchange> incExchanges = new HashSet<Exchange>();
+
+	}
+
+	// agents
+
+	private final Map<FrameworkAgent<?>, Integer> slotMap = //
+	new HashMap<FrameworkAgent<?>, Integer>();
+
+	private final List<FrameworkAgent<?>> slotAgents = //
+	new ArrayList<FrameworkAgent<?>>();
+
+	private final List<Keys> slotKeys = new ArrayList<Keys>();
+
+	private final BitSet slotFree = new BitSet();
+
+	/** agents with custom filters, evaluated against every market */
+	private final BitSet scan = new BitSet();
+
+	// agent bitsets by key
+
+	private final Map<String, BitSet> incSymbols = new HashMap<String, BitSet>();
+	private final Map<String, BitSet> exSymbols = new HashMap<String, BitSet>();
+
+	private final Map<InstrumentID, BitSet> incInsts = //
+	new HashMap<InstrumentID, BitSet>();
+	private final Map<InstrumentID, BitSet> exInsts = //
+	new HashMap<InstrumentID, BitSet>();
+
+	private final Map<Exchange, BitSet> incExchanges = //
+	new HashMap<Exchange, BitSet>();
+
+	// markets
+
+	private final Map<InstrumentID, Instrument> markets = //
+	new HashMap<InstrumentID, Instrument>();
+
+	private final Map<String, InstrumentID> marketSymbols = //
+	new HashMap<String, InstrumentID>();
+
+	private final Map<Exchange, Set<InstrumentID>> marketExchanges = //
+	new HashMap<Exchange, Set<InstrumentID>>();
+
+	/* ***** ***** Markets ***** ***** */
+
+	synchronized void addMarket(final Instrument instrument) {
+
+		final InstrumentID id = instrument.id();
+
+		if (markets.put(id, instrument) != null) {
+			return;
+		}
+
+		marketSymbols.put(instrument.symbol(), id);
+
+		final Exchange exchange = exchange(instrument);
+
+		if (exchange != null) {
+			Set<InstrumentID> ids = marketExchanges.get(exchange);
+			if (ids == null) {
+				ids = new HashSet<InstrumentID>();
+				marketExchanges.put(exchange, ids);
+			}
+			ids.add(id);
+		}
+
+	}
+
+	synchronized void removeMarket(final Instrument instrument) {
+
+		final InstrumentID id = instrument.id();
+
+		if (markets.remove(id) == null) {
+			return;
+		}
+
+		marketSymbols.remove(instrument.symbol());
+
+		final Exchange exchange = exchange(instrument);
+
+		if (exchange != null) {
+			final Set<InstrumentID> ids = marketExchanges.get(exchange);
+			if (ids != null) {
+				ids.remove(id);
+				if (ids.isEmpty()) {
+					marketExchanges.remove(exchange);
+				}
+			}
+		}
+
+	}
+
+	/** agents which may match the market */
+	synchronized List<FrameworkAgent<?>> match(final Instrument instrument) {
+
+		final BitSet bits = new BitSet();
+
+		final Exchange exchange = exchange(instrument);
+
+		if (exchange != null) {
+			or(bits, incExchanges.get(exchange));
+		}
+
+		final InstrumentID id = instrument.id();
+
+		andNot(bits, exInsts.get(id));
+		or(bits, incInsts.get(id));
+
+		final String symbol = instrument.symbol();
+
+		andNot(bits, exSymbols.get(symbol));
+		or(bits, incSymbols.get(symbol));
+
+		bits.or(scan);
+
+		final List<FrameworkAgent<?>> list = new ArrayList<FrameworkAgent<?>>(
+				bits.cardinality());
+
+		for (int k = bits.nextSetBit(0); k >= 0; k = bits.nextSetBit(k + 1)) {
+			list.add(slotAgents.get(k));
+		}
+
+		return list;
+
+	}
+
+	/* ***** ***** Agents ***** ***** */
+
+	/**
+	 * add or re-index agent
+	 *
+	 * @param keys
+	 *            null for agents with a custom filter
+	 * @return markets which may have changed match state for the agent
+	 */
+	synchronized Collection<InstrumentID> update(
+			final FrameworkAgent<?> agent, final Keys keys) {
+
+		final Set<InstrumentID> affected = new HashSet<InstrumentID>();
+
+		Integer slot = slotMap.get(agent);
+
+		if (slot == null) {
+
+			slot = slotFree.isEmpty() ? slotAgents.size() : slotFree
+					.nextSetBit(0);
+
+			if (slot == slotAgents.size()) {
+				slotAgents.add(agent);
+				slotKeys.add(null);
+			} else {
+				slotFree.clear(slot);
+				slotAgents.set(slot, agent);
+			}
+
+			slotMap.put(agent, slot);
+
+		} else {
+
+			unindex(slot, affected);
+
+		}
+
+		index(slot, keys, affected);
+
+		return affected;
+
+	}
+
+	/** @return markets the agent may be attached to */
+	synchronized Collection<InstrumentID> remove(final FrameworkAgent<?> agent) {
+
+		final Set<InstrumentID> affected = new HashSet<InstrumentID>();
+
+		final Integer slot = slotMap.remove(agent);
+
+		if (slot == null) {
+			return affected;
+		}
+
+		unindex(slot, affected);
+
+		slotAgents.set(slot, null);
+		slotFree.set(slot);
+
+		return affected;
+
+	}
+
+	synchronized int agentCount() {
+		return slotMap.size();
+	}
+
+	synchronized int marketCount() {
+		return markets.size();
+	}
+
+	// guarded by this
+	private void index(final int slot, final Keys keys,
+			final Set<InstrumentID> affected) {
+
+		slotKeys.set(slot, keys);
+
+		if (keys == null) {
+			scan.set(slot);
+			affected.addAll(markets.keySet());
+			return;
+		}
+
+		for (final String symbol : keys.incSymbols) {
+			set(incSymbols, symbol, slot);
+			addSymbol(symbol, affected);
+		}
+		for (final String symbol : keys.exSymbols) {
+			set(exSymbols, symbol, slot);
+			addSymbol(symbol, affected);
+		}
+
+		for (final InstrumentID id : keys.incInsts) {
+			set(incInsts, id, slot);
+			addInst(id, affected);
+		}
+		for (final InstrumentID id : keys.exInsts) {
+			set(exInsts, id, slot);
+			addInst(id, affected);
+		}
+
+		for (final Exchange exchange : keys.incExchanges) {
+			set(incExchanges, exchange, slot);
+			addExchange(exchange, affected);
+		}
+
+	}
+
+	// guarded by this
+	private void unindex(final int slot, final Set<InstrumentID> affected) {
+
+		final Keys keys = slotKeys.get(slot);
+
+		slotKeys.set(slot, null);
+
+		if (scan.get(slot)) {
+			scan.clear(slot);
+			affected.addAll(markets.keySet());
+			return;
+		}
+
+		if (keys == null) {
+			return;
+		}
+
+		for (final String symbol : keys.incSymbols) {
+			clear(incSymbols, symbol, slot);
+			addSymbol(symbol, affected);
+		}
+		for (final String symbol : keys.exSymbols) {
+			clear(exSymbols, symbol, slot);
+			addSymbol(symbol, affected);
+		}
+
+		for (final InstrumentID id : keys.incInsts) {
+			clear(incInsts, id, slot);
+			addInst(id, affected);
+		}
+		for (final InstrumentID id : keys.exInsts) {
+			clear(exInsts, id, slot);
+			addInst(id, affected);
+		}
+
+		for (final Exchange exchange : keys.incExchanges) {
+			clear(incExchanges, exchange, slot);
+			addExchange(exchange, affected);
+		}
+
+	}
+
+	private void addSymbol(final String symbol, final Set<InstrumentID> affected) {
+		final InstrumentID id = marketSymbols.get(symbol);
+		if (id != null) {
+			affected.add(id);
+		}
+	}
+
+	private void addInst(final InstrumentID id, final Set<InstrumentID> affected) {
+		if (markets.containsKey(id)) {
+			affected.add(id);
+		}
+	}
+
+	private void addExchange(final Exchange exchange,
+			final Set<InstrumentID> affected) {
+		final Set<InstrumentID> ids = marketExchanges.get(exchange);
+		if (ids != null) {
+			affected.addAll(ids);
+		}
+	}
+
+	private static <K> void set(final Map<K, BitSet> map, final K key,
+			final int slot) {
+		BitSet bits = map.get(key);
+		if (bits == null) {
+			bits = new BitSet();
+			map.put(key, bits);
+		}
+		bits.set(slot);
+	}
+
+	private static <K> void clear(final Map<K, BitSet> map, final K key,
+			final int slot) {
+		final BitSet bits = map.get(key);
+		if (bits == null) {
+			return;
+		}
+		bits.clear(slot);
+		if (bits.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	private static void or(final BitSet target, final BitSet source) {
+		if (source != null) {
+			target.or(source);
+		}
+	}
+
+	private static void andNot(final BitSet target, final BitSet source) {
+		if (source != null) {
+			target.andNot(source);
+		}
+	}
+
+	/** null when instrument has no usable exchange */
+	private static Exchange exchange(final Instrument instrument) {
+		final Exchange exchange = instrument.exchange();
+		if (exchange == null || exchange.isNull()) {
+			return null;
+		}
+		return exchange;
+	}
+
+}
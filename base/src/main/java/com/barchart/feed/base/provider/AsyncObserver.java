@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.MarketObserver;
+import com.barchart.feed.api.model.data.MarketData;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * moves observer callbacks off the feed thread; feed thread only enqueues
+ * copied market data, a dedicated delivery thread calls the wrapped observer
+ */
+@ThreadSafe
+public final class AsyncObserver<V extends MarketData<V>> implements
+		MarketObserver<V> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(AsyncObserver.class);
+
+	/** what to do when the queue is full */
+	public enum Policy {
+
+		/** discard oldest queued value, never block feed thread */
+		DROP_OLDEST, //
+
+		/**
+		 * keep only latest value per instrument; feed thread only waits when
+		 * a new instrument finds capacity instruments already pending
+		 */
+		CONFLATE, //
+
+		/** feed thread waits for space; slow observer throttles feed */
+		BLOCK, //
+
+	}
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final AtomicInteger COUNT = new AtomicInteger(0);
+
+	private static final class Pending<V> {
+
+		V value;
+		long enqueued;
+
+		Pending(final V value, final long enqueued) {
+			this.value = value;
+			this.enqueued = enqueued;
+		}
+
+	}
+
+	private final MarketObserver<V> observer;
+
+	private final Policy policy;
+
+	private final int capacity;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	// guarded by lock
+
+	private final ArrayDeque<Pending<V>> queue;
+
+	private final Map<Instrument, Pending<V>> latest;
+
+	private boolean isClosed;
+
+	private long offered;
+
+	private long delivered;
+
+	private long dropped;
+
+	private long lagLast;
+
+	private long lagMax;
+
+	public AsyncObserver(final MarketObserver<V> observer) {
+		this(observer, Policy.DROP_OLDEST, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            queued values; distinct instruments for
+	 *            {@link Policy#CONFLATE}
+	 */
+	public AsyncObserver(final MarketObserver<V> observer,
+			final Policy policy, final int capacity) {
+
+		if (observer == null) {
+			throw new NullPointerException("observer");
+		}
+		if (policy == null) {
+			throw new NullPointerException("policy");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity < 1");
+		}
+
+		this.observer = observer;
+		this.policy = policy;
+		this.capacity = capacity;
+
+		if (policy == Policy.CONFLATE) {
+			queue = null;
+			latest = new LinkedHashMap<Instrument, Pending<V>>();
+		} else {
+			queue = new ArrayDeque<Pending<V>>(Math.min(capacity, 1024));
+			latest = null;
+		}
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				deliver();
+			}
+		});
+		thread.setName("market-observer-" + COUNT.getAndIncrement());
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/** called from feed thread inside market fireCallbacks() */
+	@Override
+	public void onNext(final V value) {
+
+		final long now = System.nanoTime();
+
+		lock.lock();
+
+		try {
+
+			if (isClosed) {
+				return;
+			}
+
+			offered++;
+
+			switch (policy) {
+
+			case CONFLATE:
+				final Instrument instrument = value.instrument();
+				Pending<V> pending;
+				/** pending instruments are never dropped, new ones wait */
+				while ((pending = latest.get(instrument)) == null
+						&& latest.size() >= capacity && !isClosed) {
+					notFull.awaitUninterruptibly();
+				}
+				if (isClosed) {
+					return;
+				}
+				if (pending != null) {
+					/** keep first enqueue time so lag reflects staleness */
+					pending.value = value;
+					dropped++;
+					return;
+				}
+				latest.put(instrument, new Pending<V>(value, now));
+				break;
+
+			case DROP_OLDEST:
+				if (queue.size() >= capacity) {
+					queue.pollFirst();
+					dropped++;
+				}
+				queue.addLast(new Pending<V>(value, now));
+				break;
+
+			case BLOCK:
+				while (queue.size() >= capacity && !isClosed) {
+					notFull.awaitUninterruptibly();
+				}
+				if (isClosed) {
+					return;
+				}
+				queue.addLast(new Pending<V>(value, now));
+				break;
+
+			}
+
+			notEmpty.signal();
+
+		} finally {
+			lock.unlock();
+		}
+
+	}
+
+	/** stop delivery thread; pending values are discarded */
+	public void close() {
+
+		lock.lock();
+
+		try {
+
+			if (isClosed) {
+				return;
+			}
+
+			isClosed = true;
+
+			if (queue != null) {
+				queue.clear();
+			} else {
+				latest.clear();
+			}
+
+			notEmpty.signalAll();
+			notFull.signalAll();
+
+		} finally {
+			lock.unlock();
+		}
+
+	}
+
+	public boolean isClosed() {
+		lock.lock();
+		try {
+			return isClosed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public MarketObserver<V> observer() {
+		return observer;
+	}
+
+	public Policy policy() {
+		return policy;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/** values accepted from feed */
+	public long offered() {
+		lock.lock();
+		try {
+			return offered;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** values handed to observer */
+	public long delivered() {
+		lock.lock();
+		try {
+			return delivered;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** values discarded by overflow or conflation */
+	public long dropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** values waiting for delivery */
+	public int pending() {
+		lock.lock();
+		try {
+			return queue != null ? queue.size() : latest.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** enqueue to delivery delay of most recent delivered value, nanos */
+	public long lagLast() {
+		lock.lock();
+		try {
+			return lagLast;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** worst enqueue to delivery delay seen, nanos */
+	public long lagMax() {
+		lock.lock();
+		try {
+			return lagMax;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** reset lag statistics; counters are kept */
+	public void resetLag() {
+		lock.lock();
+		try {
+			lagLast = 0;
+			lagMax = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** delivery thread loop */
+	private void deliver() {
+
+		final List<Pending<V>> batch = new ArrayList<Pending<V>>();
+
+		while (true) {
+
+			lock.lock();
+
+			try {
+
+				while (!isClosed && isEmpty()) {
+					notEmpty.awaitUninterruptibly();
+				}
+
+				if (isClosed) {
+					return;
+				}
+
+				if (queue != null) {
+					batch.addAll(queue);
+					queue.clear();
+				} else {
+					batch.addAll(latest.values());
+					latest.clear();
+				}
+
+				notFull.signalAll();
+
+			} finally {
+				lock.unlock();
+			}
+
+			for (final Pending<V> pending : batch) {
+
+				final long lag = System.nanoTime() - pending.enqueued;
+
+				try {
+					observer.onNext(pending.value);
+				} catch (final Throwable e) {
+					log.error("async observer failed", e);
+				}
+
+				lock.lock();
+				try {
+					delivered++;
+					lagLast = lag;
+					if (lag > lagMax) {
+						lagMax = lag;
+					}
+				} finally {
+					lock.unlock();
+				}
+
+				if (isClosed()) {
+					break;
+				}
+
+			}
+
+			batch.clear();
+
+		}
+
+	}
+
+	// guarded by lock
+	private boolean isEmpty() {
+		return queue != null ? queue.isEmpty() : latest.isEmpty();
+	}
+
+}
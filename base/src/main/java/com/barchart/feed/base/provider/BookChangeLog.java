@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
+import static com.barchart.feed.base.book.enums.MarketBookAction.REMOVE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.book.api.MarketBookListener;
+import com.barchart.feed.base.book.enums.UniBookResult;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * book change publisher; turns {@link UniBook#make} results into level
+ * deltas and only freezes the whole book on subscribe, reset, window shift or
+ * every N changes; changes are recorded while a message is applied and
+ * published from market fireEvents()
+ */
+@ThreadSafe(rule = "publish in runSafe() only")
+public final class BookChangeLog {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(BookChangeLog.class);
+
+	/** default periodic snapshot interval, in book changes */
+	public static final int SNAPSHOT_EVERY = 1000;
+
+	private final CopyOnWriteArrayList<MarketBookListener> listeners = //
+	new CopyOnWriteArrayList<MarketBookListener>();
+
+	private final int snapshotEvery;
+
+	private long sequence;
+
+	private int sinceSnapshot;
+
+	/** next flush publishes snapshot instead of deltas */
+	private boolean isReset;
+
+	/** deltas recorded since last flush */
+	private final List<Change> pending = new ArrayList<Change>();
+
+	public BookChangeLog() {
+		this(SNAPSHOT_EVERY);
+	}
+
+	public BookChangeLog(final int snapshotEvery) {
+
+		if (snapshotEvery <= 0) {
+			throw new IllegalArgumentException("snapshotEvery <= 0");
+		}
+
+		this.snapshotEvery = snapshotEvery;
+
+	}
+
+	public void add(final MarketBookListener listener) {
+		listeners.addIfAbsent(listener);
+	}
+
+	public void remove(final MarketBookListener listener) {
+		listeners.remove(listener);
+	}
+
+	public boolean isEmpty() {
+		return listeners.isEmpty();
+	}
+
+	/** last published change */
+	public long sequence() {
+		return sequence;
+	}
+
+	/** next flush publishes snapshot */
+	void reset() {
+		isReset = true;
+	}
+
+	/**
+	 * records one applied book change; published by {@link #flush(VarBook)}
+	 * once the whole message is applied
+	 */
+	void record(final VarBook book, final UniBookResult result,
+			final boolean isShift) {
+
+		sequence++;
+
+		if (isReset) {
+			return;
+		}
+
+		if (isShift || ++sinceSnapshot >= snapshotEvery) {
+			isReset = true;
+			return;
+		}
+
+		/* level read back from the ring after make(), not the incoming
+		 * entry; combined default + implied size at that price and place */
+		final DefBookEntry last = book.lastEntry();
+
+		if (last == null) {
+			isReset = true;
+			return;
+		}
+
+		final SizeValue size = last.sizeValue();
+
+		/* only once neither default nor implied size is left */
+		final boolean isRemove = size.isNull();
+
+		final DefBookEntry delta = new DefBookEntry(isRemove ? REMOVE
+				: MODIFY, last.side(), Book.Type.COMBINED, last.place(),
+				last.priceValue(), isRemove ? null : size);
+
+		/* size change at top level comes back as NORMAL */
+		final boolean isTop = result == UniBookResult.TOP
+				|| delta.place() == 1;
+
+		pending.add(new Change(sequence, delta, isTop));
+
+	}
+
+	/**
+	 * publishes changes recorded since last flush; either the pending deltas
+	 * in order, or one snapshot when a reset, window shift or snapshot
+	 * interval was hit
+	 */
+	void flush(final VarBook book) {
+
+		if (isReset) {
+			publishSnapshot(book);
+			return;
+		}
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		for (final Change change : pending) {
+			for (final MarketBookListener listener : listeners) {
+				try {
+					listener.onBookDelta(book.instrument(), change.sequence,
+							change.delta, change.isTop);
+				} catch (final Exception e) {
+					log.error("book delta listener failed", e);
+				}
+			}
+		}
+
+		pending.clear();
+
+	}
+
+	void publishSnapshot(final VarBook book) {
+
+		isReset = false;
+		sinceSnapshot = 0;
+		pending.clear();
+
+		if (listeners.isEmpty()) {
+			return;
+		}
+
+		final MarketBook snapshot = book.freeze();
+
+		for (final MarketBookListener listener : listeners) {
+			publishSnapshot(listener, book, snapshot);
+		}
+
+	}
+
+	void publishSnapshot(final MarketBookListener listener,
+			final VarBook book, final MarketBook snapshot) {
+		try {
+			listener.onBookSnapshot(book.instrument(), sequence, snapshot);
+		} catch (final Exception e) {
+			log.error("book snapshot listener failed", e);
+		}
+	}
+
+	private static final class Change {
+
+		final long sequence;
+		final DefBookEntry delta;
+		final boolean isTop;
+
+		Change(final long sequence, final DefBookEntry delta,
+				final boolean isTop) {
+			this.sequence = sequence;
+			this.delta = delta;
+			this.isTop = isTop;
+		}
+
+	}
+
+}
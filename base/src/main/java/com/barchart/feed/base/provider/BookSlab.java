@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * shared off heap storage for book level sizes;
+ *
+ * each book side ring gets one fixed stride record of (levels x 2 columns x
+ * int) carved out of direct buffer chunks, so books add no level arrays to the
+ * heap; records of collected books are reclaimed on later allocations
+ */
+@ThreadSafe
+public final class BookSlab {
+
+	/** book side ring limit */
+	public static final int LEVELS_MAX = UniBookRing.PLACE_SIZE;
+
+	private static final int COLUMNS = 2;
+
+	private final int levels;
+
+	private final int stride;
+
+	private final int chunkRecords;
+
+	/** guarded by this */
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	/** records ever carved; guarded by this */
+	private int recordCount;
+
+	/** reclaimed record indexes; guarded by this */
+	private int[] freeList = new int[64];
+	private int freeCount;
+
+	/** keeps owner references reachable until enqueued; guarded by this */
+	private final Set<Record> live = new HashSet<Record>();
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/** record of a collected ring */
+	private static final class Record extends PhantomReference<Object> {
+
+		final int index;
+
+		Record(final Object owner, final ReferenceQueue<Object> queue,
+				final int index) {
+			super(owner, queue);
+			this.index = index;
+		}
+
+	}
+
+	public BookSlab() {
+		this(LEVELS_MAX, 4 * 1024);
+	}
+
+	/**
+	 * @param levels
+	 *            largest book size served
+	 * @param chunkRecords
+	 *            records per direct buffer chunk
+	 */
+	public BookSlab(final int levels, final int chunkRecords) {
+
+		if (levels <= 0 || LEVELS_MAX < levels) {
+			throw new IllegalArgumentException("wrong levels=" + levels);
+		}
+
+		if (chunkRecords <= 0) {
+			throw new IllegalArgumentException("wrong chunkRecords="
+					+ chunkRecords);
+		}
+
+		this.levels = levels;
+		this.stride = levels * COLUMNS * 4;
+		this.chunkRecords = chunkRecords;
+
+	}
+
+	public int levels() {
+		return levels;
+	}
+
+	/** records in use */
+	public synchronized int liveCount() {
+		return live.size();
+	}
+
+	/** direct memory reserved */
+	public synchronized long capacityBytes() {
+		return (long) chunks.size() * chunkRecords * stride;
+	}
+
+	/** zeroed record store owned by a ring */
+	synchronized UniBookStore allocate(final Object owner,
+			final boolean hasDefault, final boolean hasImplied, final int size) {
+
+		if (size > levels) {
+			throw new IllegalArgumentException("book size=" + size
+					+ " over slab levels=" + levels);
+		}
+
+		reclaim();
+
+		final int index;
+
+		if (freeCount > 0) {
+			index = freeList[--freeCount];
+		} else {
+			index = recordCount++;
+			if (index / chunkRecords == chunks.size()) {
+				chunks.add(ByteBuffer.allocateDirect(chunkRecords * stride)
+						.order(ByteOrder.nativeOrder()));
+			}
+		}
+
+		live.add(new Record(owner, queue, index));
+
+		final ByteBuffer buffer = chunks.get(index / chunkRecords);
+		final int base = (index % chunkRecords) * stride;
+
+		for (int k = 0; k < stride; k += 8) {
+			buffer.putLong(base + k, 0L);
+		}
+
+		return new Store(buffer, base, hasDefault, hasImplied);
+
+	}
+
+	private void reclaim() {
+
+		Reference<?> ref;
+
+		while ((ref = queue.poll()) != null) {
+
+			final Record record = (Record) ref;
+
+			live.remove(record);
+
+			if (freeCount == freeList.length) {
+				final int[] array = new int[freeCount * 2];
+				System.arraycopy(freeList, 0, array, 0, freeCount);
+				freeList = array;
+			}
+
+			freeList[freeCount++] = record.index;
+
+		}
+
+	}
+
+	/** view of one record; column is interleaved per level */
+	// javaSize this = 8(obj) + 4(bufferRef) + 4(base) + 2(flags) = 24
+	private static final class Store extends UniBookStore {
+
+		private final ByteBuffer buffer;
+		private final int base;
+
+		private final boolean hasDefault;
+		private final boolean hasImplied;
+
+		Store(final ByteBuffer buffer, final int base,
+				final boolean hasDefault, final boolean hasImplied) {
+			this.buffer = buffer;
+			this.base = base;
+			this.hasDefault = hasDefault;
+			this.hasImplied = hasImplied;
+		}
+
+		@Override
+		final boolean has(final int column) {
+			switch (column) {
+			case COLUMN_DEFAULT:
+				return hasDefault;
+			case COLUMN_IMPLIED:
+				return hasImplied;
+			default:
+				return false;
+			}
+		}
+
+		@Override
+		final int get(final int column, final int clue) {
+			if (has(column)) {
+				return buffer.getInt(base + ((clue * COLUMNS + column) << 2));
+			} else {
+				return 0;
+			}
+		}
+
+		@Override
+		final void set(final int column, final int clue, final int value) {
+			if (has(column)) {
+				buffer.putInt(base + ((clue * COLUMNS + column) << 2), value);
+			}
+		}
+
+	}
+
+}
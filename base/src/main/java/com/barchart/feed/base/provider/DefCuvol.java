@@ -7,6 +7,8 @@
  */
 package com.barchart.feed.base.provider;
 
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,6 +16,7 @@ import com.barchart.feed.api.model.data.Cuvol;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.provider.ValueConst;
 import com.barchart.util.common.anno.NotMutable;
 import com.barchart.util.value.api.Price;
 import com.barchart.util.value.api.Time;
@@ -21,7 +24,9 @@ import com.barchart.util.value.api.Time;
 @NotMutable
 class DefCuvol extends NulCuvol {
 
-	private final SizeValue[] entries;
+	// copy on read; sizes are built on first entries() call
+	private final long[] volumes;
+	private volatile SizeValue[] entries;
 
 	private final PriceValue priceFirst;
 	private final PriceValue priceStep;
@@ -32,18 +37,18 @@ class DefCuvol extends NulCuvol {
 	
 	private final Time updated;
 
-	DefCuvol(final Instrument instrument, final SizeValue[] entries, 
+	DefCuvol(final Instrument instrument, final long[] volumes, 
 			final PriceValue priceFirst, final PriceValue priceStep,
 			final Time updated, final Cuvol.Entry entry) {
 
-		assert entries != null;
+		assert volumes != null;
 		assert priceFirst != null;
 		assert priceStep != null;
 		assert priceStep.mantissa() != 0;
 
 		this.instrument = instrument;
 		
-		this.entries = entries;
+		this.volumes = volumes;
 		this.priceFirst = priceFirst;
 		this.priceStep = priceStep;
 		
@@ -52,6 +57,15 @@ class DefCuvol extends NulCuvol {
 
 	}
 
+	static SizeValue[] entries(final long[] volumes) {
+		final SizeValue[] entries = new SizeValue[volumes.length];
+		for (int k = 0; k < volumes.length; k++) {
+			final long volume = volumes[k];
+			entries[k] = volume == 0 ? ValueConst.NULL_SIZE : newSize(volume);
+		}
+		return entries;
+	}
+
 	@Override
 	public PriceValue priceFirst() {
 		return priceFirst;
@@ -64,6 +78,11 @@ class DefCuvol extends NulCuvol {
 
 	@Override
 	public SizeValue[] entries() {
+		SizeValue[] entries = this.entries;
+		if (entries == null) {
+			entries = entries(volumes);
+			this.entries = entries;
+		}
 		return entries;
 	}
 	
@@ -78,7 +97,7 @@ class DefCuvol extends NulCuvol {
 		final List<Entry> result = new ArrayList<Entry>();
 		
 		int counter = 0;
-		for(final SizeValue size : entries) {
+		for(final SizeValue size : entries()) {
 			
 			PriceValue newPrice = priceFirst.freeze();
 			PriceValue newStep = priceStep.freeze();
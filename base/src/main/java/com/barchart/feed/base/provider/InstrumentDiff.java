@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.Arrays;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * past / next instrument set difference for taker updates;
+ *
+ * open addressing table and result arrays are kept between calls and only
+ * grow, so steady state diff does not allocate
+ */
+@NotThreadSafe
+final class InstrumentDiff {
+
+	private static final byte PAST = 1;
+	private static final byte NEXT = 2;
+	private static final byte BOTH = PAST | NEXT;
+
+	/** hash table keys */
+	private Instrument[] keys = new Instrument[16];
+
+	/** hash table membership flags */
+	private byte[] flags = new byte[16];
+
+	/** occupied slots in insertion order */
+	private int[] slots = new int[8];
+	private int slotCount;
+
+	/** past & next */
+	private Instrument[] update = new Instrument[8];
+	private int updateCount;
+
+	/** next - past */
+	private Instrument[] register = new Instrument[8];
+	private int registerCount;
+
+	/** past - next */
+	private Instrument[] unregister = new Instrument[8];
+	private int unregisterCount;
+
+	/** compute difference; results are valid until next call */
+	void diff(final Instrument[] past, final Instrument[] next) {
+
+		clear();
+
+		ensureCapacity(past.length + next.length);
+
+		for (final Instrument inst : past) {
+			mark(inst, PAST);
+		}
+
+		for (final Instrument inst : next) {
+			mark(inst, NEXT);
+		}
+
+		for (int k = 0; k < slotCount; k++) {
+
+			final int slot = slots[k];
+			final Instrument inst = keys[slot];
+
+			switch (flags[slot]) {
+			case BOTH:
+				update[updateCount++] = inst;
+				break;
+			case NEXT:
+				register[registerCount++] = inst;
+				break;
+			case PAST:
+				unregister[unregisterCount++] = inst;
+				break;
+			default:
+				assert false;
+			}
+
+		}
+
+	}
+
+	int updateCount() {
+		return updateCount;
+	}
+
+	Instrument update(final int index) {
+		return update[index];
+	}
+
+	int registerCount() {
+		return registerCount;
+	}
+
+	Instrument register(final int index) {
+		return register[index];
+	}
+
+	int unregisterCount() {
+		return unregisterCount;
+	}
+
+	Instrument unregister(final int index) {
+		return unregister[index];
+	}
+
+	/** past + next */
+	int changeCount() {
+		return slotCount;
+	}
+
+	Instrument change(final int index) {
+		return keys[slots[index]];
+	}
+
+	/** release instrument references held from last diff */
+	void clear() {
+
+		for (int k = 0; k < slotCount; k++) {
+			final int slot = slots[k];
+			keys[slot] = null;
+			flags[slot] = 0;
+		}
+
+		Arrays.fill(update, 0, updateCount, null);
+		Arrays.fill(register, 0, registerCount, null);
+		Arrays.fill(unregister, 0, unregisterCount, null);
+
+		slotCount = 0;
+		updateCount = 0;
+		registerCount = 0;
+		unregisterCount = 0;
+
+	}
+
+	private void mark(final Instrument inst, final byte flag) {
+
+		final int mask = keys.length - 1;
+
+		int slot = spread(inst.hashCode()) & mask;
+
+		for (;;) {
+
+			final Instrument key = keys[slot];
+
+			if (key == null) {
+				keys[slot] = inst;
+				flags[slot] = flag;
+				slots[slotCount++] = slot;
+				return;
+			}
+
+			if (key == inst || key.equals(inst)) {
+				flags[slot] |= flag;
+				return;
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+	}
+
+	/** table load factor stays at or below 1/2 */
+	private void ensureCapacity(final int count) {
+
+		if (slots.length < count) {
+			slots = new int[count];
+			update = new Instrument[count];
+			register = new Instrument[count];
+			unregister = new Instrument[count];
+		}
+
+		int length = keys.length;
+		while (length < count * 2) {
+			length <<= 1;
+		}
+
+		if (length != keys.length) {
+			keys = new Instrument[length];
+			flags = new byte[length];
+		}
+
+	}
+
+	private static int spread(final int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * concurrent queue which allocates its storage on first offer; for per market
+ * agent command queues which stay empty on most markets
+ */
+@ThreadSafe
+final class LazyQueue<E> extends AbstractQueue<E> {
+
+	/** null until first offer */
+	private volatile ConcurrentLinkedQueue<E> queue;
+
+	private ConcurrentLinkedQueue<E> queue() {
+
+		ConcurrentLinkedQueue<E> queue = this.queue;
+
+		if (queue == null) {
+			synchronized (this) {
+				queue = this.queue;
+				if (queue == null) {
+					queue = new ConcurrentLinkedQueue<E>();
+					this.queue = queue;
+				}
+			}
+		}
+
+		return queue;
+
+	}
+
+	@Override
+	public boolean offer(final E element) {
+		return queue().offer(element);
+	}
+
+	@Override
+	public E poll() {
+		final ConcurrentLinkedQueue<E> queue = this.queue;
+		return queue == null ? null : queue.poll();
+	}
+
+	@Override
+	public E peek() {
+		final ConcurrentLinkedQueue<E> queue = this.queue;
+		return queue == null ? null : queue.peek();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		final ConcurrentLinkedQueue<E> queue = this.queue;
+		return queue == null || queue.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		final ConcurrentLinkedQueue<E> queue = this.queue;
+		return queue == null ? 0 : queue.size();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		final ConcurrentLinkedQueue<E> queue = this.queue;
+		return queue == null ? Collections.<E> emptySet().iterator() : queue
+				.iterator();
+	}
+
+	/** storage is allocated */
+	boolean isInflated() {
+		return queue != null;
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.barchart.util.common.anno.Mutable;
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * hash set which allocates its storage on first add and drops it again when
+ * the last element is removed; for per market agent sets which stay empty on
+ * most markets
+ */
+@Mutable
+@NotThreadSafe
+final class LazySet<E> extends AbstractSet<E> {
+
+	/** null while empty */
+	private HashSet<E> set;
+
+	@Override
+	public boolean add(final E element) {
+		if (set == null) {
+			set = new HashSet<E>(4);
+		}
+		return set.add(element);
+	}
+
+	@Override
+	public boolean remove(final Object element) {
+		if (set == null || !set.remove(element)) {
+			return false;
+		}
+		if (set.isEmpty()) {
+			set = null;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(final Object element) {
+		return set != null && set.contains(element);
+	}
+
+	@Override
+	public int size() {
+		return set == null ? 0 : set.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return set == null;
+	}
+
+	@Override
+	public void clear() {
+		set = null;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		final Set<E> set = this.set;
+
+		if (set == null) {
+			return Collections.<E> emptySet().iterator();
+		}
+
+		final Iterator<E> iterator = set.iterator();
+
+		/* deflate when the last element is removed through the iterator */
+		return new Iterator<E>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				if (set.isEmpty() && LazySet.this.set == set) {
+					LazySet.this.set = null;
+				}
+			}
+
+		};
+
+	}
+
+	/** storage is allocated */
+	boolean isInflated() {
+		return set != null;
+	}
+
+}
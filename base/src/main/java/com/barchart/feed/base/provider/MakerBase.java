@@ -7,9 +7,12 @@
  */
 package com.barchart.feed.base.provider;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +49,9 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 	final ConcurrentMap<Instrument, MarketDo> marketMap = //
 	new ConcurrentHashMap<Instrument, MarketDo>();
 
+	/** message path lookup; mirrors marketMap, see MarketRegistry */
+	final MarketRegistry marketIndex = new MarketRegistry();
+
 	final ConcurrentMap<MarketTaker<?>, RegTaker<?>> takerMap = //
 	new ConcurrentHashMap<MarketTaker<?>, RegTaker<?>>();
 
@@ -125,6 +131,76 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 
 	}
 
+	@Override
+	public synchronized final int registerAll(
+			final Collection<? extends MarketTaker<?>> takers) {
+
+		final List<RegTaker<?>> added = new ArrayList<RegTaker<?>>(
+				takers.size());
+
+		final Set<Instrument> insts = new LinkedHashSet<Instrument>();
+
+		for (final MarketTaker<?> taker : takers) {
+
+			if (!RegTaker.isValid(taker)) {
+				continue;
+			}
+
+			if (takerMap.containsKey(taker)) {
+				log.warn("already registered : {}", taker);
+				continue;
+			}
+
+			final RegTaker<?> regTaker = newRegTaker(taker);
+
+			takerMap.put(taker, regTaker);
+
+			added.add(regTaker);
+
+			for (final Instrument inst : regTaker.getInstruments()) {
+				insts.add(inst);
+			}
+
+		}
+
+		if (added.isEmpty()) {
+			return 0;
+		}
+
+		register(insts.toArray(new Instrument[insts.size()]));
+
+		final Set<MarketDo> ms = new HashSet<MarketDo>();
+
+		for (final RegTaker<?> regTaker : added) {
+
+			for (final Instrument inst : regTaker.getInstruments()) {
+
+				/** invalid instruments were skipped on register */
+				final MarketDo market = marketMap.get(inst);
+
+				if (market == null) {
+					continue;
+				}
+
+				market.runSafe(safeRegister, regTaker);
+
+				ms.add(market);
+
+			}
+
+		}
+
+		notifyRegListeners(ms);
+
+		return added.size();
+
+	}
+
+	private static <V extends Value<V>> RegTaker<V> newRegTaker(
+			final MarketTaker<V> taker) {
+		return new RegTaker<V>(taker);
+	}
+
 	private final MarketSafeRunner<Void, RegTaker<?>> safeUpdate = //
 	new MarketSafeRunner<Void, RegTaker<?>>() {
 		@Override
@@ -153,62 +229,23 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 
 		//
 
-		final Set<Instrument> updateSet = new HashSet<Instrument>();
-		final Set<Instrument> registerSet = new HashSet<Instrument>();
-		final Set<Instrument> unregisterSet = new HashSet<Instrument>();
-		final Set<Instrument> changeNotifySet = new HashSet<Instrument>();
-
-		{
-
-			final Instrument[] pastArray = regTaker.getInstruments();
-			final Instrument[] nextArray = taker.bindInstruments();
-
-			final Set<Instrument> pastSet = new HashSet<Instrument>(
-					Arrays.asList(pastArray));
-			final Set<Instrument> nextSet = new HashSet<Instrument>(
-					Arrays.asList(nextArray));
-
-			/** past & next */
-			updateSet.addAll(pastSet);
-			updateSet.retainAll(nextSet);
-
-			/** next - past */
-			registerSet.addAll(nextSet);
-			registerSet.removeAll(updateSet);
-
-			/** past - next */
-			unregisterSet.addAll(pastSet);
-			unregisterSet.removeAll(updateSet);
-
-			/** past + next */
-			changeNotifySet.addAll(updateSet);
-			changeNotifySet.addAll(registerSet);
-			changeNotifySet.addAll(unregisterSet);
-
-		}
-
-		//
-
-		// log.debug("updateSet : {}", updateSet);
-		// log.debug("registerSet : {}", registerSet);
-		// log.debug("unregisterSet : {}", unregisterSet);
-		// log.debug("changeNotifySet : {}", changeNotifySet);
+		final InstrumentDiff diff = this.diff;
 
-		//
+		diff.diff(regTaker.getInstruments(), taker.bindInstruments());
 
 		/** unregister : based on past */
-		for (final Instrument inst : unregisterSet) {
+		for (int k = 0; k < diff.unregisterCount(); k++) {
 
-			final MarketDo market = marketMap.get(inst);
+			final MarketDo market = marketMap.get(diff.unregister(k));
 
 			market.runSafe(safeUnregister, regTaker);
 
 		}
 
 		/** update : based on merge of next and past */
-		for (final Instrument inst : updateSet) {
+		for (int k = 0; k < diff.updateCount(); k++) {
 
-			final MarketDo market = marketMap.get(inst);
+			final MarketDo market = marketMap.get(diff.update(k));
 
 			market.runSafe(safeUpdate, regTaker);
 
@@ -218,7 +255,9 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 		regTaker.bind();
 
 		/** register : based on next */
-		for (final Instrument inst : registerSet) {
+		for (int k = 0; k < diff.registerCount(); k++) {
+
+			final Instrument inst = diff.register(k);
 
 			if (!isValid(inst)) {
 				continue;
@@ -233,27 +272,45 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 			market.runSafe(safeRegister, regTaker);
 
 		}
-		
-		final Set<MarketDo> ms = new HashSet<MarketDo>();
 
-		/** remove / notify */
-		for (final Instrument inst : changeNotifySet) {
+		/** listener notification is only assembled when someone listens */
+		final Set<MarketDo> ms = listenerList.isEmpty() ? null
+				: new HashSet<MarketDo>();
+
+		/** remove / notify : past + next */
+		for (int k = 0; k < diff.changeCount(); k++) {
+
+			final Instrument inst = diff.change(k);
 
 			final MarketDo market = marketMap.get(inst);
 
+			/** invalid instruments are skipped on register */
+			if (market == null) {
+				continue;
+			}
+
 			if (!market.hasRegTakers()) {
 				unregister(inst);
 			}
 
-			ms.add(market);
+			if (ms != null) {
+				ms.add(market);
+			}
 
 		}
-		
-		notifyRegListeners(ms);
+
+		diff.clear();
+
+		if (ms != null) {
+			notifyRegListeners(ms);
+		}
 
 		return true;
 	}
 
+	/** guarded by this */
+	private final InstrumentDiff diff = new InstrumentDiff();
+
 	private final MarketSafeRunner<Void, RegTaker<?>> safeRegister = //
 	new MarketSafeRunner<Void, RegTaker<?>>() {
 		@Override
@@ -277,6 +334,8 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 
 		if (wasRemoved) {
 			
+			regTaker.close();
+
 			final Set<MarketDo> ms = new HashSet<MarketDo>();
 			
 			for (final Instrument inst : regTaker.getInstruments()) {
@@ -332,7 +391,7 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 			return;
 		}
 
-		final MarketDo market = marketMap.get(instrument);
+		final MarketDo market = marketIndex.get(instrument.id());
 
 		if (!isValid(market)) {
 			return;
@@ -361,13 +420,13 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 	public final <S extends Instrument, V extends Value<V>> V take(
 			final S instrument, final MarketField<V> field) {
 
-		final MarketDo market = marketMap.get(instrument);
+		final MarketDo market = marketIndex.get(instrument.id());
 
 		if (market == null) {
 			return MarketConst.NULL_MARKET.get(field).freeze();
 		}
 
-		return (V) market.runSafe(safeTake, field);
+		return (V) market.runRead(safeTake, field);
 
 	}
 
@@ -394,6 +453,10 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 	@Override
 	public synchronized void clearAll() {
 		marketMap.clear();
+		marketIndex.clear();
+		for (final RegTaker<?> regTaker : takerMap.values()) {
+			regTaker.close();
+		}
 		takerMap.clear();
 	}
 
@@ -461,7 +524,7 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 		}
 
 		if (wasAdded) {
-			//
+			marketIndex.put(instrument.id(), market);
 		} else {
 			log.warn("already registered : {}", instrument);
 		}
@@ -470,6 +533,38 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 
 	}
 
+	@Override
+	public final synchronized int register(final Instrument... instruments) {
+
+		final Set<Instrument> insts = new LinkedHashSet<Instrument>();
+
+		for (final Instrument inst : instruments) {
+			if (isValid(inst) && !marketMap.containsKey(inst)) {
+				insts.add(inst);
+			}
+		}
+
+		if (insts.isEmpty()) {
+			return 0;
+		}
+
+		final Instrument[] array = insts.toArray(new Instrument[insts.size()]);
+
+		final MarketDo[] markets = MarketBatch.newMarkets(factory, array);
+
+		int count = 0;
+
+		for (int k = 0; k < array.length; k++) {
+			if (marketMap.putIfAbsent(array[k], markets[k]) == null) {
+				marketIndex.put(array[k].id(), markets[k]);
+				count++;
+			}
+		}
+
+		return count;
+
+	}
+
 	@Override
 	public final synchronized boolean unregister(final Instrument instrument) {
 
@@ -482,7 +577,7 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 		final boolean wasRemoved = (market != null);
 
 		if (wasRemoved) {
-			//
+			marketIndex.remove(instrument.id());
 		} else {
 			log.warn("was not registered : {}", instrument);
 		}
@@ -542,7 +637,7 @@ public abstract class MakerBase<Message extends MarketMessage> implements
 	}
 
 	protected MarketDo getMarket(final Instrument inst) {
-		return marketMap.get(inst);
+		return marketIndex.get(inst.id());
 	}
 
 }
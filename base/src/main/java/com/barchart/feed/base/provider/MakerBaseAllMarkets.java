@@ -150,11 +150,11 @@ public abstract class MakerBaseAllMarkets<Message extends MarketMessage>
 			return;
 		}
 
-		MarketDo market = marketMap.get(instrument);
+		MarketDo market = marketIndex.get(instrument.id());
 
 		if (!isValid(market)) {
 			register(instrument);
-			market = marketMap.get(instrument);
+			market = marketIndex.get(instrument.id());
 			market.regAdd(regOmniTaker);
 		}
 
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketFactory;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * bulk market construction for batch registration; large batches are split
+ * into chunks and built on a shared daemon pool, factory must be thread safe
+ */
+@ThreadSafe
+final class MarketBatch {
+
+	/** smallest chunk worth a hand over to the pool */
+	static final int CHUNK_MIN = 1024;
+
+	private MarketBatch() {
+	}
+
+	private static final class Holder {
+
+		static final int SIZE = Runtime.getRuntime().availableProcessors();
+
+		static final ExecutorService POOL = Executors.newFixedThreadPool(SIZE,
+				new ThreadFactory() {
+
+					final AtomicInteger count = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable);
+						thread.setName("market-batch-"
+								+ count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+	}
+
+	/**
+	 * new markets with instrument set, in instrument order; markets are not
+	 * yet visible to anyone
+	 */
+	static MarketDo[] newMarkets(final MarketFactory factory,
+			final Instrument[] instruments) {
+
+		final int count = instruments.length;
+
+		if (count < 2 * CHUNK_MIN) {
+			return build(factory, instruments, 0, count);
+		}
+
+		final MarketDo[] markets = new MarketDo[count];
+
+		final int chunks = Math.min(Holder.SIZE, count / CHUNK_MIN);
+		final int chunkSize = (count + chunks - 1) / chunks;
+
+		final List<Future<MarketDo[]>> futures = new ArrayList<Future<MarketDo[]>>(
+				chunks);
+
+		/** tasks build into own arrays, only this thread fills markets */
+		for (int start = 0; start < count; start += chunkSize) {
+
+			final int from = start;
+			final int to = Math.min(count, start + chunkSize);
+
+			futures.add(Holder.POOL.submit(new Callable<MarketDo[]>() {
+				@Override
+				public MarketDo[] call() {
+					return build(factory, instruments, from, to);
+				}
+			}));
+
+		}
+
+		boolean isInterrupted = false;
+
+		for (int index = 0; index < futures.size(); index++) {
+
+			final Future<MarketDo[]> future = futures.get(index);
+
+			final int from = index * chunkSize;
+			final int to = Math.min(count, from + chunkSize);
+
+			MarketDo[] chunk = null;
+
+			if (!isInterrupted || future.isDone()) {
+				try {
+					chunk = future.get();
+				} catch (final InterruptedException e) {
+					isInterrupted = true;
+				} catch (final ExecutionException e) {
+					throw propagate(e.getCause());
+				}
+			}
+
+			if (chunk == null) {
+				/** finish what pool did not; late task result is dropped */
+				future.cancel(true);
+				chunk = build(factory, instruments, from, to);
+			}
+
+			System.arraycopy(chunk, 0, markets, from, chunk.length);
+
+		}
+
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		return markets;
+
+	}
+
+	private static RuntimeException propagate(final Throwable cause) {
+
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+
+		return new IllegalStateException(cause);
+
+	}
+
+	private static MarketDo[] build(final MarketFactory factory,
+			final Instrument[] instruments, final int from, final int to) {
+
+		final MarketDo[] markets = new MarketDo[to - from];
+
+		for (int k = from; k < to; k++) {
+			markets[k - from] = newMarket(factory, instruments[k]);
+		}
+
+		return markets;
+
+	}
+
+	private static MarketDo newMarket(final MarketFactory factory,
+			final Instrument instrument) {
+
+		final MarketDo market = factory.newMarket(instrument);
+		market.setInstrument(instrument);
+		return market;
+
+	}
+
+}
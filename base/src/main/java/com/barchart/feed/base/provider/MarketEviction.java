@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import com.barchart.util.common.anno.NotMutable;
+
+/**
+ * idle market eviction policy for MarketProviderBase.setEviction();
+ * <p>
+ * a market is evicted when no message touched it for idleMillis, or when
+ * the provider holds more than maxMarkets markets, least recently touched
+ * first; markets with matching agents or registered takers are never
+ * evicted; the next message for an evicted instrument registers it again
+ */
+@NotMutable
+public final class MarketEviction {
+
+	public static final long DEFAULT_IDLE_MILLIS = 60 * 60 * 1000;
+
+	public static final long DEFAULT_SWEEP_MILLIS = 60 * 1000;
+
+	/** no market count bound */
+	public static final int UNBOUNDED = 0;
+
+	private final long idleMillis;
+
+	private final int maxMarkets;
+
+	private final long sweepMillis;
+
+	private final boolean retainState;
+
+	/** idle time based, unbounded market count, state retained */
+	public MarketEviction(final long idleMillis) {
+		this(idleMillis, UNBOUNDED, DEFAULT_SWEEP_MILLIS, true);
+	}
+
+	/**
+	 * @param idleMillis
+	 *            evict markets untouched for this long
+	 * @param maxMarkets
+	 *            evict least recently touched markets above this count;
+	 *            {@link #UNBOUNDED} for idle time only
+	 * @param sweepMillis
+	 *            background sweep period; zero to sweep only on explicit
+	 *            MarketProviderBase.evictIdle() calls
+	 * @param retainState
+	 *            park trade, bar and state fields of evicted markets and
+	 *            restore them on rehydration; false to drop evicted markets
+	 */
+	public MarketEviction(final long idleMillis, final int maxMarkets,
+			final long sweepMillis, final boolean retainState) {
+
+		if (idleMillis < 0 || maxMarkets < 0 || sweepMillis < 0) {
+			throw new IllegalArgumentException("negative eviction setting");
+		}
+
+		this.idleMillis = idleMillis;
+		this.maxMarkets = maxMarkets;
+		this.sweepMillis = sweepMillis;
+		this.retainState = retainState;
+
+	}
+
+	public long idleMillis() {
+		return idleMillis;
+	}
+
+	public int maxMarkets() {
+		return maxMarkets;
+	}
+
+	public long sweepMillis() {
+		return sweepMillis;
+	}
+
+	public boolean retainState() {
+		return retainState;
+	}
+
+	@Override
+	public String toString() {
+		return "idle=" + idleMillis + "ms max=" + maxMarkets + " sweep="
+				+ sweepMillis + "ms retain=" + retainState;
+	}
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.market.enums.MarketField.BAR_CURRENT;
+import static com.barchart.feed.base.market.enums.MarketField.BAR_CURRENT_EXT;
+import static com.barchart.feed.base.market.enums.MarketField.BAR_PREVIOUS;
+import static com.barchart.feed.base.market.enums.MarketField.BAR_PREVIOUS_EXT;
+import static com.barchart.feed.base.market.enums.MarketField.MARKET_TIME;
+import static com.barchart.feed.base.market.enums.MarketField.STATE;
+import static com.barchart.feed.base.market.enums.MarketField.TRADE;
+
+import com.barchart.feed.base.bar.api.MarketBar;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketSafeRunner;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.state.api.MarketState;
+import com.barchart.feed.base.trade.api.MarketTrade;
+import com.barchart.feed.base.values.api.TimeValue;
+import com.barchart.feed.base.values.api.Value;
+
+/**
+ * compact frozen form of an evicted market; keeps session level fields only,
+ * book and cuvol are rebuilt from the feed after rehydration
+ */
+final class MarketParking {
+
+	private MarketParking() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static final MarketField<MarketBar>[] BARS = new MarketField[] {
+			BAR_CURRENT, BAR_CURRENT_EXT, BAR_PREVIOUS, BAR_PREVIOUS_EXT };
+
+	static final MarketField<?>[] RETAINED = new MarketField<?>[] {
+			MARKET_TIME, TRADE, STATE, BAR_CURRENT, BAR_CURRENT_EXT,
+			BAR_PREVIOUS, BAR_PREVIOUS_EXT };
+
+	/** call inside runSafe() of the evicted market */
+	static DefMarket park(final MarketDo market) {
+
+		final DefMarket parked = new DefMarket(market.instrument());
+
+		for (final MarketField<?> field : RETAINED) {
+			copy(market, parked, field);
+		}
+
+		return parked;
+
+	}
+
+	private static <V extends Value<V>> void copy(final MarketDo source,
+			final DefMarket target, final MarketField<V> field) {
+
+		final V value = source.get(field);
+
+		if (value.isNull()) {
+			return;
+		}
+
+		target.valueArray[field.ordinal()] = value.freeze();
+
+	}
+
+	/** restores parked fields into a fresh market */
+	static final MarketSafeRunner<Void, DefMarket> RESTORE = //
+	new MarketSafeRunner<Void, DefMarket>() {
+
+		@Override
+		public Void runSafe(final MarketDo market, final DefMarket parked) {
+
+			if (!(market instanceof VarMarket)) {
+				return null;
+			}
+
+			final VarMarket target = (VarMarket) market;
+
+			final TimeValue time = parked.get(MARKET_TIME);
+			if (!time.isNull()) {
+				target.set(MARKET_TIME, time);
+			}
+
+			/* frozen trade is replaced on next trade, see loadTrade() */
+			final MarketTrade trade = parked.get(TRADE);
+			if (!trade.isNull()) {
+				target.set(TRADE, trade);
+			}
+
+			final MarketState state = parked.get(STATE);
+			if (!state.isNull()) {
+				target.loadState().addAll(state);
+			}
+
+			for (final MarketField<MarketBar> field : BARS) {
+				final MarketBar bar = parked.get(field);
+				if (!bar.isNull()) {
+					target.loadBar(field).copy(bar);
+				}
+			}
+
+			return null;
+
+		}
+
+	};
+
+}
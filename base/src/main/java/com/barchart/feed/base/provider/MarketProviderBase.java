@@ -1,14 +1,23 @@
 package com.barchart.feed.base.provider;
 
 import java.util.ArrayList;
-import java.util.EnumSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +48,7 @@ import com.barchart.feed.api.model.meta.id.ExchangeID;
 import com.barchart.feed.api.model.meta.id.InstrumentID;
 import com.barchart.feed.api.model.meta.id.MetadataID;
 import com.barchart.feed.api.model.meta.id.VendorID;
+import com.barchart.feed.base.market.api.MarketDispatcher;
 import com.barchart.feed.base.market.api.MarketDo;
 import com.barchart.feed.base.market.api.MarketFactory;
 import com.barchart.feed.base.market.api.MarketMakerProvider;
@@ -47,13 +57,14 @@ import com.barchart.feed.base.market.api.MarketRegListener;
 import com.barchart.feed.base.market.api.MarketSafeRunner;
 import com.barchart.feed.base.market.api.MarketTaker;
 import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.metrics.MarketMetrics;
 import com.barchart.feed.base.participant.FrameworkAgent;
 import com.barchart.feed.base.participant.FrameworkAgentLifecycleHandler;
 import com.barchart.feed.base.provider.MarketDataGetters.MDGetter;
 import com.barchart.feed.base.state.enums.MarketStateEntry;
 import com.barchart.feed.base.sub.SubCommand;
 import com.barchart.feed.base.sub.SubscriptionHandler;
-import com.barchart.feed.base.sub.SubscriptionType;
+import com.barchart.feed.base.thread.Runner;
 import com.barchart.feed.base.values.api.Value;
 import com.barchart.util.value.api.Fraction;
 import com.barchart.util.value.api.Price;
@@ -72,6 +83,12 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	protected final ConcurrentMap<InstrumentID, MarketDo> marketMap = 
 			new ConcurrentHashMap<InstrumentID, MarketDo>();
 	
+	/* Message path lookup, mirrors marketMap which stays for subclasses */
+	private final MarketRegistry marketIndex = new MarketRegistry();
+	
+	/* Agent filter keys to agents, avoids agent x market filter scans */
+	private final AgentIndex agentIndex = new AgentIndex();
+	
 	protected final ConcurrentMap<String, InstrumentID> symbolMap = 
 			new ConcurrentHashMap<String, InstrumentID>();
 
@@ -88,11 +105,63 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	private final ConcurrentMap<ExchangeID, Subscription<Exchange>> exchSubs =
 			new ConcurrentHashMap<ExchangeID, Subscription<Exchange>>();
 	
+	/** optional stage between make(message) and market processing */
+	protected final MarketDispatcher<Message> dispatcher;
+	
+	/** hot path timings; null when disabled */
+	private volatile MarketMetrics metrics;
+	
+	/** idle market policy; null when disabled */
+	private volatile MarketEviction eviction;
+	
+	/** guarded by this */
+	private ScheduledFuture<?> evictionSweep;
+	
+	/* Evicted market session state, restored on next register */
+	private final ConcurrentMap<InstrumentID, DefMarket> parked = 
+			new ConcurrentHashMap<InstrumentID, DefMarket>();
+	
+	/* Markets removed by eviction, held only while a racing make still has one */
+	private final Set<MarketDo> evicted = Collections.synchronizedSet(
+			Collections.newSetFromMap(new WeakHashMap<MarketDo, Boolean>()));
+	
+	private static final class Holder {
+
+		static final ScheduledExecutorService POOL = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+					final AtomicInteger count = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable);
+						thread.setName("market-evict-" + count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+	}
+	
 	protected MarketProviderBase(final MarketFactory factory, final MetadataService metaService,
 			final SubscriptionHandler handler) {
+		this(factory, metaService, handler, null);
+	}
+	
+	/**
+	 * @param dispatcher processes messages on its own threads; null to
+	 *            process on the calling thread
+	 */
+	protected MarketProviderBase(final MarketFactory factory, final MetadataService metaService,
+			final SubscriptionHandler handler, final MarketDispatcher<Message> dispatcher) {
 		this.factory = factory;
 		this.metaService = metaService;
 		subHandler = handler;
+		this.dispatcher = dispatcher;
+		
+		if (dispatcher != null) {
+			dispatcher.start(dispatchTask);
+		}
 	}
 	
 	/* ***** ***** Consumer Agent ***** ***** */
@@ -114,6 +183,18 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		return agent.consumerAgent();
 	}
 	
+	/**
+	 * Register with asynchronous delivery; callback runs on its own thread
+	 * behind a bounded queue instead of on the feed thread. Keep a reference
+	 * to an {@link AsyncObserver} and register it directly to read lag metrics.
+	 */
+	public <V extends MarketData<V>> ConsumerAgent register(
+			final MarketObserver<V> callback, final Class<V> clazz,
+			final AsyncObserver.Policy policy, final int capacity) {
+		
+		return register(new AsyncObserver<V>(callback, policy, capacity), clazz);
+	}
+	
 	private class BaseAgent<V extends MarketData<V>> implements
 			FrameworkAgent<V>, ConsumerAgent {
 
@@ -133,7 +214,7 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		private final Set<String> incUnknown = new HashSet<String>();
 		private final Set<String> exUnknown = new HashSet<String>();
 		
-		private Filter filter = new DefaultFilter();
+		private volatile Filter filter = new DefaultFilter();
 		
 		BaseAgent(final FrameworkAgentLifecycleHandler agentHandler,
 				final Class<V> clazz, final MDGetter<V> getter,
@@ -217,6 +298,31 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 			return filter.hasMatch(instrument);
 		}
 		
+		/** default filter keys for the agent index; null for custom filter */
+		synchronized AgentIndex.Keys indexKeys() {
+			
+			if (!(filter instanceof BaseAgent.DefaultFilter)) {
+				return null;
+			}
+			
+			final AgentIndex.Keys keys = new AgentIndex.Keys();
+			
+			keys.incSymbols.addAll(incUnknown);
+			keys.exSymbols.addAll(exUnknown);
+			
+			for (final Instrument i : incInsts) {
+				keys.incInsts.add(i.id());
+			}
+			
+			for (final Instrument i : exInsts) {
+				keys.exInsts.add(i.id());
+			}
+			
+			keys.incExchanges.addAll(incExchanges);
+			
+			return keys;
+		}
+		
 		/*
 		 * Allow for filter to be overridden. 
 		 */
@@ -313,6 +419,10 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 			state = State.TERMINATED;
 			agentHandler.detachAgent(this);
 			
+			if (callback instanceof AsyncObserver) {
+				((AsyncObserver<?>) callback).close();
+			}
+			
 		}
 		
 		@Override
@@ -436,8 +546,16 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		/* ***** ***** Filter Updatable ***** ***** */
 		
 		@Override
-		public void filter(Filter filter) {
+		public synchronized void filter(Filter filter) {
+			
 			this.filter = filter;
+			
+			if(state == State.TERMINATED) {
+				return;
+			}
+			
+			/* Custom filters move the agent to the scan set */
+			agentHandler.updateAgent(this);
 		}
 		
 		@Override
@@ -629,46 +747,11 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	
 	/* ***** ***** Subscription Aggregation Methods ***** ***** */
 	
-	private final Map<String, List<FrameworkAgent<?>>> instToAgentsMap = 
-			new ConcurrentHashMap<String, List<FrameworkAgent<?>>>();
-
-	private Set<SubscriptionType> aggregate(final String interest) {
-
-		final Set<SubscriptionType> agg = EnumSet.noneOf(SubscriptionType.class);
-
-		if (!instToAgentsMap.containsKey(interest)) {
-			return agg;
-		}
-
-		for (final FrameworkAgent<?> agent : instToAgentsMap.get(interest)) {
-			agg.addAll(SubscriptionType.mapMarketEvent(agent.type()));
-		}
-
-		return agg;
-	}
+	/* Striped per symbol reference counts by subscription type */
+	private final SubTable subTable = new SubTable();
 
 	private SubCommand subscribe(final FrameworkAgent<?> agent, final String symbol) {
-
-		synchronized(instToAgentsMap) {
-		
-			final Set<SubscriptionType> newSubs = SubscriptionType.mapMarketEvent(agent.type());
-	
-			if (!instToAgentsMap.containsKey(symbol) && !newSubs.isEmpty()) {
-				instToAgentsMap.put(symbol, new ArrayList<FrameworkAgent<?>>());
-			} 
-			
-			final Set<SubscriptionType> stuffToAdd = EnumSet.copyOf(newSubs);
-			stuffToAdd.removeAll(aggregate(symbol));
-			
-			instToAgentsMap.get(symbol).add(agent);
-	
-			if (!stuffToAdd.isEmpty()) {
-				return new SubBase(symbol, SubCommand.Type.INSTRUMENT, stuffToAdd);
-			} else {
-				return SubCommand.NULL;
-			}
-			
-		}
+		return subTable.subscribe(agent, symbol);
 	}
 
 	private Set<SubCommand> subscribe(final FrameworkAgent<?> agent, final Set<String> symbols) {
@@ -686,30 +769,10 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	}
 
 	private SubCommand unsubscribe(final FrameworkAgent<?> agent, final String symbol) {
-
-		synchronized(instToAgentsMap) {
-		
-			final Set<SubscriptionType> oldSubs = SubscriptionType.mapMarketEvent(agent.type());
-	
-			if(instToAgentsMap.containsKey(symbol)){
-				instToAgentsMap.get(symbol).remove(agent);
-				if(instToAgentsMap.get(symbol).isEmpty()) {
-					instToAgentsMap.remove(symbol);
-				}
-			}
-			
-			final Set<SubscriptionType> stuffToRemove = EnumSet.copyOf(oldSubs);
-			stuffToRemove.removeAll(aggregate(symbol));
-	
-			if (!stuffToRemove.isEmpty()) {
-				return new SubBase(symbol, SubCommand.Type.INSTRUMENT, stuffToRemove);
-			} else {
-				return SubCommand.NULL;
-			}
-		}
+		return subTable.unsubscribe(agent, symbol);
 	}
 
-	private synchronized Set<SubCommand> unsubscribe(final FrameworkAgent<?> agent, 
+	private Set<SubCommand> unsubscribe(final FrameworkAgent<?> agent, 
 			final Set<String> symbols) {
 
 		final Set<SubCommand> newSubs = new HashSet<SubCommand>();
@@ -778,8 +841,11 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 
 			agents.put(agent, new Boolean(false));
 
-			for (final Entry<InstrumentID, MarketDo> e : marketMap.entrySet()) {
-				e.getValue().attachAgent(agent);
+			for (final InstrumentID id : agentIndex.update(agent, indexKeys(agent))) {
+				final MarketDo market = marketMap.get(id);
+				if (market != null) {
+					market.attachAgent(agent);
+				}
 			}
 
 		}
@@ -794,8 +860,12 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 
 		} else {
 
-			for (final Entry<InstrumentID, MarketDo> e : marketMap.entrySet()) {
-				e.getValue().updateAgent(agent);
+			/* Only markets keyed by old or new filter can change state */
+			for (final InstrumentID id : agentIndex.update(agent, indexKeys(agent))) {
+				final MarketDo market = marketMap.get(id);
+				if (market != null) {
+					market.updateAgent(agent);
+				}
 			}
 
 		}
@@ -811,12 +881,25 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 
 		agents.remove(agent);
 
-		for (final Entry<InstrumentID, MarketDo> e : marketMap.entrySet()) {
-			e.getValue().detachAgent(agent);
+		for (final InstrumentID id : agentIndex.remove(agent)) {
+			final MarketDo market = marketMap.get(id);
+			if (market != null) {
+				market.detachAgent(agent);
+			}
 		}
 
 	}
 	
+	private AgentIndex.Keys indexKeys(final FrameworkAgent<?> agent) {
+		
+		if (agent instanceof BaseAgent) {
+			return ((BaseAgent<?>) agent).indexKeys();
+		}
+		
+		/* Unknown filter, evaluate against every market */
+		return null;
+	}
+	
 	/* ***** ***** SubscriptionService ***** ***** */
 	
 	@Override
@@ -834,13 +917,22 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	@Override
 	public Observable<Market> snapshot(InstrumentID instID) {
 		
-		if(marketMap.containsKey(instID)) {
-			final Market market = marketMap.get(instID).freeze();
+		final MarketDo live = marketMap.get(instID);
+		
+		if(live != null) {
+			final Market market = live.snapshot();
 			return Observable.just(market);
-		} else {
-			return Observable.just(Market.NULL);
 		}
 		
+		/* Evicted market, parked copy is already frozen */
+		final Market market = parked.get(instID);
+		
+		if(market != null) {
+			return Observable.just(market);
+		}
+		
+		return Observable.just(Market.NULL);
+		
 	}
 	
 	// ######################## // ########################
@@ -879,14 +971,21 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		while (market == null) {
 			market = factory.newMarket(instrument);
 			market.setInstrument(instrument);
+			restore(instrument.id(), market);
 			marketMap.putIfAbsent(instrument.id(), market);
 			market = marketMap.get(instrument.id());
 		}
+		
+		marketIndex.putIfAbsent(instrument.id(), market);
 
 		if (wasAdded) {
 
-			for (final FrameworkAgent<?> agent : agents.keySet()) {
-				marketMap.get(instrument.id()).attachAgent(agent);
+			parked.remove(instrument.id());
+
+			agentIndex.addMarket(instrument);
+			
+			for (final FrameworkAgent<?> agent : agentIndex.match(instrument)) {
+				market.attachAgent(agent);
 			}
 
 			symbolMap.put(instrument.symbol(), instrument.id());
@@ -895,6 +994,60 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 
 		return wasAdded;
 	}
+
+	@Override
+	public int register(final Instrument... instruments) {
+
+		final Map<InstrumentID, Instrument> insts = 
+				new LinkedHashMap<InstrumentID, Instrument>();
+
+		for (final Instrument inst : instruments) {
+			if (isValid(inst) && !marketMap.containsKey(inst.id())) {
+				insts.put(inst.id(), inst);
+			}
+		}
+
+		if (insts.isEmpty()) {
+			return 0;
+		}
+
+		final Instrument[] array = insts.values().toArray(
+				new Instrument[insts.size()]);
+
+		final MarketDo[] markets = MarketBatch.newMarkets(factory, array);
+
+		int count = 0;
+
+		for (int k = 0; k < array.length; k++) {
+
+			final Instrument instrument = array[k];
+			final MarketDo market = markets[k];
+
+			restore(instrument.id(), market);
+			
+			if (marketMap.putIfAbsent(instrument.id(), market) != null) {
+				continue;
+			}
+
+			marketIndex.putIfAbsent(instrument.id(), market);
+			
+			parked.remove(instrument.id());
+
+			agentIndex.addMarket(instrument);
+			
+			for (final FrameworkAgent<?> agent : agentIndex.match(instrument)) {
+				market.attachAgent(agent);
+			}
+
+			symbolMap.put(instrument.symbol(), instrument.id());
+
+			count++;
+
+		}
+
+		return count;
+
+	}
 	
 	@Override
 	public boolean unregister(Instrument instrument) {
@@ -906,11 +1059,19 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		final MarketDo market = marketMap.remove(instrument.id());
 
 		final boolean wasRemoved = (market != null);
+		
+		parked.remove(instrument.id());
 
 		if (wasRemoved) {
+			
+			marketIndex.remove(instrument.id());
+			
+			removeMetrics(instrument.id());
+			
+			agentIndex.removeMarket(instrument);
 
 			for (final FrameworkAgent<?> agent : agents.keySet()) {
-				marketMap.get(instrument.id()).detachAgent(agent);
+				market.detachAgent(agent);
 			}
 
 			symbolMap.remove(instrument.symbol());
@@ -937,21 +1098,279 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	@Override
 	public void clearAll() {
 		marketMap.clear();
+		marketIndex.clear();
 		symbolMap.clear();
+		parked.clear();
+	}
+	
+	// ######################## Eviction ########################
+	
+	/**
+	 * @param eviction
+	 *            idle market policy; null to disable, evicted markets stay
+	 *            parked until registered again
+	 */
+	public synchronized void setEviction(final MarketEviction eviction) {
+		
+		if (evictionSweep != null) {
+			evictionSweep.cancel(false);
+			evictionSweep = null;
+		}
+		
+		this.eviction = eviction;
+		
+		if (eviction == null || eviction.sweepMillis() == 0) {
+			return;
+		}
+		
+		evictionSweep = Holder.POOL.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final int count = evictIdle();
+					if (count > 0) {
+						log.debug("Evicted {} idle markets", count);
+					}
+				} catch (final Throwable e) {
+					log.error("Eviction sweep failed", e);
+				}
+			}
+		}, eviction.sweepMillis(), eviction.sweepMillis(), TimeUnit.MILLISECONDS);
+		
+	}
+	
+	public MarketEviction getEviction() {
+		return eviction;
+	}
+	
+	/** evicted markets holding parked state */
+	public int parkedCount() {
+		return parked.size();
+	}
+	
+	/**
+	 * one eviction pass under the current policy
+	 * 
+	 * @return number of markets evicted
+	 */
+	public int evictIdle() {
+		
+		final MarketEviction eviction = this.eviction;
+		
+		if (eviction == null) {
+			return 0;
+		}
+		
+		final long idleBefore = System.currentTimeMillis() - eviction.idleMillis();
+		
+		final List<Stamp> stamps = new ArrayList<Stamp>(marketMap.size());
+		
+		for (final InstrumentID id : marketMap.keySet()) {
+			final long touched = marketIndex.touched(id);
+			if (touched >= 0) {
+				stamps.add(new Stamp(id, touched));
+			}
+		}
+		
+		final int excess = eviction.maxMarkets() == MarketEviction.UNBOUNDED ? 0
+				: stamps.size() - eviction.maxMarkets();
+		
+		/* Least recently touched first when over the bound */
+		if (excess > 0) {
+			Collections.sort(stamps);
+		}
+		
+		int count = 0;
+		
+		for (final Stamp stamp : stamps) {
+			
+			if (stamp.touched >= idleBefore && count >= excess) {
+				if (excess > 0) {
+					break;
+				}
+				continue;
+			}
+			
+			final MarketDo market = marketMap.get(stamp.id);
+			
+			if (market != null && market.runSafe(safeEvict, stamp)) {
+				count++;
+			}
+			
+		}
+		
+		return count;
+		
+	}
+	
+	private static final class Stamp implements Comparable<Stamp> {
+		
+		final InstrumentID id;
+		final long touched;
+		
+		Stamp(final InstrumentID id, final long touched) {
+			this.id = id;
+			this.touched = touched;
+		}
+
+		@Override
+		public int compareTo(final Stamp that) {
+			return touched < that.touched ? -1 : (touched == that.touched ? 0 : 1);
+		}
+		
+	}
+	
+	/* Inside the market lock, so no message lands between park and remove;
+	 * parked before unpublished, so a register() that misses the market 
+	 * always finds its parked state */
+	private final MarketSafeRunner<Boolean, Stamp> safeEvict = 
+			new MarketSafeRunner<Boolean, Stamp>() {
+		
+		@Override
+		public Boolean runSafe(final MarketDo market, final Stamp stamp) {
+			
+			final MarketEviction eviction = MarketProviderBase.this.eviction;
+			
+			if (eviction == null) {
+				return false;
+			}
+			
+			/* Touched since the pass started */
+			if (marketIndex.touched(stamp.id) > stamp.touched) {
+				return false;
+			}
+			
+			if (market.hasRegTakers()) {
+				return false;
+			}
+			
+			final Instrument instrument = market.instrument();
+			
+			for (final FrameworkAgent<?> agent : agentIndex.match(instrument)) {
+				if (agent.hasMatch(instrument)) {
+					return false;
+				}
+			}
+			
+			if (marketMap.get(stamp.id) != market) {
+				return false;
+			}
+			
+			final DefMarket state = eviction.retainState() 
+					? MarketParking.park(market) : null;
+			
+			if (state != null) {
+				parked.put(stamp.id, state);
+			}
+			
+			/* Lost to a concurrent unregister() */
+			if (!marketMap.remove(stamp.id, market)) {
+				if (state != null) {
+					parked.remove(stamp.id, state);
+				}
+				return false;
+			}
+			
+			evicted.add(market);
+			
+			marketIndex.remove(stamp.id);
+			removeMetrics(stamp.id);
+			agentIndex.removeMarket(instrument);
+			
+			return true;
+		}
+	};
+	
+	private void restore(final InstrumentID id, final MarketDo market) {
+		
+		final DefMarket state = parked.get(id);
+		
+		if (state != null) {
+			market.runSafe(MarketParking.RESTORE, state);
+		}
+		
 	}
 	
 	// ######################## Make ########################
 	
 	@Override
 	public void make(final Message message) {
+		
+		if (dispatcher != null) {
+			dispatcher.dispatch(message);
+			return;
+		}
+		
+		makeDirect(message);
+		
+	}
+	
+	private final Runner<Void, Message> dispatchTask = new Runner<Void, Message>() {
+		
+		@Override
+		public Void run(final Message message) {
+			makeDirect(message);
+			return null;
+		}
+	};
+	
+	/** @param metrics null to disable */
+	public void setMetrics(final MarketMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/** @return null when disabled */
+	public MarketMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/* Per instrument counters must not outlive the market */
+	private void removeMetrics(final InstrumentID id) {
+		
+		final MarketMetrics metrics = this.metrics;
+		
+		if (metrics != null) {
+			metrics.remove(id);
+		}
+		
+	}
+	
+	private void makeDirect(final Message message) {
 
+		final MarketMetrics metrics = this.metrics;
+		
+		if (metrics == null) {
+			makeMarket(message, null);
+			return;
+		}
+		
+		final long start = System.nanoTime();
+		
+		final Instrument instrument = makeMarket(message, metrics);
+		
+		metrics.make().record(System.nanoTime() - start);
+		
+		if (instrument != null) {
+			metrics.message(instrument.id());
+		}
+		
+	}
+	
+	/** @return null when message was dropped */
+	private Instrument makeMarket(final Message message,
+			final MarketMetrics metrics) {
+		
 		final Instrument instrument = message.getInstrument();
 
 		if (!isValid(instrument)) {
-			return;
+			return null;
 		}
 
-		MarketDo market = marketMap.get(instrument.id());
+		final boolean evicting = eviction != null;
+		
+		MarketDo market = evicting 
+				? marketIndex.touch(instrument.id(), System.currentTimeMillis())
+				: marketIndex.get(instrument.id());
 
 		final boolean valid = isValid(market);
 		
@@ -960,7 +1379,21 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 			market = marketMap.get(instrument.id());
 		}
 
-		market.runSafe(safeMake, message);
+		if (metrics != null) {
+			metrics.lockRequested();
+		}
+		
+		if (!evicting) {
+			market.runSafe(safeMake, message);
+		} else {
+			
+			/* Lost a race with eviction, apply to the rehydrated market */
+			while (!market.runSafe(safeApply, message)) {
+				register(instrument);
+				market = marketMap.get(instrument.id());
+			}
+			
+		}
 		
 		/* Below is a hack to keep the subscriptions updated */
 		/* If a new market is created, a new subscription is made, 
@@ -988,6 +1421,8 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		} 
 		
 		varSubs.get(instrument.id()).setLense(lense);
+		
+		return instrument;
 
 	}
 
@@ -1028,13 +1463,54 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		
 		@Override
 		public Void runSafe(final MarketDo market, final Message message) {
+			
+			final MarketMetrics metrics = MarketProviderBase.this.metrics;
+			
+			if (metrics == null) {
+				make(message, market);
+				market.fireEvents();
+				market.fireCallbacks();
+				return null;
+			}
+			
+			metrics.lockAcquired();
+			
 			make(message, market);
+			
+			final long events = System.nanoTime();
 			market.fireEvents();
-					market.fireCallbacks();
+			
+			final long callbacks = System.nanoTime();
+			market.fireCallbacks();
+			
+			final long done = System.nanoTime();
+			
+			metrics.fireEvents().record(callbacks - events);
+			metrics.fireCallbacks().record(done - callbacks);
+			
 			return null;
 		}
 	};
 	
+	/* Inside the market lock; false when the market was evicted before the 
+	 * lock was taken, the message was not applied */
+	private final MarketSafeRunner<Boolean, Message> safeApply = 
+			new MarketSafeRunner<Boolean, Message>() {
+		
+		@Override
+		public Boolean runSafe(final MarketDo market, final Message message) {
+			
+			if (marketMap.get(market.instrument().id()) != market
+					&& evicted.contains(market)) {
+				return false;
+			}
+			
+			safeMake.runSafe(market, message);
+			
+			return true;
+		}
+	};
+	
 	protected abstract void make(Message message, MarketDo market);
 	
 	// ######################## Take ########################
@@ -1044,13 +1520,13 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 	public <S extends Instrument, V extends Value<V>> V take(S instrument,
 			MarketField<V> field) {
 		
-		final MarketDo market = marketMap.get(instrument.id());
+		final MarketDo market = marketIndex.get(instrument.id());
 
 		if (market == null) {
 			return MarketConst.NULL_MARKET.get(field).freeze();
 		}
 
-		return (V) market.runSafe(safeTake, field);
+		return (V) market.runRead(safeTake, field);
 	}
 	
 	private final MarketSafeRunner<Value<?>, MarketField<?>> safeTake = 
@@ -1146,6 +1622,11 @@ public abstract class MarketProviderBase<Message extends MarketMessage>
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public int registerAll(Collection<? extends MarketTaker<?>> takers) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public <V extends Value<V>> boolean unregister(MarketTaker<V> taker) {
 		throw new UnsupportedOperationException();
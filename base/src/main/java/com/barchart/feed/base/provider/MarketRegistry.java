@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * instrument id to market index for the message path;
+ *
+ * open addressing table of immutable entries; reads are lock free, writes are
+ * serialized on this; each entry carries a last access stamp for idle market
+ * eviction
+ * <p>
+ * ids are not canonical, only their id strings are interned; messages usually
+ * carry the same InstrumentID instance as the instrument the market was made
+ * for, so probing compares by reference as a fast path and falls back to
+ * equals for distinct but equal ids
+ * <p>
+ * kept next to the protected marketMap rather than replacing it: subclasses
+ * read and iterate marketMap as a ConcurrentMap, while this index only serves
+ * the per message get / touch path, without a ConcurrentHashMap node walk and
+ * with the access stamps eviction needs
+ */
+@ThreadSafe
+final class MarketRegistry {
+
+	private static final class Entry {
+
+		final InstrumentID id;
+		final MarketDo market;
+
+		/** millis of last touch(); only stamp is mutable */
+		volatile long touched;
+
+		Entry(final InstrumentID id, final MarketDo market) {
+			this.id = id;
+			this.market = market;
+			touched = System.currentTimeMillis();
+		}
+
+	}
+
+	/** removed slot marker; keeps probe chains intact until next rehash */
+	private static final Entry REMOVED = new Entry(null, null);
+
+	private static final int CAPACITY_MIN = 16;
+
+	private volatile AtomicReferenceArray<Entry> table = //
+	new AtomicReferenceArray<Entry>(CAPACITY_MIN);
+
+	/** live entries; guarded by this */
+	private int size;
+
+	/** live entries plus removed markers; guarded by this */
+	private int used;
+
+	/** lock free lookup */
+	MarketDo get(final InstrumentID id) {
+
+		final AtomicReferenceArray<Entry> table = this.table;
+
+		final int mask = table.length() - 1;
+
+		int slot = spread(id.hashCode()) & mask;
+
+		for (;;) {
+
+			final Entry entry = table.get(slot);
+
+			if (entry == null) {
+				return null;
+			}
+
+			if (entry.id == id || (entry != REMOVED && id.equals(entry.id))) {
+				return entry.market;
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+	}
+
+	/** lock free lookup which also stamps the entry as used at millis */
+	MarketDo touch(final InstrumentID id, final long millis) {
+
+		final Entry entry = entry(id);
+
+		if (entry == null) {
+			return null;
+		}
+
+		entry.touched = millis;
+
+		return entry.market;
+
+	}
+
+	/** @return millis of last touch(), or -1 when absent */
+	long touched(final InstrumentID id) {
+
+		final Entry entry = entry(id);
+
+		return entry == null ? -1 : entry.touched;
+
+	}
+
+	private Entry entry(final InstrumentID id) {
+
+		final AtomicReferenceArray<Entry> table = this.table;
+
+		final int mask = table.length() - 1;
+
+		int slot = spread(id.hashCode()) & mask;
+
+		for (;;) {
+
+			final Entry entry = table.get(slot);
+
+			if (entry == null) {
+				return null;
+			}
+
+			if (entry.id == id || (entry != REMOVED && id.equals(entry.id))) {
+				return entry;
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+	}
+
+	/** @return previous market or null */
+	synchronized MarketDo put(final InstrumentID id, final MarketDo market) {
+		return insert(id, market, false);
+	}
+
+	/** @return present market or null when added */
+	synchronized MarketDo putIfAbsent(final InstrumentID id,
+			final MarketDo market) {
+		return insert(id, market, true);
+	}
+
+	/** @return removed market or null */
+	synchronized MarketDo remove(final InstrumentID id) {
+
+		final AtomicReferenceArray<Entry> table = this.table;
+
+		final int mask = table.length() - 1;
+
+		int slot = spread(id.hashCode()) & mask;
+
+		for (;;) {
+
+			final Entry entry = table.get(slot);
+
+			if (entry == null) {
+				return null;
+			}
+
+			if (entry != REMOVED && (entry.id == id || id.equals(entry.id))) {
+				table.set(slot, REMOVED);
+				size--;
+				return entry.market;
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+	}
+
+	synchronized void clear() {
+		table = new AtomicReferenceArray<Entry>(CAPACITY_MIN);
+		size = 0;
+		used = 0;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	private MarketDo insert(final InstrumentID id, final MarketDo market,
+			final boolean onlyIfAbsent) {
+
+		if (id == null || market == null) {
+			throw new NullPointerException();
+		}
+
+		final AtomicReferenceArray<Entry> table = this.table;
+
+		final int mask = table.length() - 1;
+
+		int slot = spread(id.hashCode()) & mask;
+
+		int free = -1;
+
+		for (;;) {
+
+			final Entry entry = table.get(slot);
+
+			if (entry == null) {
+				break;
+			}
+
+			if (entry == REMOVED) {
+				if (free < 0) {
+					free = slot;
+				}
+			} else if (entry.id == id || id.equals(entry.id)) {
+				if (!onlyIfAbsent) {
+					table.set(slot, new Entry(id, market));
+				}
+				return entry.market;
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+		if (free < 0) {
+			free = slot;
+			used++;
+		}
+
+		table.set(free, new Entry(id, market));
+		size++;
+
+		/** load factor incl. removed markers stays at or below 1/2 */
+		if (used * 2 > table.length()) {
+			rehash();
+		}
+
+		return null;
+
+	}
+
+	private void rehash() {
+
+		final AtomicReferenceArray<Entry> past = table;
+
+		int length = CAPACITY_MIN;
+		while (length < size * 4) {
+			length <<= 1;
+		}
+
+		final AtomicReferenceArray<Entry> next = //
+		new AtomicReferenceArray<Entry>(length);
+
+		final int mask = length - 1;
+
+		for (int k = 0; k < past.length(); k++) {
+
+			final Entry entry = past.get(k);
+
+			if (entry == null || entry == REMOVED) {
+				continue;
+			}
+
+			int slot = spread(entry.id.hashCode()) & mask;
+
+			while (next.get(slot) != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			next.set(slot, entry);
+
+		}
+
+		used = size;
+
+		/** publish */
+		table = next;
+
+	}
+
+	private static int spread(final int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
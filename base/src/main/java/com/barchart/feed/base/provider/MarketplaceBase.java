@@ -1,10 +1,12 @@
 package com.barchart.feed.base.provider;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -697,7 +699,7 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 	public Market snapshot(final Instrument instrument) {
 		
 		if(marketMap.containsKey(instrument.id())) {
-			return marketMap.get(instrument.id()).freeze();
+			return marketMap.get(instrument.id()).snapshot();
 		}
 		
 		return Market.NULL;
@@ -707,7 +709,7 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 	public Market snapshot(final InstrumentID instID) {
 		
 		if(marketMap.containsKey(instID)) {
-			return marketMap.get(instID).freeze();
+			return marketMap.get(instID).snapshot();
 		}
 		
 		return Market.NULL;
@@ -719,7 +721,7 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 		
 		if(symbolMap.containsKey(Symbology.formatSymbol(symbol))) {
 			return marketMap.get(
-					symbolMap.get(Symbology.formatSymbol(symbol))).freeze();
+					symbolMap.get(Symbology.formatSymbol(symbol))).snapshot();
 		}
 		
 		return Market.NULL;
@@ -812,7 +814,7 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 			return MarketConst.NULL_MARKET.get(field).freeze();
 		}
 
-		return (V) market.runSafe(safeTake, field);
+		return (V) market.runRead(safeTake, field);
 
 	}
 
@@ -919,6 +921,52 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 		return wasAdded;
 	}
 
+	@Override
+	public final synchronized int register(final Instrument... instruments) {
+
+		final Map<InstrumentID, Instrument> insts = 
+				new LinkedHashMap<InstrumentID, Instrument>();
+
+		for (final Instrument inst : instruments) {
+			if (isValid(inst) && !marketMap.containsKey(inst.id())) {
+				insts.put(inst.id(), inst);
+			}
+		}
+
+		if (insts.isEmpty()) {
+			return 0;
+		}
+
+		final Instrument[] array = insts.values().toArray(
+				new Instrument[insts.size()]);
+
+		final MarketDo[] markets = MarketBatch.newMarkets(factory, array);
+
+		int count = 0;
+
+		for (int k = 0; k < array.length; k++) {
+
+			final Instrument instrument = array[k];
+			final MarketDo market = markets[k];
+
+			if (marketMap.putIfAbsent(instrument.id(), market) != null) {
+				continue;
+			}
+
+			for (final FrameworkAgent<?> agent : agents.keySet()) {
+				market.attachAgent(agent);
+			}
+
+			symbolMap.put(instrument.symbol(), instrument.id());
+
+			count++;
+
+		}
+
+		return count;
+
+	}
+
 	@Override
 	public final synchronized boolean unregister(final Instrument instrument) {
 
@@ -1007,6 +1055,11 @@ public abstract class MarketplaceBase<Message extends MarketMessage> implements
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public int registerAll(final Collection<? extends MarketTaker<?>> takers) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public <V extends Value<V>> boolean unregister(final MarketTaker<V> taker) {
 		throw new UnsupportedOperationException();
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.market.enums.MarketEvent;
+import com.barchart.feed.base.values.api.Value;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * per taker pending-dirty set; feed thread only replaces latest frozen value
+ * per market, conflation thread drains the set no more often than interval
+ */
+@ThreadSafe
+final class RegConflator<V extends Value<V>> implements Runnable {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(RegConflator.class);
+
+	private static final class Holder {
+
+		static final int SIZE = Math.max(2, Runtime.getRuntime()
+				.availableProcessors() / 2);
+
+		static final ScheduledExecutorService POOL = Executors
+				.newScheduledThreadPool(SIZE, new ThreadFactory() {
+
+					final AtomicInteger count = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable);
+						thread.setName("market-conflate-"
+								+ count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+	}
+
+	private static final class Pending<V> {
+
+		MarketEvent event;
+		V value;
+
+		Pending(final MarketEvent event, final V value) {
+			this.event = event;
+			this.value = value;
+		}
+
+	}
+
+	private final MarketTaker<V> taker;
+
+	private final long intervalNanos;
+
+	// guarded by this
+
+	private Map<Instrument, Pending<V>> dirty = //
+	new LinkedHashMap<Instrument, Pending<V>>();
+
+	private Map<Instrument, Pending<V>> spare = //
+	new LinkedHashMap<Instrument, Pending<V>>();
+
+	private boolean isScheduled;
+
+	private boolean isClosed;
+
+	private long lastDrain;
+
+	private long offered;
+
+	private long delivered;
+
+	RegConflator(final MarketTaker<V> taker, final long intervalMillis) {
+
+		if (intervalMillis < 0) {
+			throw new IllegalArgumentException("intervalMillis < 0");
+		}
+
+		this.taker = taker;
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		this.lastDrain = System.nanoTime() - intervalNanos;
+
+	}
+
+	/** called from feed thread inside market runSafe() */
+	final void offer(final MarketEvent event, final Instrument instrument,
+			final V value) {
+
+		synchronized (this) {
+
+			if (isClosed) {
+				return;
+			}
+
+			offered++;
+
+			final Pending<V> pending = dirty.get(instrument);
+
+			if (pending == null) {
+				dirty.put(instrument, new Pending<V>(event, value));
+			} else {
+				pending.event = event;
+				pending.value = value;
+			}
+
+			if (!isScheduled) {
+				isScheduled = true;
+				schedule();
+			}
+
+		}
+
+	}
+
+	/** drop pending values; delivery in progress still completes */
+	final void close() {
+		synchronized (this) {
+			isClosed = true;
+			dirty.clear();
+		}
+	}
+
+	/** values accepted from feed */
+	final synchronized long offered() {
+		return offered;
+	}
+
+	/** values handed to taker */
+	final synchronized long delivered() {
+		return delivered;
+	}
+
+	/** markets waiting for delivery */
+	final synchronized int pending() {
+		return dirty.size();
+	}
+
+	// guarded by this
+	private void schedule() {
+		final long delay = lastDrain + intervalNanos - System.nanoTime();
+		Holder.POOL.schedule(this, Math.max(0, delay), TimeUnit.NANOSECONDS);
+	}
+
+	/** drain on conflation thread */
+	@Override
+	public void run() {
+
+		final Map<Instrument, Pending<V>> batch;
+
+		synchronized (this) {
+			batch = dirty;
+			dirty = spare;
+			spare = batch;
+		}
+
+		int count = 0;
+
+		for (final Map.Entry<Instrument, Pending<V>> entry : batch.entrySet()) {
+
+			final Pending<V> pending = entry.getValue();
+
+			try {
+				taker.onMarketEvent(pending.event, entry.getKey(),
+						pending.value);
+			} catch (final Throwable e) {
+				log.error("conflated taker failed", e);
+			}
+
+			count++;
+
+		}
+
+		batch.clear();
+
+		synchronized (this) {
+
+			delivered += count;
+
+			lastDrain = System.nanoTime();
+
+			if (isClosed || dirty.isEmpty()) {
+				isScheduled = false;
+			} else {
+				schedule();
+			}
+
+		}
+
+	}
+
+}
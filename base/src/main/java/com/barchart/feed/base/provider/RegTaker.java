@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.MarketConflatedTaker;
 import com.barchart.feed.base.market.api.MarketTaker;
 import com.barchart.feed.base.market.enums.MarketEvent;
 import com.barchart.feed.base.market.enums.MarketField;
@@ -37,10 +38,21 @@ public class RegTaker<V extends Value<V>> implements RunnerLoop<MarketEvent> {
 
 	private volatile Instrument[] instruments;
 
+	/** null unless taker asked for conflation */
+	private final RegConflator<V> conflator;
+
+	@SuppressWarnings("unchecked")
 	public RegTaker(final MarketTaker<V> taker) {
 
 		this.taker = taker;
 
+		if (taker instanceof MarketConflatedTaker) {
+			conflator = new RegConflator<V>(taker,
+					((MarketConflatedTaker<V>) taker).conflateMillis());
+		} else {
+			conflator = null;
+		}
+
 		bind();
 
 	}
@@ -63,8 +75,23 @@ public class RegTaker<V extends Value<V>> implements RunnerLoop<MarketEvent> {
 
 		final V value = regCenter.cache(field);
 
-		taker.onMarketEvent(event, regCenter.instrument(), value);
+		if (conflator == null) {
+			taker.onMarketEvent(event, regCenter.instrument(), value);
+		} else {
+			conflator.offer(event, regCenter.instrument(), value);
+		}
+
+	}
+
+	/** stop pending conflated deliveries */
+	final void close() {
+		if (conflator != null) {
+			conflator.close();
+		}
+	}
 
+	final RegConflator<V> getConflator() {
+		return conflator;
 	}
 
 	@Override
@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.collections.ConcurrentRingQueue;
+import com.barchart.feed.base.market.api.MarketDispatcher;
+import com.barchart.feed.base.market.api.MarketMessage;
+import com.barchart.feed.base.thread.Runner;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * hashes instrument id onto a fixed set of worker shards; each shard has own
+ * bounded ring queue and own thread, so a market is only ever written by one
+ * thread and message order per instrument is kept;
+ *
+ * core pinning is left to the thread factory / operating system
+ */
+@ThreadSafe
+public class ShardDispatcher<Message extends MarketMessage> implements
+		MarketDispatcher<Message> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(ShardDispatcher.class);
+
+	/** what to do when shard queue is full */
+	public enum Policy {
+
+		/** wait for free queue slot; feed thread is throttled */
+		BLOCK, //
+
+		/** discard incoming message */
+		DROP_NEWEST, //
+
+		/** discard oldest pending message of the shard */
+		DROP_OLDEST, //
+
+	}
+
+	private static final AtomicInteger dispatcherCount = new AtomicInteger(0);
+
+	private final Policy policy;
+
+	private final Shard[] shards;
+
+	private final ThreadFactory threadFactory;
+
+	private volatile Runner<Void, Message> task;
+
+	private volatile boolean isRunning;
+
+	public ShardDispatcher(final int shardCount, final int queueSize,
+			final Policy policy) {
+
+		this(shardCount, queueSize, policy, defaultFactory());
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public ShardDispatcher(final int shardCount, final int queueSize,
+			final Policy policy, final ThreadFactory threadFactory) {
+
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount <= 0");
+		}
+
+		if (policy == null || threadFactory == null) {
+			throw new NullPointerException();
+		}
+
+		this.policy = policy;
+		this.threadFactory = threadFactory;
+
+		shards = (Shard[]) new ShardDispatcher<?>.Shard[shardCount];
+
+		for (int k = 0; k < shardCount; k++) {
+			shards[k] = new Shard(queueSize);
+		}
+
+	}
+
+	private static ThreadFactory defaultFactory() {
+
+		final int id = dispatcherCount.getAndIncrement();
+
+		return new ThreadFactory() {
+
+			final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable);
+				thread.setName("market-shard-" + id + "-"
+						+ count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+
+	}
+
+	@Override
+	public synchronized void start(final Runner<Void, Message> task) {
+
+		if (this.task != null) {
+			throw new IllegalStateException("already started");
+		}
+
+		this.task = task;
+
+		isRunning = true;
+
+		for (final Shard shard : shards) {
+			shard.thread = threadFactory.newThread(shard);
+			shard.thread.start();
+		}
+
+	}
+
+	@Override
+	public void dispatch(final Message message) {
+
+		final Shard shard = shards[shardIndex(message.getInstrument())];
+
+		if (!isRunning) {
+			shard.dropCount.incrementAndGet();
+			return;
+		}
+
+		if (!shard.queue.offer(message)) {
+
+			switch (policy) {
+
+			default:
+			case BLOCK:
+				while (!shard.queue.offer(message)) {
+					if (!isRunning) {
+						shard.dropCount.incrementAndGet();
+						return;
+					}
+					shard.wakeup();
+					Thread.yield();
+				}
+				break;
+
+			case DROP_NEWEST:
+				shard.dropCount.incrementAndGet();
+				return;
+
+			case DROP_OLDEST:
+				while (!shard.queue.offer(message)) {
+					if (shard.queue.poll() != null) {
+						shard.dropCount.incrementAndGet();
+					}
+				}
+				break;
+
+			}
+
+		}
+
+		shard.dispatchCount.incrementAndGet();
+
+		shard.wakeup();
+
+	}
+
+	@Override
+	public void shutdown() {
+
+		synchronized (this) {
+			if (!isRunning) {
+				return;
+			}
+			isRunning = false;
+		}
+
+		for (final Shard shard : shards) {
+			shard.wakeup();
+		}
+
+		for (final Shard shard : shards) {
+			try {
+				shard.thread.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+	}
+
+	// ########################
+
+	public final int shardCount() {
+		return shards.length;
+	}
+
+	public final int shardIndex(final Instrument instrument) {
+
+		int hash = instrument.id().hashCode();
+
+		/** spread high bits */
+		hash ^= (hash >>> 16);
+
+		return (hash & 0x7FFFFFFF) % shards.length;
+
+	}
+
+	/** pending messages */
+	public final int queueDepth(final int shard) {
+		return shards[shard].queue.size();
+	}
+
+	/** high water mark of pending messages */
+	public final int queueDepthMax(final int shard) {
+		return shards[shard].depthMax;
+	}
+
+	/** accepted messages */
+	public final long dispatchCount(final int shard) {
+		return shards[shard].dispatchCount.get();
+	}
+
+	/** processed messages */
+	public final long processCount(final int shard) {
+		return shards[shard].processCount;
+	}
+
+	/** messages discarded by policy or after shutdown */
+	public final long dropCount(final int shard) {
+		return shards[shard].dropCount.get();
+	}
+
+	// ########################
+
+	private final class Shard implements Runnable {
+
+		final ConcurrentRingQueue<Message> queue;
+
+		final AtomicLong dispatchCount = new AtomicLong(0);
+
+		final AtomicLong dropCount = new AtomicLong(0);
+
+		/** written by shard thread only */
+		volatile long processCount;
+
+		/** written by shard thread only */
+		volatile int depthMax;
+
+		volatile boolean isSleeping;
+
+		volatile Thread thread;
+
+		Shard(final int queueSize) {
+			queue = new ConcurrentRingQueue<Message>(queueSize);
+		}
+
+		final void wakeup() {
+			if (isSleeping) {
+				LockSupport.unpark(thread);
+			}
+		}
+
+		@Override
+		public void run() {
+
+			final Runner<Void, Message> task = ShardDispatcher.this.task;
+
+			for (;;) {
+
+				final int depth = queue.size();
+
+				if (depth > depthMax) {
+					depthMax = depth;
+				}
+
+				final Message message = queue.poll();
+
+				if (message == null) {
+
+					if (!isRunning) {
+						return;
+					}
+
+					isSleeping = true;
+
+					/** re-check after publishing sleep flag */
+					if (queue.isEmpty() && isRunning) {
+						LockSupport.park(this);
+					}
+
+					isSleeping = false;
+
+					continue;
+
+				}
+
+				try {
+					task.run(message);
+				} catch (final Throwable e) {
+					log.error("dispatch task failed", e);
+				}
+
+				processCount++;
+
+			}
+
+		}
+
+	}
+
+}
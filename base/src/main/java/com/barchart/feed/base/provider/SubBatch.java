@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionType;
+
+/**
+ * multi symbol sub command; all interests share one subscription type set
+ * <p>
+ * encodes as comma separated interest=codes pairs
+ */
+public class SubBatch implements SubCommand {
+
+	private final Set<SubscriptionType> subTypes;
+	private final List<String> interests;
+	private final SubCommand.Type type;
+
+	SubBatch(final Collection<String> interests, final SubCommand.Type type,
+			final Set<SubscriptionType> types) {
+
+		if (interests == null || interests.isEmpty() || types == null
+				|| types.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+
+		this.subTypes = EnumSet.copyOf(types);
+		this.interests = new ArrayList<String>(interests);
+		this.type = type;
+	}
+
+	@Override
+	public Type type() {
+		return type;
+	}
+
+	@Override
+	public Set<SubscriptionType> types() {
+		return subTypes;
+	}
+
+	@Override
+	public void addTypes(final Set<SubscriptionType> types) {
+		subTypes.addAll(types);
+	}
+
+	@Override
+	public void removeTypes(final Set<SubscriptionType> types) {
+		subTypes.removeAll(types);
+	}
+
+	/** individual symbols in this command */
+	public List<String> interests() {
+		return Collections.unmodifiableList(interests);
+	}
+
+	@Override
+	public String encode() {
+
+		final StringBuilder codes = new StringBuilder();
+		for (final SubscriptionType t : subTypes) {
+			codes.append(t.code());
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		for (final String interest : interests) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(interest).append('=').append(codes);
+		}
+
+		return sb.toString();
+	}
+
+	/** comma separated symbols */
+	@Override
+	public String interest() {
+
+		final StringBuilder sb = new StringBuilder();
+		for (final String interest : interests) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(interest);
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public boolean isNull() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return encode();
+	}
+
+}
@@ -0,0 +1,458 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionHandler;
+import com.barchart.feed.base.sub.SubscriptionType;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * subscription handler decorator; collects sub commands over a short window,
+ * cancels add / remove pairs for the same interest and type, then sends one
+ * multi symbol command per distinct subscription type set; commands the
+ * wrapped handler failed on are queued again for the next window
+ */
+@ThreadSafe
+public class SubBatcher implements SubscriptionHandler {
+
+	private static final Logger log = LoggerFactory.getLogger(SubBatcher.class);
+
+	public static final long DEFAULT_WINDOW_MILLIS = 50;
+
+	public static final int DEFAULT_MAX_INTERESTS = 256;
+
+	private static final class Holder {
+
+		static final ScheduledExecutorService POOL = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+					final AtomicInteger count = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable);
+						thread.setName("market-subs-" + count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+	}
+
+	private static final class Key {
+
+		final SubCommand.Type type;
+		final String interest;
+
+		Key(final SubCommand.Type type, final String interest) {
+			this.type = type;
+			this.interest = interest;
+		}
+
+		@Override
+		public int hashCode() {
+			return type.hashCode() * 31 + interest.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			final Key that = (Key) other;
+			return type == that.type && interest.equals(that.interest);
+		}
+
+	}
+
+	private static final class Pending {
+
+		final Set<SubscriptionType> add = EnumSet
+				.noneOf(SubscriptionType.class);
+
+		final Set<SubscriptionType> remove = EnumSet
+				.noneOf(SubscriptionType.class);
+
+		boolean isEmpty() {
+			return add.isEmpty() && remove.isEmpty();
+		}
+
+	}
+
+	private final SubscriptionHandler handler;
+
+	private final long windowMillis;
+
+	private final int maxInterests;
+
+	private final Callable<Boolean> task = new Callable<Boolean>() {
+		@Override
+		public Boolean call() {
+			return flush();
+		}
+	};
+
+	// guarded by this
+
+	private Map<Key, Pending> pending = new LinkedHashMap<Key, Pending>();
+
+	private Future<Boolean> scheduled;
+
+	private boolean isClosed;
+
+	private long received;
+
+	private long sent;
+
+	public SubBatcher(final SubscriptionHandler handler) {
+		this(handler, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_INTERESTS);
+	}
+
+	/**
+	 * @param windowMillis
+	 *            delay from first pending command to flush
+	 * @param maxInterests
+	 *            upper limit of symbols in one upstream command
+	 */
+	public SubBatcher(final SubscriptionHandler handler,
+			final long windowMillis, final int maxInterests) {
+
+		if (handler == null) {
+			throw new NullPointerException("handler");
+		}
+		if (windowMillis < 0) {
+			throw new IllegalArgumentException("windowMillis < 0");
+		}
+		if (maxInterests < 1) {
+			throw new IllegalArgumentException("maxInterests < 1");
+		}
+
+		this.handler = handler;
+		this.windowMillis = windowMillis;
+		this.maxInterests = maxInterests;
+
+	}
+
+	@Override
+	public Future<Boolean> subscribe(final SubCommand subscription) {
+		return offer(Collections.singleton(subscription), true);
+	}
+
+	@Override
+	public Future<Boolean> subscribe(final Set<SubCommand> subscriptions) {
+		return offer(subscriptions, true);
+	}
+
+	@Override
+	public Future<Boolean> unsubscribe(final SubCommand subscription) {
+		return offer(Collections.singleton(subscription), false);
+	}
+
+	@Override
+	public Future<Boolean> unsubscribe(final Set<SubCommand> subscriptions) {
+		return offer(subscriptions, false);
+	}
+
+	/** commands accepted from callers */
+	public synchronized long received() {
+		return received;
+	}
+
+	/** commands passed to wrapped handler */
+	public synchronized long sent() {
+		return sent;
+	}
+
+	/** interests with a pending change */
+	public synchronized int pending() {
+		return pending.size();
+	}
+
+	/**
+	 * future completes after the window containing these commands flushes;
+	 * false when the wrapped handler failed and the commands were queued again
+	 */
+	private Future<Boolean> offer(final Collection<SubCommand> subs,
+			final boolean isAdd) {
+
+		synchronized (this) {
+
+			for (final SubCommand sub : subs) {
+
+				if (sub == null || sub.isNull()) {
+					continue;
+				}
+
+				received++;
+
+				if (sub instanceof SubBatch) {
+					for (final String interest : ((SubBatch) sub).interests()) {
+						merge(sub.type(), interest, sub.types(), isAdd);
+					}
+				} else {
+					merge(sub.type(), sub.interest(), sub.types(), isAdd);
+				}
+
+			}
+
+			if (!isClosed) {
+				schedule();
+				return scheduled;
+			}
+
+		}
+
+		/** closed, send without a window */
+		final FutureTask<Boolean> done = new FutureTask<Boolean>(task);
+		done.run();
+		return done;
+
+	}
+
+	// guarded by this
+	private void schedule() {
+		if (scheduled == null) {
+			scheduled = Holder.POOL.schedule(task, windowMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * stop batching; sends pending commands now, later commands are sent as
+	 * they arrive
+	 *
+	 * @return false if wrapped handler failed
+	 */
+	public boolean close() {
+
+		synchronized (this) {
+
+			isClosed = true;
+
+			if (scheduled != null) {
+				scheduled.cancel(false);
+			}
+
+		}
+
+		return flush();
+
+	}
+
+	// guarded by this
+	private void merge(final SubCommand.Type type, final String interest,
+			final Set<SubscriptionType> types, final boolean isAdd) {
+
+		final Key key = new Key(type, interest);
+
+		Pending entry = pending.get(key);
+
+		if (entry == null) {
+			entry = new Pending();
+			pending.put(key, entry);
+		}
+
+		final Set<SubscriptionType> same = isAdd ? entry.add : entry.remove;
+		final Set<SubscriptionType> opposite = isAdd ? entry.remove : entry.add;
+
+		for (final SubscriptionType t : types) {
+			// remove then add, or add then remove, is no change upstream
+			if (!opposite.remove(t)) {
+				same.add(t);
+			}
+		}
+
+		if (entry.isEmpty()) {
+			pending.remove(key);
+		}
+
+	}
+
+	/**
+	 * send pending commands now; removes go first
+	 *
+	 * @return false if wrapped handler failed
+	 */
+	public boolean flush() {
+
+		final Map<Key, Pending> batch;
+
+		synchronized (this) {
+			batch = pending;
+			pending = new LinkedHashMap<Key, Pending>();
+			scheduled = null;
+		}
+
+		if (batch.isEmpty()) {
+			return true;
+		}
+
+		final Map<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>> adds = //
+		new LinkedHashMap<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>>();
+
+		final Map<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>> removes = //
+		new LinkedHashMap<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>>();
+
+		for (final Map.Entry<Key, Pending> e : batch.entrySet()) {
+			final Key key = e.getKey();
+			final Pending entry = e.getValue();
+			group(adds, key, entry.add);
+			group(removes, key, entry.remove);
+		}
+
+		final Set<SubCommand> unsubs = commands(removes);
+		final Set<SubCommand> subs = commands(adds);
+
+		try {
+			if (!unsubs.isEmpty()) {
+				handler.unsubscribe(unsubs);
+			}
+		} catch (final Throwable e) {
+			log.error("sub handler failed, queued again", e);
+			requeue(batch, true);
+			return false;
+		}
+
+		synchronized (this) {
+			sent += unsubs.size();
+		}
+
+		try {
+			if (!subs.isEmpty()) {
+				handler.subscribe(subs);
+			}
+		} catch (final Throwable e) {
+			log.error("sub handler failed, queued again", e);
+			requeue(batch, false);
+			return false;
+		}
+
+		synchronized (this) {
+			sent += subs.size();
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * failed batch goes back ahead of commands received since, so the newer
+	 * ones still cancel against it
+	 */
+	private synchronized void requeue(final Map<Key, Pending> batch,
+			final boolean withRemoves) {
+
+		final Map<Key, Pending> newer = pending;
+
+		pending = new LinkedHashMap<Key, Pending>();
+
+		for (final Map.Entry<Key, Pending> e : batch.entrySet()) {
+			final Key key = e.getKey();
+			if (withRemoves) {
+				merge(key.type, key.interest, e.getValue().remove, false);
+			}
+			merge(key.type, key.interest, e.getValue().add, true);
+		}
+
+		for (final Map.Entry<Key, Pending> e : newer.entrySet()) {
+			final Key key = e.getKey();
+			merge(key.type, key.interest, e.getValue().remove, false);
+			merge(key.type, key.interest, e.getValue().add, true);
+		}
+
+		if (!isClosed && !pending.isEmpty()) {
+			schedule();
+		}
+
+	}
+
+	private static void group(
+			final Map<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>> groups,
+			final Key key, final Set<SubscriptionType> types) {
+
+		if (types.isEmpty()) {
+			return;
+		}
+
+		Map<Set<SubscriptionType>, List<String>> byTypes = groups.get(key.type);
+
+		if (byTypes == null) {
+			byTypes = new LinkedHashMap<Set<SubscriptionType>, List<String>>();
+			groups.put(key.type, byTypes);
+		}
+
+		List<String> interests = byTypes.get(types);
+
+		if (interests == null) {
+			interests = new ArrayList<String>();
+			byTypes.put(EnumSet.copyOf(types), interests);
+		}
+
+		interests.add(key.interest);
+
+	}
+
+	private Set<SubCommand> commands(
+			final Map<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>> groups) {
+
+		final Set<SubCommand> commands = new HashSet<SubCommand>();
+
+		for (final Map.Entry<SubCommand.Type, Map<Set<SubscriptionType>, List<String>>> byType : groups
+				.entrySet()) {
+
+			for (final Map.Entry<Set<SubscriptionType>, List<String>> e : byType
+					.getValue().entrySet()) {
+
+				final List<String> interests = e.getValue();
+
+				for (int k = 0; k < interests.size(); k += maxInterests) {
+
+					final List<String> chunk = interests.subList(k,
+							Math.min(interests.size(), k + maxInterests));
+
+					if (chunk.size() == 1) {
+						commands.add(new SubBase(chunk.get(0), byType.getKey(),
+								e.getKey()));
+					} else {
+						commands.add(new SubBatch(chunk, byType.getKey(), e
+								.getKey()));
+					}
+
+				}
+
+			}
+
+		}
+
+		return commands;
+
+	}
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.barchart.feed.base.participant.FrameworkAgent;
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionType;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * per symbol reference counts for each subscription type; a sub command is
+ * produced only when a type count moves between zero and one
+ * <p>
+ * symbols are guarded by lock stripes, so agents working on different symbols
+ * do not contend
+ */
+@ThreadSafe
+final class SubTable {
+
+	static final int STRIPES = 64;
+
+	private static final SubscriptionType[] TYPES = SubscriptionType.values();
+
+	private static final class Entry {
+
+		/** subscribers per type, by ordinal */
+		final int[] counts = new int[TYPES.length];
+
+		/** subscribe calls per agent */
+		final Map<FrameworkAgent<?>, Integer> agents = //
+		new HashMap<FrameworkAgent<?>, Integer>();
+
+	}
+
+	private final ConcurrentMap<String, Entry> table = //
+	new ConcurrentHashMap<String, Entry>();
+
+	private final Object[] locks = new Object[STRIPES];
+
+	SubTable() {
+		for (int k = 0; k < STRIPES; k++) {
+			locks[k] = new Object();
+		}
+	}
+
+	private Object lock(final String symbol) {
+		final int hash = symbol.hashCode();
+		return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+	}
+
+	/** @return types which became subscribed, or NULL command */
+	SubCommand subscribe(final FrameworkAgent<?> agent, final String symbol) {
+
+		final Set<SubscriptionType> types = SubscriptionType
+				.mapMarketEvent(agent.type());
+
+		if (types.isEmpty()) {
+			return SubCommand.NULL;
+		}
+
+		synchronized (lock(symbol)) {
+
+			Entry entry = table.get(symbol);
+
+			if (entry == null) {
+				entry = new Entry();
+				table.put(symbol, entry);
+			}
+
+			final Integer count = entry.agents.get(agent);
+			entry.agents.put(agent, count == null ? 1 : count + 1);
+
+			Set<SubscriptionType> added = null;
+
+			for (final SubscriptionType type : types) {
+				if (entry.counts[type.ordinal()]++ == 0) {
+					if (added == null) {
+						added = EnumSet.noneOf(SubscriptionType.class);
+					}
+					added.add(type);
+				}
+			}
+
+			if (added == null) {
+				return SubCommand.NULL;
+			}
+
+			return new SubBase(symbol, SubCommand.Type.INSTRUMENT, added);
+
+		}
+
+	}
+
+	/** @return types which lost their last subscriber, or NULL command */
+	SubCommand unsubscribe(final FrameworkAgent<?> agent, final String symbol) {
+
+		synchronized (lock(symbol)) {
+
+			final Entry entry = table.get(symbol);
+
+			if (entry == null) {
+				return SubCommand.NULL;
+			}
+
+			final Integer count = entry.agents.get(agent);
+
+			if (count == null) {
+				return SubCommand.NULL;
+			}
+
+			if (count == 1) {
+				entry.agents.remove(agent);
+			} else {
+				entry.agents.put(agent, count - 1);
+			}
+
+			if (entry.agents.isEmpty()) {
+				table.remove(symbol);
+			}
+
+			Set<SubscriptionType> removed = null;
+
+			for (final SubscriptionType type : SubscriptionType
+					.mapMarketEvent(agent.type())) {
+				if (--entry.counts[type.ordinal()] == 0) {
+					if (removed == null) {
+						removed = EnumSet.noneOf(SubscriptionType.class);
+					}
+					removed.add(type);
+				}
+			}
+
+			if (removed == null) {
+				return SubCommand.NULL;
+			}
+
+			return new SubBase(symbol, SubCommand.Type.INSTRUMENT, removed);
+
+		}
+
+	}
+
+	/** union of types subscribed for symbol */
+	Set<SubscriptionType> types(final String symbol) {
+
+		final Set<SubscriptionType> types = EnumSet
+				.noneOf(SubscriptionType.class);
+
+		synchronized (lock(symbol)) {
+
+			final Entry entry = table.get(symbol);
+
+			if (entry == null) {
+				return types;
+			}
+
+			for (final SubscriptionType type : TYPES) {
+				if (entry.counts[type.ordinal()] > 0) {
+					types.add(type);
+				}
+			}
+
+		}
+
+		return types;
+
+	}
+
+	/** symbols with at least one subscriber */
+	int size() {
+		return table.size();
+	}
+
+}
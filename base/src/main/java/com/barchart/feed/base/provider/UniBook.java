@@ -29,9 +29,9 @@ import com.barchart.util.common.anno.NotThreadSafe;
 import com.barchart.util.common.math.MathExtra;
 
 @NotThreadSafe
-// javaSize this = 8(obj) + 1(size) + 4(keyRef) + 4(bidsRef) + 4(asksRef) = 24
-// javaSize deep = 136 * 2(asks+bids) + 24 (key) = 296
-// javaSize = 320
+// javaSize this = 8(obj) + 1(size) + 4(keyRef) + 4(bidsRef) + 4(asksRef) + 4(slabRef) = 32
+// javaSize deep = 152 * 2(asks+bids) + 24 (key) = 328 heap, 96 * 2 + 24 = 216 slab
+// javaSize = 360 heap, 248 slab
 class UniBook<V extends Value<V>> extends ValueFreezer<V> {
 
 	@SuppressWarnings("unused")
@@ -45,13 +45,24 @@ class UniBook<V extends Value<V>> extends ValueFreezer<V> {
 	protected final UniBookRing asks;
 	
 	protected final Instrument instrument;
+	
+	// null for heap level storage
+	protected final BookSlab slab;
 
 	public UniBook(final Instrument instrument, final Book.Type type, 
 			final SizeValue size, final PriceValue step) 
 					throws IllegalArgumentException, ArithmeticException {
+		this(instrument, type, size, step, null);
+	}
+
+	public UniBook(final Instrument instrument, final Book.Type type, 
+			final SizeValue size, final PriceValue step, final BookSlab slab) 
+					throws IllegalArgumentException, ArithmeticException {
 
 		this.instrument = instrument;
 		
+		this.slab = slab;
+		
 		this.size = MathExtra.castLongToByte(size.asLong());
 
 		this.step = step;
@@ -67,6 +78,11 @@ class UniBook<V extends Value<V>> extends ValueFreezer<V> {
 		// assume central price is zero
 		bids.clear(-size);
 		asks.clear(0);
+		cleared();
+	}
+
+	// change tracking hook; called from constructor too
+	protected void cleared() {
 	}
 
 	// XXX returns null
@@ -249,7 +265,7 @@ class UniBook<V extends Value<V>> extends ValueFreezer<V> {
 			if (ring.isValidIndex(index)) {
 				final boolean isOldTop = ring.isOldTop(index);
 				ring.set(index, entry);
-				saveLastClue(index);
+				saveLastClue(ring.lastClue(index));
 				if (isOldTop) {
 					return TOP;
 				} else {
@@ -381,6 +397,16 @@ class UniBook<V extends Value<V>> extends ValueFreezer<V> {
 		}
 	}
 
+	// reusable flyweight cursor, non null entries ordered by logical offset
+	protected final UniBookLevel levelsFor(final Book.Side side) {
+		final UniBookRing ring = ringFor(side);
+		if (ring == null) {
+			throw new IllegalArgumentException("invalid book side=" + side);
+		} else {
+			return ring.levels();
+		}
+	}
+
 	protected final SizeValue[] sizesFor(final Book.Side side) {
 		final UniBookRing ring = ringFor(side);
 		if (ring == null) {
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Book.Entry;
+import com.barchart.feed.base.book.api.MarketBookEntry;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.base.values.provider.ValueFreezer;
+import com.barchart.util.common.anno.Mutable;
+import com.barchart.util.common.anno.ThreadSafe;
+import com.barchart.util.value.api.Price;
+import com.barchart.util.value.api.Size;
+
+/**
+ * flyweight entry view over the live book side; walks non empty levels by
+ * logical offset and reads price index and size straight from level storage;
+ * use {@link #freeze()} to keep an entry past the cursor step
+ */
+@Mutable
+@ThreadSafe(rule = "use in runSafe() only")
+public final class UniBookLevel extends ValueFreezer<MarketBookEntry>
+		implements MarketBookEntry {
+
+	private final UniBookRing ring;
+
+	private int offset;
+
+	private int clue;
+
+	UniBookLevel(final UniBookRing ring) {
+		this.ring = ring;
+		reset();
+	}
+
+	final UniBookLevel reset() {
+		offset = -1;
+		clue = UniBookRing.CLUE_NONE;
+		return this;
+	}
+
+	/** advance to next non empty level; false when done */
+	public boolean next() {
+
+		final int size = ring.length();
+
+		while (++offset < size) {
+			clue = ring.levelClue(offset);
+			if (!ring.isEmpty(clue)) {
+				return true;
+			}
+		}
+
+		clue = UniBookRing.CLUE_NONE;
+
+		return false;
+
+	}
+
+	/** price as count of price steps */
+	public long priceIndex() {
+		return ring.levelIndex(clue);
+	}
+
+	/** default plus implied size */
+	public long sizeLong() {
+		return ring.sizeCombo(clue);
+	}
+
+	//
+
+	@Override
+	public int place() {
+		return ring.placeFromClue(clue);
+	}
+
+	@Override
+	public int level() {
+		return place();
+	}
+
+	@Override
+	public Book.Side side() {
+		return ring.side();
+	}
+
+	@Override
+	public PriceValue priceValue() {
+		return ring.keyStep().mult(ring.levelIndex(clue));
+	}
+
+	@Override
+	public SizeValue sizeValue() {
+		return ValueBuilder.newSize(sizeLong());
+	}
+
+	@Override
+	public Price price() {
+		return ValueConverter.price(priceValue());
+	}
+
+	@Override
+	public Size size() {
+		return ValueConverter.size(sizeValue());
+	}
+
+	@Override
+	public int compareTo(final Entry o) {
+		return price().compareTo(o.price());
+	}
+
+	/** detached copy of current level */
+	@Override
+	public MarketBookEntry freeze() {
+		return ring.arrayGet(clue);
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return false;
+	}
+
+	@Override
+	public boolean isNull() {
+		return clue == UniBookRing.CLUE_NONE;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s   %s   %s   %s", side(), place(),
+				priceValue(), sizeValue());
+	}
+
+}
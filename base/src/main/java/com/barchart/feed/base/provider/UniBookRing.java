@@ -8,6 +8,9 @@
 package com.barchart.feed.base.provider;
 
 import static com.barchart.feed.base.book.enums.MarketBookAction.NOOP;
+import static com.barchart.feed.base.provider.UniBookStore.COLUMN_DEFAULT;
+import static com.barchart.feed.base.provider.UniBookStore.COLUMN_IMPLIED;
+import static com.barchart.feed.base.provider.UniBookStore.columnFor;
 import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
 
 import com.barchart.feed.api.model.data.Book;
@@ -23,9 +26,10 @@ import com.barchart.util.common.math.MathExtra;
 
 /** this book side ring is limited to 32 levels */
 @NotThreadSafe
-// javaSize this = 8(obj) + 4(defRef) + 4(impRef) + 4(bookRef) + 4(mask) = 24
-// javaSize deep = 16(def) + 16(imp) + 10(size) * 2(def+imp) * 4(int) = 112
-// javaSize = 136
+// javaSize this = 8(obj) + 4(storeRef) + 4(bookRef) + 4(mask) + 4(levelRef) = 24
+// javaSize deep heap = 16(store) + 16(def) + 16(imp) + 10(size) * 2(def+imp) * 4(int) = 128
+// javaSize deep slab = 24(store) + 48(record) = 72, sizes are off heap
+// javaSize = 152 heap, 96 slab
 abstract class UniBookRing extends
 		ScadecRingBufferBase<PriceValue, MarketDoBookEntry> {
 
@@ -58,13 +62,12 @@ abstract class UniBookRing extends
 
 	//
 
-	// can be null if not used
-	private final int[] arrayDefault;
-	private final int[] arrayImplied;
+	// level sizes; heap arrays or off heap slab record
+	private final UniBookStore store;
 
 	protected final Book.Type type() {
-		final int maskDefault = arrayDefault == null ? 0x0 : 0x1;
-		final int maskImplied = arrayImplied == null ? 0x0 : 0x2;
+		final int maskDefault = store.has(COLUMN_DEFAULT) ? 0x1 : 0x0;
+		final int maskImplied = store.has(COLUMN_IMPLIED) ? 0x2 : 0x0;
 		switch (maskDefault + maskImplied) {
 		default:
 		case 0x0:
@@ -101,55 +104,36 @@ abstract class UniBookRing extends
 			throw new IllegalArgumentException("type == null");
 		}
 
+		final boolean hasDefault;
+		final boolean hasImplied;
+
 		switch (type) {
 		case NONE:
-			arrayDefault = null;
-			arrayImplied = null;
+			hasDefault = false;
+			hasImplied = false;
 			break;
 		case DEFAULT:
-			arrayDefault = new int[size];
-			arrayImplied = null;
+			hasDefault = true;
+			hasImplied = false;
 			break;
 		case IMPLIED:
-			arrayDefault = null;
-			arrayImplied = new int[size];
+			hasDefault = false;
+			hasImplied = true;
 			break;
 		case COMBINED:
-			arrayDefault = new int[size];
-			arrayImplied = new int[size];
+			hasDefault = true;
+			hasImplied = true;
 			break;
 		default:
 			throw new IllegalArgumentException("wrong book type=" + type);
 		}
 
-	}
-
-	private final int[] arrayFor(final Book.Type type) {
-		switch (type) {
-		case DEFAULT:
-			return arrayDefault;
-		case IMPLIED:
-			return arrayImplied;
-		default:
-			return null;
-		}
-	}
-
-	private final static int safeGet(final int[] array, final int clue) {
-		if (array == null) {
-			return 0;
+		if (book.slab == null) {
+			store = new UniBookStore.Heap(hasDefault, hasImplied, size);
 		} else {
-			return array[clue];
+			store = book.slab.allocate(this, hasDefault, hasImplied, size);
 		}
-	}
 
-	private final static void safeSet(final int[] array, final int clue,
-			final int value) {
-		if (array == null) {
-			return;
-		} else {
-			array[clue] = value;
-		}
 	}
 
 	// reconstruct entry from components
@@ -176,8 +160,8 @@ abstract class UniBookRing extends
 	protected final void arraySet(final int clue, final MarketDoBookEntry entry)
 			throws ArithmeticException {
 		if (entry == null) {
-			safeSet(arrayDefault, clue, 0);
-			safeSet(arrayImplied, clue, 0);
+			store.set(COLUMN_DEFAULT, clue, 0);
+			store.set(COLUMN_IMPLIED, clue, 0);
 		} else {
 			final SizeValue entrySize = entry.sizeValue();
 			final int value;
@@ -187,7 +171,7 @@ abstract class UniBookRing extends
 				// assume can fit
 				value = MathExtra.castLongToInt(entrySize.asLong());
 			}
-			safeSet(arrayFor(entry.type()), clue, value);
+			store.set(columnFor(entry.type()), clue, value);
 		}
 		placeUpdate(clue);
 	}
@@ -197,9 +181,9 @@ abstract class UniBookRing extends
 		return book.size;
 	}
 
-	private final int sizeCombo(final int clue) throws ArithmeticException {
-		final int sizeDefault = safeGet(arrayDefault, clue);
-		final int sizeImplied = safeGet(arrayImplied, clue);
+	final int sizeCombo(final int clue) throws ArithmeticException {
+		final int sizeDefault = store.get(COLUMN_DEFAULT, clue);
+		final int sizeImplied = store.get(COLUMN_IMPLIED, clue);
 		// assume can fit
 		final int sizeCombo = MathExtra.intAdd(sizeDefault, sizeImplied);
 		return sizeCombo;
@@ -343,7 +327,7 @@ abstract class UniBookRing extends
 		if (clue == CLUE_NONE) {
 			// return false;
 		} else {
-			safeSet(arrayFor(entry.type()), clue, 0);
+			store.set(columnFor(entry.type()), clue, 0);
 			placeUpdate(clue);
 			// return true;
 		}
@@ -359,6 +343,29 @@ abstract class UniBookRing extends
 		return placeMask == 0;
 	}
 
+	/*
+	 * ############### flyweight level access #################
+	 */
+
+	// lazy, one per ring
+	private UniBookLevel level;
+
+	/** reusable cursor over non empty levels, reset on each call */
+	protected final UniBookLevel levels() {
+		if (level == null) {
+			level = new UniBookLevel(this);
+		}
+		return level.reset();
+	}
+
+	final int levelClue(final int offset) {
+		return clueFromOffset(offset);
+	}
+
+	final int levelIndex(final int clue) {
+		return indexFromClue(clue);
+	}
+
 	protected final SizeValue[] sizes() {
 
 		final int size = length();
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * level size storage of one book side ring; one int column per stored book
+ * type, addressed by ring clue; reads of a column which is not stored return
+ * zero, writes to it are ignored
+ */
+@NotThreadSafe
+abstract class UniBookStore {
+
+	static final int COLUMN_NONE = -1;
+	static final int COLUMN_DEFAULT = 0;
+	static final int COLUMN_IMPLIED = 1;
+
+	static final int columnFor(final Book.Type type) {
+		switch (type) {
+		case DEFAULT:
+			return COLUMN_DEFAULT;
+		case IMPLIED:
+			return COLUMN_IMPLIED;
+		default:
+			return COLUMN_NONE;
+		}
+	}
+
+	abstract boolean has(int column);
+
+	abstract int get(int column, int clue);
+
+	abstract void set(int column, int clue, int value);
+
+	/** plain heap arrays, one per column */
+	// javaSize this = 8(obj) + 4(defRef) + 4(impRef) = 16
+	static final class Heap extends UniBookStore {
+
+		// can be null if not used
+		private final int[] arrayDefault;
+		private final int[] arrayImplied;
+
+		Heap(final boolean hasDefault, final boolean hasImplied,
+				final int size) {
+			arrayDefault = hasDefault ? new int[size] : null;
+			arrayImplied = hasImplied ? new int[size] : null;
+		}
+
+		private final int[] arrayFor(final int column) {
+			switch (column) {
+			case COLUMN_DEFAULT:
+				return arrayDefault;
+			case COLUMN_IMPLIED:
+				return arrayImplied;
+			default:
+				return null;
+			}
+		}
+
+		@Override
+		final boolean has(final int column) {
+			return arrayFor(column) != null;
+		}
+
+		@Override
+		final int get(final int column, final int clue) {
+			final int[] array = arrayFor(column);
+			if (array == null) {
+				return 0;
+			} else {
+				return array[clue];
+			}
+		}
+
+		@Override
+		final void set(final int column, final int clue, final int value) {
+			final int[] array = arrayFor(column);
+			if (array == null) {
+				return;
+			} else {
+				array[clue] = value;
+			}
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ import com.barchart.feed.base.book.api.MarketBook;
 import com.barchart.feed.base.book.api.MarketBookEntry;
 import com.barchart.feed.base.book.api.MarketDoBook;
 import com.barchart.feed.base.book.api.MarketDoBookEntry;
+import com.barchart.feed.base.book.enums.MarketBookAction;
 import com.barchart.feed.base.book.enums.UniBookResult;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
@@ -35,7 +36,17 @@ public final class VarBook extends UniBook<MarketBook> implements MarketDoBook {
 
 	private long millisUTC;
 	
-	protected volatile MarketBookEntry lastEntry = MarketConst.NULL_BOOK_ENTRY;
+	/*
+	 * last applied update, kept as fields instead of a frozen copy so that a
+	 * reused entry costs no allocation; rebuilt by freeze(); null act until
+	 * the first update
+	 */
+	private MarketBookAction lastAct;
+	private Book.Side lastSide;
+	private Book.Type lastType;
+	private int lastPlace;
+	private PriceValue lastPrice;
+	private SizeValue lastSize;
 	
 	protected Set<Component> changeSet =
 			Collections.synchronizedSet(EnumSet.noneOf(Component.class));
@@ -44,11 +55,60 @@ public final class VarBook extends UniBook<MarketBook> implements MarketDoBook {
 			final SizeValue size, final PriceValue step) {
 		super(instrument, type, size, step);
 	}
+	
+	public VarBook(final Instrument instrument, final Book.Type type, 
+			final SizeValue size, final PriceValue step, final BookSlab slab) {
+		super(instrument, type, size, step, slab);
+	}
+
+	// null when nobody listens for deltas
+	private BookChangeLog changeLog;
+	
+	final void setChangeLog(final BookChangeLog changeLog) {
+		this.changeLog = changeLog;
+	}
 
 	@Override
 	public final UniBookResult setEntry(final MarketDoBookEntry entry) {
-		lastEntry = entry.freeze();
-		return make(entry);
+		
+		lastAct = entry.act();
+		lastSide = entry.side();
+		lastType = entry.type();
+		lastPlace = entry.place();
+		lastPrice = entry.priceValue();
+		lastSize = entry.sizeValue();
+		
+		final BookChangeLog changeLog = this.changeLog;
+		
+		if (changeLog == null || changeLog.isEmpty()) {
+			return make(entry);
+		}
+		
+		final int bidHead = bids.head();
+		final int askHead = asks.head();
+		
+		final UniBookResult result = make(entry);
+		
+		switch (result) {
+		case TOP:
+		case NORMAL:
+			changeLog.record(this, result, 
+					bidHead != bids.head() || askHead != asks.head());
+			break;
+		default:
+			break;
+		}
+		
+		return result;
+		
+	}
+	
+	@Override
+	protected final void cleared() {
+		final BookChangeLog changeLog = this.changeLog;
+		if (changeLog != null) {
+			changeLog.reset();
+		}
 	}
 
 	@Override
@@ -56,11 +116,35 @@ public final class VarBook extends UniBook<MarketBook> implements MarketDoBook {
 		return entriesFor(side);
 	}
 
+	/** 
+	 * allocation free walk over live levels; cursor is shared per side 
+	 * and only valid inside runSafe()
+	 */
+	public final UniBookLevel levels(final Book.Side side) {
+		return levelsFor(side);
+	}
+
 	@Override
 	public final DefBook freeze() {
+		
+		/* EnumSet.copyOf() rejects an empty non enum set */
+		final Set<Component> changes = EnumSet.noneOf(Component.class);
+		synchronized (changeSet) {
+			changes.addAll(changeSet);
+		}
+		
 		return new DefBook(instrument, time(), entries(Book.Side.BID), 
 				entries(Book.Side.ASK), top(Book.Side.BID), top(Book.Side.ASK),
-				lastEntry, EnumSet.copyOf(changeSet));
+				lastUpdate(), changes);
+	}
+
+	/** frozen copy of the last applied update */
+	private MarketBookEntry lastUpdate() {
+		if (lastAct == null) {
+			return NULL_BOOK_ENTRY;
+		}
+		return new DefBookEntry(lastAct, lastSide, lastType, lastPlace,
+				lastPrice, lastSize);
 	}
 
 	@Override
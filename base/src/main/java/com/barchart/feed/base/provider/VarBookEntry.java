@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueConst.NULL_PRICE;
+import static com.barchart.feed.base.values.provider.ValueConst.NULL_SIZE;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Book.Entry;
+import com.barchart.feed.base.book.api.MarketBookEntry;
+import com.barchart.feed.base.book.api.MarketDoBookEntry;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.provider.ValueFreezer;
+import com.barchart.util.common.anno.Mutable;
+import com.barchart.util.common.anno.ThreadSafe;
+import com.barchart.util.value.api.Price;
+import com.barchart.util.value.api.Size;
+
+/**
+ * reusable book update entry for primitive market setters; valid only for the
+ * duration of the setter call; use {@link #freeze()} to keep it
+ */
+@Mutable
+@ThreadSafe(rule = "use in runSafe() only")
+final class VarBookEntry extends ValueFreezer<MarketBookEntry> implements
+		MarketDoBookEntry {
+
+	private MarketBookAction act;
+	private Book.Side side;
+	private Book.Type type;
+	private int place;
+	private PriceValue price;
+	private SizeValue size;
+
+	final VarBookEntry set(final MarketBookAction act, final Book.Side side,
+			final Book.Type type, final int place, final PriceValue price,
+			final SizeValue size) {
+		this.act = act;
+		this.side = side;
+		this.type = type;
+		this.place = place;
+		this.price = price;
+		this.size = size;
+		return this;
+	}
+
+	@Override
+	public MarketBookAction act() {
+		return act;
+	}
+
+	@Override
+	public Book.Side side() {
+		return side;
+	}
+
+	@Override
+	public Book.Type type() {
+		return type;
+	}
+
+	@Override
+	public int place() {
+		return place;
+	}
+
+	@Override
+	public int level() {
+		return place;
+	}
+
+	@Override
+	public PriceValue priceValue() {
+		return (price == null) ? NULL_PRICE : price;
+	}
+
+	@Override
+	public SizeValue sizeValue() {
+		return (size == null) ? NULL_SIZE : size;
+	}
+
+	@Override
+	public Price price() {
+		return ValueConverter.price(priceValue());
+	}
+
+	@Override
+	public Size size() {
+		return ValueConverter.size(sizeValue());
+	}
+
+	@Override
+	public int compareTo(final Entry o) {
+		return price().compareTo(o.price());
+	}
+
+	@Override
+	public MarketBookEntry freeze() {
+		return new DefBookEntry(act, side, type, place, price, size);
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s   %s   %s   %s   %s   %s", act, side, type,
+				place, priceValue(), sizeValue());
+	}
+
+}
@@ -7,9 +7,11 @@
  */
 package com.barchart.feed.base.provider;
 
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+
 import com.barchart.feed.api.model.data.Cuvol;
 import com.barchart.feed.api.model.meta.Instrument;
-import com.barchart.feed.base.collections.PriceArrayMap;
+import com.barchart.feed.base.collections.PriceLongArray;
 import com.barchart.feed.base.cuvol.api.MarketCuvolEntry;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvol;
 import com.barchart.feed.base.values.api.PriceValue;
@@ -18,18 +20,23 @@ import com.barchart.feed.base.values.api.TimeValue;
 import com.barchart.feed.base.values.provider.ValueConst;
 import com.barchart.util.common.anno.Mutable;
 import com.barchart.util.common.anno.NotThreadSafe;
-import com.barchart.util.value.api.Price;
-import com.barchart.util.value.api.Size;
 
+/**
+ * cumulative volume kept as primitive counters per price tick; trades do not
+ * allocate, values are built only by freeze(), entries() and getLastEntry()
+ */
 @Mutable
 @NotThreadSafe
 public final class VarCuvol extends NulCuvol implements MarketDoCuvol {
 
-	private final PriceArrayMap<SizeValue> map;
+	private final PriceLongArray map;
 
 	private PriceValue priceLast = ValueConst.NULL_PRICE;
 	private TimeValue timeLast = ValueConst.NULL_TIME;
-	private Cuvol.Entry entryLast = Cuvol.Entry.NULL;
+
+	// last trade, without cumulative volume
+	private SizeValue sizeLast = ValueConst.NULL_SIZE;
+	private int placeLast = -1;
 	
 	private final Instrument instrument;
 	
@@ -38,7 +45,7 @@ public final class VarCuvol extends NulCuvol implements MarketDoCuvol {
 		if(priceStep == null || priceStep.isNull() || priceStep.mantissa() == 0) {
 			System.out.println("Price Step was null for " + instrument.symbol());
 		}
-		this.map = new PriceArrayMap<SizeValue>(priceStep);
+		this.map = new PriceLongArray(priceStep);
 	}
 
 	@Override
@@ -48,66 +55,27 @@ public final class VarCuvol extends NulCuvol implements MarketDoCuvol {
 		assert price != null;
 		assert size != null;
 
-		SizeValue volume = map.get(price);
-
-		if (volume == null) {
-			volume = size;
-		} else {
-			volume = volume.add(size);
-		}
-
-		map.put(price, volume);
+		placeLast = map.add(price, size.asLong());
 
 		priceLast = price;
+		sizeLast = size;
 		timeLast = time;
-		
-		entryLast = entry(ValueConverter.price(price), ValueConverter.size(size), 
-				map.getIndex(price));
 
 	}
 
-	private Cuvol.Entry entry(final Price price, final Size size, final int place) {
-		return new Entry() {
-
-			@Override
-			public boolean isNull() {
-				return false;
-			}
-
-			@Override
-			public Price price() {
-				return price;
-			}
-
-			@Override
-			public Size size() {
-				return size;
-			}
-
-			@Override
-			public int place() {
-				return place;
-			}
-			
-		};
+	private Cuvol.Entry entryLast() {
+		if (placeLast < 0) {
+			return Cuvol.Entry.NULL;
+		}
+		return new DefCuvolEntry(placeLast, priceLast, sizeLast);
 	}
 	
 	@Override
 	public final DefCuvol freeze() {
 
-		final SizeValue[] entries = entries();
-
-		for (int k = 0; k < entries.length; k++) {
-			SizeValue volume = entries[k];
-			if (volume == null) {
-				volume = ValueConst.NULL_SIZE;
-			}
-			entries[k] = volume.freeze();
-		}
-
-		final DefCuvol that = new DefCuvol(instrument, entries, 
+		final DefCuvol that = new DefCuvol(instrument, map.copy(), 
 				priceFirst(), priceStep(), ValueConverter.time(timeLast), 
-				entryLast);
+				entryLast());
 
 		return that;
 
@@ -115,23 +83,7 @@ public final class VarCuvol extends NulCuvol implements MarketDoCuvol {
 
 	@Override
 	public final SizeValue[] entries() {
-
-		final int size = map.size();
-
-		final SizeValue[] entries = new SizeValue[size];
-
-		for (int k = 0; k < size; k++) {
-			SizeValue volume = map.get(k);
-			if (volume == null) {
-				volume = ValueConst.NULL_SIZE;
-			} else {
-				volume = volume.freeze();
-			}
-			entries[k] = volume;
-		}
-
-		return entries;
-
+		return DefCuvol.entries(map.copy());
 	}
 
 	@Override
@@ -162,16 +114,14 @@ public final class VarCuvol extends NulCuvol implements MarketDoCuvol {
 			return MarketConst.NULL_CUVOL_ENTRY;
 		}
 
-		final SizeValue size = map.get(price);
+		final int index = map.getIndex(price);
 
-		if (size == null) {
+		if (index < 0) {
 			return MarketConst.NULL_CUVOL_ENTRY;
 		}
 
-		final int index = map.getIndex(price);
-
 		final MarketCuvolEntry entry = new DefCuvolEntry(index, 
-				price, size);
+				price, newSize(map.get(index)));
 
 		return entry;
 
@@ -16,13 +16,12 @@ import static com.barchart.feed.base.market.enums.MarketField.MARKET;
 import static com.barchart.feed.base.market.enums.MarketField.STATE;
 import static com.barchart.feed.base.market.enums.MarketField.TRADE;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +37,9 @@ import com.barchart.feed.base.bar.api.MarketDoBar;
 import com.barchart.feed.base.bar.enums.MarketBarField;
 import com.barchart.feed.base.bar.enums.MarketBarType;
 import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.book.api.MarketBookListener;
 import com.barchart.feed.base.book.api.MarketDoBook;
+import com.barchart.feed.base.book.enums.MarketBookAction;
 import com.barchart.feed.base.cuvol.api.MarketCuvol;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvol;
 import com.barchart.feed.base.market.api.Market;
@@ -46,15 +47,20 @@ import com.barchart.feed.base.market.api.MarketDo;
 import com.barchart.feed.base.market.api.MarketSafeRunner;
 import com.barchart.feed.base.market.enums.MarketEvent;
 import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
 import com.barchart.feed.base.participant.FrameworkAgent;
 import com.barchart.feed.base.provider.VarMarket.Command.CType;
 import com.barchart.feed.base.trade.api.MarketDoTrade;
 import com.barchart.feed.base.trade.api.MarketTrade;
+import com.barchart.feed.base.trade.enums.MarketTradeSequencing;
+import com.barchart.feed.base.trade.enums.MarketTradeSession;
+import com.barchart.feed.base.trade.enums.MarketTradeType;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
 import com.barchart.feed.base.values.api.TimeValue;
 import com.barchart.feed.base.values.api.Value;
 import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.base.values.provider.ValueCache;
 import com.barchart.util.common.anno.Mutable;
 import com.barchart.util.common.anno.ThreadSafe;
 
@@ -62,19 +68,22 @@ import com.barchart.util.common.anno.ThreadSafe;
  * basic market life cycle; NO event management logic here
  */
 @Mutable
-@ThreadSafe(rule = "must use runSafe()")
+@ThreadSafe(rule = "must use runSafe() or runRead()")
 public abstract class VarMarket extends DefMarket implements MarketDo {
 
-	private final ConcurrentMap<FrameworkAgent<?>, Boolean> agentSet =
-			new ConcurrentHashMap<FrameworkAgent<?>, Boolean>();
+	/** agents matched to this market; null until first attach */
+	private volatile ConcurrentMap<FrameworkAgent<?>, Boolean> agentSet;
 	
-	// NEW
+	/*
+	 * per type agents; storage allocated on first add, see
+	 * applyAgentCommands(); touched from runSafe() only
+	 */
 	protected final Set<FrameworkAgent<com.barchart.feed.api.model.data.Market>> marketAgents = 
-			new HashSet<FrameworkAgent<com.barchart.feed.api.model.data.Market>>();
-	protected final Set<FrameworkAgent<Trade>> tradeAgents = new HashSet<FrameworkAgent<Trade>>();
-	protected final Set<FrameworkAgent<Book>> bookAgents = new HashSet<FrameworkAgent<Book>>();
-	protected final Set<FrameworkAgent<Cuvol>> cuvolAgents = new HashSet<FrameworkAgent<Cuvol>>();
-	protected final Set<FrameworkAgent<Session>> sessionAgents = new HashSet<FrameworkAgent<Session>>();
+			new LazySet<FrameworkAgent<com.barchart.feed.api.model.data.Market>>();
+	protected final Set<FrameworkAgent<Trade>> tradeAgents = new LazySet<FrameworkAgent<Trade>>();
+	protected final Set<FrameworkAgent<Book>> bookAgents = new LazySet<FrameworkAgent<Book>>();
+	protected final Set<FrameworkAgent<Cuvol>> cuvolAgents = new LazySet<FrameworkAgent<Cuvol>>();
+	protected final Set<FrameworkAgent<Session>> sessionAgents = new LazySet<FrameworkAgent<Session>>();
 	
 	public static class Command<T extends MarketData<T>> {
 		
@@ -99,22 +108,69 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 		}
 	}
 	
+	/*
+	 * pending attach / detach per agent type; storage allocated on first
+	 * command; drained by applyAgentCommands() or by subclasses directly
+	 */
 	protected final Queue<Command<com.barchart.feed.api.model.data.Market>> marketCmds =
-			new ConcurrentLinkedQueue<Command<com.barchart.feed.api.model.data.Market>>();
-	protected final Queue<Command<Trade>> tradeCmds = new ConcurrentLinkedQueue<Command<Trade>>();
-	protected final Queue<Command<Book>> bookCmds = new ConcurrentLinkedQueue<Command<Book>>();
-	protected final Queue<Command<Cuvol>> cuvolCmds = new ConcurrentLinkedQueue<Command<Cuvol>>();
-	protected final Queue<Command<Session>> sessionCmds = new ConcurrentLinkedQueue<Command<Session>>();
+			new LazyQueue<Command<com.barchart.feed.api.model.data.Market>>();
+	protected final Queue<Command<Trade>> tradeCmds = new LazyQueue<Command<Trade>>();
+	protected final Queue<Command<Book>> bookCmds = new LazyQueue<Command<Book>>();
+	protected final Queue<Command<Cuvol>> cuvolCmds = new LazyQueue<Command<Cuvol>>();
+	protected final Queue<Command<Session>> sessionCmds = new LazyQueue<Command<Session>>();
 	
 	// @SuppressWarnings("unused")
 	private static final Logger log = LoggerFactory.getLogger(VarMarket.class);
 
-	RegCenter reg = new RegCenter(this);
+	/** taker registry; null while there are no takers */
+	RegCenter reg;
 
+	/** concurrency policy; fixed at construction */
+	protected final MarketSafeMode safeMode;
+
+	/** book level storage; null for heap */
+	protected final BookSlab bookSlab;
+
+	/** last frozen view handed to snapshot readers; null until first read */
+	private volatile Published published;
+
+	/** write sequence; odd while writer is inside runSafe() */
+	private volatile long sequence;
+
+	private static final AtomicLongFieldUpdater<VarMarket> SEQUENCE = //
+	AtomicLongFieldUpdater.newUpdater(VarMarket.class, "sequence");
+
+	/**
+	 * market with the process wide {@link MarketSafeMode#DEFAULT} policy
+	 */
 	public VarMarket(final Instrument instrument) {
 
+		this(instrument, MarketSafeMode.DEFAULT);
+
+	}
+
+	public VarMarket(final Instrument instrument,
+			final MarketSafeMode safeMode) {
+
+		this(instrument, safeMode, null);
+
+	}
+
+	/**
+	 * @param bookSlab
+	 *            shared off heap book level storage; null for heap
+	 */
+	public VarMarket(final Instrument instrument,
+			final MarketSafeMode safeMode, final BookSlab bookSlab) {
+
 		super(instrument);
 
+		assert safeMode != null;
+
+		this.safeMode = safeMode;
+
+		this.bookSlab = bookSlab;
+
 		/** set self reference */
 		set(MARKET, this);
 
@@ -122,7 +178,7 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 
 	/* ***** ***** Agent Lifecycle ***** ***** */
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public void attachAgent(final FrameworkAgent<?> agent) {
 		
@@ -130,33 +186,18 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 			return;
 		}
 		
-		agentSet.put(agent, new Boolean(false));
+		agentSet().put(agent, Boolean.FALSE);
 		
-		switch(agent.agentType()) {
-			case MARKET:
-				marketCmds.add(new Command<com.barchart.feed.api.model.data.Market>(CType.ADD, 
-						(FrameworkAgent<com.barchart.feed.api.model.data.Market>) agent));
-				break;
-			case BOOK:
-				bookCmds.add(new Command<Book>(CType.ADD, (FrameworkAgent<Book>) agent));
-				break;
-			case TRADE:
-				tradeCmds.add(new Command<Trade>(CType.ADD, (FrameworkAgent<Trade>) agent));
-				break;
-			case CUVOL:
-				cuvolCmds.add(new Command<Cuvol>(CType.ADD, (FrameworkAgent<Cuvol>) agent));
-				break;
-			case SESSION:
-				sessionCmds.add(new Command<Session>(CType.ADD, (FrameworkAgent<Session>) agent));
-				break;
-		}
+		agentCmds(agent).add(new Command(CType.ADD, agent));
 
 	}
 
 	@Override
 	public void updateAgent(final FrameworkAgent<?> agent) {
 		
-		if(!agentSet.containsKey(agent)) {
+		final ConcurrentMap<FrameworkAgent<?>, Boolean> agentSet = this.agentSet;
+		
+		if(agentSet == null || !agentSet.containsKey(agent)) {
 			attachAgent(agent);
 			return;
 		}
@@ -167,42 +208,104 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 
 	}
 
-	@SuppressWarnings({"unchecked"})
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public void detachAgent(final FrameworkAgent<?> agent) {
 
-		if(!agentSet.containsKey(agent)) {
+		final ConcurrentMap<FrameworkAgent<?>, Boolean> agentSet = this.agentSet;
+		
+		if(agentSet == null || agentSet.remove(agent) == null) {
 			return;
 		}
 		
-		agentSet.remove(agent);
+		agentCmds(agent).add(new Command(CType.REMOVE, agent));
+		
+	}
+
+	private ConcurrentMap<FrameworkAgent<?>, Boolean> agentSet() {
+		
+		ConcurrentMap<FrameworkAgent<?>, Boolean> set = agentSet;
+		
+		if (set == null) {
+			synchronized (this) {
+				set = agentSet;
+				if (set == null) {
+					/* single segment, most markets see a handful of agents */
+					set = new ConcurrentHashMap<FrameworkAgent<?>, Boolean>(4,
+							0.75f, 1);
+					agentSet = set;
+				}
+			}
+		}
+		
+		return set;
 		
-		switch(agent.agentType()) {
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private Queue agentCmds(final FrameworkAgent<?> agent) {
+		
+		switch (agent.agentType()) {
 			case MARKET:
-				marketCmds.add(new Command<com.barchart.feed.api.model.data.Market>(CType.REMOVE, 
-						(FrameworkAgent<com.barchart.feed.api.model.data.Market>) agent));
-				break;
+				return marketCmds;
 			case BOOK:
-				bookCmds.add(new Command<Book>(CType.REMOVE, (FrameworkAgent<Book>) agent));
-				break;
+				return bookCmds;
 			case TRADE:
-				tradeCmds.add(new Command<Trade>(CType.REMOVE, (FrameworkAgent<Trade>) agent));
-				break;
+				return tradeCmds;
 			case CUVOL:
-				cuvolCmds.add(new Command<Cuvol>(CType.REMOVE, (FrameworkAgent<Cuvol>) agent));
-				break;
+				return cuvolCmds;
 			case SESSION:
-				sessionCmds.add(new Command<Session>(CType.REMOVE, (FrameworkAgent<Session>) agent));
-				break;
+				return sessionCmds;
 		}
 		
+		throw new IllegalStateException("Unknown Agent Type");
+		
 	}
-
+	
+	/**
+	 * moves pending attach / detach commands into the per type agent sets;
+	 * call from fireCallbacks() before iterating the sets, or drain the per
+	 * type command queues directly as before
+	 */
+	protected final void applyAgentCommands() {
+		
+		apply(marketAgents, marketCmds);
+		apply(tradeAgents, tradeCmds);
+		apply(bookAgents, bookCmds);
+		apply(cuvolAgents, cuvolCmds);
+		apply(sessionAgents, sessionCmds);
+		
+	}
+	
+	private static <T extends MarketData<T>> void apply(
+			final Set<FrameworkAgent<T>> set, final Queue<Command<T>> cmds) {
+		
+		Command<T> cmd;
+		
+		while ((cmd = cmds.poll()) != null) {
+			if (cmd.type() == CType.ADD) {
+				set.add(cmd.agent());
+			} else {
+				set.remove(cmd.agent());
+			}
+		}
+		
+	}
+	
 	//
 
 	@Override
 	public final void fireEvents() {
 
+		/* book deltas go out once the whole message is applied */
+		final BookChangeLog bookLog = this.bookLog;
+		if (bookLog != null) {
+			final MarketBook book = get(BOOK);
+			if (book instanceof VarBook) {
+				bookLog.flush((VarBook) book);
+			}
+		}
+
 		final RegCenter reg = this.reg;
 
 		if (reg == null) {
@@ -322,14 +425,173 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 
 	}
 
+	/**
+	 * writers are serialized on the market monitor in either mode, and bump
+	 * the write sequence around the task; {@link MarketSafeMode#SINGLE_WRITER}
+	 * takes readers off the monitor, not the writer: taker registration,
+	 * eviction and book listeners still run in runSafe() from other threads,
+	 * so the feed thread keeps paying for an uncontended monitor and can wait
+	 * behind them, or behind a reader which ran out of optimistic attempts
+	 */
 	@Override
-	public synchronized final <Result, Param> Result runSafe(
+	public final <Result, Param> Result runSafe(
+			final MarketSafeRunner<Result, Param> task, final Param param) {
+
+		synchronized (this) {
+
+			/** nested write from the same thread */
+			if ((sequence & 1L) != 0) {
+				return task.runSafe(this, param);
+			}
+
+			SEQUENCE.incrementAndGet(this);
+
+			try {
+				return task.runSafe(this, param);
+			} finally {
+				SEQUENCE.incrementAndGet(this);
+			}
+
+		}
+
+	}
+
+	/**
+	 * in {@link MarketSafeMode#SINGLE_WRITER} mode readers run optimistically
+	 * and retry when a write overlapped; validation is a compare-and-set of
+	 * the unchanged sequence, which orders the preceding reads; a reader
+	 * which keeps colliding with the writer falls back to the monitor
+	 */
+	@Override
+	public final <Result, Param> Result runRead(
+			final MarketSafeRunner<Result, Param> task, final Param param) {
+
+		if (safeMode == MarketSafeMode.MONITOR) {
+			return runLocked(task, param);
+		}
+
+		/** reader invoked from inside of own write */
+		if (Thread.holdsLock(this)) {
+			return task.runSafe(this, param);
+		}
+
+		for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+
+			final long stamp = sequence;
+
+			if ((stamp & 1L) != 0) {
+				Thread.yield();
+				continue;
+			}
+
+			final Result result;
+
+			try {
+				result = task.runSafe(this, param);
+			} catch (final Throwable e) {
+				/** torn read can fail in any way, including errors */
+				if (SEQUENCE.compareAndSet(this, stamp, stamp)) {
+					throw propagate(e);
+				}
+				continue;
+			}
+
+			if (SEQUENCE.compareAndSet(this, stamp, stamp)) {
+				return result;
+			}
+
+		}
+
+		return runLocked(task, param);
+
+	}
+
+	/** read under the monitor; leaves the write sequence alone */
+	private <Result, Param> Result runLocked(
 			final MarketSafeRunner<Result, Param> task, final Param param) {
+		synchronized (this) {
+			return task.runSafe(this, param);
+		}
+	}
+
+	/** optimistic read attempts before runRead() takes the monitor */
+	static final int READ_ATTEMPTS = 16;
+
+	private static RuntimeException propagate(final Throwable e) {
+
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+
+		/** checked exception sneaked out of the task */
+		return new RuntimeException(e);
+
+	}
+
+	@Override
+	public final MarketSafeMode safeMode() {
+		return safeMode;
+	}
+
+	/**
+	 * the writer never freezes for readers; the first reader after a write
+	 * freezes through runRead() and publishes the view tagged with the write
+	 * sequence it was taken at, later readers reuse it until the next write
+	 */
+	@Override
+	public final Market snapshot() {
+
+		final Published last = published;
+
+		if (last != null && last.sequence == sequence) {
+			return last.view;
+		}
+
+		final Published next = runRead(SAFE_FREEZE, null);
+
+		/* odd when read from inside of own write, state still moving */
+		if ((next.sequence & 1L) == 0) {
+			published = next;
+		}
+
+		return next.view;
 
-		return task.runSafe(this, param);
+	}
 
+	/** snapshot() can be served without a freeze */
+	final boolean isPublished() {
+		final Published last = published;
+		return last != null && last.sequence == sequence;
 	}
 
+	/** frozen view and the write sequence it is valid for */
+	private static final class Published {
+
+		final Market view;
+		final long sequence;
+
+		Published(final Market view, final long sequence) {
+			this.view = view;
+			this.sequence = sequence;
+		}
+
+	}
+
+	/** sequence is read first, runRead() validates it did not move */
+	private static final MarketSafeRunner<Published, Void> SAFE_FREEZE = //
+	new MarketSafeRunner<Published, Void>() {
+		@Override
+		public Published runSafe(final MarketDo market, final Void param) {
+			final VarMarket that = (VarMarket) market;
+			final long sequence = that.sequence;
+			return new Published(that.freeze(), sequence);
+		}
+	};
+
 	@Override
 	public final boolean isFrozen() {
 		return false;
@@ -466,6 +728,114 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 	protected final static SizeValue LIMIT = ValueBuilder
 			.newSize(MarketBook.ENTRY_LIMIT);
 
+	/** book delta publisher; guarded by this */
+	private BookChangeLog bookLog;
+
+	@Override
+	public final void addBookListener(final MarketBookListener listener) {
+
+		synchronized (this) {
+
+			if (bookLog == null) {
+				bookLog = new BookChangeLog();
+			}
+
+			bookLog.add(listener);
+
+			final MarketBook book = get(BOOK);
+
+			if (book instanceof VarBook) {
+				final VarBook varBook = (VarBook) book;
+				varBook.setChangeLog(bookLog);
+				bookLog.publishSnapshot(listener, varBook, varBook.freeze());
+			}
+
+		}
+
+	}
+
+	@Override
+	public final void removeBookListener(final MarketBookListener listener) {
+
+		synchronized (this) {
+
+			if (bookLog != null) {
+				bookLog.remove(listener);
+			}
+
+		}
+
+	}
+
+	/* ***** ***** Primitive Setters ***** ***** */
+
+	/** per market value cache size; prices repeat around last trade */
+	protected static final int VALUE_CACHE_SIZE = 64;
+
+	// lazy; touched from runSafe() only
+	private ValueCache valueCache;
+
+	private VarBookEntry bookEntry;
+
+	/** interning cache for primitive setters; use in runSafe() only */
+	protected final ValueCache valueCache() {
+		ValueCache cache = valueCache;
+		if (cache == null) {
+			cache = new ValueCache(VALUE_CACHE_SIZE, true);
+			valueCache = cache;
+		}
+		return cache;
+	}
+
+	/**
+	 * applies through value setter with cached price and size and a reused
+	 * entry, which is only valid for the duration of the call; the book keeps
+	 * the entry fields, not a copy; still allocates one update time per call
+	 * and price or size on a cache miss, market state holds value objects
+	 */
+	@Override
+	public void setBookUpdate(final MarketBookAction act,
+			final Book.Side side, final Book.Type type, final int place,
+			final long priceMantissa, final int priceExponent,
+			final long size, final long time) {
+
+		final ValueCache cache = valueCache();
+
+		VarBookEntry entry = bookEntry;
+		if (entry == null) {
+			entry = new VarBookEntry();
+			bookEntry = entry;
+		}
+
+		entry.set(act, side, type, place,
+				cache.price(priceMantissa, priceExponent),
+				act == MarketBookAction.REMOVE ? null : cache.size(size));
+
+		/* update times rarely repeat, caching them only evicts prices */
+		setBookUpdate(entry, ValueBuilder.newTime(time));
+
+	}
+
+	/**
+	 * applies through value setter with cached price, size and session date;
+	 * still allocates the trade time per call, price or size on a cache miss,
+	 * and whatever the value setter derives, such as bar totals
+	 */
+	@Override
+	public void setTrade(final MarketTradeType type,
+			final MarketTradeSession session,
+			final MarketTradeSequencing sequencing, final long priceMantissa,
+			final int priceExponent, final long size, final long time,
+			final long date) {
+
+		final ValueCache cache = valueCache();
+
+		setTrade(type, session, sequencing,
+				cache.price(priceMantissa, priceExponent), cache.size(size),
+				ValueBuilder.newTime(time), cache.time(date));
+
+	}
+
 	// XXX make final
 	protected MarketDoBook loadBook() {
 
@@ -499,7 +869,10 @@ public abstract class VarMarket extends DefMarket implements MarketDo {
 					instrument.tickSize().mantissa(),
 					instrument.tickSize().exponent());
 
-			final VarBook varBook = new VarBook(instrument, type, size, step);
+			final VarBook varBook = new VarBook(instrument, type, size, step,
+					bookSlab);
+			
+			varBook.setChangeLog(bookLog);
 			final VarBookLast varBookLast = new VarBookLast(varBook);
 			final VarBookTop varBookTop = new VarBookTop(varBook);
 
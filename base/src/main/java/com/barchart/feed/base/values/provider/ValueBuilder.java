@@ -26,12 +26,38 @@ public final class ValueBuilder {
 	private ValueBuilder() {
 	}
 
+	/** optional shared interning cache; null by default */
+	private static volatile ValueCache cache;
+
+	/**
+	 * install shared cache for newPrice(), newSize(), newTime(); or null;
+	 * counting caches are single thread only and rejected
+	 */
+	public static final void setCache(final ValueCache cache) {
+		if (cache != null && cache.isCounting()) {
+			throw new IllegalArgumentException("shared cache can not count");
+		}
+		ValueBuilder.cache = cache;
+	}
+
+	public static final ValueCache getCache() {
+		return cache;
+	}
+
 	public static final PriceValue newPrice(final double price) {
 		final DoubleParts part = MathIEEE754.extractDecimal(price);
 		return ValueBuilder.newPrice(part.getMantissa(), part.getExponent());
 	}
 	
 	public static final PriceValue newPrice(final long mantissa) {
+		final ValueCache cache = ValueBuilder.cache;
+		if (cache != null && mantissa != 0) {
+			return cache.price(mantissa, 0);
+		}
+		return buildPrice(mantissa);
+	}
+
+	static final PriceValue buildPrice(final long mantissa) {
 		if (mantissa == 0) {
 			return ValueConst.ZERO_PRICE;
 		} else {
@@ -41,6 +67,15 @@ public final class ValueBuilder {
 
 	public static final PriceValue newPrice(final long mantissa,
 			final int exponent) throws ArithmeticException {
+		final ValueCache cache = ValueBuilder.cache;
+		if (cache != null) {
+			return cache.price(mantissa, exponent);
+		}
+		return buildPrice(mantissa, exponent);
+	}
+
+	static final PriceValue buildPrice(final long mantissa,
+			final int exponent) throws ArithmeticException {
 		switch (exponent) {
 		case -9:
 			return new DefPrice9(mantissa);
@@ -61,7 +96,7 @@ public final class ValueBuilder {
 		case -1:
 			return new DefPrice1(mantissa);
 		case 00:
-			return newPrice(mantissa);
+			return buildPrice(mantissa);
 		default:
 			MathExtra.castIntToByte(exponent);
 			final int mantSmall = (int) mantissa;
@@ -94,6 +129,17 @@ public final class ValueBuilder {
 	}
 
 	public static final SizeValue newSize(final long size) {
+		if (0 <= size && size < SIZE_CACHE_LIMIT) {
+			return SIZE_CACHE[(int) size];
+		}
+		final ValueCache cache = ValueBuilder.cache;
+		if (cache != null) {
+			return cache.size(size);
+		}
+		return new DefSize(size);
+	}
+
+	static final SizeValue buildSize(final long size) {
 		if (0 <= size && size < SIZE_CACHE_LIMIT) {
 			return SIZE_CACHE[(int) size];
 		} else {
@@ -106,6 +152,14 @@ public final class ValueBuilder {
 	}
 
 	public static final TimeValue newTime(final long time) {
+		final ValueCache cache = ValueBuilder.cache;
+		if (cache != null) {
+			return cache.time(time);
+		}
+		return new DefTime(time);
+	}
+
+	static final TimeValue buildTime(final long time) {
 		return new DefTime(time);
 	}
 
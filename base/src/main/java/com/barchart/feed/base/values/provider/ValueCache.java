@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.values.provider;
+
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.api.TimeValue;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * direct mapped interning cache for immutable values; a colliding value
+ * replaces the old one; no locks, values are immutable so racing writers only
+ * lose a cache slot; use one per instrument tick grid or install shared one
+ * via {@link ValueBuilder#setCache(ValueCache)}
+ * <p>
+ * hit and miss counters are plain fields, so they are only kept by caches
+ * built as counting, which must stay confined to one thread; shared caches do
+ * not count and report zero
+ */
+@ThreadSafe
+public final class ValueCache {
+
+	public static final int DEFAULT_CAPACITY = 4 * 1024;
+
+	private static final long PHI = 0x9E3779B97F4A7C15L;
+
+	private final int shift;
+
+	private final PriceValue[] prices;
+	private final SizeValue[] sizes;
+	private final TimeValue[] times;
+
+	/** keep hits and misses; single thread use only */
+	private final boolean isCounting;
+
+	private long hits;
+	private long misses;
+
+	public ValueCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** capacity is rounded up to power of 2; safe to share, not counting */
+	public ValueCache(final int capacity) {
+		this(capacity, false);
+	}
+
+	/**
+	 * capacity is rounded up to power of 2; counting cache is confined to one
+	 * thread and can not be installed as shared cache
+	 */
+	public ValueCache(final int capacity, final boolean isCounting) {
+
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("invalid capacity=" + capacity);
+		}
+
+		final int bits = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+
+		this.shift = 64 - Math.max(bits, 1);
+
+		final int size = 1 << Math.max(bits, 1);
+
+		prices = new PriceValue[size];
+		sizes = new SizeValue[size];
+		times = new TimeValue[size];
+
+		this.isCounting = isCounting;
+
+	}
+
+	public final int capacity() {
+		return prices.length;
+	}
+
+	public final PriceValue price(final long mantissa, final int exponent)
+			throws ArithmeticException {
+
+		final int slot = slot((mantissa * 31 + exponent) * PHI);
+
+		final PriceValue cached = prices[slot];
+
+		if (cached != null && cached.mantissa() == mantissa
+				&& cached.exponent() == exponent) {
+			if (isCounting) {
+				hits++;
+			}
+			return cached;
+		}
+
+		if (isCounting) {
+			misses++;
+		}
+
+		final PriceValue price = ValueBuilder.buildPrice(mantissa, exponent);
+
+		prices[slot] = price;
+
+		return price;
+
+	}
+
+	public final SizeValue size(final long size) {
+
+		final int slot = slot(size * PHI);
+
+		final SizeValue cached = sizes[slot];
+
+		if (cached != null && cached.asLong() == size) {
+			if (isCounting) {
+				hits++;
+			}
+			return cached;
+		}
+
+		if (isCounting) {
+			misses++;
+		}
+
+		final SizeValue value = ValueBuilder.buildSize(size);
+
+		sizes[slot] = value;
+
+		return value;
+
+	}
+
+	public final TimeValue time(final long time) {
+
+		final int slot = slot(time * PHI);
+
+		final TimeValue cached = times[slot];
+
+		if (cached != null && cached.asMillisUTC() == time) {
+			if (isCounting) {
+				hits++;
+			}
+			return cached;
+		}
+
+		if (isCounting) {
+			misses++;
+		}
+
+		final TimeValue value = ValueBuilder.buildTime(time);
+
+		times[slot] = value;
+
+		return value;
+
+	}
+
+	//
+
+	public final boolean isCounting() {
+		return isCounting;
+	}
+
+	public final long hits() {
+		return hits;
+	}
+
+	public final long misses() {
+		return misses;
+	}
+
+	/** hits / lookups, or zero before first lookup */
+	public final double hitRate() {
+		final long hits = this.hits;
+		final long total = hits + misses;
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	public final void resetStats() {
+		hits = 0;
+		misses = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("capacity=%d hits=%d misses=%d hitRate=%.3f",
+				capacity(), hits, misses, hitRate());
+	}
+
+	private final int slot(final long hash) {
+		return (int) (hash >>> shift);
+	}
+
+}
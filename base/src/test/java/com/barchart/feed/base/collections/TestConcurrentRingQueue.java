@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class TestConcurrentRingQueue {
+
+	@Test
+	public void testCapacity() {
+
+		assertEquals(1, new ConcurrentRingQueue<Integer>(1).capacity());
+		assertEquals(8, new ConcurrentRingQueue<Integer>(5).capacity());
+		assertEquals(16, new ConcurrentRingQueue<Integer>(16).capacity());
+
+	}
+
+	@Test
+	public void testOfferPoll() {
+
+		final ConcurrentRingQueue<Integer> queue = new ConcurrentRingQueue<Integer>(
+				4);
+
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+
+		for (int k = 0; k < 4; k++) {
+			assertTrue(queue.offer(k));
+		}
+
+		assertFalse(queue.offer(4));
+		assertEquals(4, queue.size());
+
+		for (int k = 0; k < 4; k++) {
+			assertEquals((Integer) k, queue.poll());
+		}
+
+		assertNull(queue.poll());
+
+		/** wrap around */
+		for (int k = 0; k < 10; k++) {
+			assertTrue(queue.offer(k));
+			assertEquals((Integer) k, queue.poll());
+		}
+
+		assertTrue(queue.isEmpty());
+
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+
+		final ConcurrentRingQueue<Long> queue = new ConcurrentRingQueue<Long>(
+				64);
+
+		final int producers = 4;
+		final long count = 100 * 1000;
+
+		final Thread[] threads = new Thread[producers];
+
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (long k = 1; k <= count; k++) {
+						while (!queue.offer(k)) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+			threads[p].start();
+		}
+
+		final AtomicLong sum = new AtomicLong(0);
+		long received = 0;
+
+		while (received < producers * count) {
+			final Long value = queue.poll();
+			if (value == null) {
+				Thread.yield();
+				continue;
+			}
+			sum.addAndGet(value);
+			received++;
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(producers * count * (count + 1) / 2, sum.get());
+		assertTrue(queue.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.collections;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.barchart.feed.base.values.api.PriceValue;
+
+public class TestPriceLongArray {
+
+	@Test
+	public void testAdd() {
+
+		final PriceLongArray array = new PriceLongArray(newPrice(1, -2));
+
+		assertEquals(0, array.size());
+		assertTrue(array.keyHead().isNull());
+
+		assertEquals(0, array.add(newPrice(123, -2), 1)); // 1.23
+		assertEquals(1, array.size());
+		assertEquals(newPrice(123, -2), array.keyHead());
+
+		assertEquals(5, array.add(newPrice(128, -2), 2)); // 1.28
+		assertEquals(6, array.size());
+
+		/** grows below head */
+		assertEquals(0, array.add(newPrice(12, -1), 3)); // 1.20
+		assertEquals(9, array.size());
+		assertEquals(newPrice(120, -2), array.keyHead());
+
+		/** finer price is truncated to step */
+		assertEquals(3, array.add(newPrice(123123, -5), 4)); // 1.23
+
+		assertArrayEquals(new long[] { 3, 0, 0, 5, 0, 0, 0, 0, 2 },
+				array.copy());
+
+		assertEquals(8, array.getIndex(newPrice(128, -2)));
+		assertEquals(ScadecArrayMap.ERROR_INDEX,
+				array.getIndex(newPrice(129, -2)));
+		assertEquals(ScadecArrayMap.ERROR_INDEX,
+				array.getIndex(newPrice(119, -2)));
+
+	}
+
+	@Test
+	public void testSameAsMap() {
+
+		final PriceValue step = newPrice(25, -2);
+
+		final PriceLongArray array = new PriceLongArray(step);
+		final PriceArrayMap<Long> map = new PriceArrayMap<Long>(step);
+
+		final Random random = new Random(1);
+
+		for (int k = 0; k < 10 * 1000; k++) {
+
+			final PriceValue price = newPrice(
+					100000 + 25 * (random.nextInt(2000) - 1000), -2);
+			final long size = 1 + random.nextInt(100);
+
+			final Long volume = map.get(price);
+			map.put(price, volume == null ? size : volume + size);
+
+			assertEquals(map.getIndex(price), array.add(price, size));
+
+		}
+
+		assertEquals(map.size(), array.size());
+		assertEquals(map.keyHead(), array.keyHead());
+
+		for (int k = 0; k < map.size(); k++) {
+			final Long volume = map.get(k);
+			assertEquals(volume == null ? 0 : volume.longValue(), array.get(k));
+		}
+
+	}
+
+	@Test
+	public void testClear() {
+
+		final PriceLongArray array = new PriceLongArray(newPrice(1, 0));
+
+		array.add(newPrice(10), 5);
+		array.add(newPrice(50), 5);
+		array.clear();
+
+		assertEquals(0, array.size());
+		assertTrue(array.keyHead().isNull());
+
+		/** reused capacity is zeroed */
+		assertEquals(0, array.add(newPrice(30), 1));
+		assertEquals(20, array.add(newPrice(50), 1));
+		assertEquals(21, array.size());
+		assertEquals(0, array.get(10));
+
+	}
+
+}
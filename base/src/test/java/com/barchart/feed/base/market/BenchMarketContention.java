@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
+import com.barchart.feed.base.message.MockMsgTrade;
+import com.barchart.feed.base.provider.MockDefinitionService;
+import com.barchart.feed.inst.InstrumentService;
+
+/**
+ * feed writer versus take() readers on one hot market; compares market
+ * monitor against single writer mode
+ */
+public class BenchMarketContention {
+
+	static int READERS = 4;
+
+	static int MESSAGES = 2 * 1000 * 1000;
+
+	static InstrumentService<CharSequence> service = new MockDefinitionService();
+
+	public static void main(final String[] args) throws Exception {
+
+		final Instrument inst = service
+				.lookup(MockDefinitionService.INST_SYMBOL_1);
+
+		final MockMsgTrade[] messages = new MockMsgTrade[1024];
+
+		for (int k = 0; k < messages.length; k++) {
+			messages[k] = TestMarketSafeMode.trade(inst, k + 1);
+		}
+
+		for (int round = 0; round < 3; round++) {
+			for (final MarketSafeMode mode : MarketSafeMode.values()) {
+				run(mode, inst, messages);
+			}
+		}
+
+	}
+
+	static void run(final MarketSafeMode mode, final Instrument inst,
+			final MockMsgTrade[] messages) throws Exception {
+
+		final MockMaker maker = new MockMaker(new MockMarketFactory(mode));
+
+		maker.register(new MockTaker<Market>(new Instrument[] { inst }));
+
+		final AtomicBoolean isRunning = new AtomicBoolean(true);
+		final AtomicLong reads = new AtomicLong(0);
+		final CountDownLatch done = new CountDownLatch(READERS);
+
+		for (int k = 0; k < READERS; k++) {
+			new Thread() {
+				@Override
+				public void run() {
+					long count = 0;
+					while (isRunning.get()) {
+						maker.take(inst, MarketField.TRADE);
+						count++;
+					}
+					reads.addAndGet(count);
+					done.countDown();
+				}
+			}.start();
+		}
+
+		final long start = System.nanoTime();
+
+		for (int k = 0; k < MESSAGES; k++) {
+			maker.make(messages[k & (messages.length - 1)]);
+		}
+
+		final long finish = System.nanoTime();
+
+		isRunning.set(false);
+		done.await();
+
+		final double seconds = (finish - start) / 1E9;
+
+		System.out.println(String.format(
+				"%-14s writes/sec : %,12.0f  reads/sec : %,12.0f", mode,
+				MESSAGES / seconds, reads.get() / seconds));
+
+	}
+
+}
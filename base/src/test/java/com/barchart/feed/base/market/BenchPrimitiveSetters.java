@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import static com.barchart.feed.base.trade.enums.MarketTradeSequencing.NORMAL;
+import static com.barchart.feed.base.trade.enums.MarketTradeSession.DEFAULT;
+import static com.barchart.feed.base.trade.enums.MarketTradeType.FUTURE_ELECTRONIC;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.provider.DefBookEntry;
+import com.barchart.feed.base.provider.MockDefinitionService;
+
+/**
+ * trade and book message apply rate; value object setters versus primitive
+ * setters, prices wander around last trade
+ */
+public class BenchPrimitiveSetters {
+
+	static int MESSAGES = 5 * 1000 * 1000;
+
+	static final long BASE = 100000;
+
+	static final long STEP = 125;
+
+	public static void main(final String[] args) throws Exception {
+
+		final Instrument inst = new MockDefinitionService()
+				.lookup(MockDefinitionService.INST_SYMBOL_3);
+
+		for (int round = 0; round < 5; round++) {
+			run("values", inst, false);
+			run("primitive", inst, true);
+		}
+
+	}
+
+	static void run(final String name, final Instrument inst,
+			final boolean isPrimitive) {
+
+		final MarketDo market = new MockMarketFactory().newMarket(inst);
+
+		final long gcBefore = gcCount();
+
+		final long start = System.nanoTime();
+
+		for (int k = 0; k < MESSAGES; k++) {
+
+			final long price = BASE + STEP * ((k * 7) & 15);
+			final long size = 1 + (k & 31);
+			final long time = 1000000 + (k >> 4);
+
+			if (isPrimitive) {
+				market.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL, price, -3,
+						size, time, 0);
+				market.setBookUpdate(MarketBookAction.MODIFY, Book.Side.BID,
+						Book.Type.DEFAULT, 0, price - STEP, -3, size, time);
+			} else {
+				market.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL,
+						newPrice(price, -3), newSize(size), newTime(time),
+						newTime(0));
+				market.setBookUpdate(new DefBookEntry(MarketBookAction.MODIFY,
+						Book.Side.BID, Book.Type.DEFAULT, 0, newPrice(price
+								- STEP, -3), newSize(size)), newTime(time));
+			}
+
+		}
+
+		final long finish = System.nanoTime();
+
+		System.out.println(String.format(
+				"%-9s : %,8.1f ns/msg  %,12.0f msg/sec  gc : %d", name,
+				(finish - start) / (2.0 * MESSAGES), 2 * MESSAGES
+						/ ((finish - start) / 1E9), gcCount() - gcBefore));
+
+	}
+
+	static long gcCount() {
+		long count = 0;
+		for (final GarbageCollectorMXBean bean : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			count += bean.getCollectionCount();
+		}
+		return count;
+	}
+
+}
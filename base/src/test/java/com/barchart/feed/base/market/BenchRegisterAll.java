@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.provider.MockDefinitionService;
+
+/**
+ * cold start of a large watch list, one taker per instrument; compares taker
+ * by taker registration against one batch
+ */
+public class BenchRegisterAll {
+
+	static int COUNT = 100 * 1000;
+
+	public static void main(final String[] args) throws Exception {
+
+		final List<MarketTaker<?>> takers = new ArrayList<MarketTaker<?>>(
+				COUNT);
+
+		for (int k = 0; k < COUNT; k++) {
+			final Instrument inst = MockDefinitionService.newInstrument(
+					100 * 1000 + k, "WATCH" + k);
+			takers.add(new MockTaker<Market>(new Instrument[] { inst }));
+		}
+
+		for (int round = 0; round < 5; round++) {
+
+			final MockMaker single = new MockMaker(new MockMarketFactory());
+
+			long start = System.nanoTime();
+
+			for (final MarketTaker<?> taker : takers) {
+				single.register(taker);
+			}
+
+			final long singleTime = System.nanoTime() - start;
+
+			final MockMaker batch = new MockMaker(new MockMarketFactory());
+
+			start = System.nanoTime();
+
+			batch.registerAll(takers);
+
+			final long batchTime = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"round %d : single %,8.1f ms  batch %,8.1f ms", round,
+					singleTime / 1E6, batchTime / 1E6));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.market.enums.MarketEvent;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.provider.MockDefinitionService;
+
+/**
+ * taker with large instrument set re-bound to an overlapping set on each
+ * update; measures MakerBase.update() diff cost
+ */
+public class BenchTakerUpdate {
+
+	static int INSTRUMENTS = 5 * 1000;
+
+	static int UPDATES = 2 * 1000;
+
+	static class Taker implements MarketTaker<Market> {
+
+		volatile Instrument[] insts;
+
+		Taker(final Instrument[] insts) {
+			this.insts = insts;
+		}
+
+		@Override
+		public MarketField<Market> bindField() {
+			return MarketField.MARKET;
+		}
+
+		@Override
+		public MarketEvent[] bindEvents() {
+			return new MarketEvent[] { MarketEvent.NEW_TRADE };
+		}
+
+		@Override
+		public Instrument[] bindInstruments() {
+			return insts;
+		}
+
+		@Override
+		public void onMarketEvent(final MarketEvent event,
+				final Instrument instrument, final Market value) {
+		}
+
+	}
+
+	public static void main(final String[] args) throws Exception {
+
+		final Instrument[] all = new Instrument[INSTRUMENTS + INSTRUMENTS / 10];
+
+		for (int k = 0; k < all.length; k++) {
+			all[k] = MockDefinitionService.newInstrument(10 * 1000 + k,
+					"BENCH" + k);
+		}
+
+		/** two sets sharing all but 10% of instruments */
+		final Instrument[] setA = new Instrument[INSTRUMENTS];
+		final Instrument[] setB = new Instrument[INSTRUMENTS];
+		System.arraycopy(all, 0, setA, 0, INSTRUMENTS);
+		System.arraycopy(all, all.length - INSTRUMENTS, setB, 0, INSTRUMENTS);
+
+		for (int round = 0; round < 5; round++) {
+
+			final MockMaker maker = new MockMaker(new MockMarketFactory());
+
+			final Taker taker = new Taker(setA);
+
+			maker.register(taker);
+
+			final long start = System.nanoTime();
+
+			for (int k = 0; k < UPDATES; k++) {
+				taker.insts = (k & 1) == 0 ? setB : setA;
+				maker.update(taker);
+			}
+
+			final long finish = System.nanoTime();
+
+			System.out.println(String.format(
+					"round %d : %,10.1f us/update  %,8.0f updates/sec", round,
+					(finish - start) / 1E3 / UPDATES, UPDATES
+							/ ((finish - start) / 1E9)));
+
+		}
+
+	}
+
+}
@@ -13,6 +13,7 @@ package com.barchart.feed.base.market;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.base.market.api.MarketDo;
 import com.barchart.feed.base.market.api.MarketFactory;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
 import com.barchart.feed.base.market.provider.MockMarket;
 
 /**
@@ -21,9 +22,19 @@ import com.barchart.feed.base.market.provider.MockMarket;
  */
 public class MockMarketFactory implements MarketFactory {
 
+	private final MarketSafeMode safeMode;
+
+	public MockMarketFactory() {
+		this(MarketSafeMode.MONITOR);
+	}
+
+	public MockMarketFactory(final MarketSafeMode safeMode) {
+		this.safeMode = safeMode;
+	}
+
 	@Override
 	public MarketDo newMarket(final Instrument instrument) {
-		return new MockMarket(instrument);
+		return new MockMarket(instrument, safeMode);
 	}
 
 }
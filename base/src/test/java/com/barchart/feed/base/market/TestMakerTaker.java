@@ -18,6 +18,10 @@ import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
@@ -29,11 +33,13 @@ import org.slf4j.LoggerFactory;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.base.bar.api.MarketBar;
 import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.api.MarketRegListener;
 import com.barchart.feed.base.market.api.MarketTaker;
 import com.barchart.feed.base.market.enums.MarketEvent;
 import com.barchart.feed.base.market.enums.MarketField;
 import com.barchart.feed.base.message.MockMsgTrade;
 import com.barchart.feed.base.provider.MockDefinitionService;
+import com.barchart.feed.base.trade.enums.MarketTradeField;
 import com.barchart.feed.base.values.api.SizeValue;
 import com.barchart.feed.inst.InstrumentService;
 
@@ -222,4 +228,81 @@ public class TestMakerTaker {
 
 	}
 
+	@Test
+	public void testRegisterAll() {
+
+		final MockMaker maker = new MockMaker(new MockMarketFactory());
+
+		final AtomicInteger notified = new AtomicInteger(0);
+		final AtomicInteger notifiedSize = new AtomicInteger(0);
+
+		maker.add(new MarketRegListener() {
+			@Override
+			public void onRegistrationChange(
+					final Map<Instrument, Set<MarketEvent>> instMap) {
+				notified.incrementAndGet();
+				notifiedSize.set(instMap.size());
+			}
+		});
+
+		final Instrument[] insts = new Instrument[3000];
+
+		for (int k = 0; k < insts.length; k++) {
+			insts[k] = MockDefinitionService.newInstrument(1000 + k, "BATCH"
+					+ k);
+		}
+
+		/** overlapping instrument sets */
+		final List<MarketTaker<?>> takers = new ArrayList<MarketTaker<?>>();
+
+		for (int t = 0; t < 4; t++) {
+			final Instrument[] part = new Instrument[1500];
+			System.arraycopy(insts, t * 500, part, 0, part.length);
+			takers.add(new MockTaker<Market>(part));
+		}
+
+		assertEquals(4, maker.registerAll(takers));
+
+		assertEquals(1, notified.get());
+		assertEquals(insts.length, notifiedSize.get());
+		assertEquals(insts.length, maker.marketCount());
+
+		for (final MarketTaker<?> taker : takers) {
+			assertTrue(maker.isRegistered(taker));
+		}
+
+		/** already registered */
+		assertEquals(0, maker.registerAll(takers));
+		assertEquals(1, notified.get());
+
+		/** markets are live for takers */
+		maker.make(TestMarketSafeMode.trade(insts[2999], 5));
+		assertEquals(newSize(5), maker.take(insts[2999], MarketField.TRADE)
+				.get(MarketTradeField.SIZE));
+
+		maker.unregister(takers.get(3));
+		assertEquals(2500, maker.marketCount());
+
+	}
+
+	@Test
+	public void testRegisterInstruments() {
+
+		final MockMaker maker = new MockMaker(new MockMarketFactory());
+
+		final Instrument inst1 = service
+				.lookup(MockDefinitionService.INST_SYMBOL_1);
+		final Instrument inst2 = service
+				.lookup(MockDefinitionService.INST_SYMBOL_2);
+
+		assertTrue(maker.register(inst1));
+
+		assertEquals(1, maker.register(inst1, inst2, inst2));
+		assertEquals(2, maker.marketCount());
+		assertTrue(maker.isRegistered(inst2));
+
+		assertEquals(0, maker.register(inst1, inst2));
+
+	}
+
 }
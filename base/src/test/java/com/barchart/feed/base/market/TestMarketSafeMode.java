@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import static com.barchart.feed.base.trade.enums.MarketTradeSequencing.NORMAL;
+import static com.barchart.feed.base.trade.enums.MarketTradeSession.DEFAULT;
+import static com.barchart.feed.base.trade.enums.MarketTradeType.FUTURE_ELECTRONIC;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketSafeRunner;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
+import com.barchart.feed.base.message.MockMsgTrade;
+import com.barchart.feed.base.provider.MockDefinitionService;
+import com.barchart.feed.base.trade.api.MarketTrade;
+import com.barchart.feed.base.trade.enums.MarketTradeField;
+import com.barchart.feed.inst.InstrumentService;
+
+public class TestMarketSafeMode {
+
+	InstrumentService<CharSequence> service;
+
+	Instrument inst;
+
+	@Before
+	public void setUp() throws Exception {
+		service = new MockDefinitionService();
+		inst = service.lookup(MockDefinitionService.INST_SYMBOL_1);
+	}
+
+	static MockMsgTrade trade(final Instrument inst, final long value) {
+
+		final MockMsgTrade msg = new MockMsgTrade(inst);
+		msg.type = FUTURE_ELECTRONIC;
+		msg.session = DEFAULT;
+		msg.sequencing = NORMAL;
+		msg.price = newPrice(value, 0);
+		msg.size = newSize(value);
+		msg.time = newTime(value);
+		msg.date = newTime(0);
+
+		return msg;
+
+	}
+
+	@Test
+	public void testFactoryMode() {
+
+		final MarketDo monitor = new MockMarketFactory().newMarket(inst);
+		assertEquals(MarketSafeMode.MONITOR, monitor.safeMode());
+
+		final MarketDo writer = new MockMarketFactory(
+				MarketSafeMode.SINGLE_WRITER).newMarket(inst);
+		assertEquals(MarketSafeMode.SINGLE_WRITER, writer.safeMode());
+
+	}
+
+	@Test
+	public void testReadInsideWrite() {
+
+		final MarketDo market = new MockMarketFactory(
+				MarketSafeMode.SINGLE_WRITER).newMarket(inst);
+
+		final MarketSafeRunner<Integer, Void> read = //
+		new MarketSafeRunner<Integer, Void>() {
+			@Override
+			public Integer runSafe(final MarketDo market, final Void param) {
+				return 1;
+			}
+		};
+
+		final MarketSafeRunner<Integer, Void> write = //
+		new MarketSafeRunner<Integer, Void>() {
+			@Override
+			public Integer runSafe(final MarketDo market, final Void param) {
+				return market.runRead(read, null) + 1;
+			}
+		};
+
+		assertEquals((Integer) 2, market.runSafe(write, null));
+		assertEquals((Integer) 1, market.runRead(read, null));
+
+	}
+
+	@Test
+	public void testReadError() {
+
+		final MarketDo market = new MockMarketFactory(
+				MarketSafeMode.SINGLE_WRITER).newMarket(inst);
+
+		final AssertionError error = new AssertionError("read");
+
+		final MarketSafeRunner<Integer, Void> read = //
+		new MarketSafeRunner<Integer, Void>() {
+			@Override
+			public Integer runSafe(final MarketDo market, final Void param) {
+				throw error;
+			}
+		};
+
+		try {
+			market.runRead(read, null);
+		} catch (final AssertionError e) {
+			assertSame(error, e);
+			return;
+		}
+
+		throw new AssertionError("error not propagated");
+
+	}
+
+	@Test
+	public void testReadFallsBackToMonitor() {
+
+		final MarketDo market = new MockMarketFactory(
+				MarketSafeMode.SINGLE_WRITER).newMarket(inst);
+
+		final MarketSafeRunner<Void, Void> write = //
+		new MarketSafeRunner<Void, Void>() {
+			@Override
+			public Void runSafe(final MarketDo market, final Void param) {
+				return null;
+			}
+		};
+
+		final AtomicInteger attempts = new AtomicInteger(0);
+
+		/* every optimistic attempt overlaps a write from another thread */
+		final MarketSafeRunner<Boolean, Void> read = //
+		new MarketSafeRunner<Boolean, Void>() {
+			@Override
+			public Boolean runSafe(final MarketDo market, final Void param) {
+
+				attempts.incrementAndGet();
+
+				if (Thread.holdsLock(market)) {
+					return true;
+				}
+
+				final Thread writer = new Thread() {
+					@Override
+					public void run() {
+						market.runSafe(write, null);
+					}
+				};
+
+				writer.start();
+
+				try {
+					writer.join();
+				} catch (final InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				return false;
+
+			}
+		};
+
+		assertTrue(market.runRead(read, null));
+		assertTrue(attempts.get() > 1);
+
+	}
+
+	@Test
+	public void testConsistentTake() throws Exception {
+
+		final MockMaker maker = new MockMaker(new MockMarketFactory(
+				MarketSafeMode.SINGLE_WRITER));
+
+		final MarketTaker<Market> taker = new MockTaker<Market>(
+				new Instrument[] { inst });
+
+		assertTrue(maker.register(taker));
+
+		final int count = 20 * 1000;
+
+		final AtomicInteger errors = new AtomicInteger(0);
+
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for (int k = 0; k < count; k++) {
+					final MarketTrade trade = maker.take(inst,
+							MarketField.TRADE);
+					final long price = trade.get(MarketTradeField.PRICE)
+							.mantissa();
+					final long size = trade.get(MarketTradeField.SIZE)
+							.asLong();
+					if (price != size) {
+						errors.incrementAndGet();
+					}
+				}
+			}
+		};
+
+		reader.start();
+
+		for (int k = 1; k <= count; k++) {
+			maker.make(trade(inst, k));
+		}
+
+		reader.join();
+
+		assertEquals(0, errors.get());
+
+		final MarketTrade last = maker.take(inst, MarketField.TRADE);
+		assertEquals(count, last.get(MarketTradeField.SIZE).asLong());
+
+	}
+
+	/** message applied the way a provider does, inside runSafe() */
+	static void write(final MarketDo market, final long value) {
+		market.runSafe(new MarketSafeRunner<Void, Void>() {
+			@Override
+			public Void runSafe(final MarketDo market, final Void param) {
+				market.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL,
+						newPrice(value, 0), newSize(value), newTime(value),
+						newTime(0));
+				market.fireEvents();
+				return null;
+			}
+		}, null);
+	}
+
+	@Test
+	public void testPublishedSnapshot() {
+
+		final MarketDo market = new MockMarketFactory().newMarket(inst);
+
+		write(market, 1);
+
+		/* first read freezes and publishes */
+		final Market first = market.snapshot();
+		assertSame(first, market.snapshot());
+		assertEquals(1, first.get(MarketField.TRADE)
+				.get(MarketTradeField.SIZE).asLong());
+
+		write(market, 2);
+
+		final Market second = market.snapshot();
+		assertNotSame(first, second);
+		assertEquals(2, second.get(MarketField.TRADE)
+				.get(MarketTradeField.SIZE).asLong());
+
+		/* published views are immutable */
+		assertEquals(1, first.get(MarketField.TRADE)
+				.get(MarketTradeField.SIZE).asLong());
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.market;
+
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
+import static com.barchart.feed.base.book.enums.MarketBookAction.REMOVE;
+import static com.barchart.feed.base.market.enums.MarketField.BOOK;
+import static com.barchart.feed.base.market.enums.MarketField.BOOK_LAST;
+import static com.barchart.feed.base.market.enums.MarketField.CUVOL;
+import static com.barchart.feed.base.market.enums.MarketField.TRADE;
+import static com.barchart.feed.base.trade.enums.MarketTradeSequencing.NORMAL;
+import static com.barchart.feed.base.trade.enums.MarketTradeSession.DEFAULT;
+import static com.barchart.feed.base.trade.enums.MarketTradeType.FUTURE_ELECTRONIC;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+import static com.barchart.feed.base.values.provider.ValueConst.NULL_SIZE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.provider.DefBookEntry;
+import com.barchart.feed.base.provider.MockDefinitionService;
+import com.barchart.feed.base.trade.api.MarketTrade;
+import com.barchart.feed.base.trade.enums.MarketTradeField;
+
+public class TestPrimitiveSetters {
+
+	Instrument inst;
+
+	MarketDo values;
+	MarketDo primitive;
+
+	@Before
+	public void setUp() throws Exception {
+		inst = new MockDefinitionService()
+				.lookup(MockDefinitionService.INST_SYMBOL_3);
+		values = new MockMarketFactory().newMarket(inst);
+		primitive = new MockMarketFactory().newMarket(inst);
+	}
+
+	@Test
+	public void testTrade() {
+
+		for (int k = 0; k < 100; k++) {
+
+			final long price = 100000 + 125 * (k % 5);
+			final long size = 1 + k;
+
+			values.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL,
+					newPrice(price, -3), newSize(size), newTime(1000 + k),
+					newTime(0));
+			primitive.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL, price, -3,
+					size, 1000 + k, 0);
+
+		}
+
+		final MarketTrade expected = values.get(TRADE);
+		final MarketTrade actual = primitive.get(TRADE);
+
+		for (final MarketTradeField<?> field : new MarketTradeField<?>[] {
+				MarketTradeField.PRICE, MarketTradeField.SIZE,
+				MarketTradeField.TRADE_TIME, MarketTradeField.TRADE_DATE }) {
+			assertEquals(expected.get(field), actual.get(field));
+		}
+
+		assertArrayEquals(values.get(CUVOL).entries(), primitive.get(CUVOL)
+				.entries());
+
+	}
+
+	@Test
+	public void testBook() {
+
+		for (int k = 0; k < 100; k++) {
+
+			final Book.Side side = (k & 1) == 0 ? Book.Side.BID
+					: Book.Side.ASK;
+			final long price = (side == Book.Side.BID ? 100000 : 101000) + 125
+					* (k % 7);
+
+			if (k % 5 == 4) {
+				values.setBookUpdate(new DefBookEntry(REMOVE, side,
+						Book.Type.DEFAULT, 0, newPrice(price, -3), NULL_SIZE),
+						newTime(k));
+				primitive.setBookUpdate(REMOVE, side, Book.Type.DEFAULT, 0,
+						price, -3, 0, k);
+			} else {
+				values.setBookUpdate(new DefBookEntry(MODIFY, side,
+						Book.Type.DEFAULT, 0, newPrice(price, -3),
+						newSize(k + 1)), newTime(k));
+				primitive.setBookUpdate(MODIFY, side, Book.Type.DEFAULT, 0,
+						price, -3, k + 1, k);
+			}
+
+		}
+
+		final MarketBook expected = values.get(BOOK);
+		final MarketBook actual = primitive.get(BOOK);
+
+		assertArrayEquals(expected.entries(Book.Side.BID),
+				actual.entries(Book.Side.BID));
+		assertArrayEquals(expected.entries(Book.Side.ASK),
+				actual.entries(Book.Side.ASK));
+		assertEquals(expected.time(), actual.time());
+		assertEquals(values.get(BOOK_LAST).freeze(), primitive.get(BOOK_LAST)
+				.freeze());
+
+	}
+
+}
@@ -24,7 +24,6 @@ import static com.barchart.feed.base.market.enums.MarketEvent.NEW_CLOSE;
 import static com.barchart.feed.base.market.enums.MarketEvent.NEW_CUVOL_SNAPSHOT;
 import static com.barchart.feed.base.market.enums.MarketEvent.NEW_CUVOL_UPDATE;
 import static com.barchart.feed.base.market.enums.MarketEvent.NEW_VOLUME;
-import static com.barchart.feed.base.market.enums.MarketField.BOOK;
 import static com.barchart.feed.base.market.enums.MarketField.MARKET_TIME;
 import static com.barchart.feed.base.trade.enums.MarketTradeField.PRICE;
 import static com.barchart.feed.base.trade.enums.MarketTradeField.SIZE;
@@ -40,6 +39,7 @@ import com.barchart.feed.base.book.api.MarketDoBookEntry;
 import com.barchart.feed.base.book.enums.UniBookResult;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvol;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvolEntry;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
 import com.barchart.feed.base.provider.VarMarket;
 import com.barchart.feed.base.state.enums.MarketStateEntry;
 import com.barchart.feed.base.trade.api.MarketDoTrade;
@@ -58,6 +58,11 @@ public class MockMarket extends VarMarket {
 		super(instrument);
 	}
 
+	public MockMarket(final Instrument instrument,
+			final MarketSafeMode safeMode) {
+		super(instrument, safeMode);
+	}
+
 	@Override
 	public void setInstrument(final Instrument symbol) {
 		instrument = symbol;
@@ -69,7 +74,7 @@ public class MockMarket extends VarMarket {
 
 		assert entry != null && time != null;
 
-		final MarketDoBook book = (MarketDoBook) get(BOOK);
+		final MarketDoBook book = loadBook();
 
 		final UniBookResult result = book.setEntry(entry);
 
@@ -96,7 +101,7 @@ public class MockMarket extends VarMarket {
 		assert entries != null;
 		assert time != null;
 
-		final MarketDoBook book = (MarketDoBook) get(BOOK);
+		final MarketDoBook book = loadBook();
 
 		book.clear();
 
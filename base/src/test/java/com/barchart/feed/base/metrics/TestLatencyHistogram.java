@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+	@Test
+	public void testBuckets() {
+
+		for (long value = 0; value < 1000000; value += 7) {
+			final int index = LatencyHistogram.index(value);
+			assertTrue(LatencyHistogram.lowest(index) <= value);
+			assertTrue(LatencyHistogram.highest(index) >= value);
+		}
+
+		assertEquals(LatencyHistogram.SIZE - 1,
+				LatencyHistogram.index(Long.MAX_VALUE));
+
+	}
+
+	@Test
+	public void testPercentile() {
+
+		final LatencyHistogram hist = new LatencyHistogram();
+
+		assertEquals(0, hist.percentile(0.99));
+
+		for (long value = 1; value <= 10000; value++) {
+			hist.record(value * 1000);
+		}
+
+		assertEquals(10000, hist.count());
+		assertEquals(10000000, hist.max());
+		assertEquals(5000500, hist.mean());
+
+		final long p50 = hist.percentile(0.50);
+		final long p99 = hist.percentile(0.99);
+
+		assertTrue(p50 >= 5000000 && p50 < 5000000 * 1.04);
+		assertTrue(p99 >= 9900000 && p99 < 9900000 * 1.04);
+		assertEquals(10000000, hist.percentile(1.0));
+
+	}
+
+	@Test
+	public void testReset() {
+
+		final LatencyHistogram hist = new LatencyHistogram();
+
+		hist.record(-5);
+		hist.record(123);
+
+		assertEquals(2, hist.count());
+		assertEquals(0, hist.percentile(0.5));
+
+		hist.reset();
+
+		assertEquals(0, hist.count());
+		assertEquals(0, hist.max());
+
+	}
+
+}
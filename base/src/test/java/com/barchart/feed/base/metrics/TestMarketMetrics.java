@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+
+public class TestMarketMetrics {
+
+	@Test
+	public void testMessages() throws Exception {
+
+		final MarketMetrics metrics = new MarketMetrics();
+
+		final InstrumentID one = new InstrumentID("1");
+		final InstrumentID two = new InstrumentID("2");
+
+		for (int k = 0; k < 10; k++) {
+			metrics.message(one);
+		}
+		metrics.message(two);
+
+		final Map<InstrumentID, Long> counts = metrics.messageCounts();
+
+		assertEquals(10, counts.get(one).longValue());
+		assertEquals(1, counts.get(two).longValue());
+
+		Thread.sleep(10);
+
+		final Map<InstrumentID, Double> rates = metrics.messageRates();
+
+		assertTrue(rates.get(one) > rates.get(two));
+
+		/* nothing new since last pull */
+		assertEquals(0.0, metrics.messageRates().get(one), 0.0);
+
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+
+		final MarketMetrics metrics = new MarketMetrics();
+
+		final InstrumentID one = new InstrumentID("1");
+		final InstrumentID two = new InstrumentID("2");
+
+		for (int k = 0; k < 10; k++) {
+			metrics.message(one);
+		}
+		metrics.message(two);
+
+		metrics.messageRates();
+
+		metrics.remove(one);
+
+		assertEquals(1, metrics.getInstrumentCount());
+		assertFalse(metrics.messageCounts().containsKey(one));
+		assertFalse(metrics.messageRates().containsKey(one));
+
+		/* comes back with a fresh count, not against the old one */
+		metrics.message(one);
+		Thread.sleep(10);
+		assertEquals(1, metrics.messageCounts().get(one).longValue());
+		assertTrue(metrics.messageRates().get(one) > 0);
+
+	}
+
+	@Test
+	public void testLockWait() throws Exception {
+
+		final MarketMetrics metrics = new MarketMetrics();
+
+		/* acquire without request is ignored */
+		metrics.lockAcquired();
+		assertEquals(0, metrics.lockWait().count());
+
+		metrics.lockRequested();
+		Thread.sleep(2);
+		metrics.lockAcquired();
+
+		assertEquals(1, metrics.lockWait().count());
+		assertEquals(1, metrics.contended());
+		assertTrue(metrics.lockWait().max() >= 1000000);
+
+		metrics.reset();
+
+		assertEquals(0, metrics.getLockContended());
+		assertEquals(0, metrics.getInstrumentCount());
+
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+
+		final MarketMetrics metrics = new MarketMetrics();
+
+		metrics.make().record(500);
+
+		final ObjectName name = metrics.registerMBean("test");
+
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer()
+				.getAttribute(name, "MessageCount"));
+
+	}
+
+}
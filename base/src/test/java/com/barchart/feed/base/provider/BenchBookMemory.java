@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+
+/**
+ * live heap and full gc pause for many books, heap versus slab level storage
+ */
+public class BenchBookMemory {
+
+	static int COUNT = 100 * 1000;
+
+	public static void main(final String[] args) throws Exception {
+
+		final SizeValue size = newSize(10);
+		final PriceValue step = newPrice(25, -2);
+
+		for (int round = 0; round < 3; round++) {
+			for (final boolean useSlab : new boolean[] { false, true }) {
+
+				final BookSlab slab = useSlab ? new BookSlab(10, 16 * 1024)
+						: null;
+
+				final long heapBefore = usedHeap();
+
+				final VarBook[] books = new VarBook[COUNT];
+
+				for (int k = 0; k < COUNT; k++) {
+					books[k] = new VarBook(Instrument.NULL,
+							Book.Type.COMBINED, size, step, slab);
+				}
+
+				final long heapAfter = usedHeap();
+
+				final long start = System.nanoTime();
+				System.gc();
+				final long pause = System.nanoTime() - start;
+
+				System.out.println(String.format(
+						"%-5s books : %,d  heap/book : %,5d B  "
+								+ "off heap : %,12d B  full gc : %,6.1f ms",
+						useSlab ? "slab" : "heap", books.length,
+						(heapAfter - heapBefore) / COUNT,
+						slab == null ? 0 : slab.capacityBytes(),
+						pause / 1E6));
+
+			}
+		}
+
+	}
+
+	static long usedHeap() throws Exception {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int k = 0; k < 3; k++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -90,6 +90,23 @@ public class MockDefinitionService implements InstrumentService<CharSequence> {
 		
 	}
 	
+	/** instrument outside of the lookup tables, for bulk tests */
+	@SuppressWarnings("rawtypes")
+	public static Instrument newInstrument(final long guid, final String symbol) {
+		
+		final InstrumentDefinition.Builder builder = InstrumentDefinition.newBuilder();
+		
+		builder.setMarketId(guid);
+		builder.setSymbol(symbol);
+		builder.setMinimumPriceIncrement(Decimal.newBuilder().setMantissa(1).setExponent(-2).build());
+		builder.setBookDepth(10);
+		builder.setDisplayBase(10);
+		builder.setDisplayExponent(-2);
+		
+		return InstrumentFactory.instrument(builder.buildPartial());
+		
+	}
+	
 	@Override
 	public Instrument lookup(final CharSequence symbol) {
 		if(symbolMap.containsKey(symbol)) {
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.message.MockMessage;
+import com.barchart.feed.base.message.MockMessageVisitor;
+import com.barchart.feed.base.message.MockMsgBook;
+import com.barchart.feed.base.message.MockMsgTrade;
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionHandler;
+
+/**
+ * market provider over mock messages; counts applied messages
+ */
+public class MockProvider extends MarketProviderBase<MockMessage> implements
+		MockMessageVisitor<Void, MarketDo> {
+
+	static final SubscriptionHandler SUBS = new SubscriptionHandler() {
+
+		@Override
+		public Future<Boolean> subscribe(final SubCommand subscription) {
+			return null;
+		}
+
+		@Override
+		public Future<Boolean> subscribe(final Set<SubCommand> subscriptions) {
+			return null;
+		}
+
+		@Override
+		public Future<Boolean> unsubscribe(final SubCommand subscription) {
+			return null;
+		}
+
+		@Override
+		public Future<Boolean> unsubscribe(
+				final Set<SubCommand> subscriptions) {
+			return null;
+		}
+
+	};
+
+	final AtomicInteger applied = new AtomicInteger(0);
+
+	public MockProvider() {
+		super(new MockMarketFactory(), null, SUBS);
+	}
+
+	@Override
+	protected void make(final MockMessage message, final MarketDo market) {
+		applied.incrementAndGet();
+		message.accept(this, market);
+	}
+
+	@Override
+	public Void visit(final MockMsgTrade message, final MarketDo market) {
+
+		market.setTrade(message.type, message.session, message.sequencing,
+				message.price, message.size, message.time, message.date);
+
+		return null;
+
+	}
+
+	@Override
+	public Void visit(final MockMsgBook message, final MarketDo market) {
+
+		final Book.Side side = message.side;
+		final MarketBookAction act = message.act;
+
+		market.setBookUpdate(new DefBookEntry(act, side, message.type,
+				message.place, message.price, message.size), message.time);
+
+		return null;
+
+	}
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Exchange;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.participant.FrameworkAgent;
+
+public class TestAgentIndex {
+
+	/** identity only proxy; index never calls into agent */
+	static FrameworkAgent<?> newAgent(final String name) {
+		return (FrameworkAgent<?>) Proxy.newProxyInstance(
+				TestAgentIndex.class.getClassLoader(),
+				new Class<?>[] { FrameworkAgent.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return name;
+					}
+				});
+	}
+
+	static Exchange newExchange(final String code) {
+		return (Exchange) Proxy.newProxyInstance(
+				TestAgentIndex.class.getClassLoader(),
+				new Class<?>[] { Exchange.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if (method.getName().equals("isNull")) {
+							return false;
+						}
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode")) {
+							return code.hashCode();
+						}
+						return code;
+					}
+				});
+	}
+
+	static Instrument newInstrument(final String symbol,
+			final Exchange exchange) {
+		final InstrumentID id = new InstrumentID(symbol);
+		return (Instrument) Proxy.newProxyInstance(
+				TestAgentIndex.class.getClassLoader(),
+				new Class<?>[] { Instrument.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						final String name = method.getName();
+						if (name.equals("id")) {
+							return id;
+						}
+						if (name.equals("symbol")) {
+							return symbol;
+						}
+						if (name.equals("exchange")) {
+							return exchange;
+						}
+						if (name.equals("isNull")) {
+							return false;
+						}
+						if (name.equals("equals")) {
+							return proxy == args[0];
+						}
+						if (name.equals("hashCode")) {
+							return symbol.hashCode();
+						}
+						return symbol;
+					}
+				});
+	}
+
+	static Collection<?> set(final Object... items) {
+		return new HashSet<Object>(Arrays.asList(items));
+	}
+
+	Exchange cme;
+	Exchange nyse;
+
+	Instrument esz;
+	Instrument nqz;
+	Instrument ibm;
+
+	AgentIndex index;
+
+	@Before
+	public void setUp() {
+
+		cme = newExchange("CME");
+		nyse = newExchange("NYSE");
+
+		esz = newInstrument("ESZ3", cme);
+		nqz = newInstrument("NQZ3", cme);
+		ibm = newInstrument("IBM", nyse);
+
+		index = new AgentIndex();
+
+		index.addMarket(esz);
+		index.addMarket(nqz);
+		index.addMarket(ibm);
+
+	}
+
+	@Test
+	public void testInstrument() {
+
+		final FrameworkAgent<?> agent = newAgent("agent");
+
+		final AgentIndex.Keys keys = new AgentIndex.Keys();
+		keys.incInsts.add(esz.id());
+
+		assertEquals(set(esz.id()), set(index.update(agent, keys).toArray()));
+
+		assertEquals(Arrays.asList(agent), index.match(esz));
+		assertTrue(index.match(nqz).isEmpty());
+		assertTrue(index.match(ibm).isEmpty());
+
+	}
+
+	@Test
+	public void testExchangeWithExclusion() {
+
+		final FrameworkAgent<?> agent = newAgent("agent");
+
+		final AgentIndex.Keys keys = new AgentIndex.Keys();
+		keys.incExchanges.add(cme);
+
+		assertEquals(set(esz.id(), nqz.id()),
+				set(index.update(agent, keys).toArray()));
+
+		final AgentIndex.Keys next = new AgentIndex.Keys();
+		next.incExchanges.add(cme);
+		next.exInsts.add(nqz.id());
+
+		/** old and new keys touch both cme markets */
+		assertEquals(set(esz.id(), nqz.id()),
+				set(index.update(agent, next).toArray()));
+
+		assertEquals(Arrays.asList(agent), index.match(esz));
+		assertTrue(index.match(nqz).isEmpty());
+
+	}
+
+	@Test
+	public void testSymbolOverridesInstrument() {
+
+		final FrameworkAgent<?> agent = newAgent("agent");
+
+		final AgentIndex.Keys keys = new AgentIndex.Keys();
+		keys.exInsts.add(ibm.id());
+		keys.incSymbols.add("IBM");
+
+		index.update(agent, keys);
+
+		assertEquals(Arrays.asList(agent), index.match(ibm));
+
+	}
+
+	@Test
+	public void testNewMarket() {
+
+		final FrameworkAgent<?> agent = newAgent("agent");
+
+		final AgentIndex.Keys keys = new AgentIndex.Keys();
+		keys.incExchanges.add(cme);
+
+		index.update(agent, keys);
+
+		final Instrument ymz = newInstrument("YMZ3", cme);
+
+		index.addMarket(ymz);
+
+		assertEquals(Arrays.asList(agent), index.match(ymz));
+
+		final AgentIndex.Keys none = new AgentIndex.Keys();
+
+		assertEquals(set(esz.id(), nqz.id(), ymz.id()),
+				set(index.update(agent, none).toArray()));
+
+		index.removeMarket(ymz);
+
+		assertEquals(3, index.marketCount());
+
+	}
+
+	@Test
+	public void testScanAndRemove() {
+
+		final FrameworkAgent<?> custom = newAgent("custom");
+		final FrameworkAgent<?> plain = newAgent("plain");
+
+		assertEquals(3, index.update(custom, null).size());
+
+		final AgentIndex.Keys keys = new AgentIndex.Keys();
+		keys.incInsts.add(ibm.id());
+
+		index.update(plain, keys);
+
+		final List<FrameworkAgent<?>> both = index.match(ibm);
+
+		assertEquals(set(custom, plain), set(both.toArray()));
+		assertEquals(Arrays.asList(custom), index.match(esz));
+
+		assertEquals(3, index.remove(custom).size());
+		assertEquals(set(ibm.id()), set(index.remove(plain).toArray()));
+
+		assertEquals(0, index.agentCount());
+		assertTrue(index.match(ibm).isEmpty());
+
+		/** freed slot is reused */
+		final FrameworkAgent<?> again = newAgent("again");
+		index.update(again, keys);
+		assertEquals(Arrays.asList(again), index.match(ibm));
+
+	}
+
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.MarketObserver;
+import com.barchart.feed.api.model.data.MarketData;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.provider.AsyncObserver.Policy;
+import com.barchart.util.value.api.Time;
+
+public class TestAsyncObserver {
+
+	static final Instrument ONE = MockDefinitionService.newInstrument(911,
+			"ASYNC1");
+	static final Instrument TWO = MockDefinitionService.newInstrument(912,
+			"ASYNC2");
+
+	static class Tick implements MarketData<Tick> {
+
+		final Instrument instrument;
+		final long value;
+
+		Tick(final Instrument instrument, final long value) {
+			this.instrument = instrument;
+			this.value = value;
+		}
+
+		@Override
+		public Instrument instrument() {
+			return instrument;
+		}
+
+		@Override
+		public Time updated() {
+			return null;
+		}
+
+		@Override
+		public boolean isNull() {
+			return false;
+		}
+
+	}
+
+	/** records deliveries; first delivery blocks until released */
+	static class Observer implements MarketObserver<Tick> {
+
+		final List<Long> values = new CopyOnWriteArrayList<Long>();
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		volatile Thread thread;
+
+		@Override
+		public void onNext(final Tick tick) {
+			thread = Thread.currentThread();
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			values.add(tick.value);
+		}
+
+	}
+
+	static void awaitDelivered(final AsyncObserver<?> async, final long count)
+			throws Exception {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (async.delivered() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+
+		final Observer observer = new Observer();
+
+		final AsyncObserver<Tick> async = new AsyncObserver<Tick>(observer,
+				Policy.DROP_OLDEST, 4);
+
+		async.onNext(new Tick(ONE, 0));
+		assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+
+		/** observer is busy; feed thread does not wait */
+		for (int k = 1; k <= 10; k++) {
+			async.onNext(new Tick(ONE, k));
+		}
+
+		assertEquals(4, async.pending());
+		assertEquals(6, async.dropped());
+
+		observer.release.countDown();
+		awaitDelivered(async, 5);
+
+		assertEquals(5, async.delivered());
+		assertEquals(11, async.offered());
+		assertEquals("[0, 7, 8, 9, 10]", observer.values.toString());
+		assertFalse(observer.thread == Thread.currentThread());
+		assertTrue(async.lagMax() > 0);
+
+		async.close();
+
+	}
+
+	@Test
+	public void testConflate() throws Exception {
+
+		final Observer observer = new Observer();
+
+		final AsyncObserver<Tick> async = new AsyncObserver<Tick>(observer,
+				Policy.CONFLATE, 16);
+
+		async.onNext(new Tick(ONE, 0));
+		assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+
+		for (int k = 1; k <= 100; k++) {
+			async.onNext(new Tick(ONE, k));
+			async.onNext(new Tick(TWO, 1000 + k));
+		}
+
+		assertEquals(2, async.pending());
+
+		observer.release.countDown();
+		awaitDelivered(async, 3);
+
+		assertEquals(3, async.delivered());
+		assertEquals(198, async.dropped());
+		assertEquals("[0, 100, 1100]", observer.values.toString());
+
+		async.close();
+
+	}
+
+	/** more instruments than capacity; each still gets its latest value */
+	@Test
+	public void testConflateOverCapacity() throws Exception {
+
+		final Observer observer = new Observer();
+
+		final AsyncObserver<Tick> async = new AsyncObserver<Tick>(observer,
+				Policy.CONFLATE, 2);
+
+		final Instrument[] insts = new Instrument[5];
+		for (int k = 0; k < insts.length; k++) {
+			insts[k] = MockDefinitionService.newInstrument(920 + k, "ASYNC"
+					+ (20 + k));
+		}
+
+		async.onNext(new Tick(ONE, 0));
+		assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+
+		final CountDownLatch done = new CountDownLatch(1);
+
+		new Thread() {
+			@Override
+			public void run() {
+				for (int round = 1; round <= 3; round++) {
+					for (int k = 0; k < insts.length; k++) {
+						async.onNext(new Tick(insts[k], 10 * k + round));
+					}
+				}
+				done.countDown();
+			}
+		}.start();
+
+		/** capacity instruments pending; third one waits for room */
+		assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+		assertEquals(2, async.pending());
+
+		observer.release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		awaitDelivered(async, async.offered() - async.dropped());
+
+		final List<Long> values = observer.values;
+
+		/** every instrument ends on its last value, none was dropped */
+		for (int k = 0; k < insts.length; k++) {
+			final int at = values.indexOf(10L * k + 3);
+			assertTrue(values.toString(), at >= 0);
+			for (int i = at + 1; i < values.size(); i++) {
+				assertFalse(values.toString(), values.get(i) / 10 == k);
+			}
+		}
+
+		assertEquals(0, async.pending());
+
+		async.close();
+
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+
+		final Observer observer = new Observer();
+
+		final AsyncObserver<Tick> async = new AsyncObserver<Tick>(observer,
+				Policy.BLOCK, 2);
+
+		async.onNext(new Tick(ONE, 0));
+		assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+
+		async.onNext(new Tick(ONE, 1));
+		async.onNext(new Tick(ONE, 2));
+
+		final CountDownLatch done = new CountDownLatch(1);
+
+		new Thread() {
+			@Override
+			public void run() {
+				async.onNext(new Tick(ONE, 3));
+				done.countDown();
+			}
+		}.start();
+
+		/** queue full; producer waits */
+		assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+
+		observer.release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		awaitDelivered(async, 4);
+
+		assertEquals(0, async.dropped());
+		assertEquals("[0, 1, 2, 3]", observer.values.toString());
+
+		async.close();
+
+	}
+
+	@Test
+	public void testClose() throws Exception {
+
+		final Observer observer = new Observer();
+
+		final AsyncObserver<Tick> async = new AsyncObserver<Tick>(observer,
+				Policy.DROP_OLDEST, 8);
+
+		async.onNext(new Tick(ONE, 0));
+		assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+
+		async.onNext(new Tick(ONE, 1));
+		async.close();
+		async.onNext(new Tick(ONE, 2));
+
+		observer.release.countDown();
+		awaitDelivered(async, 1);
+		Thread.sleep(50);
+
+		assertTrue(async.isClosed());
+		assertEquals(1, async.delivered());
+		assertEquals(0, async.pending());
+
+	}
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
+import static com.barchart.feed.base.book.enums.MarketBookAction.REMOVE;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueConst.NULL_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.book.api.MarketBookListener;
+import com.barchart.feed.base.book.api.MarketDoBookEntry;
+
+public class TestBookChangeLog {
+
+	static class Recorder implements MarketBookListener {
+
+		final List<MarketDoBookEntry> deltas = new ArrayList<MarketDoBookEntry>();
+		final List<Long> deltaSeqs = new ArrayList<Long>();
+		final List<Boolean> tops = new ArrayList<Boolean>();
+		final List<Long> snapshotSeqs = new ArrayList<Long>();
+
+		@Override
+		public void onBookDelta(final Instrument instrument,
+				final long sequence, final MarketDoBookEntry delta,
+				final boolean isTop) {
+			deltas.add(delta);
+			deltaSeqs.add(sequence);
+			tops.add(isTop);
+		}
+
+		@Override
+		public void onBookSnapshot(final Instrument instrument,
+				final long sequence, final MarketBook book) {
+			snapshotSeqs.add(sequence);
+		}
+
+	}
+
+	VarBook book;
+	BookChangeLog changeLog;
+	Recorder recorder;
+
+	@Before
+	public void setUp() {
+		book = new VarBook(Instrument.NULL, Book.Type.DEFAULT, newSize(10),
+				newPrice(25, -2));
+		changeLog = new BookChangeLog(4);
+		recorder = new Recorder();
+		changeLog.add(recorder);
+		book.setChangeLog(changeLog);
+	}
+
+	static DefBookEntry modify(final Book.Side side, final long mantissa,
+			final long size) {
+		return new DefBookEntry(MODIFY, side, Book.Type.DEFAULT, 0, newPrice(
+				mantissa, -2), newSize(size));
+	}
+
+	static DefBookEntry remove(final Book.Side side, final long mantissa) {
+		return new DefBookEntry(REMOVE, side, Book.Type.DEFAULT, 0, newPrice(
+				mantissa, -2), NULL_SIZE);
+	}
+
+	/** one message with one book change */
+	void apply(final DefBookEntry entry) {
+		book.setEntry(entry);
+		changeLog.flush(book);
+	}
+
+	@Test
+	public void testDeltas() {
+
+		/** first update re-centers ask window */
+		apply(modify(Book.Side.ASK, 1100, 5));
+		assertEquals(1, recorder.snapshotSeqs.size());
+
+		apply(modify(Book.Side.ASK, 1125, 7));
+		apply(modify(Book.Side.ASK, 1100, 6));
+		apply(remove(Book.Side.ASK, 1125));
+
+		assertEquals(3, recorder.deltas.size());
+
+		MarketDoBookEntry delta = recorder.deltas.get(0);
+		assertEquals(MODIFY, delta.act());
+		assertEquals(Book.Side.ASK, delta.side());
+		assertEquals(Book.Type.COMBINED, delta.type());
+		assertEquals(2, delta.place());
+		assertEquals(newPrice(1125, -2), delta.priceValue());
+		assertEquals(newSize(7), delta.sizeValue());
+		assertFalse(recorder.tops.get(0));
+
+		delta = recorder.deltas.get(1);
+		assertEquals(1, delta.place());
+		assertEquals(newSize(6), delta.sizeValue());
+		assertTrue(recorder.tops.get(1));
+
+		delta = recorder.deltas.get(2);
+		assertEquals(REMOVE, delta.act());
+		assertEquals(newPrice(1125, -2), delta.priceValue());
+		assertTrue(delta.sizeValue().isNull());
+
+		assertEquals((Long) 2L, recorder.deltaSeqs.get(0));
+		assertEquals((Long) 4L, recorder.deltaSeqs.get(2));
+
+	}
+
+	static DefBookEntry modify(final Book.Side side, final Book.Type type,
+			final long mantissa, final long size) {
+		return new DefBookEntry(MODIFY, side, type, 0, newPrice(mantissa, -2),
+				newSize(size));
+	}
+
+	static DefBookEntry remove(final Book.Side side, final Book.Type type,
+			final long mantissa) {
+		return new DefBookEntry(REMOVE, side, type, 0, newPrice(mantissa, -2),
+				NULL_SIZE);
+	}
+
+	/** deltas carry the combined level, not the default or implied part */
+	@Test
+	public void testCombinedDeltas() {
+
+		book = new VarBook(Instrument.NULL, Book.Type.COMBINED, newSize(10),
+				newPrice(25, -2));
+		changeLog = new BookChangeLog();
+		changeLog.add(recorder);
+		book.setChangeLog(changeLog);
+
+		apply(modify(Book.Side.ASK, Book.Type.DEFAULT, 1100, 5));
+		assertEquals(1, recorder.snapshotSeqs.size());
+
+		apply(modify(Book.Side.ASK, Book.Type.IMPLIED, 1100, 3));
+		apply(modify(Book.Side.ASK, Book.Type.DEFAULT, 1100, 4));
+		apply(remove(Book.Side.ASK, Book.Type.DEFAULT, 1100));
+
+		assertEquals(3, recorder.deltas.size());
+
+		for (final MarketDoBookEntry delta : recorder.deltas) {
+			assertEquals(Book.Type.COMBINED, delta.type());
+			assertEquals(1, delta.place());
+			assertEquals(newPrice(1100, -2), delta.priceValue());
+		}
+
+		assertEquals(MODIFY, recorder.deltas.get(0).act());
+		assertEquals(newSize(8), recorder.deltas.get(0).sizeValue());
+		assertEquals(newSize(7), recorder.deltas.get(1).sizeValue());
+
+		/* implied size still on the level */
+		assertEquals(MODIFY, recorder.deltas.get(2).act());
+		assertEquals(newSize(3), recorder.deltas.get(2).sizeValue());
+
+		/* replayed level matches the frozen book */
+		assertEquals(recorder.deltas.get(2).sizeValue(),
+				book.freeze().sizeTop(Book.Side.ASK));
+
+		apply(remove(Book.Side.ASK, Book.Type.IMPLIED, 1100));
+
+		assertEquals(4, recorder.deltas.size());
+		assertEquals(REMOVE, recorder.deltas.get(3).act());
+		assertTrue(recorder.deltas.get(3).sizeValue().isNull());
+
+	}
+
+	@Test
+	public void testPeriodicSnapshot() {
+
+		apply(modify(Book.Side.ASK, 1100, 1));
+
+		for (int k = 2; k <= 9; k++) {
+			apply(modify(Book.Side.ASK, 1100, k));
+		}
+
+		/** shift at 1, then every 4 changes */
+		assertEquals(3, recorder.snapshotSeqs.size());
+		assertEquals((Long) 1L, recorder.snapshotSeqs.get(0));
+		assertEquals((Long) 5L, recorder.snapshotSeqs.get(1));
+		assertEquals((Long) 9L, recorder.snapshotSeqs.get(2));
+		assertEquals(6, recorder.deltas.size());
+
+	}
+
+	@Test
+	public void testResetOnClear() {
+
+		apply(modify(Book.Side.ASK, 1100, 1));
+		apply(modify(Book.Side.ASK, 1125, 1));
+		assertEquals(1, recorder.snapshotSeqs.size());
+
+		book.clear();
+
+		apply(modify(Book.Side.ASK, 1125, 2));
+		assertEquals(2, recorder.snapshotSeqs.size());
+
+	}
+
+	@Test
+	public void testPublishOnFlush() {
+
+		apply(modify(Book.Side.ASK, 1100, 1));
+		assertEquals(1, recorder.snapshotSeqs.size());
+
+		/** one message with several changes */
+		book.setEntry(modify(Book.Side.ASK, 1125, 1));
+		book.setEntry(modify(Book.Side.ASK, 1150, 1));
+		assertTrue(recorder.deltas.isEmpty());
+
+		changeLog.flush(book);
+		assertEquals(2, recorder.deltas.size());
+		assertEquals((Long) 2L, recorder.deltaSeqs.get(0));
+		assertEquals((Long) 3L, recorder.deltaSeqs.get(1));
+
+		/** nothing pending */
+		changeLog.flush(book);
+		assertEquals(2, recorder.deltas.size());
+
+		/** reset in the middle of a message replaces its deltas */
+		book.setEntry(modify(Book.Side.ASK, 1125, 2));
+		book.clear();
+		book.setEntry(modify(Book.Side.ASK, 1125, 3));
+		changeLog.flush(book);
+		assertEquals(2, recorder.deltas.size());
+		assertEquals(2, recorder.snapshotSeqs.size());
+
+	}
+
+	@Test
+	public void testNoListeners() {
+
+		changeLog.remove(recorder);
+
+		apply(modify(Book.Side.ASK, 1100, 1));
+		apply(modify(Book.Side.ASK, 1125, 1));
+
+		assertEquals(0, changeLog.sequence());
+		assertTrue(recorder.deltas.isEmpty());
+
+	}
+
+	@Test
+	public void testErrorNotPublished() {
+
+		book.setEntry(new DefBookEntry(MODIFY, Book.Side.NULL,
+				Book.Type.DEFAULT, 0, newPrice(1100, -2), newSize(1)));
+
+		assertEquals(0, changeLog.sequence());
+
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
+import static com.barchart.feed.base.book.enums.MarketBookAction.REMOVE;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueConst.NULL_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.api.MarketBookEntry;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+
+public class TestBookSlab {
+
+	final SizeValue size = newSize(10);
+	final PriceValue step = newPrice(25, -2);
+
+	@Test
+	public void testSameAsHeap() {
+
+		final BookSlab slab = new BookSlab(10, 16);
+
+		final VarBook heap = new VarBook(Instrument.NULL, Book.Type.COMBINED,
+				size, step);
+		final VarBook offHeap = new VarBook(Instrument.NULL,
+				Book.Type.COMBINED, size, step, slab);
+
+		assertEquals(2, slab.liveCount());
+
+		final Random random = new Random(1);
+
+		for (int k = 0; k < 10 * 1000; k++) {
+
+			final Book.Side side = random.nextBoolean() ? Book.Side.BID
+					: Book.Side.ASK;
+			final Book.Type type = random.nextBoolean() ? Book.Type.DEFAULT
+					: Book.Type.IMPLIED;
+			final PriceValue price = newPrice(
+					(side == Book.Side.BID ? 1000 : 1100)
+							+ 25 * random.nextInt(12), -2);
+
+			final DefBookEntry entry;
+			if (random.nextInt(4) == 0) {
+				entry = new DefBookEntry(REMOVE, side, type, 0, price,
+						NULL_SIZE);
+			} else {
+				entry = new DefBookEntry(MODIFY, side, type, 0, price,
+						newSize(1 + random.nextInt(100)));
+			}
+
+			assertEquals(heap.setEntry(entry), offHeap.setEntry(entry));
+
+			for (final Book.Side s : new Book.Side[] { Book.Side.BID,
+					Book.Side.ASK }) {
+				assertSameEntries(heap.entries(s), offHeap.entries(s));
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testLevels() {
+
+		final VarBook book = new VarBook(Instrument.NULL, Book.Type.COMBINED,
+				size, step, new BookSlab());
+
+		book.setEntry(new DefBookEntry(MODIFY, Book.Side.ASK,
+				Book.Type.DEFAULT, 0, newPrice(1100, -2), newSize(3)));
+		book.setEntry(new DefBookEntry(MODIFY, Book.Side.ASK,
+				Book.Type.IMPLIED, 0, newPrice(1100, -2), newSize(4)));
+		book.setEntry(new DefBookEntry(MODIFY, Book.Side.ASK,
+				Book.Type.DEFAULT, 0, newPrice(1150, -2), newSize(5)));
+
+		final UniBookLevel level = book.levels(Book.Side.ASK);
+
+		assertTrue(level.next());
+		assertEquals(1, level.place());
+		assertEquals(44, level.priceIndex());
+		assertEquals(7, level.sizeLong());
+		assertEquals(newPrice(1100, -2), level.priceValue());
+
+		final DefBookEntry frozen = (DefBookEntry) level.freeze();
+
+		assertTrue(level.next());
+		assertEquals(2, level.place());
+		assertEquals(newSize(5), level.sizeValue());
+
+		assertFalse(level.next());
+		assertTrue(level.isNull());
+
+		/** frozen copy is detached from cursor */
+		assertEquals(newSize(7), frozen.sizeValue());
+
+		/** cursor is reused and reset */
+		assertTrue(book.levels(Book.Side.ASK) == level);
+		assertTrue(level.next());
+		assertEquals(1, level.place());
+
+		assertFalse(book.levels(Book.Side.BID).next());
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSlabTooSmall() {
+		new VarBook(Instrument.NULL, Book.Type.COMBINED, size, step,
+				new BookSlab(5, 16));
+	}
+
+	@Test
+	public void testChunks() {
+
+		final BookSlab slab = new BookSlab(10, 4);
+
+		final VarBook[] books = new VarBook[10];
+
+		for (int k = 0; k < books.length; k++) {
+			books[k] = new VarBook(Instrument.NULL, Book.Type.DEFAULT, size,
+					step, slab);
+		}
+
+		assertEquals(20, slab.liveCount());
+		assertEquals(5 * 4 * 10 * 2 * 4, slab.capacityBytes());
+
+		/** records do not overlap */
+		for (int k = 0; k < books.length; k++) {
+			books[k].setEntry(new DefBookEntry(MODIFY, Book.Side.BID,
+					Book.Type.DEFAULT, 0, newPrice(1000, -2), newSize(k + 1)));
+		}
+
+		for (int k = 0; k < books.length; k++) {
+			assertEquals(newSize(k + 1), books[k].entries(Book.Side.BID)[0]
+					.sizeValue());
+			assertEquals(0, books[k].entries(Book.Side.ASK).length);
+		}
+
+	}
+
+	static void assertSameEntries(final MarketBookEntry[] expected,
+			final MarketBookEntry[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int k = 0; k < expected.length; k++) {
+			assertEquals(expected[k], actual[k]);
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+
+public class TestInstrumentDiff {
+
+	static Instrument[] newInstruments(final int count) {
+		final Instrument[] insts = new Instrument[count];
+		for (int k = 0; k < count; k++) {
+			insts[k] = MockDefinitionService.newInstrument(1000 + k, "DIFF" + k);
+		}
+		return insts;
+	}
+
+	static Set<Instrument> updateSet(final InstrumentDiff diff) {
+		final Set<Instrument> set = new HashSet<Instrument>();
+		for (int k = 0; k < diff.updateCount(); k++) {
+			set.add(diff.update(k));
+		}
+		return set;
+	}
+
+	static Set<Instrument> registerSet(final InstrumentDiff diff) {
+		final Set<Instrument> set = new HashSet<Instrument>();
+		for (int k = 0; k < diff.registerCount(); k++) {
+			set.add(diff.register(k));
+		}
+		return set;
+	}
+
+	static Set<Instrument> unregisterSet(final InstrumentDiff diff) {
+		final Set<Instrument> set = new HashSet<Instrument>();
+		for (int k = 0; k < diff.unregisterCount(); k++) {
+			set.add(diff.unregister(k));
+		}
+		return set;
+	}
+
+	@Test
+	public void testDiff() {
+
+		final Instrument[] i = newInstruments(5);
+
+		final InstrumentDiff diff = new InstrumentDiff();
+
+		diff.diff(new Instrument[] { i[0], i[1], i[2] }, new Instrument[] {
+				i[1], i[2], i[3], i[4] });
+
+		assertEquals(set(i[1], i[2]), updateSet(diff));
+		assertEquals(set(i[3], i[4]), registerSet(diff));
+		assertEquals(set(i[0]), unregisterSet(diff));
+		assertEquals(5, diff.changeCount());
+
+	}
+
+	@Test
+	public void testDuplicates() {
+
+		final Instrument[] i = newInstruments(3);
+
+		final InstrumentDiff diff = new InstrumentDiff();
+
+		diff.diff(new Instrument[] { i[0], i[0], i[1] }, new Instrument[] {
+				i[1], i[1], i[2], i[2] });
+
+		assertEquals(1, diff.updateCount());
+		assertEquals(1, diff.registerCount());
+		assertEquals(1, diff.unregisterCount());
+		assertEquals(3, diff.changeCount());
+
+	}
+
+	@Test
+	public void testReuse() {
+
+		final Instrument[] i = newInstruments(1000);
+
+		final Instrument[] half1 = new Instrument[500];
+		final Instrument[] half2 = new Instrument[500];
+		System.arraycopy(i, 0, half1, 0, 500);
+		System.arraycopy(i, 500, half2, 0, 500);
+
+		final InstrumentDiff diff = new InstrumentDiff();
+
+		diff.diff(new Instrument[0], i);
+		assertEquals(1000, diff.registerCount());
+
+		diff.diff(i, half1);
+		assertEquals(500, diff.updateCount());
+		assertEquals(0, diff.registerCount());
+		assertEquals(set(half2), unregisterSet(diff));
+
+		diff.diff(half1, half2);
+		assertEquals(set(half2), registerSet(diff));
+		assertEquals(set(half1), unregisterSet(diff));
+		assertEquals(0, diff.updateCount());
+
+		diff.clear();
+		assertEquals(0, diff.changeCount());
+
+		diff.diff(new Instrument[] { i[7] }, new Instrument[] { i[7] });
+		assertEquals(set(i[7]), updateSet(diff));
+		assertEquals(1, diff.changeCount());
+
+	}
+
+	static Set<Instrument> set(final Instrument... insts) {
+		final Set<Instrument> set = new HashSet<Instrument>();
+		for (final Instrument inst : insts) {
+			set.add(inst);
+		}
+		return set;
+	}
+
+}
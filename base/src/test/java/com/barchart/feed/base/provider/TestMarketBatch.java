@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketFactory;
+
+public class TestMarketBatch {
+
+	static final int COUNT = 4 * MarketBatch.CHUNK_MIN;
+
+	/**
+	 * slow enough that pool tasks are still running when caller returns;
+	 * spins, so that cancelling a task does not speed it up
+	 */
+	static final class SlowFactory implements MarketFactory {
+
+		final MarketFactory factory = new MockMarketFactory();
+
+		@Override
+		public MarketDo newMarket(final Instrument instrument) {
+			final long until = System.nanoTime() + 20 * 1000;
+			while (System.nanoTime() < until) {
+				Thread.yield();
+			}
+			return factory.newMarket(instrument);
+		}
+
+	}
+
+	static Instrument[] instruments() {
+		final Instrument[] instruments = new Instrument[COUNT];
+		for (int k = 0; k < COUNT; k++) {
+			instruments[k] = MockDefinitionService.newInstrument(k + 1,
+					"BATCH" + k);
+		}
+		return instruments;
+	}
+
+	static void assertMarkets(final Instrument[] instruments,
+			final MarketDo[] markets) {
+
+		assertEquals(instruments.length, markets.length);
+
+		final Map<MarketDo, Boolean> seen = new IdentityHashMap<MarketDo, Boolean>();
+
+		for (int k = 0; k < markets.length; k++) {
+			assertNotNull(markets[k]);
+			assertSame(instruments[k], ((DefMarket) markets[k]).instrument());
+			assertTrue(seen.put(markets[k], Boolean.TRUE) == null);
+		}
+
+	}
+
+	@Test
+	public void testParallel() {
+
+		final Instrument[] instruments = instruments();
+
+		assertMarkets(instruments,
+				MarketBatch.newMarkets(new SlowFactory(), instruments));
+
+	}
+
+	@Test
+	public void testInterrupted() throws Exception {
+
+		final Instrument[] instruments = instruments();
+
+		Thread.currentThread().interrupt();
+
+		final MarketDo[] markets = MarketBatch.newMarkets(new SlowFactory(),
+				instruments);
+
+		/* flag restored for the caller */
+		assertTrue(Thread.interrupted());
+
+		assertMarkets(instruments, markets);
+
+		/* cancelled tasks finishing late leave the result alone */
+		final MarketDo[] copy = markets.clone();
+		Thread.sleep(500);
+		assertArrayEquals(copy, markets);
+
+	}
+
+}
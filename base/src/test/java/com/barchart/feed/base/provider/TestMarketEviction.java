@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.market.enums.MarketField.TRADE;
+import static com.barchart.feed.base.provider.TestMarketProvider.ALL;
+import static com.barchart.feed.base.provider.TestMarketProvider.trade;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.consumer.ConsumerAgent;
+import com.barchart.feed.api.model.data.Market;
+import com.barchart.feed.api.model.data.Trade;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.MockTaker;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketSafeRunner;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.metrics.MarketMetrics;
+import com.barchart.feed.base.provider.TestMarketProvider.Recorder;
+import com.barchart.feed.base.values.api.Value;
+
+public class TestMarketEviction {
+
+	static final long HOUR = 60 * 60 * 1000;
+
+	MockProvider provider;
+
+	Instrument inst1;
+	Instrument inst2;
+	Instrument inst3;
+
+	@Before
+	public void setUp() {
+
+		provider = new MockProvider();
+
+		inst1 = MockDefinitionService.newInstrument(1, "ESZ3");
+		inst2 = MockDefinitionService.newInstrument(2, "NQZ3");
+		inst3 = MockDefinitionService.newInstrument(3, "YMZ3");
+
+	}
+
+	@After
+	public void tearDown() {
+		provider.setEviction(null);
+	}
+
+	/** evict anything untouched before now, explicit sweeps only */
+	void evictAll(final boolean retainState) {
+		provider.setEviction(new MarketEviction(0, MarketEviction.UNBOUNDED,
+				0, retainState));
+	}
+
+	/** let the clock move past the last touch */
+	static void idle() throws Exception {
+		Thread.sleep(5);
+	}
+
+	boolean isLive(final Instrument inst) {
+		return provider.marketMap.containsKey(inst.id());
+	}
+
+	double tradeSize(final Instrument inst) {
+
+		final Market market = provider.snapshot(inst.id())
+				.toBlockingObservable().single();
+
+		return market.trade().size().asDouble();
+
+	}
+
+	static <V extends Value<V>> RegTaker<V> regTaker(final MarketTaker<V> taker) {
+		return new RegTaker<V>(taker);
+	}
+
+	@Test
+	public void testIdle() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 1));
+		provider.make(trade(inst2, 2));
+
+		idle();
+
+		provider.make(trade(inst3, 3));
+
+		/* inst3 touched in this millisecond at the earliest */
+		assertTrue(provider.evictIdle() >= 2);
+
+		assertFalse(isLive(inst1));
+		assertFalse(isLive(inst2));
+
+		assertTrue(provider.parkedCount() >= 2);
+
+	}
+
+	@Test
+	public void testBound() throws Exception {
+
+		provider.setEviction(new MarketEviction(HOUR, 2, 0, true));
+
+		provider.make(trade(inst1, 1));
+		idle();
+		provider.make(trade(inst2, 2));
+		idle();
+		provider.make(trade(inst3, 3));
+
+		/* least recently touched goes first */
+		assertEquals(1, provider.evictIdle());
+
+		assertFalse(isLive(inst1));
+		assertTrue(isLive(inst2));
+		assertTrue(isLive(inst3));
+
+		assertEquals(0, provider.evictIdle());
+
+	}
+
+	@Test
+	public void testAgentExempt() throws Exception {
+
+		evictAll(true);
+
+		final ConsumerAgent agent = provider.register(new Recorder(),
+				Trade.class);
+		agent.filter(ALL);
+
+		provider.make(trade(inst1, 1));
+
+		idle();
+
+		assertEquals(0, provider.evictIdle());
+		assertTrue(isLive(inst1));
+
+		agent.terminate();
+
+		assertEquals(1, provider.evictIdle());
+		assertFalse(isLive(inst1));
+
+	}
+
+	@Test
+	public void testTakerExempt() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 1));
+
+		final MarketDo market = provider.marketMap.get(inst1.id());
+		final RegTaker<?> taker = regTaker(new MockTaker<Void>(
+				new Instrument[] { inst1 }));
+
+		market.regAdd(taker);
+
+		idle();
+
+		assertEquals(0, provider.evictIdle());
+		assertTrue(isLive(inst1));
+
+		market.regRemove(taker);
+
+		assertEquals(1, provider.evictIdle());
+		assertFalse(isLive(inst1));
+
+	}
+
+	@Test
+	public void testSnapshotParked() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 7));
+
+		idle();
+
+		assertEquals(1, provider.evictIdle());
+		assertEquals(1, provider.parkedCount());
+
+		final Market market = provider.snapshot(inst1.id())
+				.toBlockingObservable().single();
+
+		assertFalse(market.isNull());
+		assertEquals(7, market.trade().size().asDouble(), 0);
+
+	}
+
+	@Test
+	public void testDropState() throws Exception {
+
+		evictAll(false);
+
+		provider.make(trade(inst1, 7));
+
+		idle();
+
+		assertEquals(1, provider.evictIdle());
+		assertEquals(0, provider.parkedCount());
+
+		final Market market = provider.snapshot(inst1.id())
+				.toBlockingObservable().single();
+
+		assertTrue(market.isNull());
+
+	}
+
+	@Test
+	public void testRegisterRestores() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 7));
+
+		idle();
+
+		assertEquals(1, provider.evictIdle());
+
+		assertTrue(provider.register(inst1));
+
+		assertTrue(isLive(inst1));
+		assertEquals(0, provider.parkedCount());
+		assertEquals(7, provider.marketMap.get(inst1.id()).get(TRADE).size()
+				.asDouble(), 0);
+
+	}
+
+	@Test
+	public void testRehydrateOnce() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 7));
+
+		idle();
+
+		assertEquals(1, provider.evictIdle());
+
+		final int applied = provider.applied.get();
+
+		provider.make(trade(inst1, 8));
+
+		assertEquals(applied + 1, provider.applied.get());
+
+		assertTrue(isLive(inst1));
+		assertEquals(0, provider.parkedCount());
+		assertEquals(8, tradeSize(inst1), 0);
+
+	}
+
+	@Test
+	public void testMetricsRemoved() throws Exception {
+
+		final MarketMetrics metrics = new MarketMetrics();
+		provider.setMetrics(metrics);
+
+		provider.make(trade(inst1, 1));
+		provider.make(trade(inst2, 2));
+
+		assertEquals(2, metrics.getInstrumentCount());
+
+		provider.setEviction(new MarketEviction(HOUR, 1, 0, true));
+		idle();
+		provider.make(trade(inst2, 3));
+
+		assertEquals(1, provider.evictIdle());
+		assertFalse(metrics.messageCounts().containsKey(inst1.id()));
+
+		assertTrue(provider.unregister(inst2));
+		assertEquals(0, metrics.getInstrumentCount());
+
+	}
+
+	/** make and eviction both waiting on the market lock, either may win */
+	@Test
+	public void testRaceAppliesOnce() throws Exception {
+
+		evictAll(true);
+
+		provider.make(trade(inst1, 7));
+
+		idle();
+
+		final MarketDo market = provider.marketMap.get(inst1.id());
+		assertNotNull(market);
+
+		final int applied = provider.applied.get();
+
+		final Thread evict = new Thread() {
+			@Override
+			public void run() {
+				provider.evictIdle();
+			}
+		};
+
+		final Thread make = new Thread() {
+			@Override
+			public void run() {
+				provider.make(trade(inst1, 8));
+			}
+		};
+
+		final Throwable error = market.runSafe(
+				new MarketSafeRunner<Throwable, Void>() {
+
+					@Override
+					public Throwable runSafe(final MarketDo market,
+							final Void param) {
+						try {
+							/* make touches before it waits, eviction
+							 * stamps after, so both stay eligible */
+							make.start();
+							awaitBlocked(make);
+							idle();
+							evict.start();
+							awaitBlocked(evict);
+							return null;
+						} catch (final Throwable e) {
+							return e;
+						}
+					}
+
+				}, null);
+
+		evict.join(1000);
+		make.join(1000);
+
+		assertNull(error);
+
+		assertEquals(applied + 1, provider.applied.get());
+		assertEquals(8, tradeSize(inst1), 0);
+
+	}
+
+	static void awaitBlocked(final Thread thread) throws Exception {
+
+		final long until = System.currentTimeMillis() + 1000;
+
+		while (thread.getState() != Thread.State.BLOCKED) {
+			if (System.currentTimeMillis() > until) {
+				throw new IllegalStateException("not blocked " + thread);
+			}
+			Thread.sleep(1);
+		}
+
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.trade.enums.MarketTradeSequencing.NORMAL;
+import static com.barchart.feed.base.trade.enums.MarketTradeSession.DEFAULT;
+import static com.barchart.feed.base.trade.enums.MarketTradeType.FUTURE_ELECTRONIC;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.MarketObserver;
+import com.barchart.feed.api.consumer.ConsumerAgent;
+import com.barchart.feed.api.filter.Filter;
+import com.barchart.feed.api.model.data.Trade;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.message.MockMsgTrade;
+
+public class TestMarketProvider {
+
+	static class Recorder implements MarketObserver<Trade> {
+
+		final List<Trade> trades = new ArrayList<Trade>();
+
+		@Override
+		public void onNext(final Trade trade) {
+			trades.add(trade);
+		}
+
+	}
+
+	static final Filter ALL = new Filter() {
+
+		@Override
+		public boolean hasMatch(final Instrument instrument) {
+			return true;
+		}
+
+		@Override
+		public String expression() {
+			return "(all)";
+		}
+
+	};
+
+	static MockMsgTrade trade(final Instrument inst, final long value) {
+
+		final MockMsgTrade msg = new MockMsgTrade(inst);
+		msg.type = FUTURE_ELECTRONIC;
+		msg.session = DEFAULT;
+		msg.sequencing = NORMAL;
+		msg.price = newPrice(value, 0);
+		msg.size = newSize(value);
+		msg.time = newTime(value);
+		msg.date = newTime(0);
+
+		return msg;
+
+	}
+
+	MockProvider provider;
+
+	Instrument inst;
+
+	@Before
+	public void setUp() {
+		provider = new MockProvider();
+		inst = MockDefinitionService.newInstrument(1, "ESZ3");
+	}
+
+	/** trade agents attached to the market, after pending agent commands */
+	Set<?> tradeAgents(final Instrument instrument) {
+
+		final VarMarket market = (VarMarket) provider.marketMap.get(instrument
+				.id());
+
+		market.applyAgentCommands();
+
+		return market.tradeAgents;
+
+	}
+
+	@Test
+	public void testCustomFilter() {
+
+		final ConsumerAgent agent = provider.register(new Recorder(),
+				Trade.class);
+
+		provider.make(trade(inst, 1));
+		assertFalse(tradeAgents(inst).contains(agent));
+
+		/* custom filter must reach markets made before it was set */
+		agent.filter(ALL);
+		assertTrue(tradeAgents(inst).contains(agent));
+
+		/* and markets made after */
+		final Instrument next = MockDefinitionService.newInstrument(2, "NQZ3");
+
+		provider.make(trade(next, 2));
+		assertTrue(tradeAgents(next).contains(agent));
+
+		/* terminated agent is not re-attached */
+		agent.terminate();
+		agent.filter(ALL);
+		assertFalse(tradeAgents(inst).contains(agent));
+
+	}
+
+}
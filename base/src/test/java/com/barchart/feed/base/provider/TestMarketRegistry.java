@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+
+public class TestMarketRegistry {
+
+	final MockMarketFactory factory = new MockMarketFactory();
+
+	final MarketDo market1 = factory.newMarket(MockDefinitionService
+			.newInstrument(1, "REG1"));
+
+	final MarketDo market2 = factory.newMarket(MockDefinitionService
+			.newInstrument(2, "REG2"));
+
+	@Test
+	public void testPutGetRemove() {
+
+		final MarketRegistry registry = new MarketRegistry();
+
+		final InstrumentID id = new InstrumentID("REG1");
+
+		assertNull(registry.get(id));
+
+		assertNull(registry.put(id, market1));
+		assertSame(market1, registry.get(id));
+
+		/** equal but distinct id instance */
+		assertSame(market1, registry.get(new InstrumentID("REG1")));
+
+		assertSame(market1, registry.putIfAbsent(id, market2));
+		assertSame(market1, registry.get(id));
+
+		assertSame(market1, registry.put(id, market2));
+		assertSame(market2, registry.get(id));
+		assertEquals(1, registry.size());
+
+		assertSame(market2, registry.remove(id));
+		assertNull(registry.get(id));
+		assertNull(registry.remove(id));
+		assertEquals(0, registry.size());
+
+	}
+
+	@Test
+	public void testTouch() {
+
+		final MarketRegistry registry = new MarketRegistry();
+
+		final InstrumentID id = new InstrumentID("REG1");
+
+		assertEquals(-1, registry.touched(id));
+		assertNull(registry.touch(id, 1000));
+
+		registry.put(id, market1);
+
+		assertTrue(registry.touched(id) > 0);
+
+		assertSame(market1, registry.touch(id, 1000));
+		assertEquals(1000, registry.touched(id));
+
+		/** stamp survives rehash */
+		for (int k = 0; k < 1000; k++) {
+			registry.put(new InstrumentID("ID" + k), market2);
+		}
+		assertEquals(1000, registry.touched(id));
+
+		registry.remove(id);
+		assertEquals(-1, registry.touched(id));
+
+	}
+
+	@Test
+	public void testGrowAndReuse() {
+
+		final MarketRegistry registry = new MarketRegistry();
+
+		final int count = 100 * 1000;
+
+		final InstrumentID[] ids = new InstrumentID[count];
+
+		for (int k = 0; k < count; k++) {
+			ids[k] = new InstrumentID("ID" + k);
+			registry.put(ids[k], (k & 1) == 0 ? market1 : market2);
+		}
+
+		assertEquals(count, registry.size());
+
+		for (int k = 0; k < count; k++) {
+			assertSame((k & 1) == 0 ? market1 : market2, registry.get(ids[k]));
+		}
+
+		/** churn over removed slots */
+		for (int round = 0; round < 10; round++) {
+			for (int k = 0; k < count; k += 2) {
+				assertSame(market1, registry.remove(ids[k]));
+			}
+			for (int k = 0; k < count; k += 2) {
+				assertNull(registry.putIfAbsent(ids[k], market1));
+			}
+		}
+
+		assertEquals(count, registry.size());
+		assertSame(market2, registry.get(ids[count - 1]));
+
+		registry.clear();
+		assertEquals(0, registry.size());
+		assertNull(registry.get(ids[0]));
+
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+
+		final MarketRegistry registry = new MarketRegistry();
+
+		final int count = 10 * 1000;
+
+		final InstrumentID[] ids = new InstrumentID[count];
+
+		for (int k = 0; k < count; k++) {
+			ids[k] = new InstrumentID("ID" + k);
+		}
+
+		/** stable subset always visible while rest is added and removed */
+		for (int k = 0; k < 100; k++) {
+			registry.put(ids[k], market1);
+		}
+
+		final AtomicBoolean isRunning = new AtomicBoolean(true);
+		final AtomicInteger misses = new AtomicInteger(0);
+
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				while (isRunning.get()) {
+					for (int k = 0; k < 100; k++) {
+						if (registry.get(ids[k]) != market1) {
+							misses.incrementAndGet();
+						}
+					}
+				}
+			}
+		};
+
+		reader.start();
+
+		for (int round = 0; round < 20; round++) {
+			for (int k = 100; k < count; k++) {
+				registry.put(ids[k], market2);
+			}
+			for (int k = 100; k < count; k++) {
+				registry.remove(ids[k]);
+			}
+		}
+
+		isRunning.set(false);
+		reader.join();
+
+		assertEquals(0, misses.get());
+		assertEquals(100, registry.size());
+		assertTrue(registry.get(ids[count - 1]) == null);
+
+	}
+
+}
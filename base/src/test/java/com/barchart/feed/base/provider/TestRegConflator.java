@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.market.enums.MarketEvent;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.values.api.SizeValue;
+
+public class TestRegConflator {
+
+	static final Instrument ONE = MockDefinitionService.newInstrument(901,
+			"CONFLATE1");
+	static final Instrument TWO = MockDefinitionService.newInstrument(902,
+			"CONFLATE2");
+
+	/** records deliveries; first delivery blocks until released */
+	static class Taker implements MarketTaker<SizeValue> {
+
+		final List<Long> values = new CopyOnWriteArrayList<Long>();
+		final List<Instrument> instruments = new CopyOnWriteArrayList<Instrument>();
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public MarketField<SizeValue> bindField() {
+			return null;
+		}
+
+		@Override
+		public MarketEvent[] bindEvents() {
+			return new MarketEvent[] { MarketEvent.NEW_TRADE };
+		}
+
+		@Override
+		public Instrument[] bindInstruments() {
+			return new Instrument[0];
+		}
+
+		@Override
+		public void onMarketEvent(final MarketEvent event,
+				final Instrument instrument, final SizeValue value) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			instruments.add(instrument);
+			values.add(value.asLong());
+		}
+
+	}
+
+	static void awaitDelivered(final RegConflator<?> conflator,
+			final long count) throws Exception {
+		final long deadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(5);
+		while (conflator.delivered() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testLatestWins() throws Exception {
+
+		final Taker taker = new Taker();
+
+		final RegConflator<SizeValue> conflator = new RegConflator<SizeValue>(
+				taker, 0);
+
+		conflator.offer(MarketEvent.NEW_TRADE, ONE, newSize(1));
+
+		assertTrue(taker.entered.await(5, TimeUnit.SECONDS));
+
+		/** taker is busy; updates pile up as one per market */
+		for (int k = 2; k <= 100; k++) {
+			conflator.offer(MarketEvent.NEW_TRADE, ONE, newSize(k));
+			conflator.offer(MarketEvent.NEW_TRADE, TWO, newSize(1000 + k));
+		}
+
+		assertEquals(2, conflator.pending());
+
+		taker.release.countDown();
+
+		awaitDelivered(conflator, 3);
+
+		assertEquals(3, conflator.delivered());
+		assertEquals(199, conflator.offered());
+
+		assertEquals((Long) 1L, taker.values.get(0));
+		assertEquals((Long) 100L, taker.values.get(1));
+		assertEquals((Long) 1100L, taker.values.get(2));
+		assertEquals(TWO, taker.instruments.get(2));
+
+	}
+
+	@Test
+	public void testInterval() throws Exception {
+
+		final Taker taker = new Taker();
+		taker.release.countDown();
+
+		final RegConflator<SizeValue> conflator = new RegConflator<SizeValue>(
+				taker, 200);
+
+		conflator.offer(MarketEvent.NEW_TRADE, ONE, newSize(1));
+		awaitDelivered(conflator, 1);
+
+		final long start = System.nanoTime();
+
+		conflator.offer(MarketEvent.NEW_TRADE, ONE, newSize(2));
+		awaitDelivered(conflator, 2);
+
+		final long elapsed = System.nanoTime() - start;
+
+		assertEquals(2, conflator.delivered());
+		assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(150));
+
+	}
+
+	@Test
+	public void testClose() throws Exception {
+
+		final Taker taker = new Taker();
+
+		final RegConflator<SizeValue> conflator = new RegConflator<SizeValue>(
+				taker, 0);
+
+		conflator.offer(MarketEvent.NEW_TRADE, ONE, newSize(1));
+		assertTrue(taker.entered.await(5, TimeUnit.SECONDS));
+
+		conflator.offer(MarketEvent.NEW_TRADE, TWO, newSize(2));
+		conflator.close();
+		conflator.offer(MarketEvent.NEW_TRADE, TWO, newSize(3));
+
+		taker.release.countDown();
+		awaitDelivered(conflator, 1);
+		Thread.sleep(50);
+
+		assertEquals(1, conflator.delivered());
+		assertEquals(0, conflator.pending());
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.message.MockMsgTrade;
+import com.barchart.feed.base.thread.Runner;
+import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.inst.InstrumentService;
+
+public class TestShardDispatcher {
+
+	InstrumentService<CharSequence> service;
+
+	Instrument[] insts;
+
+	@Before
+	public void setUp() throws Exception {
+		service = new MockDefinitionService();
+		insts = new Instrument[] {
+				service.lookup(MockDefinitionService.INST_SYMBOL_1),
+				service.lookup(MockDefinitionService.INST_SYMBOL_2),
+				service.lookup(MockDefinitionService.INST_SYMBOL_3) };
+	}
+
+	@Test
+	public void testOrderPerInstrument() throws Exception {
+
+		final int count = 10 * 1000;
+
+		final ShardDispatcher<MockMsgTrade> dispatcher = //
+		new ShardDispatcher<MockMsgTrade>(2, 16,
+				ShardDispatcher.Policy.BLOCK);
+
+		final Map<Instrument, List<Long>> seen = Collections
+				.synchronizedMap(new HashMap<Instrument, List<Long>>());
+
+		for (final Instrument inst : insts) {
+			seen.put(inst, new ArrayList<Long>());
+		}
+
+		final CountDownLatch done = new CountDownLatch(count * insts.length);
+
+		dispatcher.start(new Runner<Void, MockMsgTrade>() {
+			@Override
+			public Void run(final MockMsgTrade message) {
+				seen.get(message.getInstrument()).add(message.size.asLong());
+				done.countDown();
+				return null;
+			}
+		});
+
+		for (int k = 0; k < count; k++) {
+			for (final Instrument inst : insts) {
+				final MockMsgTrade msg = new MockMsgTrade(inst);
+				msg.size = ValueBuilder.newSize(k);
+				dispatcher.dispatch(msg);
+			}
+		}
+
+		done.await();
+		dispatcher.shutdown();
+
+		for (final Instrument inst : insts) {
+			final List<Long> list = seen.get(inst);
+			assertEquals(count, list.size());
+			for (int k = 0; k < count; k++) {
+				assertEquals((Long) (long) k, list.get(k));
+			}
+		}
+
+		long total = 0;
+		for (int k = 0; k < dispatcher.shardCount(); k++) {
+			total += dispatcher.processCount(k);
+			assertEquals(0, dispatcher.dropCount(k));
+			assertEquals(0, dispatcher.queueDepth(k));
+			assertTrue(dispatcher.queueDepthMax(k) <= 16);
+		}
+		assertEquals(count * insts.length, total);
+
+	}
+
+	@Test
+	public void testDropNewest() throws Exception {
+
+		final ShardDispatcher<MockMsgTrade> dispatcher = //
+		new ShardDispatcher<MockMsgTrade>(1, 4,
+				ShardDispatcher.Policy.DROP_NEWEST);
+
+		final CountDownLatch gate = new CountDownLatch(1);
+
+		dispatcher.start(new Runner<Void, MockMsgTrade>() {
+			@Override
+			public Void run(final MockMsgTrade message) {
+				try {
+					gate.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}
+		});
+
+		for (int k = 0; k < 100; k++) {
+			dispatcher.dispatch(new MockMsgTrade(insts[0]));
+		}
+
+		/** one in flight plus four queued at most */
+		assertTrue(dispatcher.dropCount(0) >= 100 - 5);
+		assertEquals(100, dispatcher.dispatchCount(0)
+				+ dispatcher.dropCount(0));
+
+		gate.countDown();
+		dispatcher.shutdown();
+
+		assertEquals(dispatcher.dispatchCount(0), dispatcher.processCount(0));
+
+	}
+
+}
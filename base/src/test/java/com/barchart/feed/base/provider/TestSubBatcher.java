@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.sub.SubscriptionType.BOOK_SNAPSHOT;
+import static com.barchart.feed.base.sub.SubscriptionType.BOOK_UPDATE;
+import static com.barchart.feed.base.sub.SubscriptionType.QUOTE_SNAPSHOT;
+import static com.barchart.feed.base.sub.SubscriptionType.QUOTE_UPDATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionHandler;
+import com.barchart.feed.base.sub.SubscriptionType;
+
+public class TestSubBatcher {
+
+	static final Set<SubscriptionType> QUOTE = EnumSet.of(QUOTE_UPDATE,
+			QUOTE_SNAPSHOT);
+
+	static final Set<SubscriptionType> BOOK = EnumSet.of(QUOTE_UPDATE,
+			QUOTE_SNAPSHOT, BOOK_UPDATE, BOOK_SNAPSHOT);
+
+	static class Handler implements SubscriptionHandler {
+
+		final List<Set<SubCommand>> subs = new ArrayList<Set<SubCommand>>();
+		final List<Set<SubCommand>> unsubs = new ArrayList<Set<SubCommand>>();
+
+		static Future<Boolean> done() {
+			final FutureTask<Boolean> future = new FutureTask<Boolean>(
+					new Runnable() {
+						@Override
+						public void run() {
+						}
+					}, true);
+			future.run();
+			return future;
+		}
+
+		@Override
+		public synchronized Future<Boolean> subscribe(final SubCommand sub) {
+			return subscribe(Collections.singleton(sub));
+		}
+
+		@Override
+		public synchronized Future<Boolean> subscribe(final Set<SubCommand> set) {
+			subs.add(set);
+			return done();
+		}
+
+		@Override
+		public synchronized Future<Boolean> unsubscribe(final SubCommand sub) {
+			return unsubscribe(Collections.singleton(sub));
+		}
+
+		@Override
+		public synchronized Future<Boolean> unsubscribe(
+				final Set<SubCommand> set) {
+			unsubs.add(set);
+			return done();
+		}
+
+	}
+
+	/** fails the next calls */
+	static class FailingHandler extends Handler {
+
+		int failures;
+
+		FailingHandler(final int failures) {
+			this.failures = failures;
+		}
+
+		@Override
+		public synchronized Future<Boolean> subscribe(final Set<SubCommand> set) {
+			if (failures-- > 0) {
+				throw new IllegalStateException("upstream down");
+			}
+			return super.subscribe(set);
+		}
+
+	}
+
+	static Set<SubCommand> add(final Set<SubscriptionType> types,
+			final String... symbols) {
+		final Set<SubCommand> set = new HashSet<SubCommand>();
+		for (final String symbol : symbols) {
+			set.add(new SubBase(symbol, SubCommand.Type.INSTRUMENT, types));
+		}
+		return set;
+	}
+
+	static Set<String> encoded(final Set<SubCommand> commands) {
+		final Set<String> set = new HashSet<String>();
+		for (final SubCommand command : commands) {
+			set.add(command.encode());
+		}
+		return set;
+	}
+
+	@Test
+	public void testGroupByTypes() {
+
+		final Handler handler = new Handler();
+		final SubBatcher batcher = new SubBatcher(handler, 10000, 256);
+
+		batcher.subscribe(add(QUOTE, "A", "B"));
+		batcher.subscribe(add(QUOTE, "C"));
+		batcher.subscribe(add(BOOK, "D", "E"));
+
+		assertEquals(5, batcher.received());
+		assertEquals(5, batcher.pending());
+
+		assertTrue(batcher.flush());
+
+		assertEquals(1, handler.subs.size());
+		assertEquals(0, handler.unsubs.size());
+
+		final Set<SubCommand> sent = handler.subs.get(0);
+
+		assertEquals(2, sent.size());
+		assertEquals(2, batcher.sent());
+
+		for (final SubCommand command : sent) {
+			final List<String> interests = ((SubBatch) command).interests();
+			if (command.types().equals(QUOTE)) {
+				assertEquals(new HashSet<String>(Arrays.asList("A", "B", "C")),
+						new HashSet<String>(interests));
+			} else {
+				assertEquals(BOOK, command.types());
+				assertEquals(2, interests.size());
+			}
+		}
+
+	}
+
+	@Test
+	public void testCancelPairs() {
+
+		final Handler handler = new Handler();
+		final SubBatcher batcher = new SubBatcher(handler, 10000, 256);
+
+		batcher.subscribe(add(QUOTE, "A"));
+		batcher.unsubscribe(add(QUOTE, "A"));
+
+		/** partial cancel; only book types stay pending */
+		batcher.subscribe(add(BOOK, "B"));
+		batcher.unsubscribe(add(QUOTE, "B"));
+
+		/** remove then add on same interest is no change */
+		batcher.unsubscribe(add(QUOTE, "C"));
+		batcher.subscribe(add(QUOTE, "C"));
+
+		assertEquals(1, batcher.pending());
+
+		batcher.flush();
+
+		assertEquals(0, handler.unsubs.size());
+		assertEquals(1, handler.subs.size());
+		assertEquals(Collections.singleton("B=bB"),
+				encoded(handler.subs.get(0)));
+
+	}
+
+	@Test
+	public void testRemovesAndChunks() {
+
+		final Handler handler = new Handler();
+		final SubBatcher batcher = new SubBatcher(handler, 10000, 2);
+
+		batcher.unsubscribe(add(QUOTE, "A", "B", "C", "D", "E"));
+
+		batcher.flush();
+
+		assertEquals(0, handler.subs.size());
+		assertEquals(1, handler.unsubs.size());
+
+		final Set<SubCommand> sent = handler.unsubs.get(0);
+
+		assertEquals(3, sent.size());
+
+		int symbols = 0;
+		for (final SubCommand command : sent) {
+			symbols += command.interest().split(",").length;
+		}
+		assertEquals(5, symbols);
+
+	}
+
+	@Test
+	public void testWindow() throws Exception {
+
+		final Handler handler = new Handler();
+		final SubBatcher batcher = new SubBatcher(handler, 20, 256);
+
+		final Future<Boolean> first = batcher.subscribe(add(QUOTE, "A"));
+		final Future<Boolean> second = batcher.subscribe(add(QUOTE, "B"));
+
+		assertTrue(first == second);
+		assertTrue(first.get(5, TimeUnit.SECONDS));
+
+		synchronized (handler) {
+			assertEquals(1, handler.subs.size());
+			assertEquals(Collections.singleton("A=sS,B=sS"),
+					encoded(handler.subs.get(0)));
+		}
+
+	}
+
+	@Test
+	public void testRequeueOnFailure() {
+
+		final FailingHandler handler = new FailingHandler(1);
+		final SubBatcher batcher = new SubBatcher(handler, 10000, 256);
+
+		batcher.subscribe(add(QUOTE, "A", "B"));
+		batcher.unsubscribe(add(QUOTE, "C"));
+
+		assertFalse(batcher.flush());
+
+		/** removes went out, adds are pending again */
+		assertEquals(1, handler.unsubs.size());
+		assertEquals(0, handler.subs.size());
+		assertEquals(2, batcher.pending());
+		assertEquals(1, batcher.sent());
+
+		/** newer commands still cancel against the failed ones */
+		batcher.unsubscribe(add(QUOTE, "B"));
+		assertEquals(1, batcher.pending());
+
+		assertTrue(batcher.flush());
+
+		assertEquals(1, handler.unsubs.size());
+		assertEquals(1, handler.subs.size());
+		assertEquals(Collections.singleton("A=sS"),
+				encoded(handler.subs.get(0)));
+
+	}
+
+	@Test
+	public void testClose() throws Exception {
+
+		final Handler handler = new Handler();
+		final SubBatcher batcher = new SubBatcher(handler, 10000, 256);
+
+		batcher.subscribe(add(QUOTE, "A"));
+
+		assertTrue(batcher.close());
+
+		assertEquals(0, batcher.pending());
+		assertEquals(1, handler.subs.size());
+
+		/** no window once closed */
+		final Future<Boolean> future = batcher.subscribe(add(QUOTE, "B"));
+
+		assertTrue(future.isDone());
+		assertTrue(future.get());
+		assertEquals(2, handler.subs.size());
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.sub.SubscriptionType.BOOK_SNAPSHOT;
+import static com.barchart.feed.base.sub.SubscriptionType.BOOK_UPDATE;
+import static com.barchart.feed.base.sub.SubscriptionType.QUOTE_SNAPSHOT;
+import static com.barchart.feed.base.sub.SubscriptionType.QUOTE_UPDATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Trade;
+import com.barchart.feed.base.participant.FrameworkAgent;
+import com.barchart.feed.base.sub.SubCommand;
+
+public class TestSubTable {
+
+	static FrameworkAgent<?> newAgent(final Class<?> type) {
+		return (FrameworkAgent<?>) Proxy.newProxyInstance(
+				TestSubTable.class.getClassLoader(),
+				new Class<?>[] { FrameworkAgent.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if (method.getName().equals("type")) {
+							return type;
+						}
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return null;
+					}
+				});
+	}
+
+	@Test
+	public void testDeltas() {
+
+		final SubTable table = new SubTable();
+
+		final FrameworkAgent<?> trade = newAgent(Trade.class);
+		final FrameworkAgent<?> book = newAgent(Book.class);
+
+		final SubCommand first = table.subscribe(trade, "ESZ3");
+		assertEquals(EnumSet.of(QUOTE_UPDATE, QUOTE_SNAPSHOT), first.types());
+		assertEquals("ESZ3", first.interest());
+
+		/** only book types are new */
+		assertEquals(EnumSet.of(BOOK_UPDATE, BOOK_SNAPSHOT),
+				table.subscribe(book, "ESZ3").types());
+
+		/** quote types still held by book agent */
+		assertTrue(table.unsubscribe(trade, "ESZ3").isNull());
+
+		assertEquals(EnumSet.of(QUOTE_UPDATE, QUOTE_SNAPSHOT, BOOK_UPDATE,
+				BOOK_SNAPSHOT), table.unsubscribe(book, "ESZ3").types());
+
+		assertEquals(0, table.size());
+		assertTrue(table.types("ESZ3").isEmpty());
+
+	}
+
+	@Test
+	public void testRepeatedSubscribe() {
+
+		final SubTable table = new SubTable();
+
+		final FrameworkAgent<?> trade = newAgent(Trade.class);
+
+		assertTrue(!table.subscribe(trade, "IBM").isNull());
+		assertTrue(table.subscribe(trade, "IBM").isNull());
+
+		assertTrue(table.unsubscribe(trade, "IBM").isNull());
+		assertTrue(!table.unsubscribe(trade, "IBM").isNull());
+
+		/** not subscribed, nothing to remove */
+		assertTrue(table.unsubscribe(trade, "IBM").isNull());
+		assertTrue(table.unsubscribe(newAgent(Trade.class), "MSFT").isNull());
+
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+
+		final SubTable table = new SubTable();
+
+		final int threads = 8;
+		final int symbols = 1000;
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> list = new ArrayList<Thread>();
+
+		for (int t = 0; t < threads; t++) {
+
+			final FrameworkAgent<?> agent = newAgent(Trade.class);
+
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					for (int round = 0; round < 10; round++) {
+						for (int k = 0; k < symbols; k++) {
+							table.subscribe(agent, "S" + k);
+						}
+						for (int k = 0; k < symbols; k++) {
+							table.unsubscribe(agent, "S" + k);
+						}
+					}
+					for (int k = 0; k < symbols; k++) {
+						table.subscribe(agent, "S" + k);
+					}
+				}
+			};
+
+			list.add(thread);
+			thread.start();
+
+		}
+
+		start.countDown();
+
+		for (final Thread thread : list) {
+			thread.join();
+		}
+
+		assertEquals(symbols, table.size());
+		assertEquals(EnumSet.of(QUOTE_UPDATE, QUOTE_SNAPSHOT),
+				table.types("S0"));
+
+	}
+
+}
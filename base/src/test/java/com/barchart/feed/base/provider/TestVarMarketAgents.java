@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Queue;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Trade;
+import com.barchart.feed.base.market.provider.MockMarket;
+import com.barchart.feed.base.participant.FrameworkAgent;
+import com.barchart.feed.base.participant.FrameworkAgent.AgentType;
+import com.barchart.feed.base.provider.VarMarket.Command.CType;
+
+public class TestVarMarketAgents {
+
+	static FrameworkAgent<?> newAgent(final AgentType type) {
+		return (FrameworkAgent<?>) Proxy.newProxyInstance(
+				TestVarMarketAgents.class.getClassLoader(),
+				new Class<?>[] { FrameworkAgent.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if (method.getName().equals("agentType")) {
+							return type;
+						}
+						if (method.getName().equals("hasMatch")) {
+							return true;
+						}
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return null;
+					}
+				});
+	}
+
+	static VarMarket newMarket() {
+		return new MockMarket(MockDefinitionService.newInstrument(1, "IDLE"));
+	}
+
+	static boolean inflated(final Set<?> set) {
+		return ((LazySet<?>) set).isInflated();
+	}
+
+	static boolean inflated(final Queue<?> queue) {
+		return ((LazyQueue<?>) queue).isInflated();
+	}
+
+	@Test
+	public void testIdleMarket() {
+
+		final VarMarket market = newMarket();
+
+		assertFalse(market.hasRegTakers());
+		assertFalse(inflated(market.marketAgents));
+		assertFalse(inflated(market.tradeAgents));
+		assertFalse(inflated(market.bookAgents));
+
+		assertFalse(inflated(market.tradeCmds));
+
+		/* nothing pending, nothing allocated */
+		market.applyAgentCommands();
+		assertFalse(inflated(market.tradeAgents));
+
+	}
+
+	@Test
+	public void testAttachDetach() {
+
+		final VarMarket market = newMarket();
+
+		final FrameworkAgent<?> trade = newAgent(AgentType.TRADE);
+		final FrameworkAgent<?> book = newAgent(AgentType.BOOK);
+
+		market.attachAgent(trade);
+		market.attachAgent(book);
+
+		/* applied only inside callback processing */
+		assertTrue(market.tradeAgents.isEmpty());
+
+		market.applyAgentCommands();
+
+		assertTrue(market.tradeAgents.contains(trade));
+		assertTrue(market.bookAgents.contains(book));
+		assertFalse(inflated(market.cuvolAgents));
+
+		market.detachAgent(trade);
+		market.applyAgentCommands();
+
+		assertFalse(inflated(market.tradeAgents));
+		assertTrue(market.bookAgents.contains(book));
+
+	}
+
+	@Test
+	public void testDetachUnknown() {
+
+		final VarMarket market = newMarket();
+
+		market.detachAgent(newAgent(AgentType.TRADE));
+		market.updateAgent(newAgent(AgentType.MARKET));
+		market.applyAgentCommands();
+
+		assertFalse(inflated(market.tradeAgents));
+		assertFalse(market.marketAgents.isEmpty());
+
+	}
+
+	/** subclasses which drain the per type queues themselves */
+	@Test
+	public void testDirectDrain() {
+
+		final VarMarket market = newMarket();
+
+		final FrameworkAgent<?> trade = newAgent(AgentType.TRADE);
+
+		market.attachAgent(trade);
+
+		final VarMarket.Command<Trade> cmd = market.tradeCmds.poll();
+
+		assertSame(trade, cmd.agent());
+		assertSame(CType.ADD, cmd.type());
+		assertTrue(market.tradeCmds.isEmpty());
+
+		market.tradeAgents.add(cmd.agent());
+		assertTrue(market.tradeAgents.contains(trade));
+
+		market.tradeAgents.remove(trade);
+		assertFalse(inflated(market.tradeAgents));
+
+	}
+
+}
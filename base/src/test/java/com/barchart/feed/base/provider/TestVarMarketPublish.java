@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.trade.enums.MarketTradeSequencing.NORMAL;
+import static com.barchart.feed.base.trade.enums.MarketTradeSession.DEFAULT;
+import static com.barchart.feed.base.trade.enums.MarketTradeType.FUTURE_ELECTRONIC;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.barchart.feed.base.market.api.Market;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketSafeRunner;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.market.enums.MarketSafeMode;
+import com.barchart.feed.base.market.provider.MockMarket;
+import com.barchart.feed.base.trade.enums.MarketTradeField;
+
+public class TestVarMarketPublish {
+
+	static void trade(final VarMarket market, final long value) {
+		market.runSafe(new MarketSafeRunner<Void, Void>() {
+			@Override
+			public Void runSafe(final MarketDo market, final Void param) {
+				market.setTrade(FUTURE_ELECTRONIC, DEFAULT, NORMAL,
+						newPrice(value, 0), newSize(value), newTime(value),
+						newTime(0));
+				market.fireEvents();
+				return null;
+			}
+		}, null);
+	}
+
+	static long size(final Market market) {
+		return market.get(MarketField.TRADE).get(MarketTradeField.SIZE)
+				.asLong();
+	}
+
+	@Test
+	public void testWriterDoesNotFreeze() {
+
+		for (final MarketSafeMode mode : MarketSafeMode.values()) {
+
+			final VarMarket market = new MockMarket(
+					MockDefinitionService.newInstrument(1, "PUBLISH"), mode);
+
+			trade(market, 1);
+			assertFalse(market.isPublished());
+
+			/* first read after a write freezes, later reads share it */
+			final Market first = market.snapshot();
+			assertTrue(market.isPublished());
+			assertSame(first, market.snapshot());
+			assertEquals(1, size(first));
+
+			/* write only invalidates, no reader no freeze */
+			trade(market, 2);
+			assertFalse(market.isPublished());
+			trade(market, 3);
+			assertFalse(market.isPublished());
+
+			final Market second = market.snapshot();
+			assertNotSame(first, second);
+			assertEquals(3, size(second));
+			assertSame(second, market.snapshot());
+
+		}
+
+	}
+
+	/** reader does not wait on a monitor held outside of a write */
+	@Test
+	public void testReaderSkipsMonitor() throws Exception {
+
+		final VarMarket market = new MockMarket(
+				MockDefinitionService.newInstrument(1, "PUBLISH"),
+				MarketSafeMode.SINGLE_WRITER);
+
+		trade(market, 1);
+
+		final CountDownLatch held = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final Thread holder = new Thread() {
+			@Override
+			public void run() {
+				synchronized (market) {
+					held.countDown();
+					try {
+						release.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+
+		holder.start();
+
+		try {
+
+			assertTrue(held.await(1, TimeUnit.SECONDS));
+
+			assertEquals(1, size(market.snapshot()));
+			assertTrue(market.isPublished());
+
+		} finally {
+			release.countDown();
+			holder.join(1000);
+		}
+
+	}
+
+}
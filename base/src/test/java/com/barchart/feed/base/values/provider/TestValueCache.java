@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.values.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.api.TimeValue;
+
+public class TestValueCache {
+
+	@After
+	public void tearDown() {
+		ValueBuilder.setCache(null);
+	}
+
+	@Test
+	public void testPrice() {
+
+		final ValueCache cache = new ValueCache(16, true);
+
+		final PriceValue p1 = cache.price(12345, -2);
+		final PriceValue p2 = cache.price(12345, -2);
+
+		assertTrue(p1 == p2);
+		assertEquals(ValueBuilder.newPrice(12345, -2), p1);
+
+		/** same mantissa, other exponent */
+		final PriceValue p3 = cache.price(12345, -3);
+		assertEquals(12345, p3.mantissa());
+		assertEquals(-3, p3.exponent());
+
+		/** exotic exponent */
+		assertEquals(-12, cache.price(7, -12).exponent());
+
+		assertEquals(1, cache.hits());
+		assertEquals(3, cache.misses());
+
+	}
+
+	@Test
+	public void testSizeTime() {
+
+		final ValueCache cache = new ValueCache(16, true);
+
+		final SizeValue s1 = cache.size(5000);
+		assertTrue(s1 == cache.size(5000));
+		assertEquals(5000, s1.asLong());
+
+		final TimeValue t1 = cache.time(1234567890L);
+		assertTrue(t1 == cache.time(1234567890L));
+		assertEquals(1234567890L, t1.asMillisUTC());
+
+		assertEquals(0.5, cache.hitRate(), 0.0);
+
+		cache.resetStats();
+		assertEquals(0, cache.hits());
+		assertEquals(0.0, cache.hitRate(), 0.0);
+
+	}
+
+	@Test
+	public void testCollision() {
+
+		final ValueCache cache = new ValueCache(1);
+
+		for (int k = 0; k < 100; k++) {
+			final PriceValue price = cache.price(k, -2);
+			assertEquals(k, price.mantissa());
+			assertEquals(-2, price.exponent());
+		}
+
+	}
+
+	@Test
+	public void testShared() {
+
+		assertNull(ValueBuilder.getCache());
+		assertFalse(ValueBuilder.newTime(1) == ValueBuilder.newTime(1));
+
+		final ValueCache cache = new ValueCache();
+		ValueBuilder.setCache(cache);
+
+		assertTrue(ValueBuilder.newPrice(100, -2) == ValueBuilder
+				.newPrice(100, -2));
+		assertTrue(ValueBuilder.newPrice(100) == ValueBuilder.newPrice(100));
+		assertTrue(ValueBuilder.newSize(100000) == ValueBuilder
+				.newSize(100000));
+		assertTrue(ValueBuilder.newTime(1) == ValueBuilder.newTime(1));
+
+		/** zero keeps its constant */
+		assertTrue(ValueBuilder.newPrice(0) == ValueConst.ZERO_PRICE);
+
+		/** shared cache does not count */
+		assertFalse(cache.isCounting());
+		assertEquals(0, cache.hits());
+		assertEquals(0, cache.misses());
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSharedCounting() {
+		ValueBuilder.setCache(new ValueCache(16, true));
+	}
+
+}
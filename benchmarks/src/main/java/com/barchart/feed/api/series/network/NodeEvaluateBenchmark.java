@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.api.series.network;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.series.Span;
+
+/**
+ * one pass over a root / width / join network, Node.evaluate() on the
+ * calling thread against scheduler hand offs between nodes; nodes do no
+ * work, so this is the pure propagation cost per historical load
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeEvaluateBenchmark {
+
+	static final Span SPAN = (Span) Proxy.newProxyInstance(
+			NodeEvaluateBenchmark.class.getClassLoader(),
+			new Class<?>[] { Span.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(final Object proxy, final Method method,
+						final Object[] args) {
+					return null;
+				}
+			});
+
+	static final List<Subscription> ANY = Collections
+			.<Subscription> singletonList(null);
+
+	/** passes its span on once every parent delivered one */
+	static final class PassNode extends Node<Subscription> {
+
+		final int parents;
+
+		final Span output;
+
+		final AtomicInteger received = new AtomicInteger();
+
+		volatile int processed;
+
+		PassNode(final int parents, final Span output) {
+			this.parents = parents;
+			this.output = output;
+		}
+
+		@Override
+		public String getName() {
+			return "pass";
+		}
+
+		@Override
+		public boolean isDerivableSource(final Subscription subscription) {
+			return false;
+		}
+
+		@Override
+		protected <T extends Span> void updateModifiedSpan(final T span,
+				final Subscription subscription) {
+			received.incrementAndGet();
+			setUpdated(true);
+		}
+
+		@Override
+		protected boolean hasAllAncestorUpdates() {
+			if (received.get() < parents) {
+				return false;
+			}
+			received.addAndGet(-parents);
+			return true;
+		}
+
+		@Override
+		protected Span process() {
+			processed++;
+			return output;
+		}
+
+		@Override
+		public List<Subscription> getOutputSubscriptions() {
+			return ANY;
+		}
+
+		@Override
+		public List<Subscription> getInputSubscriptions() {
+			return ANY;
+		}
+
+		@Override
+		public Subscription getDerivableOutputSubscription(
+				final Subscription subscription) {
+			return null;
+		}
+
+	}
+
+	@Param({ "8", "64" })
+	public int width;
+
+	private NodeScheduler scheduler;
+
+	private PassNode root;
+
+	private PassNode join;
+
+	private List<PassNode> sources;
+
+	@Setup
+	public void setup() {
+
+		scheduler = new NodeScheduler(2);
+
+		root = new PassNode(0, SPAN);
+		join = new PassNode(width, null);
+
+		for (int k = 0; k < width; k++) {
+			final PassNode node = new PassNode(1, SPAN);
+			link(root, node);
+			link(node, join);
+		}
+
+		for (final PassNode node : new PassNode[] { root, join }) {
+			node.setScheduler(scheduler);
+		}
+		for (final Node<Subscription> node : root.getChildNodes()) {
+			node.setScheduler(scheduler);
+		}
+
+		join.startUp();
+
+		sources = Collections.singletonList(root);
+
+	}
+
+	@TearDown
+	public void tearDown() {
+		scheduler.shutDown();
+	}
+
+	static void link(final PassNode parent, final PassNode child) {
+		child.addParentNode(parent);
+		parent.addChildNode(child);
+	}
+
+	@Benchmark
+	public int evaluate() {
+		root.setUpdated(true);
+		Node.evaluate(sources);
+		return join.processed;
+	}
+
+	@Benchmark
+	public int scheduled() {
+
+		final int target = join.processed + 1;
+
+		root.setModifiedSpan(SPAN, ANY);
+
+		while (join.processed < target) {
+			Thread.yield();
+		}
+
+		return join.processed;
+
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.book.enums.UniBookResult;
+
+/**
+ * UniBook.make() with modify / remove updates wandering around the top of a
+ * ten level default book
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookBenchmark {
+
+	static final int ENTRIES = 4096;
+
+	static final int MASK = ENTRIES - 1;
+
+	private UniBook<MarketBook> book;
+
+	private DefBookEntry[] entries;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		book = new UniBook<MarketBook>(Instrument.NULL, Book.Type.DEFAULT,
+				newSize(10), newPrice(1, -2));
+
+		entries = new DefBookEntry[ENTRIES];
+
+		for (int k = 0; k < ENTRIES; k++) {
+
+			final Book.Side side = (k & 1) == 0 ? Book.Side.BID
+					: Book.Side.ASK;
+			final long price = side == Book.Side.BID ? 10000 - (k * 7 & 7)
+					: 10001 + (k * 7 & 7);
+			final MarketBookAction act = (k % 5 == 4) ? MarketBookAction.REMOVE
+					: MarketBookAction.MODIFY;
+
+			entries[k] = new DefBookEntry(act, side, Book.Type.DEFAULT, 0,
+					newPrice(price, -2), newSize(1 + (k & 63)));
+
+		}
+
+	}
+
+	@Benchmark
+	public UniBookResult make() {
+		return book.make(entries[index++ & MASK]);
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.base.cuvol.api.MarketCuvol;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.api.TimeValue;
+
+/**
+ * VarCuvol.add() over a price range; freeze() is the per event snapshot cost
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CuvolBenchmark {
+
+	static final int TRADES = 4096;
+
+	static final int MASK = TRADES - 1;
+
+	/** distinct price levels traded */
+	@Param({ "16", "512" })
+	public int levels;
+
+	private VarCuvol cuvol;
+
+	private PriceValue[] prices;
+
+	private SizeValue[] sizes;
+
+	private TimeValue time;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		cuvol = new VarCuvol(MockDefinitionService.newInstrument(1, "CUVOL"),
+				newPrice(1, -2));
+
+		prices = new PriceValue[TRADES];
+		sizes = new SizeValue[TRADES];
+
+		for (int k = 0; k < TRADES; k++) {
+			prices[k] = newPrice(10000 + (k * 7919) % levels, -2);
+			sizes[k] = newSize(1 + (k & 31));
+		}
+
+		time = newTime(1000000);
+
+		for (int k = 0; k < TRADES; k++) {
+			cuvol.add(prices[k], sizes[k], time);
+		}
+
+	}
+
+	@Benchmark
+	public void add() {
+		final int k = index++ & MASK;
+		cuvol.add(prices[k], sizes[k], time);
+	}
+
+	@Benchmark
+	public MarketCuvol freeze() {
+		return cuvol.freeze();
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketTaker;
+import com.barchart.feed.base.market.enums.MarketEvent;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.trade.api.MarketTrade;
+import com.barchart.feed.base.trade.enums.MarketTradeSequencing;
+import com.barchart.feed.base.trade.enums.MarketTradeSession;
+import com.barchart.feed.base.trade.enums.MarketTradeType;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.api.TimeValue;
+
+/**
+ * trade apply plus RegCenter.fireEvents() to registered takers; zero takers
+ * is the apply-only baseline
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FireEventsBenchmark {
+
+	static final int TRADES = 1024;
+
+	static final int MASK = TRADES - 1;
+
+	static final class Taker implements MarketTaker<MarketTrade> {
+
+		final Instrument[] instruments;
+
+		MarketTrade last;
+
+		Taker(final Instrument instrument) {
+			instruments = new Instrument[] { instrument };
+		}
+
+		@Override
+		public MarketField<MarketTrade> bindField() {
+			return MarketField.TRADE;
+		}
+
+		@Override
+		public MarketEvent[] bindEvents() {
+			return new MarketEvent[] { MarketEvent.NEW_TRADE };
+		}
+
+		@Override
+		public Instrument[] bindInstruments() {
+			return instruments;
+		}
+
+		@Override
+		public void onMarketEvent(final MarketEvent event,
+				final Instrument instrument, final MarketTrade value) {
+			last = value;
+		}
+
+	}
+
+	@Param({ "0", "1", "16" })
+	public int takers;
+
+	private MarketDo market;
+
+	private Taker[] takerArray;
+
+	private PriceValue[] prices;
+
+	private SizeValue[] sizes;
+
+	private TimeValue[] times;
+
+	private TimeValue date;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		final Instrument inst = MockDefinitionService.newInstrument(1, "FIRE");
+
+		market = new MockMarketFactory().newMarket(inst);
+
+		takerArray = new Taker[takers];
+
+		for (int k = 0; k < takers; k++) {
+			takerArray[k] = new Taker(inst);
+			market.regAdd(new RegTaker<MarketTrade>(takerArray[k]));
+		}
+
+		prices = new PriceValue[TRADES];
+		sizes = new SizeValue[TRADES];
+		times = new TimeValue[TRADES];
+
+		for (int k = 0; k < TRADES; k++) {
+			prices[k] = newPrice(10000 + (k * 7 & 15), -2);
+			sizes[k] = newSize(1 + (k & 31));
+			times[k] = newTime(1000000 + k);
+		}
+
+		date = newTime(0);
+
+	}
+
+	@Benchmark
+	public Object tradeAndFire() {
+
+		final int k = index++ & MASK;
+
+		market.setTrade(MarketTradeType.FUTURE_ELECTRONIC,
+				MarketTradeSession.DEFAULT, MarketTradeSequencing.NORMAL,
+				prices[k], sizes[k], times[k], date);
+
+		market.fireEvents();
+
+		return takers == 0 ? null : takerArray[0].last;
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Market;
+import com.barchart.feed.base.book.api.MarketBook;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.market.api.MarketSafeRunner;
+import com.barchart.feed.base.market.enums.MarketField;
+import com.barchart.feed.base.trade.enums.MarketTradeSequencing;
+import com.barchart.feed.base.trade.enums.MarketTradeSession;
+import com.barchart.feed.base.trade.enums.MarketTradeType;
+
+/**
+ * VarMarket.freeze() of a populated market, the per snapshot / per callback
+ * copy cost; book freeze measured on its own; snapshot() with and without a
+ * write in between, the reader side of the published view
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FreezeBenchmark {
+
+	private MarketDo market;
+
+	@Setup
+	public void setup() {
+
+		market = new MockMarketFactory().newMarket(MockDefinitionService
+				.newInstrument(1, "FREEZE"));
+
+		for (int k = 0; k < 1000; k++) {
+
+			final long price = 10000 + (k * 7 & 15);
+
+			market.setTrade(MarketTradeType.FUTURE_ELECTRONIC,
+					MarketTradeSession.DEFAULT, MarketTradeSequencing.NORMAL,
+					newPrice(price, -2), newSize(1 + (k & 31)),
+					newTime(1000000 + k), newTime(0));
+
+			final Book.Side side = (k & 1) == 0 ? Book.Side.BID
+					: Book.Side.ASK;
+
+			market.setBookUpdate(new DefBookEntry(MarketBookAction.MODIFY,
+					side, Book.Type.DEFAULT, 0, newPrice(
+							side == Book.Side.BID ? price - 1 - (k & 7) : price
+									+ 1 + (k & 7), -2), newSize(1 + (k & 63))),
+					newTime(1000000 + k));
+
+		}
+
+	}
+
+	@Benchmark
+	public Market freezeMarket() {
+		return market.freeze();
+	}
+
+	@Benchmark
+	public MarketBook freezeBook() {
+		return market.get(MarketField.BOOK).freeze();
+	}
+
+	/** one trade applied the way a provider does */
+	static final MarketSafeRunner<Void, Void> WRITE = //
+	new MarketSafeRunner<Void, Void>() {
+		@Override
+		public Void runSafe(final MarketDo market, final Void param) {
+			market.setTrade(MarketTradeType.FUTURE_ELECTRONIC,
+					MarketTradeSession.DEFAULT, MarketTradeSequencing.NORMAL,
+					newPrice(10000, -2), newSize(1), newTime(2000000),
+					newTime(0));
+			market.fireEvents();
+			return null;
+		}
+	};
+
+	@Benchmark
+	public void write() {
+		market.runSafe(WRITE, null);
+	}
+
+	@Benchmark
+	public Object snapshot() {
+		return market.snapshot();
+	}
+
+	@Benchmark
+	public Object writeSnapshot() {
+		market.runSafe(WRITE, null);
+		return market.snapshot();
+	}
+
+}
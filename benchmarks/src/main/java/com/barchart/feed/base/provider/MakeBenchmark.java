@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import static com.barchart.feed.base.values.provider.ValueBuilder.newPrice;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newSize;
+import static com.barchart.feed.base.values.provider.ValueBuilder.newTime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.book.enums.MarketBookAction;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.base.message.MockMessage;
+import com.barchart.feed.base.message.MockMessageVisitor;
+import com.barchart.feed.base.message.MockMsgBook;
+import com.barchart.feed.base.message.MockMsgTrade;
+import com.barchart.feed.base.trade.enums.MarketTradeSequencing;
+import com.barchart.feed.base.trade.enums.MarketTradeSession;
+import com.barchart.feed.base.trade.enums.MarketTradeType;
+
+/**
+ * full provider make() path: market lookup, runSafe, message apply, event and
+ * callback fire; trade and book messages interleaved over a set of markets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeBenchmark {
+
+	static final int MESSAGES = 4096;
+
+	static final int MASK = MESSAGES - 1;
+
+	/** provider applying mock messages the same way as MockMaker */
+	static final class BenchProvider extends MarketProviderBase<MockMessage>
+			implements MockMessageVisitor<Void, MarketDo> {
+
+		BenchProvider() {
+			super(new MockMarketFactory(), null, null);
+		}
+
+		@Override
+		protected void make(final MockMessage message, final MarketDo market) {
+			message.accept(this, market);
+		}
+
+		@Override
+		public Void visit(final MockMsgTrade message, final MarketDo market) {
+			market.setTrade(message.type, message.session, message.sequencing,
+					message.price, message.size, message.time, message.date);
+			return null;
+		}
+
+		@Override
+		public Void visit(final MockMsgBook message, final MarketDo market) {
+			market.setBookUpdate(new DefBookEntry(message.act, message.side,
+					message.type, message.place, message.price, message.size),
+					message.time);
+			return null;
+		}
+
+	}
+
+	@Param({ "1", "1000" })
+	public int markets;
+
+	private BenchProvider provider;
+
+	private MockMessage[] messages;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		provider = new BenchProvider();
+
+		final Instrument[] insts = new Instrument[markets];
+
+		for (int k = 0; k < markets; k++) {
+			insts[k] = MockDefinitionService.newInstrument(k + 1, "MAKE" + k);
+		}
+
+		messages = new MockMessage[MESSAGES];
+
+		for (int k = 0; k < MESSAGES; k++) {
+
+			final Instrument inst = insts[k % markets];
+			final long price = 10000 + (k * 7 & 15);
+
+			if ((k & 1) == 0) {
+				final MockMsgTrade trade = new MockMsgTrade(inst);
+				trade.type = MarketTradeType.FUTURE_ELECTRONIC;
+				trade.session = MarketTradeSession.DEFAULT;
+				trade.sequencing = MarketTradeSequencing.NORMAL;
+				trade.price = newPrice(price, -2);
+				trade.size = newSize(1 + (k & 31));
+				trade.time = newTime(1000000 + k);
+				trade.date = newTime(0);
+				messages[k] = trade;
+			} else {
+				final MockMsgBook book = new MockMsgBook(inst);
+				book.act = MarketBookAction.MODIFY;
+				book.side = (k & 2) == 0 ? Book.Side.BID : Book.Side.ASK;
+				book.type = Book.Type.DEFAULT;
+				book.place = 0;
+				book.price = newPrice(book.side == Book.Side.BID ? price - 1
+						: price + 1, -2);
+				book.size = newSize(1 + (k & 63));
+				book.time = newTime(1000000 + k);
+				messages[k] = book;
+			}
+
+		}
+
+		/** first message creates market and its subscription entry */
+		for (int k = 0; k < MESSAGES; k++) {
+			provider.make(messages[k]);
+		}
+
+	}
+
+	@Benchmark
+	public void make() {
+		provider.make(messages[index++ & MASK]);
+	}
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.provider;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.market.MockMarketFactory;
+import com.barchart.feed.base.market.api.MarketDo;
+
+/**
+ * make() path market lookup cost, random instrument order; instrument keyed
+ * map, id keyed map and MarketRegistry
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RegistryBenchmark {
+
+	static final int LOOKUPS = 1 << 16;
+
+	static final int MASK = LOOKUPS - 1;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int instruments;
+
+	private ConcurrentMap<Instrument, MarketDo> instMap;
+
+	private ConcurrentMap<InstrumentID, MarketDo> idMap;
+
+	private MarketRegistry registry;
+
+	/** lookup order, random over all instruments */
+	private Instrument[] order;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		final MarketDo market = new MockMarketFactory()
+				.newMarket(MockDefinitionService.newInstrument(0, "BENCH"));
+
+		final Instrument[] insts = new Instrument[instruments];
+
+		instMap = new ConcurrentHashMap<Instrument, MarketDo>();
+		idMap = new ConcurrentHashMap<InstrumentID, MarketDo>();
+		registry = new MarketRegistry();
+
+		for (int k = 0; k < instruments; k++) {
+			insts[k] = MockDefinitionService.newInstrument(k + 1, "BENCH" + k);
+			instMap.put(insts[k], market);
+			idMap.put(insts[k].id(), market);
+			registry.put(insts[k].id(), market);
+		}
+
+		order = new Instrument[LOOKUPS];
+
+		final Random random = new Random(instruments);
+
+		for (int k = 0; k < LOOKUPS; k++) {
+			order[k] = insts[random.nextInt(instruments)];
+		}
+
+	}
+
+	@Benchmark
+	public MarketDo instrumentMap() {
+		return instMap.get(order[index++ & MASK]);
+	}
+
+	@Benchmark
+	public MarketDo idMap() {
+		return idMap.get(order[index++ & MASK].id());
+	}
+
+	@Benchmark
+	public MarketDo registry() {
+		return registry.get(order[index++ & MASK].id());
+	}
+
+}
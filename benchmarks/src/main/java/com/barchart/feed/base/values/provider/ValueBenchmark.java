@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.base.values.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+
+/**
+ * ValueBuilder factory cost, with and without the interning cache
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private long counter;
+
+	@Setup
+	public void setup() {
+		ValueBuilder.setCache(cached ? new ValueCache() : null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		ValueBuilder.setCache(null);
+	}
+
+	/** prices wander over a narrow band, like a live instrument */
+	@Benchmark
+	public PriceValue newPrice() {
+		return ValueBuilder.newPrice(100000 + (counter++ & 63) * 25, -3);
+	}
+
+	@Benchmark
+	public SizeValue newSize() {
+		return ValueBuilder.newSize(1024 + (counter++ & 255));
+	}
+
+}
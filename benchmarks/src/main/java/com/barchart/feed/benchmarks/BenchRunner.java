@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * jmh entry point; standard jmh command line, plus gc profiler so every run
+ * reports gc.alloc.rate.norm (bytes per operation) next to time per operation;
+ * results go to target/jmh-result.json for comparison between builds
+ * <p>
+ * java -jar benchmarks/target/benchmarks.jar [jmh options] [regexp]
+ */
+public class BenchRunner {
+
+	public static final String RESULT = "target/jmh-result.json";
+
+	public static void main(final String[] args) throws Exception {
+
+		final CommandLineOptions line = new CommandLineOptions(args);
+
+		final Options options = new OptionsBuilder() //
+				.parent(line) //
+				.addProfiler(GCProfiler.class) //
+				.resultFormat(ResultFormatType.JSON) //
+				.result(RESULT) //
+				.build();
+
+		new Runner(options).run();
+
+	}
+
+}
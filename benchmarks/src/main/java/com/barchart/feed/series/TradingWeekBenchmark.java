@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2011-2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.series;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.series.Period;
+import com.barchart.feed.api.series.PeriodType;
+
+/**
+ * TradingWeekImpl session boundaries from the compiled session calendar
+ * against the field by field joda calculation it replaces
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradingWeekBenchmark {
+
+	static final int DATES = 4096;
+
+	static final int MASK = DATES - 1;
+
+	@Param({ "SECOND", "MINUTE", "HOUR" })
+	public PeriodType type;
+
+	private TradingWeekImpl week;
+
+	private Period period;
+
+	private DateTime[] dates;
+
+	private int index;
+
+	@Setup
+	public void setup() {
+
+		week = (TradingWeekImpl) TradingWeekImpl.DEFAULT;
+		period = new Period(type, 1);
+
+		/* times within the default 08:30 - 20:00 sessions over 2013 */
+		final Random random = new Random(1);
+		final DateTime start = new DateTime(2013, 1, 1, 8, 30, 0, 0);
+
+		dates = new DateTime[DATES];
+
+		for (int k = 0; k < DATES; k++) {
+			dates[k] = start.plusDays(random.nextInt(365)).plusMillis(
+					random.nextInt(11 * 60 * 60 * 1000));
+		}
+
+	}
+
+	@Benchmark
+	public DateTime nextSessionDate() {
+		return week.getNextSessionDate(dates[index++ & MASK], period);
+	}
+
+	@Benchmark
+	public DateTime nextSessionDateJoda() {
+		return week.calculateNextSessionDate(dates[index++ & MASK], period);
+	}
+
+	@Benchmark
+	public DateTime previousSessionDate() {
+		return week.getPreviousSessionDate(dates[index++ & MASK], period);
+	}
+
+	@Benchmark
+	public DateTime previousSessionDateJoda() {
+		return week.calculatePreviousSessionDate(dates[index++ & MASK], period);
+	}
+
+	@Benchmark
+	public long sessionMillisBetween() {
+		final DateTime from = dates[index++ & MASK];
+		return week.getSessionMillisBetween(from, from.plusMonths(1));
+	}
+
+	@Benchmark
+	public long sessionMillisBetweenJoda() {
+		final DateTime from = dates[index++ & MASK];
+		return week.calculateSessionMillisBetween(from, from.plusMonths(1));
+	}
+
+}
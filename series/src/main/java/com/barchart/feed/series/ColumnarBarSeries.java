@@ -0,0 +1,1010 @@
+package com.barchart.feed.series;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.joda.time.DateTime;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.api.series.Bar;
+import com.barchart.feed.api.series.DataPoint;
+import com.barchart.feed.api.series.DataSeries;
+import com.barchart.feed.api.series.Period;
+import com.barchart.feed.api.series.PeriodType;
+import com.barchart.util.value.ValueFactoryImpl;
+import com.barchart.util.value.api.Price;
+import com.barchart.util.value.api.Size;
+import com.barchart.util.value.api.Time;
+import com.barchart.util.value.api.ValueFactory;
+
+/**
+ * Column oriented {@link DataSeries} of {@link Bar}s.
+ * <p>
+ * Bars are stored as parallel primitive columns: one {@code long} of epoch
+ * millis and one {@code long} mantissa per value. All price columns share a
+ * single exponent, as do all size columns. Columns grow in fixed size chunks,
+ * so appending never copies existing data. A column which never received a
+ * value, such as bid or ask on a trade only series, is never allocated.
+ * <p>
+ * {@link #get(int)} returns a small flyweight view over one row; its values
+ * are read from the columns on each call. A view is valid only until the
+ * next structural change (insert, remove or clear), after which it throws
+ * {@link ConcurrentModificationException}; copy it into a {@link BarImpl} to
+ * keep it longer. Scans which only need numbers should use the primitive
+ * accessors ({@link #timeAt(int)}, {@link #closeAt(int)} ...), which touch
+ * nothing but the columns.
+ * <p>
+ * Mantissas are scaled to the shared exponents; a value which no longer fits
+ * a {@code long} at that exponent fails with {@link ArithmeticException} and
+ * leaves the series unchanged.
+ * <p>
+ * Dates are kept as millis only, so {@link Bar#getDate()} of a view is in the
+ * default time zone. <br>
+ * <br>
+ * <em><b>Warning: this class is not thread-safe.</b></em>
+ */
+public class ColumnarBarSeries extends AbstractList<Bar> implements DataSeries<Bar> {
+
+	private static final ValueFactory VALUES = ValueFactoryImpl.getInstance();
+
+	/** Rows per chunk, as a power of two */
+	static final int CHUNK_BITS = 12;
+
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/** Mantissa marking a null value */
+	static final long NULL = Long.MIN_VALUE;
+
+	/* Price columns */
+	static final int OPEN = 0;
+	static final int HIGH = 1;
+	static final int LOW = 2;
+	static final int CLOSE = 3;
+	static final int MIDPOINT = 4;
+	static final int BID = 5;
+	static final int ASK = 6;
+	static final int TRADED_VALUE = 7;
+	static final int TRADED_VALUE_UP = 8;
+	static final int TRADED_VALUE_DOWN = 9;
+
+	static final int PRICES = 10;
+
+	/* Size columns */
+	static final int VOLUME = 0;
+	static final int VOLUME_UP = 1;
+	static final int VOLUME_DOWN = 2;
+	static final int BID_SIZE = 3;
+	static final int ASK_SIZE = 4;
+	static final int TRADE_COUNT = 5;
+	static final int OPEN_INTEREST = 6;
+
+	static final int SIZES = 7;
+
+	private final Period period;
+
+	private InstrumentID instrument;
+
+	private int size;
+
+	/** [chunk][row] */
+	private long[][] times = new long[0][];
+
+	/** [column][chunk][row]; null column until its first value */
+	private final long[][][] prices = new long[PRICES][][];
+
+	private final long[][][] sizes = new long[SIZES][][];
+
+	/** Shared exponents, fixed by the first value and lowered on demand */
+	private int priceExponent;
+	private boolean hasPriceExponent;
+
+	private int sizeExponent;
+	private boolean hasSizeExponent;
+
+	/**
+	 * Constructs a new empty {@code ColumnarBarSeries} taking its instrument
+	 * from the first bar added.
+	 *
+	 * @param period the {@link Period} all bars in this series adhere to.
+	 */
+	public ColumnarBarSeries(final Period period) {
+		this(period, (InstrumentID) null);
+	}
+
+	/**
+	 * Constructs a new empty {@code ColumnarBarSeries}.
+	 *
+	 * @param period the {@link Period} all bars in this series adhere to.
+	 * @param instrument the instrument of all bars; may be null, in which case
+	 *            the instrument of the first bar added is used.
+	 */
+	public ColumnarBarSeries(final Period period, final InstrumentID instrument) {
+		this.period = period;
+		this.instrument = instrument;
+	}
+
+	/**
+	 * Constructs a new {@code ColumnarBarSeries} holding copies of the
+	 * specified bars, in iteration order.
+	 *
+	 * @param period the {@link Period} all bars in this series adhere to.
+	 * @param bars the bars to copy.
+	 */
+	public ColumnarBarSeries(final Period period, final Iterable<? extends Bar> bars) {
+		this(period, (InstrumentID) null);
+		for (final Bar bar : bars) {
+			add(bar);
+		}
+	}
+
+	/* ***** ***** Primitive access ***** ***** */
+
+	/**
+	 * Returns the exponent shared by all price mantissas.
+	 *
+	 * @return the price exponent.
+	 */
+	public int priceExponent() {
+		return priceExponent;
+	}
+
+	/**
+	 * Returns the exponent shared by all size mantissas.
+	 *
+	 * @return the size exponent.
+	 */
+	public int sizeExponent() {
+		return sizeExponent;
+	}
+
+	/**
+	 * Returns the epoch millis of the bar at the specified index.
+	 *
+	 * @param index the bar index.
+	 * @return the bar time in millis.
+	 */
+	public long timeAt(final int index) {
+		check(index);
+		return times[index >>> CHUNK_BITS][index & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns the open price mantissa, or {@link #NULL}.
+	 */
+	public long openAt(final int index) {
+		return priceAt(OPEN, index);
+	}
+
+	/**
+	 * Returns the high price mantissa, or {@link #NULL}.
+	 */
+	public long highAt(final int index) {
+		return priceAt(HIGH, index);
+	}
+
+	/**
+	 * Returns the low price mantissa, or {@link #NULL}.
+	 */
+	public long lowAt(final int index) {
+		return priceAt(LOW, index);
+	}
+
+	/**
+	 * Returns the close price mantissa, or {@link #NULL}.
+	 */
+	public long closeAt(final int index) {
+		return priceAt(CLOSE, index);
+	}
+
+	/**
+	 * Returns the volume mantissa, or {@link #NULL}.
+	 */
+	public long volumeAt(final int index) {
+		return sizeAt(VOLUME, index);
+	}
+
+	long priceAt(final int column, final int index) {
+		check(index);
+		return read(prices[column], index);
+	}
+
+	long sizeAt(final int column, final int index) {
+		check(index);
+		return read(sizes[column], index);
+	}
+
+	private static long read(final long[][] column, final int index) {
+		if (column == null) {
+			return NULL;
+		}
+		return column[index >>> CHUNK_BITS][index & CHUNK_MASK];
+	}
+
+	private void check(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index + " < 0 || >= " + size);
+		}
+	}
+
+	/* ***** ***** Storage ***** ***** */
+
+	/** Makes room for one more row at the end */
+	private void grow() {
+
+		final int chunk = size >>> CHUNK_BITS;
+
+		if (chunk < times.length) {
+			return;
+		}
+
+		times = extend(times);
+
+		for (int k = 0; k < PRICES; k++) {
+			if (prices[k] != null) {
+				prices[k] = extend(prices[k]);
+			}
+		}
+
+		for (int k = 0; k < SIZES; k++) {
+			if (sizes[k] != null) {
+				sizes[k] = extend(sizes[k]);
+			}
+		}
+
+	}
+
+	/** Adds one chunk; only the small chunk index is copied */
+	private static long[][] extend(final long[][] column) {
+
+		final long[][] next = new long[column.length + 1][];
+		System.arraycopy(column, 0, next, 0, column.length);
+
+		next[column.length] = newChunk();
+
+		return next;
+
+	}
+
+	private static long[] newChunk() {
+		final long[] chunk = new long[CHUNK_SIZE];
+		Arrays.fill(chunk, NULL);
+		return chunk;
+	}
+
+	/** Allocates a column filled with nulls, sized to the current chunks */
+	private long[][] newColumn() {
+
+		final long[][] column = new long[times.length][];
+
+		for (int k = 0; k < column.length; k++) {
+			column[k] = newChunk();
+		}
+
+		return column;
+
+	}
+
+	private void writePrice(final int column, final int index, final Price price) {
+
+		if (price == null || price.isNull()) {
+			if (prices[column] != null) {
+				prices[column][index >>> CHUNK_BITS][index & CHUNK_MASK] = NULL;
+			}
+			return;
+		}
+
+		if (!hasPriceExponent) {
+			priceExponent = price.exponent();
+			hasPriceExponent = true;
+		} else if (price.exponent() < priceExponent) {
+			rescale(prices, priceExponent - price.exponent());
+			priceExponent = price.exponent();
+		}
+
+		if (prices[column] == null) {
+			prices[column] = newColumn();
+		}
+
+		prices[column][index >>> CHUNK_BITS][index & CHUNK_MASK] =
+				scale(price.mantissa(), price.exponent() - priceExponent);
+
+	}
+
+	private void writeSize(final int column, final int index, final Size value) {
+
+		if (value == null || value.isNull()) {
+			if (sizes[column] != null) {
+				sizes[column][index >>> CHUNK_BITS][index & CHUNK_MASK] = NULL;
+			}
+			return;
+		}
+
+		if (!hasSizeExponent) {
+			sizeExponent = value.exponent();
+			hasSizeExponent = true;
+		} else if (value.exponent() < sizeExponent) {
+			rescale(sizes, sizeExponent - value.exponent());
+			sizeExponent = value.exponent();
+		}
+
+		if (sizes[column] == null) {
+			sizes[column] = newColumn();
+		}
+
+		sizes[column][index >>> CHUNK_BITS][index & CHUNK_MASK] =
+				scale(value.mantissa(), value.exponent() - sizeExponent);
+
+	}
+
+	/** Largest magnitude which may still be multiplied by ten */
+	private static final long SCALE_LIMIT = Long.MAX_VALUE / 10;
+
+	/**
+	 * Multiplies by ten per digit; never returns {@link #NULL}.
+	 *
+	 * @throws ArithmeticException if the result does not fit a {@code long}.
+	 */
+	static long scale(long mantissa, int digits) {
+		if (mantissa == NULL) {
+			throw new ArithmeticException("mantissa " + mantissa + " is reserved for null");
+		}
+		while (digits-- > 0) {
+			if (mantissa > SCALE_LIMIT || mantissa < -SCALE_LIMIT) {
+				throw new ArithmeticException("mantissa " + mantissa + " overflows when scaled");
+			}
+			mantissa *= 10;
+		}
+		return mantissa;
+	}
+
+	/**
+	 * A finer exponent arrived; rare, so full passes are acceptable. All
+	 * values are checked before any is changed, so an overflow leaves the
+	 * columns as they were.
+	 */
+	private static void rescale(final long[][][] columns, final int digits) {
+		for (final long[][] column : columns) {
+			if (column == null) {
+				continue;
+			}
+			for (final long[] chunk : column) {
+				for (int k = 0; k < chunk.length; k++) {
+					if (chunk[k] != NULL) {
+						scale(chunk[k], digits);
+					}
+				}
+			}
+		}
+		for (final long[][] column : columns) {
+			if (column == null) {
+				continue;
+			}
+			for (final long[] chunk : column) {
+				for (int k = 0; k < chunk.length; k++) {
+					if (chunk[k] != NULL) {
+						chunk[k] = scale(chunk[k], digits);
+					}
+				}
+			}
+		}
+	}
+
+	private void write(final int index, final Bar bar) {
+
+		if (instrument == null) {
+			instrument = bar.getInstrument();
+		}
+
+		times[index >>> CHUNK_BITS][index & CHUNK_MASK] = bar.getDate().getMillis();
+
+		writePrice(OPEN, index, bar.getOpen());
+		writePrice(HIGH, index, bar.getHigh());
+		writePrice(LOW, index, bar.getLow());
+		writePrice(CLOSE, index, bar.getClose());
+		writePrice(MIDPOINT, index, bar.getMidpoint());
+		writePrice(BID, index, bar.getBid());
+		writePrice(ASK, index, bar.getAsk());
+		writePrice(TRADED_VALUE, index, bar.getTradedValue());
+		writePrice(TRADED_VALUE_UP, index, bar.getTradedValueUp());
+		writePrice(TRADED_VALUE_DOWN, index, bar.getTradedValueDown());
+
+		writeSize(VOLUME, index, bar.getVolume());
+		writeSize(VOLUME_UP, index, bar.getVolumeUp());
+		writeSize(VOLUME_DOWN, index, bar.getVolumeDown());
+		writeSize(BID_SIZE, index, bar.getBidSize());
+		writeSize(ASK_SIZE, index, bar.getAskSize());
+		writeSize(TRADE_COUNT, index, bar.getTradeCount());
+		writeSize(OPEN_INTEREST, index, bar.getOpenInterest());
+
+	}
+
+	/** Moves rows [from, size) by delta, which is +1 or -1 */
+	private void shift(final int from, final int delta) {
+
+		shift(times, from, delta);
+
+		for (final long[][] column : prices) {
+			if (column != null) {
+				shift(column, from, delta);
+			}
+		}
+
+		for (final long[][] column : sizes) {
+			if (column != null) {
+				shift(column, from, delta);
+			}
+		}
+
+	}
+
+	private void shift(final long[][] column, final int from, final int delta) {
+
+		if (delta > 0) {
+			for (int k = size - 1; k >= from; k--) {
+				final int to = k + 1;
+				column[to >>> CHUNK_BITS][to & CHUNK_MASK] = column[k >>> CHUNK_BITS][k & CHUNK_MASK];
+			}
+		} else {
+			for (int k = from; k < size; k++) {
+				final int to = k - 1;
+				column[to >>> CHUNK_BITS][to & CHUNK_MASK] = column[k >>> CHUNK_BITS][k & CHUNK_MASK];
+			}
+		}
+
+	}
+
+	/* ***** ***** DataSeries ***** ***** */
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Period getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Returns the instrument of the bars in this series.
+	 *
+	 * @return the {@link InstrumentID}, or null when empty and unspecified.
+	 */
+	public InstrumentID getInstrument() {
+		return instrument;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DateTime getStart() {
+		if (size == 0)
+			return null;
+		return new DateTime(timeAt(0));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DateTime getEnd() {
+		if (size == 0)
+			return null;
+		return new DateTime(timeAt(size - 1));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bar getFirst() {
+		if (size == 0)
+			return null;
+		return new View(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bar getLast() {
+		if (size == 0)
+			return null;
+		return new View(size - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a flyweight view of the bar at the specified index. The view
+	 * reads through to the columns, so it reflects later {@link #set} calls;
+	 * it is invalidated by the next insert, remove or clear.
+	 */
+	@Override
+	public Bar get(final int index) {
+		check(index);
+		return new View(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bar forDate(final DateTime date) {
+		final int index = indexOf(date, true);
+		if (index == -1)
+			return null;
+		return new View(index);
+	}
+
+	/**
+	 * Binary search of the time column between idxLower and idxUpper,
+	 * inclusive, returning the index of the matching bar, or the index at
+	 * which the time would be inserted.
+	 * <p>
+	 * If "compareAtRes" is set, bar times are compared at the resolution of
+	 * this series' {@link Period}.
+	 */
+	@Override
+	public int closestIndexOf(final Time time, final int idxLower, final int idxUpper, final boolean compareAtRes) {
+
+		if (time == null)
+			return -1;
+
+		final DateTime date = new DateTime(time.millisecond());
+		final long millis = time.millisecond();
+
+		int low = Math.max(0, idxLower);
+		int high = Math.min(size - 1, idxUpper);
+
+		while (low <= high) {
+
+			final int mid = (low + high) >>> 1;
+
+			final int comparison;
+			if (compareAtRes) {
+				comparison = period.getPeriodType().compareAtResolution(new DateTime(timeAt(mid)), date);
+			} else {
+				final long other = timeAt(mid);
+				comparison = other < millis ? -1 : (other == millis ? 0 : 1);
+			}
+
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+
+		}
+
+		return Math.min(low, size);
+
+	}
+
+	/**
+	 * Binary search of the time column for the specified date.
+	 *
+	 * @param date the date searched for.
+	 * @param exactOnly true to return -1 when not found, false to return the
+	 *            insertion index.
+	 * @return the index of the matching bar, or as described above.
+	 */
+	@Override
+	public int indexOf(final DateTime date, final boolean exactOnly) {
+
+		final long millis = date.getMillis();
+
+		int low = 0;
+		int high = size - 1;
+
+		while (low <= high) {
+
+			final int mid = (low + high) >>> 1;
+			final long other = times[mid >>> CHUNK_BITS][mid & CHUNK_MASK];
+
+			if (other < millis) {
+				low = mid + 1;
+			} else if (other > millis) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+
+		}
+
+		return exactOnly ? -1 : low;
+
+	}
+
+	/**
+	 * Inserts a copy of the specified bar at the location indicated by its
+	 * time.
+	 *
+	 * @param bar the bar to insert.
+	 */
+	public void insertData(final Bar bar) {
+		add(indexOf(bar.getDate(), false), bar);
+	}
+
+	/**
+	 * Appends a copy of the specified bar.
+	 */
+	@Override
+	public boolean add(final Bar bar) {
+		grow();
+		write(size, bar);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Inserts a copy of the specified bar at the specified index, shifting
+	 * later bars to the right.
+	 */
+	@Override
+	public void add(final int index, final Bar bar) {
+
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException(index + " < 0 || > " + size);
+		}
+
+		grow();
+		shift(index, 1);
+		size++;
+		modCount++;
+
+		try {
+			write(index, bar);
+		} catch (final ArithmeticException e) {
+			shift(index + 1, -1);
+			size--;
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Overwrites the row at the specified index with the values of the
+	 * specified bar. Views of the row see the new values.
+	 *
+	 * @return a detached copy of the previous bar.
+	 */
+	@Override
+	public Bar set(final int index, final Bar bar) {
+		check(index);
+		final Bar previous = new BarImpl(new View(index));
+		try {
+			write(index, bar);
+		} catch (final ArithmeticException e) {
+			write(index, previous);
+			throw e;
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes the row at the specified index.
+	 *
+	 * @return a detached copy of the removed bar.
+	 */
+	@Override
+	public Bar remove(final int index) {
+		check(index);
+		final Bar previous = new BarImpl(new View(index));
+		shift(index + 1, -1);
+		size--;
+		modCount++;
+		return previous;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		size = 0;
+		times = new long[0][];
+		for (int k = 0; k < PRICES; k++) {
+			prices[k] = null;
+		}
+		for (int k = 0; k < SIZES; k++) {
+			sizes[k] = null;
+		}
+		hasPriceExponent = false;
+		hasSizeExponent = false;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Bar> reverseIterator() {
+		return new Iterator<Bar>() {
+
+			int index = size - 1;
+
+			@Override
+			public boolean hasNext() {
+				return index >= 0;
+			}
+
+			@Override
+			public Bar next() {
+				if (index < 0)
+					throw new NoSuchElementException();
+				return new View(index--);
+			}
+
+			@Override
+			public void remove() {
+				ColumnarBarSeries.this.remove(index + 1);
+			}
+		};
+	}
+
+	/**
+	 * Returns an array of flyweight views, one per bar.
+	 */
+	@Override
+	public Bar[] toArray() {
+		final Bar[] array = new Bar[size];
+		for (int k = 0; k < size; k++) {
+			array[k] = new View(k);
+		}
+		return array;
+	}
+
+	/* ***** ***** Flyweight ***** ***** */
+
+	private Price price(final int column, final int index) {
+		final long mantissa = priceAt(column, index);
+		return mantissa == NULL ? Price.NULL : VALUES.newPrice(mantissa, priceExponent);
+	}
+
+	private Size size(final int column, final int index) {
+		final long mantissa = sizeAt(column, index);
+		return mantissa == NULL ? Size.NULL : VALUES.newSize(mantissa, sizeExponent);
+	}
+
+	private static Price orZero(final Price price) {
+		return price.isNull() ? VALUES.newPrice(0) : price;
+	}
+
+	private static Size orZero(final Size size) {
+		return size.isNull() ? VALUES.newSize(0) : size;
+	}
+
+	/**
+	 * One row of the columns; values are created on access. Fails fast once
+	 * the series is structurally changed, since its index may then point at
+	 * another bar.
+	 */
+	private final class View implements Bar {
+
+		private final int index;
+
+		private final int expectedModCount = modCount;
+
+		View(final int index) {
+			this.index = index;
+		}
+
+		private int row() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("bar view invalidated by insert, remove or clear");
+			}
+			return index;
+		}
+
+		@Override
+		public DateTime getDate() {
+			return new DateTime(timeAt(row()));
+		}
+
+		@Override
+		public Period getPeriod() {
+			return period;
+		}
+
+		@Override
+		public <E extends DataPoint> int compareTo(final E other) {
+			return period.getPeriodType().compareAtResolution(getDate(), other.getDate());
+		}
+
+		@Override
+		public InstrumentID getInstrument() {
+			return instrument;
+		}
+
+		@Override
+		public Price getOpen() {
+			return price(OPEN, row());
+		}
+
+		@Override
+		public Price getHigh() {
+			return price(HIGH, row());
+		}
+
+		@Override
+		public Price getLow() {
+			return price(LOW, row());
+		}
+
+		@Override
+		public Price getClose() {
+			return price(CLOSE, row());
+		}
+
+		@Override
+		public Price getMidpoint() {
+			return price(MIDPOINT, row());
+		}
+
+		@Override
+		public Price getBid() {
+			return price(BID, row());
+		}
+
+		@Override
+		public Size getBidSize() {
+			return size(BID_SIZE, row());
+		}
+
+		@Override
+		public Price getAsk() {
+			return price(ASK, row());
+		}
+
+		@Override
+		public Size getAskSize() {
+			return size(ASK_SIZE, row());
+		}
+
+		@Override
+		public Size getVolume() {
+			return size(VOLUME, row());
+		}
+
+		@Override
+		public Size getVolumeUp() {
+			return size(VOLUME_UP, row());
+		}
+
+		@Override
+		public Size getVolumeDown() {
+			return size(VOLUME_DOWN, row());
+		}
+
+		@Override
+		public Price getTradedValue() {
+			return price(TRADED_VALUE, row());
+		}
+
+		@Override
+		public Price getTradedValueUp() {
+			return price(TRADED_VALUE_UP, row());
+		}
+
+		@Override
+		public Price getTradedValueDown() {
+			return price(TRADED_VALUE_DOWN, row());
+		}
+
+		@Override
+		public Size getTradeCount() {
+			return size(TRADE_COUNT, row());
+		}
+
+		@Override
+		public Size getOpenInterest() {
+			return size(OPEN_INTEREST, row());
+		}
+
+		/**
+		 * Accumulates the other bar into this row the way
+		 * {@link BarImpl#merge(Bar, boolean)} does, except that additive
+		 * fields read back as totals: a row keeps no merge count to average
+		 * over.
+		 */
+		@Override
+		public <E extends Bar> void merge(final E other, final boolean advanceTime) {
+
+			final int row = row();
+
+			Price otherHigh = other.getHigh();
+			Price otherLow = other.getLow();
+
+			if (other.getPeriod().getPeriodType() == PeriodType.TICK) {
+				otherHigh = otherLow = other.getClose();
+			}
+
+			final Price high = getHigh();
+			if (high.isNull() || (!otherHigh.isNull() && otherHigh.greaterThan(high))) {
+				writePrice(HIGH, row, otherHigh);
+			}
+
+			final Price low = getLow();
+			if (low.isNull() || (!otherLow.isNull() && otherLow.lessThan(low))) {
+				writePrice(LOW, row, otherLow);
+			}
+
+			final Price value = other.getClose().mult(other.getVolume());
+			final Price close = getClose();
+
+			writePrice(TRADED_VALUE, row, orZero(getTradedValue()).add(value));
+			writeSize(VOLUME, row, getVolume().add(other.getVolume()));
+
+			if (close.greaterThan(other.getClose())) {
+				writePrice(TRADED_VALUE_DOWN, row, orZero(getTradedValueDown()).add(value));
+				writeSize(VOLUME_DOWN, row, orZero(getVolumeDown()).add(other.getVolume()));
+			} else if (close.lessThan(other.getClose())) {
+				writePrice(TRADED_VALUE_UP, row, orZero(getTradedValueUp()).add(value));
+				writeSize(VOLUME_UP, row, orZero(getVolumeUp()).add(other.getVolume()));
+			}
+
+			if (timeAt(row) <= other.getDate().getMillis()) {
+				writePrice(CLOSE, row, other.getClose());
+			}
+
+			if (getOpen().isNull()) {
+				writePrice(OPEN, row, other.getOpen());
+			}
+
+			writePrice(BID, row, other.getBid());
+			writeSize(BID_SIZE, row, other.getBidSize());
+			writePrice(ASK, row, other.getAsk());
+			writeSize(ASK_SIZE, row, other.getAskSize());
+
+			writeSize(TRADE_COUNT, row, orZero(getTradeCount()).add(other.getTradeCount()));
+
+			if (!other.getOpenInterest().isNull()) {
+				writeSize(OPEN_INTEREST, row, orZero(getOpenInterest()).add(other.getOpenInterest()));
+			}
+
+			if (advanceTime) {
+				times[row >>> CHUNK_BITS][row & CHUNK_MASK] = other.getDate().getMillis();
+			}
+
+		}
+
+		@Override
+		public int hashCode() {
+			final long millis = timeAt(row());
+			return (int) (millis ^ (millis >>> 32)) * 31 + period.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Bar))
+				return false;
+			final Bar other = (Bar) obj;
+			return period.equals(other.getPeriod()) && compareTo(other) == 0;
+		}
+
+		@Override
+		public String toString() {
+			return "[Bar: " + getDate() + " o=" + getOpen().asDouble() + " h=" + getHigh().asDouble() + " l="
+					+ getLow().asDouble() + " c=" + getClose().asDouble() + " v=" + (long) getVolume().asDouble()
+					+ "]";
+		}
+
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.barchart.feed.series;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.objectlab.kit.datecalc.common.DateCalculator;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.joda.time.chrono.ISOChronology;
+
+/**
+ * The {@link TradingSessionImpl}s of a {@link TradingWeekImpl} laid out over a
+ * single calendar year in a single time zone, as sorted arrays of epoch
+ * milliseconds.
+ * <p>
+ * Each occurrence of a session within the year is stored as its inclusive open
+ * and close instants (the same bounds {@link TradingSessionImpl#contains(org.joda.time.DateTime)}
+ * uses), together with the running total of session milliseconds which elapsed
+ * in the year before it opens. Finding the session containing an instant, or
+ * the session milliseconds between two instants, is then a binary search
+ * instead of a walk over {@code DateTime} fields.
+ * <p>
+ * A calendar is immutable once compiled and is cached by its {@code TradingWeekImpl}.
+ *
+ * @see TradingWeekImpl#getSessionCalendar(DateTimeZone, long)
+ */
+final class SessionCalendar {
+    /** Days before January 1st searched for sessions running into the year */
+    private static final int LEAD_DAYS = 7;
+
+    private final DateTimeZone zone;
+
+    private final Chronology chronology;
+
+    /** First instant of the year, inclusive */
+    private final long yearStart;
+
+    /** First instant of the following year, exclusive */
+    private final long yearEnd;
+
+    /** Inclusive open of each session occurrence, ascending */
+    private final long[] opens;
+
+    /** Inclusive close of each session occurrence */
+    private final long[] closes;
+
+    /** Index of each occurrence's {@code TradingSessionImpl} within its week */
+    private final int[] sessionIndexes;
+
+    /** Session millis within the year elapsed before each occurrence opens */
+    private final long[] elapsed;
+
+    /** By day of year: a business day without a zone offset transition */
+    private final boolean[] regularDays;
+
+    private SessionCalendar(DateTimeZone zone, long yearStart, long yearEnd, long[] opens,
+        long[] closes, int[] sessionIndexes, long[] elapsed, boolean[] regularDays) {
+
+        this.zone = zone;
+        this.chronology = ISOChronology.getInstance(zone);
+        this.yearStart = yearStart;
+        this.yearEnd = yearEnd;
+        this.opens = opens;
+        this.closes = closes;
+        this.sessionIndexes = sessionIndexes;
+        this.elapsed = elapsed;
+        this.regularDays = regularDays;
+    }
+
+    /**
+     * Compiles the specified sessions for one year.
+     *
+     * @param sessions      the sessions of the trading week, in week order.
+     * @param calculator    the trading week's holiday aware date calculator, if any.
+     * @param zone          the time zone the sessions' local times are in.
+     * @param year          the calendar year to compile.
+     * @return              the compiled {@code SessionCalendar}
+     */
+    static SessionCalendar compile(List<TradingSessionImpl> sessions, DateCalculator<LocalDate> calculator,
+        DateTimeZone zone, int year) {
+
+        LocalDate first = new LocalDate(year, 1, 1);
+        LocalDate last = new LocalDate(year, 12, 31);
+        long yearStart = first.toDateTimeAtStartOfDay(zone).getMillis();
+        long yearEnd = last.plusDays(1).toDateTimeAtStartOfDay(zone).getMillis();
+
+        int capacity = (last.getDayOfYear() + LEAD_DAYS) * sessions.size();
+        long[] opens = new long[capacity];
+        long[] closes = new long[capacity];
+        int[] sessionIndexes = new int[capacity];
+        int count = 0;
+
+        for(LocalDate date = first.minusDays(LEAD_DAYS);!date.isAfter(last);date = date.plusDays(1)) {
+            int day = date.getDayOfWeek();
+            for(int i = 0;i < sessions.size();i++) {
+                TradingSessionImpl session = sessions.get(i);
+                if(session.day() != day) {
+                    continue;
+                }
+
+                long open = toMillis(zone, date, session.start());
+                long close = toMillis(zone, date.plusDays(
+                    TradingWeekImpl.naturalDaysBetween(session.day(), session.endDay())), session.end());
+                if(close < yearStart || open >= yearEnd) {
+                    continue;
+                }
+
+                //Sessions of one day may be configured in any order, keep them sorted by open.
+                int j = count++;
+                for(;j > 0 && opens[j - 1] > open;j--) {
+                    opens[j] = opens[j - 1];
+                    closes[j] = closes[j - 1];
+                    sessionIndexes[j] = sessionIndexes[j - 1];
+                }
+                opens[j] = open;
+                closes[j] = close;
+                sessionIndexes[j] = i;
+            }
+        }
+
+        long[] elapsed = new long[count];
+        long total = 0;
+        for(int i = 0;i < count;i++) {
+            elapsed[i] = total;
+            total += Math.min(closes[i], yearEnd) - Math.max(opens[i], yearStart);
+        }
+
+        boolean[] regularDays = new boolean[last.getDayOfYear()];
+        long dayStart = yearStart;
+        for(LocalDate date = first;!date.isAfter(last);date = date.plusDays(1)) {
+            long dayEnd = date.plusDays(1).toDateTimeAtStartOfDay(zone).getMillis();
+            long transition = zone.nextTransition(dayStart);
+            regularDays[date.getDayOfYear() - 1] = calculator != null && !calculator.isNonWorkingDay(date) &&
+                (transition <= dayStart || transition >= dayEnd);
+            dayStart = dayEnd;
+        }
+
+        return new SessionCalendar(zone, yearStart, yearEnd, Arrays.copyOf(opens, count),
+            Arrays.copyOf(closes, count), Arrays.copyOf(sessionIndexes, count), elapsed, regularDays);
+    }
+
+    /**
+     * Returns the instant of the specified local date and time, moving times
+     * within a daylight savings gap forward the way {@code DateTime} does.
+     */
+    private static long toMillis(DateTimeZone zone, LocalDate date, LocalTime time) {
+        long local = date.toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis() + time.getMillisOfDay();
+        return zone.convertLocalToUTC(local, false);
+    }
+
+    /**
+     * Returns a flag indicating whether the specified instant in the specified
+     * zone falls within the year of this calendar.
+     *
+     * @param zone      the time zone of the instant
+     * @param millis    the instant
+     * @return  true if covered by this calendar, false if not.
+     */
+    boolean covers(DateTimeZone zone, long millis) {
+        return millis >= yearStart && millis < yearEnd && this.zone.equals(zone);
+    }
+
+    /**
+     * Returns the first instant of the following year.
+     *
+     * @return  the exclusive end of this calendar's year.
+     */
+    long yearEnd() {
+        return yearEnd;
+    }
+
+    /**
+     * Returns the index of the session occurrence containing the specified
+     * instant, or -1 if it falls between sessions.
+     *
+     * @param millis    an instant within this calendar's year.
+     * @return          the index of the containing occurrence or -1
+     */
+    int indexOf(long millis) {
+        int i = floor(millis);
+        return i >= 0 && millis <= closes[i] ? i : -1;
+    }
+
+    /**
+     * Returns the index within its {@link TradingWeekImpl} of the session
+     * of the specified occurrence.
+     *
+     * @param occurrence    an index returned by {@link #indexOf(long)}
+     * @return              the index of the {@link TradingSessionImpl}
+     */
+    int sessionIndex(int occurrence) {
+        return sessionIndexes[occurrence];
+    }
+
+    /**
+     * Returns a flag indicating whether the date of the specified instant is
+     * a business day without a zone offset transition, so that local fields
+     * of the instant may be rounded as plain millisecond arithmetic.
+     *
+     * @param millis    an instant within this calendar's year.
+     * @return          true if a regular business day, false if not.
+     */
+    boolean isRegularDay(long millis) {
+        return regularDays[chronology.dayOfYear().get(millis) - 1];
+    }
+
+    /**
+     * Returns the day of week of the specified instant.
+     *
+     * @param millis    the instant
+     * @return          the day of week as defined by {@link org.joda.time.DateTimeConstants}
+     */
+    int dayOfWeek(long millis) {
+        return chronology.dayOfWeek().get(millis);
+    }
+
+    /**
+     * Returns the specified instant rounded down to the start of its hour.
+     *
+     * @param millis    the instant
+     * @return          the start of the hour
+     */
+    long floorHour(long millis) {
+        return chronology.hourOfDay().roundFloor(millis);
+    }
+
+    /**
+     * Returns the specified instant rounded down to the start of its minute.
+     *
+     * @param millis    the instant
+     * @return          the start of the minute
+     */
+    long floorMinute(long millis) {
+        return chronology.minuteOfHour().roundFloor(millis);
+    }
+
+    /**
+     * Returns the session milliseconds within this calendar's year which
+     * elapsed before the specified instant.
+     *
+     * @param millis    an instant from the start to the end of this calendar's year.
+     * @return          the elapsed session milliseconds
+     */
+    long elapsedMillis(long millis) {
+        int i = floor(millis);
+        if(i < 0) {
+            return 0;
+        }
+        return elapsed[i] + Math.max(0, Math.min(millis, closes[i]) - Math.max(opens[i], yearStart));
+    }
+
+    /**
+     * Returns the index of the last occurrence opening on or before the
+     * specified instant, or -1 if there is none.
+     */
+    private int floor(long millis) {
+        int i = Arrays.binarySearch(opens, millis);
+        return i >= 0 ? i : -i - 2;
+    }
+
+}
@@ -11,6 +11,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.objectlab.kit.datecalc.common.DateCalculator;
 import net.objectlab.kit.datecalc.common.DefaultHolidayCalendar;
@@ -22,9 +24,11 @@ import net.objectlab.kit.datecalc.joda.LocalDateKitCalculatorsFactory;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalTime;
+import org.joda.time.chrono.ISOChronology;
 
 import com.barchart.feed.api.series.ExtendedChronology;
 import com.barchart.feed.api.series.TradingSession;
@@ -73,6 +77,19 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
     
     private DateCalculator<LocalDate> calculator;
     
+    /** Compiled {@link SessionCalendar}s keyed by time zone id and year */
+    private final ConcurrentMap<String, SessionCalendar> sessionCalendars = 
+        new ConcurrentHashMap<String, SessionCalendar>();
+    
+    /** The most recently used {@code SessionCalendar}, checked before the map */
+    private volatile SessionCalendar lastSessionCalendar;
+    
+    /** Per session and day within it, whether {@link #getTradingSessionOnOrAfter(DateTime)} resolves to it */
+    private volatile boolean[][] resolvesOnOrAfter;
+    
+    /** Per session and day within it, whether {@link #getTradingSessionOnOrBefore(DateTime)} resolves to it */
+    private volatile boolean[][] resolvesOnOrBefore;
+    
     public static final TradingWeek DEFAULT;
     		
     private static final Properties DEFAULT_PROPS; 
@@ -176,6 +193,11 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
         sessions.add((TradingSessionImpl)session);
         weekMillis = -1;
         setWeekMillis();
+        
+        sessionCalendars.clear();
+        lastSessionCalendar = null;
+        resolvesOnOrAfter = null;
+        resolvesOnOrBefore = null;
     }
     
     /**
@@ -293,8 +315,17 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
      * the two dates specified, skipping session breaks and other
      * "non-trading" periods.
      * 
-     * Assumes all dates and times specified exist within one of this TradingWeek's
-     * sessions.
+     * Sums the sessions of the compiled {@link SessionCalendar}s of the years
+     * between the two dates, a binary search per year. As before, holidays
+     * are not skipped.
+     * 
+     * Unlike {@link #calculateSessionMillisBetween(DateTime, DateTime)}, which
+     * assumed both dates lie within a session, dates outside of a session are
+     * now defined: they count the sessions completed before them, so a date
+     * in a session break yields the same result as the close of the preceding
+     * session. For two dates within the same session both calculations agree;
+     * across sessions this is the exact sum of session time, where the walk
+     * could undercount spans crossing several days or weeks.
      * 
      * @param dt1       the first date
      * @param dt2       the second date
@@ -303,6 +334,39 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
      */
     @Override
 	public long getSessionMillisBetween(DateTime dt1, DateTime dt2) {
+        long start = dt1.getMillis();
+        long end = dt2.getMillis();
+        if(end < start) {
+            return -getSessionMillisBetween(dt2, dt1);
+        }
+        
+        DateTimeZone zone = dt1.getZone();
+        long resultMillis = 0;
+        while(true) {
+            SessionCalendar calendar = getSessionCalendar(zone, start);
+            if(end < calendar.yearEnd()) {
+                return resultMillis + calendar.elapsedMillis(end) - calendar.elapsedMillis(start);
+            }
+            resultMillis += calendar.elapsedMillis(calendar.yearEnd()) - calendar.elapsedMillis(start);
+            start = calendar.yearEnd();
+        }
+    }
+    
+    /**
+     * Returns the number of <em>session</em> milliseconds between the two dates
+     * specified by walking the sessions of this {@code TradingWeek}; the
+     * calculation {@link #getSessionMillisBetween(DateTime, DateTime)} used
+     * before session calendars were compiled.
+     * 
+     * Assumes all dates and times specified exist within one of this TradingWeek's
+     * sessions.
+     * 
+     * @param dt1       the first date
+     * @param dt2       the second date
+     * @return          the number of <em>session</em> milliseconds between
+     *                  the two dates specified 
+     */
+    long calculateSessionMillisBetween(DateTime dt1, DateTime dt2) {
         TradingSession currentSession = getTradingSessionOnOrAfter(dt1);
         int daysBetween = Days.daysBetween(dt1, dt2).getDays();
         long resultMillis = 0;
@@ -404,6 +468,21 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
         if(dt == null) {
             return null;
         }
+        DateTime compiled = getCompiledSessionDate(dt, period, false);
+        return compiled != null ? compiled : calculatePreviousSessionDate(dt, period);
+    }
+    
+    /**
+     * Returns the date immediately previous to the specified date that is within the 
+     * boundaries of a {@link TradingSession}, derived field by field from the specified
+     * date. Used whenever {@link #getPreviousSessionDate(DateTime, Period)} cannot
+     * be answered from a compiled {@link SessionCalendar}.
+     * 
+     * @param dt        the date following the returned session date.
+     * @param period    the period specifying the granularity of date alteration.
+     * @return          the previous session date
+     */
+    DateTime calculatePreviousSessionDate(DateTime dt, Period period) {
         int interval = period.size();
         PeriodType periodType = period.getPeriodType();
         dt = dt.millisOfSecond().withMinimumValue();
@@ -586,6 +665,21 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
         if(dt == null) {
             return null;
         }
+        DateTime compiled = getCompiledSessionDate(dt, period, true);
+        return compiled != null ? compiled : calculateNextSessionDate(dt, period);
+    }
+    
+    /**
+     * Returns the date immediately following the specified date that is within the 
+     * boundaries of a {@link TradingSession}, derived field by field from the specified
+     * date. Used whenever {@link #getNextSessionDate(DateTime, Period)} cannot
+     * be answered from a compiled {@link SessionCalendar}.
+     * 
+     * @param dt       the date which the returned date will immediately follow.
+     * @param period   the granularity with which to advance the specified date.
+     * @return         the next session date
+     */
+    DateTime calculateNextSessionDate(DateTime dt, Period period) {
         int interval = period.size();
         PeriodType periodType = period.getPeriodType();
         dt = dt.millisOfSecond().withMinimumValue();
@@ -715,6 +809,162 @@ public class TradingWeekImpl extends JodaWorkingWeek implements TradingWeek {
         return dt;
     }
     
+    /**
+     * Returns the next or previous session date of an intraday {@link Period} from
+     * the compiled {@link SessionCalendar}, or null if the date needs the field by
+     * field calculation: periods of a day or more, a stepped date outside of a 
+     * session, on a holiday or on a day with a zone offset transition.
+     * <p>
+     * Where it answers, the result is the one {@link #calculateNextSessionDate(DateTime, Period)}
+     * and {@link #calculatePreviousSessionDate(DateTime, Period)} return for a
+     * stepped date which lands inside a session.
+     * 
+     * @param dt        the date to step from.
+     * @param period    the granularity of the step.
+     * @param next      true to step forward, false to step back.
+     * @return          the session date or null.
+     */
+    private DateTime getCompiledSessionDate(DateTime dt, Period period, boolean next) {
+        long unit;
+        PeriodType periodType = period.getPeriodType();
+        switch(periodType) {
+            case HOUR: unit = DateTimeConstants.MILLIS_PER_HOUR; break;
+            case MINUTE: unit = DateTimeConstants.MILLIS_PER_MINUTE; break;
+            case SECOND: unit = DateTimeConstants.MILLIS_PER_SECOND; break;
+            default: return null;
+        }
+        if(calculator == null || !(dt.getChronology() instanceof ISOChronology)) {
+            return null;
+        }
+        
+        long millis = dt.getMillis() - dt.getMillisOfSecond();
+        millis += next ? period.size() * unit : -period.size() * unit;
+        
+        SessionCalendar calendar = getSessionCalendar(dt.getZone(), millis);
+        int occurrence = calendar.indexOf(millis);
+        if(occurrence < 0 || !calendar.isRegularDay(millis)) {
+            return null;
+        }
+        
+        int index = calendar.sessionIndex(occurrence);
+        TradingSessionImpl session = sessions.get(index);
+        int sessionDay = (calendar.dayOfWeek(millis) - session.day() + 7) % 7;
+        boolean[] resolves = getSessionResolution(next)[index];
+        if(sessionDay >= resolves.length || !resolves[sessionDay]) {
+            return null;
+        }
+        
+        switch(periodType) {
+            case HOUR: {
+                LocalTime lt = next ? session.start() : session.end();
+                millis = calendar.floorHour(millis) + lt.getMinuteOfHour() * (long)DateTimeConstants.MILLIS_PER_MINUTE;
+                break;
+            }
+            case MINUTE: {
+                millis = calendar.floorMinute(millis);
+                break;
+            }
+            default:
+        }
+        return new DateTime(millis, dt.getChronology());
+    }
+    
+    /**
+     * Returns the compiled {@link SessionCalendar} of the year containing the
+     * specified instant in the specified zone, compiling it on first use.
+     * 
+     * @param zone      the time zone of the session times.
+     * @param millis    an instant within the year.
+     * @return          the {@code SessionCalendar} of that year.
+     */
+    SessionCalendar getSessionCalendar(DateTimeZone zone, long millis) {
+        SessionCalendar calendar = lastSessionCalendar;
+        if(calendar != null && calendar.covers(zone, millis)) {
+            return calendar;
+        }
+        
+        int year = ISOChronology.getInstance(zone).year().get(millis);
+        String key = zone.getID() + ':' + year;
+        calendar = sessionCalendars.get(key);
+        if(calendar == null) {
+            SessionCalendar compiled = SessionCalendar.compile(sessions, calculator, zone, year);
+            calendar = sessionCalendars.putIfAbsent(key, compiled);
+            if(calendar == null) {
+                calendar = compiled;
+            }
+        }
+        lastSessionCalendar = calendar;
+        return calendar;
+    }
+    
+    /**
+     * Returns, per session and per day from the session's start day, whether
+     * {@link #getTradingSessionOnOrAfter(DateTime)} (or {@link #getTradingSessionOnOrBefore(DateTime)})
+     * returns that session for every time of that day within it. Only then
+     * may a compiled calendar stand in for the lookup.
+     * <p>
+     * Both lookups read nothing but the day of week and the local time, and
+     * their outcome only changes at session start and end times, so probing
+     * each side of those times decides every instant of a session day.
+     * 
+     * @param onOrAfter true for the on or after lookup, false for on or before.
+     * @return          the resolution table
+     */
+    private boolean[][] getSessionResolution(boolean onOrAfter) {
+        boolean[][] table = onOrAfter ? resolvesOnOrAfter : resolvesOnOrBefore;
+        if(table != null) {
+            return table;
+        }
+        
+        Set<Integer> times = new HashSet<Integer>();
+        for(TradingSessionImpl session : sessions) {
+            times.add(session.start().getMillisOfDay());
+            times.add(session.end().getMillisOfDay());
+        }
+        
+        //Any full week will do, the lookups ignore the date itself.
+        DateTime monday = new DateTime(2013, 1, 7, 0, 0, 0, 0, DateTimeZone.UTC);
+        table = new boolean[sessions.size()][];
+        for(int i = 0;i < table.length;i++) {
+            TradingSessionImpl session = sessions.get(i);
+            int days = naturalDaysBetween(session.day(), session.endDay());
+            table[i] = new boolean[days + 1];
+            for(int d = 0;d <= days;d++) {
+                long date = monday.plusDays((session.day() - 1 + d) % 7).getMillis();
+                int from = d == 0 ? session.start().getMillisOfDay() : 0;
+                int to = d == days ? session.end().getMillisOfDay() : DateTimeConstants.MILLIS_PER_DAY - 1;
+                
+                boolean resolves = resolvesTo(session, date + from, onOrAfter) && 
+                    resolvesTo(session, date + to, onOrAfter);
+                for(int time : times) {
+                    for(int t = time - 1;t <= time + 1 && resolves;t++) {
+                        if(t >= from && t <= to) {
+                            resolves = resolvesTo(session, date + t, onOrAfter);
+                        }
+                    }
+                }
+                table[i][d] = resolves;
+            }
+        }
+        
+        if(onOrAfter) {
+            resolvesOnOrAfter = table;
+        }else{
+            resolvesOnOrBefore = table;
+        }
+        return table;
+    }
+    
+    /**
+     * Returns a flag indicating whether the specified session contains the specified
+     * UTC instant and is the session the specified lookup returns for it.
+     */
+    private boolean resolvesTo(TradingSessionImpl session, long utcMillis, boolean onOrAfter) {
+        DateTime date = new DateTime(utcMillis, DateTimeZone.UTC);
+        return session.contains(date) && session == 
+            (onOrAfter ? getTradingSessionOnOrAfter(date) : getTradingSessionOnOrBefore(date));
+    }
+    
     /**
      * Returns a default {@link TradingWeekImpl} used for testing.
      * 
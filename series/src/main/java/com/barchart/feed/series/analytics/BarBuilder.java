@@ -3,7 +3,6 @@ package com.barchart.feed.series.analytics;
 import org.joda.time.DateTime;
 
 import com.barchart.feed.api.series.Period;
-import com.barchart.feed.api.series.PeriodType;
 import com.barchart.feed.api.series.Span;
 import com.barchart.feed.api.series.network.Analytic;
 import com.barchart.feed.api.series.network.Subscription;
@@ -30,6 +29,15 @@ public class BarBuilder extends AnalyticBase {
 
     private DateTime workingTargetDate;
 
+    /** Millis of {@link #workingTargetDate}, the boundary of the bar being built */
+    private long workingTargetMillis;
+
+    /** Index of the first input bar not yet aggregated, -1 until the first span */
+    private int inputCursor = -1;
+
+    /** Millis of the last input bar aggregated */
+    private long cursorMillis = Long.MIN_VALUE;
+
     /** The {@link Subscription} used to determine the output {@link Period} information */
     private SeriesSubscription subscription;
 
@@ -75,8 +83,23 @@ public class BarBuilder extends AnalyticBase {
 
 		DataSeriesImpl<DataPointImpl> outputSeries = (DataSeriesImpl)getOutputTimeSeries(BarBuilder.OUTPUT_KEY);
 		DataSeriesImpl<DataPointImpl> inputSeries = (DataSeriesImpl)getInputTimeSeries(BarBuilder.INPUT_KEY);
-		int inputStartIdx = inputSeries.indexOf(inputSpan.getDate(), false);
-		int inputLastIdx = inputSeries.indexOf(inputSpan.getNextDate(), false);
+
+		// Only the first span is searched for, later spans continue from the cursor
+		int inputStartIdx = inputCursor;
+		if(inputCursor < 0) {
+		    inputStartIdx = inputSeries.indexOf(inputSpan.getDate(), false);
+		}else if(isShifted(inputSeries)) {
+		    // Bars inserted out of order moved the aggregated bars past the cursor
+		    inputStartIdx = inputSpan.getDate().getMillis() < cursorMillis ?
+		        inputSeries.indexOf(inputSpan.getDate(), false) : endIndex(inputSeries, inputCursor, cursorMillis);
+		}
+		int inputEndIdx = endIndex(inputSeries, inputStartIdx, inputSpan.getNextDate().getMillis());
+		if(inputStartIdx >= inputEndIdx) {
+		    return null;
+		}
+		cursorMillis = Math.max(cursorMillis, inputSeries.get(inputEndIdx - 1).getDate().getMillis());
+		// Skip bars shifted behind an out of order insert which were aggregated before
+		inputCursor = endIndex(inputSeries, inputEndIdx, cursorMillis);
 
 		Period inputPeriod = inputSeries.getPeriod();
         Period outputPeriod = outputSeries.getPeriod();
@@ -84,7 +107,7 @@ public class BarBuilder extends AnalyticBase {
         boolean barCompleted = false;
 
         if(inputPeriod.equals(outputPeriod)) {
-		    for(int i = inputStartIdx;i <= inputLastIdx;i++) {
+		    for(int i = inputStartIdx;i < inputEndIdx;i++) {
 		        outputSeries.insertData(inputSeries.get(i));
 		    }
 		    return new SpanImpl(inputSpan);
@@ -95,39 +118,30 @@ public class BarBuilder extends AnalyticBase {
 						inputPeriod + ", output=" + outputPeriod);
 			}
 
-			if(subscription.getTimeFrame(0).getPeriod().equals(new Period(PeriodType.SECOND, 1))) {
-			    System.out.println("debug");
-			}
-
 			boolean wasAddedDuringInit = false;
 			if(currentMergeBar == null) {
 			    wasAddedDuringInit = true;
 				currentMergeBar = new BarImpl((BarImpl)inputSeries.get(inputStartIdx));
-				workingTargetDate = subscription.getTradingWeek().getNextSessionDate(inputSpan.getDate(), outputPeriod);
+				setWorkingTarget(subscription.getTradingWeek().getNextSessionDate(inputSpan.getDate(), outputPeriod));
 				currentMergeBar.setDate(workingTargetDate);
 				workingSpan = new SpanImpl(subscription.getTimeFrame(0).getPeriod(), inputSpan.getDate(), inputSpan.getNextDate());
 				this.workingSpan.setNextDate(workingTargetDate);
-				System.out.println("IS INIT: ADDING NEW BAR " + currentMergeBar + "   " + outputSeries.getPeriod() + "  :  span = " + this.workingSpan);
 				outputSeries.add(currentMergeBar);
 			}else{
 				workingSpan.setDate(workingTargetDate);
 			}
 
-			for(int i = wasAddedDuringInit ? inputStartIdx + 1 : inputStartIdx;i <= inputLastIdx;i++) {
+			for(int i = wasAddedDuringInit ? inputStartIdx + 1 : inputStartIdx;i < inputEndIdx;i++) {
 				BarImpl currentIdxBar = (BarImpl)inputSeries.get(i);
-				if(currentIdxBar.getDate().isAfter(workingTargetDate)) {
-					workingTargetDate = subscription.getTradingWeek().getNextSessionDate(workingTargetDate, outputPeriod);
+				if(currentIdxBar.getDate().getMillis() > workingTargetMillis) {
+					setWorkingTarget(subscription.getTradingWeek().getNextSessionDate(workingTargetDate, outputPeriod));
 					currentMergeBar = new BarImpl(currentIdxBar);
 					currentMergeBar.setDate(workingTargetDate);
 					this.workingSpan.setNextDate(workingTargetDate);
-					System.out.println("IS AFTER: ADDING NEW BAR " + currentMergeBar + "   " + outputSeries.getPeriod() + "  :  span = " + this.workingSpan);
 					outputSeries.add(currentMergeBar);
 					barCompleted = true;
 				}else{
 				    currentMergeBar.merge(currentIdxBar, false);
-				    if(workingSpan.getPeriod().equals(new Period(PeriodType.SECOND, 1))) {
-				        System.out.println("\tNOT IS AFTER: MERGING NEW BAR " + currentMergeBar + "   " + outputSeries.getPeriod() + "  :  span = " + this.workingSpan);
-				    }
 				}
 			}
 
@@ -138,6 +152,39 @@ public class BarBuilder extends AnalyticBase {
 		return barCompleted ? workingSpan : null;
 	}
 
+	/**
+	 * Returns the index following the last input bar at or before the
+	 * specified end of span, scanning forward from the specified index.
+	 * Input bars arrive in time order, so this usually only walks the
+	 * bars added since the previous span.
+	 */
+	private static int endIndex(DataSeriesImpl<DataPointImpl> inputSeries, int from, long endMillis) {
+	    final int size = inputSeries.size();
+	    int i = from;
+	    while(i < size && inputSeries.get(i).getDate().getMillis() <= endMillis) {
+	        i++;
+	    }
+	    return i;
+	}
+
+	/**
+	 * Returns true if the bar behind the cursor is no longer the last one
+	 * aggregated, because bars were inserted before it.
+	 */
+	private boolean isShifted(DataSeriesImpl<DataPointImpl> inputSeries) {
+	    return inputCursor > 0 && (inputCursor > inputSeries.size() ||
+	        inputSeries.get(inputCursor - 1).getDate().getMillis() != cursorMillis);
+	}
+
+	/**
+	 * Sets the close date of the bar being built, caching its millis for
+	 * the per bar boundary comparison.
+	 */
+	private void setWorkingTarget(DateTime target) {
+	    workingTargetDate = target;
+	    workingTargetMillis = target.getMillis();
+	}
+
 	/**
 	 * Returns a list of this {@code Analytic}'s input keys.
 	 *
@@ -1,6 +1,7 @@
 package com.barchart.feed.series.network;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -135,7 +136,12 @@ public class Distributor extends Node<SeriesSubscription> implements Assembler {
             historicalQueue.add(bar);
         }
 
-        setModifiedSpan(span, outputSubscriptions);
+        // The result holds the complete historical range, so evaluate the
+        // whole downstream network once, on this thread.
+        if(span != null) {
+            updateModifiedSpan(span, subscription);
+            Node.evaluate(Collections.singletonList(this));
+        }
 
         //historicalDataAdded = true;
 	}
@@ -0,0 +1,162 @@
+package com.barchart.feed.series;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.barchart.feed.api.series.Bar;
+import com.barchart.feed.api.series.Period;
+import com.barchart.feed.api.series.PeriodType;
+import com.barchart.util.value.ValueFactoryImpl;
+import com.barchart.util.value.api.Price;
+import com.barchart.util.value.api.Size;
+
+public class ColumnarBarSeriesTest {
+	private static final ValueFactoryImpl FACTORY = new ValueFactoryImpl();
+
+	private static final Period PERIOD = new Period(PeriodType.MINUTE, 1);
+
+	private static final DateTime START = new DateTime(2013, 12, 10, 9, 0, 0, 0);
+
+	private static BarImpl bar(final int minute, final long close, final int exponent) {
+		final Price price = FACTORY.newPrice(close, exponent);
+		return new BarImpl(null, START.plusMinutes(minute), PERIOD, price, price, price, price,
+				FACTORY.newSize(10), null);
+	}
+
+	@Test
+	public void testAppendAndRead() {
+		final ColumnarBarSeries series = new ColumnarBarSeries(PERIOD);
+
+		for (int i = 0; i < 10000; i++) {
+			series.add(bar(i, 100 + i, -2));
+		}
+
+		assertEquals(10000, series.size());
+		assertEquals(START.getMillis(), series.timeAt(0));
+		assertEquals(100 + 5000, series.closeAt(5000));
+		assertEquals(-2, series.priceExponent());
+		assertEquals(10, series.volumeAt(9999));
+
+		final Bar last = series.getLast();
+		assertEquals(START.plusMinutes(9999), last.getDate());
+		assertEquals(FACTORY.newPrice(10099, -2).asDouble(), last.getClose().asDouble(), 0.0);
+
+		/* never written, never allocated */
+		assertEquals(ColumnarBarSeries.NULL, series.priceAt(ColumnarBarSeries.BID, 0));
+		assertTrue(last.getBid().isNull());
+		assertTrue(last.getAskSize().isNull());
+	}
+
+	@Test
+	public void testRescale() {
+		final ColumnarBarSeries series = new ColumnarBarSeries(PERIOD);
+
+		series.add(bar(0, 125, -2));
+		series.add(bar(1, 12575, -4));
+
+		assertEquals(-4, series.priceExponent());
+		assertEquals(12500, series.closeAt(0));
+		assertEquals(1.2575, series.get(1).getClose().asDouble(), 0.0);
+	}
+
+	@Test
+	public void testInsertRemove() {
+		final ColumnarBarSeries series = new ColumnarBarSeries(PERIOD);
+
+		series.insertData(bar(0, 1, 0));
+		series.insertData(bar(2, 3, 0));
+		series.insertData(bar(1, 2, 0));
+
+		assertEquals(3, series.size());
+		assertEquals(1, series.indexOf(START.plusMinutes(1), true));
+		assertEquals(2, series.closeAt(1));
+		assertEquals(-1, series.indexOf(START.plusMinutes(5), true));
+		assertEquals(3, series.indexOf(START.plusMinutes(5), false));
+		assertNull(series.forDate(START.plusMinutes(5)));
+
+		final Bar removed = series.remove(0);
+		assertEquals(1, removed.getClose().asDouble(), 0.0);
+		assertEquals(2, series.size());
+		assertEquals(2, series.closeAt(0));
+
+		final Size merged = FACTORY.newSize(5);
+		series.get(0).merge(new BarImpl(null, START.plusMinutes(1), PERIOD, null, FACTORY.newPrice(9, 0),
+				null, FACTORY.newPrice(4, 0), merged, null), false);
+
+		/* traded value may lower the shared exponent, compare values */
+		final Bar bar = series.get(0);
+		assertEquals(9, bar.getHigh().asDouble(), 0.0);
+		assertEquals(4, bar.getClose().asDouble(), 0.0);
+		assertEquals(15, bar.getVolume().asDouble(), 0.0);
+	}
+
+	@Test
+	public void testViewInvalidated() {
+		final ColumnarBarSeries series = new ColumnarBarSeries(PERIOD);
+
+		series.add(bar(0, 1, 0));
+		series.add(bar(2, 3, 0));
+
+		final Bar view = series.get(1);
+		series.set(1, bar(2, 4, 0));
+		assertEquals(4, view.getClose().asDouble(), 0.0);
+
+		/* would now read the bar inserted before it */
+		series.insertData(bar(1, 2, 0));
+		try {
+			view.getClose();
+			fail("view survived an insert");
+		} catch (final ConcurrentModificationException e) {
+		}
+
+		assertEquals(4, series.get(2).getClose().asDouble(), 0.0);
+	}
+
+	@Test
+	public void testOverflow() {
+		final ColumnarBarSeries series = new ColumnarBarSeries(PERIOD);
+
+		series.add(bar(0, Long.MAX_VALUE / 10, 0));
+		series.add(bar(1, 5, 0));
+
+		/* two more digits would overflow the first row */
+		try {
+			series.add(bar(2, 1, -2));
+			fail("rescale overflowed silently");
+		} catch (final ArithmeticException e) {
+		}
+
+		assertEquals(2, series.size());
+		assertEquals(0, series.priceExponent());
+		assertEquals(Long.MAX_VALUE / 10, series.closeAt(0));
+		assertEquals(5, series.closeAt(1));
+
+		/* a coarser value which does not fit the finer series exponent */
+		series.add(bar(2, 1, -1));
+		try {
+			series.add(1, bar(3, Long.MAX_VALUE / 2, 0));
+			fail("scale overflowed silently");
+		} catch (final ArithmeticException e) {
+		}
+
+		assertEquals(3, series.size());
+		assertEquals(5 * 10, series.closeAt(1));
+		assertEquals(1, series.closeAt(2));
+
+		try {
+			series.set(2, bar(2, Long.MAX_VALUE / 2, 0));
+			fail("scale overflowed silently");
+		} catch (final ArithmeticException e) {
+		}
+
+		assertEquals(1, series.closeAt(2));
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.barchart.feed.series;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+import com.barchart.feed.api.series.Period;
+import com.barchart.feed.api.series.PeriodType;
+
+
+public class SessionCalendarTest {
+    private static final long HOUR = 3600000;
+
+    private static final String DAILY = "DAILY";
+    private static final String MIDWEEK = "MIDWEEK";
+    private static final String SPLIT = "SPLIT";
+    private static final String OVERNIGHT = "OVERNIGHT";
+
+    private static final Map<String, String> SESSIONS = new HashMap<String, String>();
+    static {
+        SESSIONS.put(DAILY, "7,08:30:0:0,7,15:30:0:0;1,08:30:0:0,1,15:30:0:0;2,08:30:0:0,2,15:30:0:0;" +
+            "3,08:30:0:0,3,15:30:0:0;4,08:30:0:0,4,15:30:0:0;5,08:30:0:0,5,15:30:0:0;6,08:30:0:0,6,15:30:0:0");
+        SESSIONS.put(MIDWEEK, "2,08:30:0:0,2,15:30:0:0;3,08:30:0:0,3,15:30:0:0;4,08:30:0:0,4,15:30:0:0");
+        SESSIONS.put(SPLIT, "1,08:30:0:0,1,11:00:0:0;1,12:00:0:0,1,15:15:0:0;2,08:30:0:0,2,11:00:0:0;" +
+            "2,12:00:0:0,2,15:15:0:0;3,08:30:0:0,3,11:00:0:0;3,12:00:0:0,3,15:15:0:0");
+        SESSIONS.put(OVERNIGHT, "7,17:00:0:0,1,16:00:0:0;1,17:00:0:0,2,16:00:0:0;2,17:00:0:0,3,16:00:0:0;" +
+            "3,17:00:0:0,4,16:00:0:0;4,17:00:0:0,5,16:00:0:0");
+    }
+
+    private static final Period[] PERIODS = {
+        new Period(PeriodType.SECOND, 1), new Period(PeriodType.SECOND, 30),
+        new Period(PeriodType.MINUTE, 1), new Period(PeriodType.MINUTE, 5),
+        new Period(PeriodType.MINUTE, 90), new Period(PeriodType.HOUR, 1),
+        new Period(PeriodType.HOUR, 4)
+    };
+
+    @Test
+    public void testCompiledSessionDatesMatchCalculation() {
+        DateTime start = new DateTime(2012, 1, 1, 0, 0, 0, 0);
+        long range = new DateTime(2015, 1, 1, 0, 0, 0, 0).getMillis() - start.getMillis();
+
+        for(String name : new String[] { DAILY, MIDWEEK, SPLIT, OVERNIGHT }) {
+            TradingWeekImpl week = getTestTradingWeek(name);
+            Random random = new Random(31);
+            for(int i = 0;i < 20000;i++) {
+                DateTime dt = start.plus((long)(random.nextDouble() * range));
+                Period period = PERIODS[random.nextInt(PERIODS.length)];
+
+                DateTime expected = null;
+                try {
+                    expected = week.calculateNextSessionDate(dt, period);
+                }catch(RuntimeException e) { continue; }
+                assertEquals(name + " next " + period + " from " + dt, expected, week.getNextSessionDate(dt, period));
+
+                try {
+                    expected = week.calculatePreviousSessionDate(dt, period);
+                }catch(RuntimeException e) { continue; }
+                assertEquals(name + " previous " + period + " from " + dt, expected, week.getPreviousSessionDate(dt, period));
+            }
+        }
+    }
+
+    @Test
+    public void testSessionMillisAcrossYears() {
+        TradingWeekImpl week = getTestTradingWeek(DAILY);
+
+        //6 hours of Dec 31st, all of the Jan 1st holiday and 2 hours of Jan 2nd
+        DateTime dt1 = new DateTime(2012, 12, 31, 9, 30, 0, 0);
+        DateTime dt2 = new DateTime(2013, 1, 2, 10, 30, 0, 0);
+        assertEquals(HOUR * 15, week.getSessionMillisBetween(dt1, dt2));
+        assertEquals(-HOUR * 15, week.getSessionMillisBetween(dt2, dt1));
+
+        //Dates between sessions count the completed sessions
+        dt1 = new DateTime(2013, 3, 9, 20, 0, 0, 0);
+        dt2 = new DateTime(2013, 3, 11, 6, 0, 0, 0);
+        assertEquals(HOUR * 7, week.getSessionMillisBetween(dt1, dt2));
+
+        //A year of daily sessions
+        dt1 = new DateTime(2013, 6, 1, 8, 30, 0, 0);
+        dt2 = new DateTime(2014, 6, 1, 8, 30, 0, 0);
+        assertEquals(HOUR * 7 * 365, week.getSessionMillisBetween(dt1, dt2));
+    }
+
+    @Test
+    public void testSessionMillisWithinSessionMatchCalculation() {
+        //The field walk is only defined for dates within one session, and there both must agree
+        DateTime start = new DateTime(2012, 1, 1, 0, 0, 0, 0);
+        long range = new DateTime(2015, 1, 1, 0, 0, 0, 0).getMillis() - start.getMillis();
+
+        for(String name : new String[] { DAILY, MIDWEEK, SPLIT }) {
+            TradingWeekImpl week = getTestTradingWeek(name);
+            Random random = new Random(17);
+            for(int i = 0;i < 20000;) {
+                DateTime dt1 = start.plus((long)(random.nextDouble() * range));
+                if(!isInSession(name, dt1)) {
+                    continue;
+                }
+                DateTime close = dt1.withTime(week.getTradingSessionOnOrAfter(dt1).end());
+                DateTime dt2 = dt1.plus((long)(random.nextDouble() * (close.getMillis() - dt1.getMillis())));
+                i++;
+
+                assertEquals(name + " from " + dt1 + " to " + dt2, week.calculateSessionMillisBetween(dt1, dt2),
+                    week.getSessionMillisBetween(dt1, dt2));
+            }
+        }
+    }
+
+    @Test
+    public void testSessionMillisMatchSessionWalk() {
+        //Across sessions the calendar sums exact session time, checked against the configured sessions
+        DateTime start = new DateTime(2012, 1, 1, 0, 0, 0, 0);
+        long range = new DateTime(2015, 1, 1, 0, 0, 0, 0).getMillis() - start.getMillis();
+        long maxSpan = 60L * 24 * HOUR;
+
+        for(String name : new String[] { DAILY, MIDWEEK, SPLIT, OVERNIGHT }) {
+            TradingWeekImpl week = getTestTradingWeek(name);
+            Random random = new Random(19);
+            for(int i = 0;i < 2000;) {
+                DateTime dt1 = start.plus((long)(random.nextDouble() * range));
+                DateTime dt2 = dt1.plus((long)(random.nextDouble() * maxSpan));
+                if(!isInSession(name, dt1) || !isInSession(name, dt2)) {
+                    continue;
+                }
+                i++;
+
+                long expected = sessionMillis(name, dt1, dt2);
+                assertEquals(name + " from " + dt1 + " to " + dt2, expected, week.getSessionMillisBetween(dt1, dt2));
+                assertEquals(name + " from " + dt2 + " to " + dt1, -expected, week.getSessionMillisBetween(dt2, dt1));
+            }
+        }
+    }
+
+    /**
+     * Sums the overlap of each configured session occurrence with the
+     * specified range, day by day; holidays are counted like the calendar does.
+     */
+    private static long sessionMillis(String name, DateTime dt1, DateTime dt2) {
+        DateTimeZone zone = dt1.getZone();
+        long total = 0;
+        for(LocalDate date = dt1.toLocalDate().minusDays(7);!date.isAfter(dt2.toLocalDate());date = date.plusDays(1)) {
+            for(String session : SESSIONS.get(name).split(";")) {
+                String[] params = session.split(",");
+                int day = Integer.parseInt(params[0]);
+                if(day != date.getDayOfWeek()) {
+                    continue;
+                }
+                long open = date.toDateTime(toLocalTime(params[1]), zone).getMillis();
+                long close = date.plusDays(TradingWeekImpl.naturalDaysBetween(day, Integer.parseInt(params[2])))
+                    .toDateTime(toLocalTime(params[3]), zone).getMillis();
+                total += Math.max(0, Math.min(close, dt2.getMillis()) - Math.max(open, dt1.getMillis()));
+            }
+        }
+        return total;
+    }
+
+    private static boolean isInSession(String name, DateTime dt) {
+        return sessionMillis(name, dt, dt.plus(1)) == 1;
+    }
+
+    private static LocalTime toLocalTime(String time) {
+        String[] fields = time.split(":");
+        return new LocalTime(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+            Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+    }
+
+    private TradingWeekImpl getTestTradingWeek(String symbol) {
+        Properties props = new Properties();
+        props.put("SESSION_CALENDAR_TEST.holidayDateFileLoadType", TradingWeekImpl.LoadType.MEMORY);
+        props.put("SESSION_CALENDAR_TEST.holidayDelimiter", ",");
+        props.put("SESSION_CALENDAR_TEST.holidayDates", "2012-12-25,2013-1-1,2013-7-4,2014-1-1");
+
+        for(String name : new String[] { DAILY, MIDWEEK, SPLIT, OVERNIGHT }) {
+            props.setProperty(name + ".sessionParamDelimiter", ",");
+            props.setProperty(name + ".sessionDelimiter", ";");
+        }
+        for(Map.Entry<String, String> e : SESSIONS.entrySet()) {
+            props.setProperty(e.getKey() + ".sessions", e.getValue());
+        }
+
+        try {
+            return (TradingWeekImpl)TradingWeekImpl.configBuilder(props, "SESSION_CALENDAR_TEST", symbol).build();
+        } catch(Exception e) { throw new IllegalStateException("could not initialize test trading week " + symbol, e); }
+    }
+
+}
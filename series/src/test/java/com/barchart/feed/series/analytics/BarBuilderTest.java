@@ -2,6 +2,7 @@ package com.barchart.feed.series.analytics;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -197,6 +198,107 @@ public class BarBuilderTest {
 		System.out.println("output series size: " + outputSeries.size());
 	}
 
+	@SuppressWarnings({
+			"unchecked", "rawtypes"
+	})
+	@Test
+	public void testSpanIsAggregatedOnce() {
+		String symbol = "ESZ13";
+		Instrument instr = TestHarness.makeInstrument(symbol);
+		DateTime dt2 = new DateTime(2013, 12, 10, 12, 0, 0);
+		TimeFrameImpl tf2 = new TimeFrameImpl(new Period(PeriodType.MINUTE, 5), dt2, null);
+
+		SeriesSubscription sub2 = new SeriesSubscription(
+			"ESZ13", instr, "IO", new TimeFrameImpl[] {	tf2 }, TradingWeekImpl.DEFAULT);
+
+		BarBuilder barBuilder = new BarBuilder(sub2);
+		barBuilder.addInputTimeSeries(BarBuilder.INPUT_KEY, new DataSeriesImpl<BarImpl>(new Period(PeriodType.MINUTE, 1)));
+		DataSeriesImpl<BarImpl> inputSeries =
+			(DataSeriesImpl) barBuilder.getInputTimeSeries(BarBuilder.INPUT_KEY);
+		barBuilder.addOutputTimeSeries(BarBuilder.OUTPUT_KEY, new DataSeriesImpl<BarImpl>(new Period(PeriodType.MINUTE, 5)));
+		DataSeriesImpl<BarImpl> outputSeries =
+			(DataSeriesImpl) barBuilder.getOutputTimeSeries(BarBuilder.OUTPUT_KEY);
+
+		for (BarImpl bar : getBars()) {
+			inputSeries.add(bar);
+		}
+
+		SpanImpl span = new SpanImpl(new Period(PeriodType.MINUTE, 5),
+			new DateTime(2013, 12, 10, 12, 0, 0),
+				inputSeries.get(inputSeries.size() - 1).getDate());
+		barBuilder.process(span);
+
+		double volume = outputSeries.get(outputSeries.size() - 1).getVolume().asDouble();
+
+		// Input already aggregated is not merged a second time
+		assertNull(barBuilder.process(span));
+		assertEquals(6, outputSeries.size());
+		assertEquals(volume, outputSeries.get(outputSeries.size() - 1).getVolume().asDouble(), 0.0);
+	}
+
+	@SuppressWarnings({
+			"unchecked", "rawtypes"
+	})
+	@Test
+	public void testOutOfOrderInsert() {
+		String symbol = "ESZ13";
+		Instrument instr = TestHarness.makeInstrument(symbol);
+		DateTime dt2 = new DateTime(2013, 12, 10, 12, 0, 0);
+		TimeFrameImpl tf2 = new TimeFrameImpl(new Period(PeriodType.MINUTE, 5), dt2, null);
+
+		SeriesSubscription sub2 = new SeriesSubscription(
+			"ESZ13", instr, "IO", new TimeFrameImpl[] {	tf2 }, TradingWeekImpl.DEFAULT);
+
+		BarBuilder barBuilder = new BarBuilder(sub2);
+		barBuilder.addInputTimeSeries(BarBuilder.INPUT_KEY, new DataSeriesImpl<BarImpl>(new Period(PeriodType.MINUTE, 1)));
+		DataSeriesImpl<BarImpl> inputSeries =
+			(DataSeriesImpl) barBuilder.getInputTimeSeries(BarBuilder.INPUT_KEY);
+		barBuilder.addOutputTimeSeries(BarBuilder.OUTPUT_KEY, new DataSeriesImpl<BarImpl>(new Period(PeriodType.MINUTE, 5)));
+		DataSeriesImpl<BarImpl> outputSeries =
+			(DataSeriesImpl) barBuilder.getOutputTimeSeries(BarBuilder.OUTPUT_KEY);
+
+		// 12:12 arrives late
+		BarImpl late = null;
+		for (BarImpl bar : getBars()) {
+			if (bar.getDate().getMinuteOfHour() == 12) {
+				late = new BarImpl(null, bar.getDate(), Period.ONE_MINUTE, FACTORY.newPrice(5),
+					FACTORY.newPrice(1000), FACTORY.newPrice(5), FACTORY.newPrice(5),
+						FACTORY.newSize(5, 0), FACTORY.newSize(5, 0));
+			} else {
+				inputSeries.add(bar);
+			}
+		}
+
+		SpanImpl span = new SpanImpl(new Period(PeriodType.MINUTE, 5),
+			new DateTime(2013, 12, 10, 12, 0, 0),
+				inputSeries.get(inputSeries.size() - 1).getDate());
+		barBuilder.process(span);
+		assertEquals(6, outputSeries.size());
+
+		// The insert shifts every bar after it, the late bar is still aggregated
+		inputSeries.insertData(late);
+		span.setDate(late.getDate());
+		span.setNextDate(late.getDate());
+		barBuilder.process(span);
+
+		BarImpl last = (BarImpl) outputSeries.get(outputSeries.size() - 1);
+		assertEquals(1000, last.getHigh().asDouble(), 0.0);
+
+		// In order input continues after the bars aggregated before the insert
+		DateTime next = new DateTime(2013, 12, 10, 12, 30, 0);
+		inputSeries.add(new BarImpl(null, next, Period.ONE_MINUTE, FACTORY.newPrice(5),
+			FACTORY.newPrice(5), FACTORY.newPrice(5), FACTORY.newPrice(5),
+				FACTORY.newSize(100, 0), FACTORY.newSize(5, 0)));
+		span.setDate(next);
+		span.setNextDate(next);
+		barBuilder.process(span);
+
+		// 12:26 to 12:29, the late 12:12 and 12:30, each once
+		assertEquals(6, outputSeries.size());
+		assertEquals(FACTORY.newSize(4 * 5 + 5 + 100, 0).div(6).asDouble(),
+			last.getVolume().asDouble(), 0.0);
+	}
+
 	private List<BarImpl> getBars() {
 		int min = 0;
 		List<BarImpl> l = new ArrayList<BarImpl>();